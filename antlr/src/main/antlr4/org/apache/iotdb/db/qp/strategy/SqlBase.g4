@@ -133,6 +133,7 @@ functionName
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | M4
     ;
 
 functionAsClause
@@ -491,6 +492,7 @@ nodeName
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | M4
     | LAST
     | DISABLE
     | ALIGN
@@ -601,6 +603,7 @@ nodeNameWithoutStar
     | FIRST_VALUE
     | SUM
     | LAST_VALUE
+    | M4
     | LAST
     | DISABLE
     | ALIGN
@@ -1071,6 +1074,10 @@ LAST_VALUE
     : L A S T UNDERLINE V A L U E
     ;
 
+M4
+    : M '4'
+    ;
+
 LAST
     : L A S T
     ;
@@ -0,0 +1,624 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import me.tongfei.progressbar.ProgressBar;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+
+/**
+ * CsvTabletImporter imports one CSV file through sessions instead of SQL. The rows after the
+ * header are split into line-aligned byte ranges, which are parsed by several threads in
+ * parallel. Each thread owns a session, fills one Tablet per device with typed values and sends
+ * them by insertTablets, so the server does not parse any SQL.
+ * <p>
+ * After each batch is sent, the offset of the range up to which the rows are committed is saved
+ * into a checkpoint file next to the CSV file, so an interrupted import can be resumed without
+ * sending the committed rows again. The checkpoint file is removed when the import finishes.
+ */
+class CsvTabletImporter {
+
+  private static final String CHECKPOINT_SUFFIX = ".offsets";
+  private static final String TMP_SUFFIX = ".tmp";
+  /**
+   * the number of ranges per thread, more ranges balance the load among the threads better
+   */
+  private static final int RANGES_PER_THREAD = 4;
+  private static final long PROGRESS_INTERVAL_MS = 500;
+  private static final int SKIP_LINE_BUFFER_SIZE = 8192;
+
+  private final File file;
+  private final List<String> headInfo;
+  private final List<String> colInfo;
+  private final Map<String, ArrayList<Integer>> deviceToColumn;
+  private final TSDataType[] columnTypes;
+  private final ZoneId zoneId;
+  private final int threadNum;
+  private final int batchSize;
+  private final BufferedWriter errorWriter;
+
+  private final File checkpointFile;
+  private List<CsvRange> ranges;
+  private final AtomicLong importedBytes = new AtomicLong();
+  private final AtomicBoolean hasErrorLine = new AtomicBoolean();
+  private final AtomicBoolean interrupted = new AtomicBoolean();
+
+  CsvTabletImporter(File file, List<String> headInfo, List<String> colInfo,
+      Map<String, ArrayList<Integer>> deviceToColumn, Map<String, String> timeseriesDataType,
+      ZoneId zoneId, int threadNum, int batchSize, BufferedWriter errorWriter) {
+    this.file = file;
+    this.headInfo = headInfo;
+    this.colInfo = colInfo;
+    this.deviceToColumn = deviceToColumn;
+    this.zoneId = zoneId;
+    this.threadNum = threadNum;
+    this.batchSize = batchSize;
+    this.errorWriter = errorWriter;
+    this.columnTypes = new TSDataType[headInfo.size()];
+    for (int i = 0; i < headInfo.size(); i++) {
+      columnTypes[i] = TSDataType.valueOf(timeseriesDataType.get(headInfo.get(i)));
+    }
+    this.checkpointFile = new File(file.getPath() + CHECKPOINT_SUFFIX);
+  }
+
+  /**
+   * import the rows after the header.
+   *
+   * @param resume whether to continue from the checkpoint file of a previous import
+   * @return true if no line is rejected and all the rows are imported, otherwise the checkpoint
+   * is kept to resume the import
+   */
+  boolean importFile(String host, int port, String username, String password, boolean resume)
+      throws IOException {
+    if (resume && checkpointFile.exists()) {
+      ranges = loadCheckpoint();
+      if (ranges == null) {
+        System.out.println("The checkpoint " + checkpointFile.getAbsolutePath()
+            + " does not match " + file.getName() + ", import the whole file");
+      } else {
+        System.out.println("Resume importing " + file.getName() + " from "
+            + checkpointFile.getAbsolutePath());
+      }
+    }
+    if (ranges == null) {
+      ranges = splitRanges();
+    }
+
+    long totalBytes = 0;
+    ConcurrentLinkedQueue<CsvRange> rangeQueue = new ConcurrentLinkedQueue<>();
+    for (CsvRange range : ranges) {
+      totalBytes += range.end - range.start;
+      importedBytes.addAndGet(range.committed - range.start);
+      if (range.committed < range.end) {
+        rangeQueue.add(range);
+      }
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+    List<Future<?>> futures = new ArrayList<>(threadNum);
+    for (int i = 0; i < threadNum; i++) {
+      futures.add(pool.submit(() -> importRanges(host, port, username, password, rangeQueue)));
+    }
+    pool.shutdown();
+    boolean failed = false;
+    try (ProgressBar pb = new ProgressBar("Import from: " + file.getName(), totalBytes)) {
+      pb.setExtraMessage("Importing...");
+      while (!pool.awaitTermination(PROGRESS_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        pb.stepTo(importedBytes.get());
+      }
+      pb.stepTo(importedBytes.get());
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          System.out.println("Cannot import data because: " + e.getCause());
+          failed = true;
+        }
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      interrupted.set(true);
+      Thread.currentThread().interrupt();
+    }
+
+    if (interrupted.get() || failed || !isCompleted()) {
+      // a failed worker may leave its ranges before its first commit
+      saveCheckpoint();
+      System.out.println("Import of " + file.getName() + " is not completed, use -resume to "
+          + "continue from " + checkpointFile.getAbsolutePath());
+      return false;
+    }
+    Files.deleteIfExists(checkpointFile.toPath());
+    return !hasErrorLine.get();
+  }
+
+  /**
+   * @return true if all the rows of all the ranges are committed
+   */
+  private boolean isCompleted() {
+    for (CsvRange range : ranges) {
+      if (range.committed < range.end) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void importRanges(String host, int port, String username, String password,
+      ConcurrentLinkedQueue<CsvRange> rangeQueue) {
+    Session session = createSession(host, port, username, password);
+    try {
+      session.open();
+      CsvRange range;
+      while (!interrupted.get() && (range = rangeQueue.poll()) != null) {
+        new RangeImporter(session, range).importRange();
+      }
+    } catch (IoTDBConnectionException e) {
+      System.out.println("Cannot import data because: " + e.getMessage());
+      interrupted.set(true);
+    } catch (IOException e) {
+      System.out.println("CSV file read exception because: " + e.getMessage());
+      interrupted.set(true);
+    } finally {
+      try {
+        session.close();
+      } catch (IoTDBConnectionException e) {
+        // the session is useless now
+      }
+    }
+  }
+
+  Session createSession(String host, int port, String username, String password) {
+    return new Session(host, port, username, password);
+  }
+
+  /**
+   * split the rows after the header into line-aligned byte ranges
+   */
+  List<CsvRange> splitRanges() throws IOException {
+    List<CsvRange> result = new ArrayList<>();
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+      long length = raf.length();
+      long dataStart = skipLine(raf, 0);
+      long rangeSize = Math.max((length - dataStart) / ((long) threadNum * RANGES_PER_THREAD), 1);
+      long start = dataStart;
+      while (start < length) {
+        long end = start + rangeSize >= length ? length : skipLine(raf, start + rangeSize - 1);
+        result.add(new CsvRange(start, end, start));
+        start = end;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * @return the offset after the first line separator at or after the position
+   */
+  private static long skipLine(RandomAccessFile raf, long position) throws IOException {
+    raf.seek(position);
+    byte[] buffer = new byte[SKIP_LINE_BUFFER_SIZE];
+    long offset = position;
+    int n;
+    while ((n = raf.read(buffer)) > 0) {
+      for (int i = 0; i < n; i++) {
+        if (buffer[i] == '\n') {
+          return offset + i + 1;
+        }
+      }
+      offset += n;
+    }
+    return offset;
+  }
+
+  /**
+   * the checkpoint file consists of the length of the CSV file followed by one line for each range
+   * like "start,end,committed"
+   *
+   * @return null if the checkpoint does not belong to the current file
+   */
+  private List<CsvRange> loadCheckpoint() throws IOException {
+    List<CsvRange> result = new ArrayList<>();
+    try (BufferedReader reader = new BufferedReader(new FileReader(checkpointFile))) {
+      String line = reader.readLine();
+      if (line == null || Long.parseLong(line.trim()) != file.length()) {
+        return null;
+      }
+      while ((line = reader.readLine()) != null) {
+        if (line.isEmpty()) {
+          continue;
+        }
+        String[] offsets = line.split(",");
+        result.add(new CsvRange(Long.parseLong(offsets[0]), Long.parseLong(offsets[1]),
+            Long.parseLong(offsets[2])));
+      }
+    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * rewrite the checkpoint file, the new content replaces the old one atomically so that an
+   * interrupted write never leaves a broken checkpoint
+   */
+  private synchronized void saveCheckpoint() throws IOException {
+    File tmpFile = new File(checkpointFile.getPath() + TMP_SUFFIX);
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(tmpFile))) {
+      writer.write(Long.toString(file.length()));
+      writer.newLine();
+      for (CsvRange range : ranges) {
+        writer.write(range.start + "," + range.end + "," + range.committed);
+        writer.newLine();
+      }
+    }
+    Files.move(tmpFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void writeError(String message) {
+    hasErrorLine.set(true);
+    synchronized (errorWriter) {
+      try {
+        errorWriter.write(message);
+        errorWriter.newLine();
+      } catch (IOException e) {
+        System.out.println("Cannot write error info because: " + e.getMessage());
+      }
+    }
+  }
+
+  /**
+   * parse a timestamp of the CSV file, which is either a number or a datetime like
+   * "yyyy-MM-dd HH:mm:ss.SSS" with optional offset. '/' and '.' are also allowed as the date
+   * separator. A datetime without offset is in the time zone of the connection.
+   */
+  static long parseTime(String str, ZoneId zoneId) {
+    String time = str.trim();
+    if (time.isEmpty()) {
+      throw new IllegalArgumentException("the timestamp is empty");
+    }
+    try {
+      return Long.parseLong(time);
+    } catch (NumberFormatException e) {
+      // not a number, parse it as a datetime
+    }
+
+    char[] chars = time.toCharArray();
+    for (int i = 0; i < Math.min(10, chars.length); i++) {
+      if (chars[i] == '/' || chars[i] == '.') {
+        chars[i] = '-';
+      }
+    }
+    if (chars.length > 10 && chars[10] == ' ') {
+      chars[10] = 'T';
+    }
+    String normalized = new String(chars);
+    // +0800 -> +08:00
+    int signIndex = Math.max(normalized.lastIndexOf('+'), normalized.lastIndexOf('-'));
+    if (signIndex > 10 && normalized.length() - signIndex == 5
+        && normalized.indexOf(':', signIndex) < 0) {
+      normalized = normalized.substring(0, signIndex + 3) + ":" + normalized.substring(signIndex
+          + 3);
+    }
+    TemporalAccessor accessor = DateTimeFormatter.ISO_DATE_TIME.parse(normalized);
+    if (accessor.isSupported(ChronoField.OFFSET_SECONDS)) {
+      return ZonedDateTime.from(accessor).toInstant().toEpochMilli();
+    }
+    return LocalDateTime.from(accessor).atZone(zoneId).toInstant().toEpochMilli();
+  }
+
+  private static Object parseValue(TSDataType dataType, String value) {
+    switch (dataType) {
+      case BOOLEAN:
+        if ("true".equalsIgnoreCase(value)) {
+          return true;
+        } else if ("false".equalsIgnoreCase(value)) {
+          return false;
+        }
+        throw new IllegalArgumentException(value + " is not a boolean");
+      case INT32:
+        return Integer.parseInt(value);
+      case INT64:
+        return Long.parseLong(value);
+      case FLOAT:
+        return Float.parseFloat(value);
+      case DOUBLE:
+        return Double.parseDouble(value);
+      case TEXT:
+        // the quotation marks around a string are not a part of it
+        if (value.length() >= 2 && (value.startsWith("'") && value.endsWith("'")
+            || value.startsWith("\"") && value.endsWith("\""))) {
+          value = value.substring(1, value.length() - 1);
+        }
+        return Binary.valueOf(value);
+      default:
+        throw new IllegalArgumentException("Data type " + dataType + " is not supported");
+    }
+  }
+
+  private static void putValue(Object column, int row, Object value) {
+    if (column instanceof boolean[]) {
+      ((boolean[]) column)[row] = (boolean) value;
+    } else if (column instanceof int[]) {
+      ((int[]) column)[row] = (int) value;
+    } else if (column instanceof long[]) {
+      ((long[]) column)[row] = (long) value;
+    } else if (column instanceof float[]) {
+      ((float[]) column)[row] = (float) value;
+    } else if (column instanceof double[]) {
+      ((double[]) column)[row] = (double) value;
+    } else {
+      ((Binary[]) column)[row] = (Binary) value;
+    }
+  }
+
+  /**
+   * a byte range of the CSV file, the rows in [start, committed) have been imported
+   */
+  static class CsvRange {
+
+    final long start;
+    final long end;
+    volatile long committed;
+
+    private CsvRange(long start, long end, long committed) {
+      this.start = start;
+      this.end = end;
+      this.committed = committed;
+    }
+  }
+
+  /**
+   * parses the rows of one range and sends them in batches through the session of the thread
+   */
+  private class RangeImporter {
+
+    private final Session session;
+    private final CsvRange range;
+    private final Map<String, Tablet> tablets = new HashMap<>();
+
+    /**
+     * a row of a device with empty cells cannot be put into a Tablet, which has no null value,
+     * so it is sent as a record
+     */
+    private final List<String> recordDevices = new ArrayList<>();
+    private final List<Long> recordTimes = new ArrayList<>();
+    private final List<List<String>> recordMeasurements = new ArrayList<>();
+    private final List<List<TSDataType>> recordTypes = new ArrayList<>();
+    private final List<List<Object>> recordValues = new ArrayList<>();
+
+    private final ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+    private int bufferedRows = 0;
+
+    private RangeImporter(Session session, CsvRange range) {
+      this.session = session;
+      this.range = range;
+      for (Entry<String, ArrayList<Integer>> entry : deviceToColumn.entrySet()) {
+        List<MeasurementSchema> schemas = new ArrayList<>();
+        for (int column : entry.getValue()) {
+          schemas.add(new MeasurementSchema(colInfo.get(column), columnTypes[column],
+              TSEncoding.PLAIN));
+        }
+        tablets.put(entry.getKey(), new Tablet(entry.getKey(), schemas, batchSize));
+      }
+    }
+
+    private void importRange() throws IOException, IoTDBConnectionException {
+      long position = range.committed;
+      long committed = position;
+      try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+        long skipped = 0;
+        while (skipped < position) {
+          long n = in.skip(position - skipped);
+          if (n <= 0) {
+            throw new IOException("Cannot skip to " + position + " of " + file.getName());
+          }
+          skipped += n;
+        }
+
+        while (position < range.end && !interrupted.get()) {
+          String line = readLine(in);
+          if (line == null) {
+            break;
+          }
+          position += lineBuffer.size();
+          if (!line.isEmpty()) {
+            addRow(line);
+          }
+          if (bufferedRows >= batchSize) {
+            flush();
+            commit(committed, position);
+            committed = position;
+          }
+        }
+      }
+      flush();
+      commit(committed, position);
+    }
+
+    /**
+     * @return the line without its separator, or null at the end of the file. The bytes of the
+     * line including the separator are left in lineBuffer
+     */
+    private String readLine(InputStream in) throws IOException {
+      lineBuffer.reset();
+      int b;
+      while ((b = in.read()) != -1) {
+        lineBuffer.write(b);
+        if (b == '\n') {
+          break;
+        }
+      }
+      if (lineBuffer.size() == 0) {
+        return null;
+      }
+      byte[] bytes = lineBuffer.toByteArray();
+      int length = bytes.length;
+      if (length > 0 && bytes[length - 1] == '\n') {
+        length--;
+      }
+      if (length > 0 && bytes[length - 1] == '\r') {
+        length--;
+      }
+      return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private void addRow(String line) {
+      String[] data = line.split(",", headInfo.size() + 1);
+      long time;
+      // parse the whole row first so that a broken row is not partially imported
+      Object[] values = new Object[headInfo.size()];
+      try {
+        if (data.length <= headInfo.size()) {
+          throw new IllegalArgumentException("there are only " + data.length + " cells");
+        }
+        time = parseTime(data[0], zoneId);
+        for (int i = 0; i < headInfo.size(); i++) {
+          if (!data[i + 1].isEmpty()) {
+            values[i] = parseValue(columnTypes[i], data[i + 1]);
+          }
+        }
+      } catch (Exception e) {
+        writeError(String.format("error input line, maybe it is not complete: %s", line));
+        return;
+      }
+
+      for (Entry<String, ArrayList<Integer>> entry : deviceToColumn.entrySet()) {
+        List<Integer> columns = entry.getValue();
+        int nullCount = 0;
+        for (int column : columns) {
+          if (values[column] == null) {
+            nullCount++;
+          }
+        }
+        if (nullCount == columns.size()) {
+          continue;
+        }
+        if (nullCount == 0) {
+          Tablet tablet = tablets.get(entry.getKey());
+          int row = tablet.rowSize++;
+          tablet.timestamps[row] = time;
+          for (int i = 0; i < columns.size(); i++) {
+            putValue(tablet.values[i], row, values[columns.get(i)]);
+          }
+          bufferedRows = Math.max(bufferedRows, tablet.rowSize);
+        } else {
+          List<String> measurements = new ArrayList<>();
+          List<TSDataType> types = new ArrayList<>();
+          List<Object> recordValue = new ArrayList<>();
+          for (int column : columns) {
+            if (values[column] != null) {
+              measurements.add(colInfo.get(column));
+              types.add(columnTypes[column]);
+              recordValue.add(values[column]);
+            }
+          }
+          recordDevices.add(entry.getKey());
+          recordTimes.add(time);
+          recordMeasurements.add(measurements);
+          recordTypes.add(types);
+          recordValues.add(recordValue);
+          bufferedRows = Math.max(bufferedRows, recordDevices.size());
+        }
+      }
+    }
+
+    private void flush() throws IoTDBConnectionException {
+      Map<String, Tablet> nonEmptyTablets = new HashMap<>();
+      for (Entry<String, Tablet> entry : tablets.entrySet()) {
+        if (entry.getValue().rowSize > 0) {
+          nonEmptyTablets.put(entry.getKey(), entry.getValue());
+        }
+      }
+      try {
+        if (!nonEmptyTablets.isEmpty()) {
+          session.insertTablets(nonEmptyTablets);
+        }
+      } catch (StatementExecutionException e) {
+        writeError(e.getMessage());
+      }
+      try {
+        if (!recordDevices.isEmpty()) {
+          session.insertRecords(recordDevices, recordTimes, recordMeasurements, recordTypes,
+              recordValues);
+        }
+      } catch (StatementExecutionException e) {
+        writeError(e.getMessage());
+      }
+
+      for (Tablet tablet : nonEmptyTablets.values()) {
+        tablet.reset();
+      }
+      recordDevices.clear();
+      recordTimes.clear();
+      recordMeasurements.clear();
+      recordTypes.clear();
+      recordValues.clear();
+      bufferedRows = 0;
+    }
+
+    private void commit(long oldCommitted, long newCommitted) throws IOException {
+      if (newCommitted == oldCommitted) {
+        return;
+      }
+      range.committed = newCommitted;
+      importedBytes.addAndGet(newCommitted - oldCommitted);
+      saveCheckpoint();
+    }
+  }
+}
@@ -35,7 +35,9 @@ import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import jline.console.ConsoleReader;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -66,6 +68,21 @@ public class ExportCsv extends AbstractCsvTool {
   private static final String SQL_FILE_ARGS = "s";
   private static final String SQL_FILE_NAME = "sqlfile";
 
+  private static final String SERIES_ARGS = "series";
+  private static final String SERIES_NAME = "path1,path2...";
+
+  private static final String START_TIME_ARGS = "st";
+  private static final String START_TIME_NAME = "startTime";
+
+  private static final String END_TIME_ARGS = "et";
+  private static final String END_TIME_NAME = "endTime";
+
+  private static final String INTERVAL_ARGS = "interval";
+  private static final String INTERVAL_NAME = "interval";
+
+  private static final String THREAD_NUM_ARGS = "tn";
+  private static final String THREAD_NUM_NAME = "threadNum";
+
   private static final String TSFILEDB_CLI_PREFIX = "ExportCsv";
 
   private static final String DUMP_FILE_NAME_DEFAULT = "dump";
@@ -79,6 +96,11 @@ public class ExportCsv extends AbstractCsvTool {
 
   private static List<Integer> typeList = new ArrayList<>();
 
+  private static long startTime = Long.MIN_VALUE;
+  private static long endTime = Long.MAX_VALUE;
+  private static long interval = 0;
+  private static int threadNum = Runtime.getRuntime().availableProcessors();
+
   /**
    * main function of export csv tool.
    */
@@ -125,7 +147,9 @@ public class ExportCsv extends AbstractCsvTool {
           .getConnection(Config.IOTDB_URL_PREFIX + host + ":" + port + "/", username, password);
       setTimeZone();
 
-      if (sqlFile == null) {
+      if (commandLine.hasOption(SERIES_ARGS)) {
+        dumpSeries(commandLine.getOptionValue(SERIES_ARGS).split(","));
+      } else if (sqlFile == null) {
         sql = reader.readLine(TSFILEDB_CLI_PREFIX + "> please input query: ");
         String[] values = sql.trim().split(";");
         for (int i = 0; i < values.length; i++) {
@@ -168,6 +192,30 @@ public class ExportCsv extends AbstractCsvTool {
     if (!targetDirectory.endsWith(File.separator)) {
       targetDirectory += File.separator;
     }
+    try {
+      if (commandLine.hasOption(START_TIME_ARGS)) {
+        startTime = Long.parseLong(commandLine.getOptionValue(START_TIME_ARGS));
+      }
+      if (commandLine.hasOption(END_TIME_ARGS)) {
+        endTime = Long.parseLong(commandLine.getOptionValue(END_TIME_ARGS));
+      }
+      if (commandLine.hasOption(INTERVAL_ARGS)) {
+        interval = Long.parseLong(commandLine.getOptionValue(INTERVAL_ARGS));
+      }
+      if (commandLine.hasOption(THREAD_NUM_ARGS)) {
+        threadNum = Integer.parseInt(commandLine.getOptionValue(THREAD_NUM_ARGS));
+      }
+    } catch (NumberFormatException e) {
+      throw new ArgsErrorException("Start time, end time, interval and thread number should be "
+          + "integers");
+    }
+    if (interval > 0 && (startTime == Long.MIN_VALUE || endTime == Long.MAX_VALUE)) {
+      throw new ArgsErrorException("Start time and end time are required to split the export by "
+          + "interval");
+    }
+    if (threadNum <= 0) {
+      throw new ArgsErrorException("Thread number should be positive");
+    }
   }
 
   /**
@@ -221,6 +269,30 @@ public class ExportCsv extends AbstractCsvTool {
         .desc("Time Zone eg. +08:00 or -01:00 (optional)").build();
     options.addOption(opTimeZone);
 
+    Option opSeries = Option.builder(SERIES_ARGS).argName(SERIES_NAME).hasArg()
+        .desc("Export the series matching the paths by raw data queries of several parallel "
+            + "sessions instead of sql, one file for each device and time range (optional)")
+        .build();
+    options.addOption(opSeries);
+
+    Option opStartTime = Option.builder(START_TIME_ARGS).argName(START_TIME_NAME).hasArg()
+        .desc("Inclusive start timestamp of the series export (optional)").build();
+    options.addOption(opStartTime);
+
+    Option opEndTime = Option.builder(END_TIME_ARGS).argName(END_TIME_NAME).hasArg()
+        .desc("Exclusive end timestamp of the series export (optional)").build();
+    options.addOption(opEndTime);
+
+    Option opInterval = Option.builder(INTERVAL_ARGS).argName(INTERVAL_NAME).hasArg()
+        .desc("Split the time range of each device into files of the interval in the series "
+            + "export, requires start time and end time (optional)").build();
+    options.addOption(opInterval);
+
+    Option opThreadNum = Option.builder(THREAD_NUM_ARGS).argName(THREAD_NUM_NAME).hasArg()
+        .desc("Number of threads and sessions of the series export, "
+            + "default the number of processors (optional)").build();
+    options.addOption(opThreadNum);
+
     Option opHelp = Option.builder(HELP_ARGS).longOpt(HELP_ARGS).hasArg(false)
         .desc("Display help information")
         .build();
@@ -245,6 +317,34 @@ public class ExportCsv extends AbstractCsvTool {
     }
   }
 
+  /**
+   * Dump the series matching the paths to CSV files in parallel.
+   *
+   * @param paths path patterns of the series
+   */
+  private static void dumpSeries(String[] paths) throws SQLException {
+    // the paths may overlap
+    Set<String> series = new LinkedHashSet<>();
+    try (Statement statement = connection.createStatement()) {
+      for (String path : paths) {
+        try (ResultSet resultSet = statement.executeQuery("show timeseries " + path.trim())) {
+          while (resultSet.next()) {
+            series.add(resultSet.getString(1));
+          }
+        }
+      }
+    }
+    if (series.isEmpty()) {
+      System.out.println("No series matches " + String.join(",", paths));
+      return;
+    }
+    ParallelCsvExporter exporter = new ParallelCsvExporter(new ArrayList<>(series), startTime,
+        endTime, interval, threadNum, targetDirectory + targetFile, timeFormat, zoneId);
+    if (!exporter.export(host, Integer.parseInt(port), username, password)) {
+      System.out.println("Some series are not exported, please check the above information");
+    }
+  }
+
   /**
    * Dump files from database to CSV file.
    *
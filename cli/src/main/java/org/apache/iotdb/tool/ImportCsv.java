@@ -65,6 +65,20 @@ public class ImportCsv extends AbstractCsvTool {
   private static final String STRING_DATA_TYPE = "TEXT";
   private static final int BATCH_EXECUTE_COUNT = 100;
 
+  private static final String MODE_ARGS = "mode";
+  private static final String MODE_NAME = "sql/tablet";
+  private static final String SQL_MODE = "sql";
+  private static final String TABLET_MODE = "tablet";
+
+  private static final String THREAD_NUM_ARGS = "tn";
+  private static final String THREAD_NUM_NAME = "threadNum";
+
+  private static final String BATCH_SIZE_ARGS = "bs";
+  private static final String BATCH_SIZE_NAME = "batchSize";
+  private static final int DEFAULT_BATCH_SIZE = 10000;
+
+  private static final String RESUME_ARGS = "resume";
+
   private static String errorInsertInfo = "";
   private static boolean errorFlag;
 
@@ -73,6 +87,11 @@ public class ImportCsv extends AbstractCsvTool {
   private static int count;
   private static Statement statement;
 
+  private static String importMode = SQL_MODE;
+  private static int threadNum = Runtime.getRuntime().availableProcessors();
+  private static int batchSize = DEFAULT_BATCH_SIZE;
+  private static boolean resume;
+
   /**
    * create the commandline options.
    *
@@ -113,6 +132,26 @@ public class ImportCsv extends AbstractCsvTool {
         .desc("Time Zone eg. +08:00 or -01:00 (optional)").build();
     options.addOption(opTimeZone);
 
+    Option opMode = Option.builder(MODE_ARGS).argName(MODE_NAME).hasArg()
+        .desc("Import by sql statements or by tablets of several parallel sessions, "
+            + "default sql (optional)").build();
+    options.addOption(opMode);
+
+    Option opThreadNum = Option.builder(THREAD_NUM_ARGS).argName(THREAD_NUM_NAME).hasArg()
+        .desc("Number of threads and sessions in tablet mode, "
+            + "default the number of processors (optional)").build();
+    options.addOption(opThreadNum);
+
+    Option opBatchSize = Option.builder(BATCH_SIZE_ARGS).argName(BATCH_SIZE_NAME).hasArg()
+        .desc("Max number of rows of a device sent in one batch in tablet mode, default "
+            + DEFAULT_BATCH_SIZE + " (optional)").build();
+    options.addOption(opBatchSize);
+
+    Option opResume = Option.builder(RESUME_ARGS).hasArg(false)
+        .desc("Continue an interrupted import from the offsets saved in <file>.offsets, "
+            + "only for tablet mode (optional)").build();
+    options.addOption(opResume);
+
     return options;
   }
 
@@ -120,6 +159,10 @@ public class ImportCsv extends AbstractCsvTool {
    * Data from csv To tsfile.
    */
   private static void loadDataFromCSV(File file, int index) {
+    if (TABLET_MODE.equals(importMode)) {
+      loadDataByTablets(file, index);
+      return;
+    }
     statement = null;
     int fileLine;
     try {
@@ -212,6 +255,80 @@ public class ImportCsv extends AbstractCsvTool {
     }
   }
 
+  /**
+   * Data from csv to IoTDB by tablets of several parallel sessions.
+   */
+  private static void loadDataByTablets(File file, int index) {
+    File errorFile = new File(errorInsertInfo + index);
+    if (!errorFile.exists()) {
+      try {
+        errorFile.createNewFile();
+      } catch (IOException e) {
+        System.out.println("Cannot create a errorFile because: " + e.getMessage());
+        return;
+      }
+    }
+    System.out.println("Start to import data from: " + file.getName());
+    errorFlag = true;
+    try (BufferedReader br = new BufferedReader(new FileReader(file));
+        BufferedWriter bw = new BufferedWriter(new FileWriter(errorFile))) {
+      String header = br.readLine();
+      if (header == null) {
+        System.out.println("The CSV file " + file.getName() + " is empty");
+        return;
+      }
+
+      bw.write("From " + file.getAbsolutePath());
+      bw.newLine();
+      bw.newLine();
+      bw.write(header);
+      bw.newLine();
+      bw.newLine();
+
+      Map<String, ArrayList<Integer>> deviceToColumn = new HashMap<>();
+      List<String> colInfo = new ArrayList<>();
+      List<String> headInfo = new ArrayList<>();
+
+      String[] strHeadInfo = header.split(",");
+      if (strHeadInfo.length <= 1) {
+        System.out.println("The CSV file " + file.getName() + " illegal, please check first line");
+        return;
+      }
+
+      long startTime = System.currentTimeMillis();
+      Map<String, String> timeseriesDataType = new HashMap<>();
+      boolean success = queryDatabaseMeta(strHeadInfo, file, bw, timeseriesDataType, headInfo,
+          deviceToColumn, colInfo);
+      if (!success) {
+        errorFlag = false;
+        return;
+      }
+
+      CsvTabletImporter importer = new CsvTabletImporter(file, headInfo, colInfo,
+          deviceToColumn, timeseriesDataType, zoneId, threadNum, batchSize, bw);
+      errorFlag = importer.importFile(host, Integer.parseInt(port), username, password, resume);
+      System.out.println("Import from " + file.getName() + " costs "
+          + (System.currentTimeMillis() - startTime) + " ms");
+    } catch (FileNotFoundException e) {
+      System.out.println("Cannot find " + file.getName() + " because: " + e.getMessage());
+    } catch (IOException e) {
+      System.out.println("CSV file read exception because: " + e.getMessage());
+    } catch (SQLException e) {
+      System.out.println("Database connection exception because: " + e.getMessage());
+    } finally {
+      try {
+        if (errorFlag) {
+          FileUtils.forceDelete(errorFile);
+        } else {
+          System.out.println("Some lines in " + file.getAbsolutePath() + " are not imported, "
+              + "please check " + errorFile.getAbsolutePath() + " for more information");
+        }
+      } catch (IOException e) {
+        System.out.println("Close file error because: " + e.getMessage());
+      }
+    }
+  }
+
   private static void executeSqls(BufferedWriter bw, List<String> tmp, long startTime, File file)
       throws IOException {
     try {
@@ -453,8 +570,29 @@ public class ImportCsv extends AbstractCsvTool {
     }
   }
 
-  private static void parseSpecialParams(CommandLine commandLine) {
+  private static void parseSpecialParams(CommandLine commandLine) throws ArgsErrorException {
     timeZoneID = commandLine.getOptionValue(TIME_ZONE_ARGS);
+    if (commandLine.hasOption(MODE_ARGS)) {
+      importMode = commandLine.getOptionValue(MODE_ARGS);
+      if (!SQL_MODE.equals(importMode) && !TABLET_MODE.equals(importMode)) {
+        throw new ArgsErrorException("Import mode " + importMode + " is not supported, "
+            + "please input sql or tablet");
+      }
+    }
+    try {
+      if (commandLine.hasOption(THREAD_NUM_ARGS)) {
+        threadNum = Integer.parseInt(commandLine.getOptionValue(THREAD_NUM_ARGS));
+      }
+      if (commandLine.hasOption(BATCH_SIZE_ARGS)) {
+        batchSize = Integer.parseInt(commandLine.getOptionValue(BATCH_SIZE_ARGS));
+      }
+    } catch (NumberFormatException e) {
+      throw new ArgsErrorException("Thread number and batch size should be integers");
+    }
+    if (threadNum <= 0 || batchSize <= 0) {
+      throw new ArgsErrorException("Thread number and batch size should be positive");
+    }
+    resume = commandLine.hasOption(RESUME_ARGS);
   }
 
   public static void importCsvFromFile(String ip, String port, String username,
@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.cli.AbstractCli;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.session.SessionDataSet;
+import org.apache.iotdb.session.SessionDataSet.DataIterator;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+/**
+ * ParallelCsvExporter exports series through raw data queries of sessions instead of JDBC. The
+ * work is split into one task for each device and time range, and several threads run the tasks
+ * concurrently, each with its own session. A task writes one CSV file from the typed values of the
+ * query result, so no value is converted to an intermediate string or object.
+ */
+class ParallelCsvExporter {
+
+  private static final int FETCH_SIZE = 10000;
+  private static final String TIMESTAMP_PRECISION = "ms";
+
+  private final Map<String, List<String>> deviceToSeries;
+  private final long startTime;
+  private final long endTime;
+  private final long interval;
+  private final int threadNum;
+  private final String targetPrefix;
+  private final String timeFormat;
+  private final DateTimeFormatter timeFormatter;
+  private final ZoneId zoneId;
+
+  private final AtomicLong exportedLines = new AtomicLong();
+  private final AtomicBoolean failed = new AtomicBoolean();
+
+  /**
+   * @param series full paths of the series to export
+   * @param interval the length of the time range of a task, or a non-positive value to export the
+   * whole time range of a device in one task
+   * @param targetPrefix the directory and the prefix of the names of the output files
+   */
+  ParallelCsvExporter(List<String> series, long startTime, long endTime, long interval,
+      int threadNum, String targetPrefix, String timeFormat, ZoneId zoneId) {
+    this.deviceToSeries = new LinkedHashMap<>();
+    for (String path : series) {
+      String device = path.substring(0, path.lastIndexOf('.'));
+      deviceToSeries.computeIfAbsent(device, k -> new ArrayList<>()).add(path);
+    }
+    this.startTime = startTime;
+    this.endTime = endTime;
+    this.interval = interval;
+    this.threadNum = threadNum;
+    this.targetPrefix = targetPrefix;
+    this.timeFormat = timeFormat;
+    switch (timeFormat) {
+      case "default":
+        this.timeFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+        break;
+      case "timestamp":
+      case "long":
+      case "number":
+        this.timeFormatter = null;
+        break;
+      default:
+        this.timeFormatter = DateTimeFormatter.ofPattern(timeFormat);
+        break;
+    }
+    this.zoneId = zoneId;
+  }
+
+  /**
+   * @return true if all tasks succeed
+   */
+  boolean export(String host, int port, String username, String password) {
+    ConcurrentLinkedQueue<ExportTask> taskQueue = new ConcurrentLinkedQueue<>(splitTasks());
+    int taskNum = taskQueue.size();
+    System.out.println(String.format("Start to export %d devices in %d tasks by %d threads",
+        deviceToSeries.size(), taskNum, threadNum));
+
+    long start = System.currentTimeMillis();
+    ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+    for (int i = 0; i < threadNum; i++) {
+      pool.execute(() -> runTasks(host, port, username, password, taskQueue));
+    }
+    pool.shutdown();
+    try {
+      while (!pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+        // wait until all tasks finish
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      failed.set(true);
+      Thread.currentThread().interrupt();
+    }
+    System.out.println(String.format("It costs %dms to export %d lines.",
+        System.currentTimeMillis() - start, exportedLines.get()));
+    return !failed.get();
+  }
+
+  /**
+   * split the export into tasks of each device and time range
+   */
+  List<ExportTask> splitTasks() {
+    List<ExportTask> tasks = new ArrayList<>();
+    for (Entry<String, List<String>> entry : deviceToSeries.entrySet()) {
+      int index = 0;
+      if (interval <= 0) {
+        tasks.add(new ExportTask(entry.getKey(), entry.getValue(), startTime, endTime, 0));
+        continue;
+      }
+      for (long start = startTime; start < endTime; start += interval) {
+        long end = endTime - start > interval ? start + interval : endTime;
+        tasks.add(new ExportTask(entry.getKey(), entry.getValue(), start, end, index++));
+      }
+    }
+    return tasks;
+  }
+
+  private void runTasks(String host, int port, String username, String password,
+      ConcurrentLinkedQueue<ExportTask> taskQueue) {
+    Session session = new Session(host, port, username, password, FETCH_SIZE);
+    try {
+      session.open();
+      ExportTask task;
+      while ((task = taskQueue.poll()) != null) {
+        try {
+          task.run(session);
+        } catch (StatementExecutionException e) {
+          System.out.println("Cannot export " + task.device + " because: " + e.getMessage());
+          failed.set(true);
+        } catch (IOException e) {
+          System.out.println("Cannot dump result because: " + e.getMessage());
+          failed.set(true);
+        } catch (RuntimeException e) {
+          System.out.println("Cannot export " + task.device + " because: " + e);
+          failed.set(true);
+        }
+      }
+    } catch (IoTDBConnectionException e) {
+      System.out.println("Encounter an error when connecting to server, because "
+          + e.getMessage());
+      failed.set(true);
+    } catch (RuntimeException e) {
+      System.out.println("Cannot export because: " + e);
+      failed.set(true);
+    } finally {
+      try {
+        session.close();
+      } catch (IoTDBConnectionException e) {
+        // the session is useless now
+      }
+    }
+  }
+
+  private void appendTime(StringBuilder builder, long time) {
+    if (timeFormatter == null) {
+      builder.append(time);
+    } else if ("default".equals(timeFormat)) {
+      builder.append(AbstractCli.parseLongToDateWithPrecision(timeFormatter, time, zoneId,
+          TIMESTAMP_PRECISION));
+    } else {
+      builder.append(ZonedDateTime.ofInstant(Instant.ofEpochMilli(time), zoneId)
+          .format(timeFormatter));
+    }
+  }
+
+  private static void appendValue(StringBuilder builder, DataIterator iterator, int column,
+      TSDataType dataType) throws StatementExecutionException {
+    switch (dataType) {
+      case BOOLEAN:
+        builder.append(iterator.getBoolean(column));
+        break;
+      case INT32:
+        builder.append(iterator.getInt(column));
+        break;
+      case INT64:
+        builder.append(iterator.getLong(column));
+        break;
+      case FLOAT:
+        builder.append(iterator.getFloat(column));
+        break;
+      case DOUBLE:
+        builder.append(iterator.getDouble(column));
+        break;
+      default:
+        builder.append('\'').append(iterator.getString(column)).append('\'');
+        break;
+    }
+  }
+
+  /**
+   * exports the series of one device in [startTime, endTime) to one file
+   */
+  class ExportTask {
+
+    final String device;
+    final List<String> series;
+    final long startTime;
+    final long endTime;
+    final int index;
+
+    private ExportTask(String device, List<String> series, long startTime, long endTime,
+        int index) {
+      this.device = device;
+      this.series = series;
+      this.startTime = startTime;
+      this.endTime = endTime;
+      this.index = index;
+    }
+
+    private void run(Session session)
+        throws StatementExecutionException, IoTDBConnectionException, IOException {
+      File file = new File(targetPrefix + "-" + device + "-" + index + ".csv");
+      SessionDataSet dataSet = session.executeRawDataQuery(series, startTime, endTime);
+      long line = 0;
+      try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+        List<String> columnNames = dataSet.getColumnNames();
+        List<TSDataType> columnTypes = dataSet.getColumnTypes();
+        bw.write(String.join(",", columnNames));
+        bw.newLine();
+
+        StringBuilder builder = new StringBuilder();
+        DataIterator iterator = dataSet.iterator();
+        while (iterator.next()) {
+          builder.setLength(0);
+          appendTime(builder, iterator.getLong(1));
+          for (int i = 2; i <= columnNames.size(); i++) {
+            builder.append(',');
+            if (!iterator.isNull(i)) {
+              appendValue(builder, iterator, i, columnTypes.get(i - 1));
+            }
+          }
+          builder.append('\n');
+          bw.append(builder);
+          line++;
+        }
+      } finally {
+        dataSet.closeOperationHandle();
+      }
+      exportedLines.addAndGet(line);
+      if (line == 0) {
+        // do not leave plenty of files of empty time ranges
+        Files.deleteIfExists(file.toPath());
+      } else {
+        System.out.println(String.format("%s in [%d, %d) has dumped to file %s, %d lines",
+            device, startTime, endTime, file.getPath(), line));
+      }
+    }
+  }
+}
@@ -0,0 +1,256 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.iotdb.session.Session;
+import org.apache.iotdb.tool.CsvTabletImporter.CsvRange;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CsvTabletImporterTest {
+
+  private static final ZoneId ZONE_ID = ZoneId.of("+08:00");
+  // 2020-01-01T00:00:00+08:00
+  private static final long EXPECTED = 1577808000000L;
+
+  private static final String DEVICE = "root.sg.d1";
+  private static final String HEADER = "Time," + DEVICE + ".s1," + DEVICE + ".s2\n";
+  private static final int ROW_NUM = 200;
+
+  private File csvFile;
+  private File checkpointFile;
+  /**
+   * the offset of each row in the CSV file
+   */
+  private long[] rowOffsets = new long[ROW_NUM];
+
+  @Before
+  public void setUp() throws IOException {
+    csvFile = Files.createTempFile("import", ".csv").toFile();
+    checkpointFile = new File(csvFile.getPath() + ".offsets");
+    StringBuilder builder = new StringBuilder(HEADER);
+    for (int i = 0; i < ROW_NUM; i++) {
+      rowOffsets[i] = builder.length();
+      // rows of different lengths and line separators
+      builder.append(i).append(',').append(i * 10).append(",text");
+      for (int j = 0; j < i % 7; j++) {
+        builder.append(j);
+      }
+      builder.append(i % 3 == 0 ? "\r\n" : "\n");
+    }
+    Files.write(csvFile.toPath(), builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(csvFile.toPath());
+    Files.deleteIfExists(checkpointFile.toPath());
+  }
+
+  @Test
+  public void testParseTime() {
+    assertEquals(100L, CsvTabletImporter.parseTime("100", ZONE_ID));
+    assertEquals(-100L, CsvTabletImporter.parseTime(" -100 ", ZONE_ID));
+    assertEquals(EXPECTED, CsvTabletImporter.parseTime("2020-01-01 00:00:00", ZONE_ID));
+    assertEquals(EXPECTED, CsvTabletImporter.parseTime("2020/01/01T00:00:00", ZONE_ID));
+    assertEquals(EXPECTED + 123, CsvTabletImporter.parseTime("2020.01.01 00:00:00.123",
+        ZONE_ID));
+    assertEquals(EXPECTED, CsvTabletImporter.parseTime("2019-12-31T16:00:00+00:00", ZONE_ID));
+    assertEquals(EXPECTED, CsvTabletImporter.parseTime("2019-12-31 15:00:00-0100", ZONE_ID));
+  }
+
+  @Test
+  public void testSplitRanges() throws IOException {
+    List<CsvRange> ranges = createImporter(3, new RecordingSession()).splitRanges();
+    byte[] bytes = Files.readAllBytes(csvFile.toPath());
+
+    assertTrue(ranges.size() > 1);
+    assertEquals(HEADER.length(), ranges.get(0).start);
+    assertEquals(bytes.length, ranges.get(ranges.size() - 1).end);
+    for (int i = 0; i < ranges.size(); i++) {
+      CsvRange range = ranges.get(i);
+      assertTrue(range.start < range.end);
+      assertEquals(range.start, range.committed);
+      // each range starts at the beginning of a line
+      assertEquals('\n', bytes[(int) range.start - 1]);
+      if (i > 0) {
+        assertEquals(ranges.get(i - 1).end, range.start);
+      }
+    }
+  }
+
+  @Test
+  public void testImportInRanges() throws IOException {
+    RecordingSession session = new RecordingSession();
+    assertTrue(createImporter(3, session).importFile("127.0.0.1", 6667, "root", "root", false));
+
+    assertEquals(expectedTimes(0), session.getSortedTimes());
+    assertFalse(checkpointFile.exists());
+  }
+
+  @Test
+  public void testResumeFromCheckpoint() throws IOException {
+    int committedRows = 57;
+    Files.write(checkpointFile.toPath(), (csvFile.length() + "\n" + HEADER.length() + ","
+        + csvFile.length() + "," + rowOffsets[committedRows] + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+
+    RecordingSession session = new RecordingSession();
+    assertTrue(createImporter(2, session).importFile("127.0.0.1", 6667, "root", "root", true));
+
+    // the committed rows are not sent again
+    assertEquals(expectedTimes(committedRows), session.getSortedTimes());
+    assertFalse(checkpointFile.exists());
+  }
+
+  @Test
+  public void testResumeFromMismatchedCheckpoint() throws IOException {
+    Files.write(checkpointFile.toPath(), ((csvFile.length() + 1) + "\n" + HEADER.length() + ","
+        + csvFile.length() + "," + rowOffsets[ROW_NUM / 2] + "\n")
+        .getBytes(StandardCharsets.UTF_8));
+
+    RecordingSession session = new RecordingSession();
+    assertTrue(createImporter(2, session).importFile("127.0.0.1", 6667, "root", "root", true));
+
+    // the checkpoint of another file is ignored
+    assertEquals(expectedTimes(0), session.getSortedTimes());
+  }
+
+  @Test
+  public void testKeepCheckpointOfFailedWorker() throws IOException {
+    RecordingSession failingSession = new RecordingSession(3);
+    assertFalse(createImporter(2, failingSession)
+        .importFile("127.0.0.1", 6667, "root", "root", false));
+    // the range of the failed worker is not completed
+    assertTrue(checkpointFile.exists());
+
+    RecordingSession session = new RecordingSession();
+    assertTrue(createImporter(2, session).importFile("127.0.0.1", 6667, "root", "root", true));
+    assertFalse(checkpointFile.exists());
+
+    // the rows are either committed by the failed import or sent by the resumed one
+    List<Long> times = failingSession.getSortedTimes();
+    times.addAll(session.getSortedTimes());
+    Collections.sort(times);
+    assertEquals(expectedTimes(0), times);
+  }
+
+  private List<Long> expectedTimes(int fromRow) {
+    List<Long> times = new ArrayList<>();
+    for (long i = fromRow; i < ROW_NUM; i++) {
+      times.add(i);
+    }
+    return times;
+  }
+
+  private CsvTabletImporter createImporter(int threadNum, Session session) {
+    List<String> headInfo = Arrays.asList(DEVICE + ".s1", DEVICE + ".s2");
+    List<String> colInfo = Arrays.asList("s1", "s2");
+    Map<String, ArrayList<Integer>> deviceToColumn = new HashMap<>();
+    deviceToColumn.put(DEVICE, new ArrayList<>(Arrays.asList(0, 1)));
+    Map<String, String> timeseriesDataType = new HashMap<>();
+    timeseriesDataType.put(DEVICE + ".s1", TSDataType.INT64.toString());
+    timeseriesDataType.put(DEVICE + ".s2", TSDataType.TEXT.toString());
+    return new CsvTabletImporter(csvFile, headInfo, colInfo, deviceToColumn,
+        timeseriesDataType, ZONE_ID, threadNum, 10, new BufferedWriter(new StringWriter())) {
+      @Override
+      Session createSession(String host, int port, String username, String password) {
+        return session;
+      }
+    };
+  }
+
+  /**
+   * records the timestamps inserted instead of sending them to a server
+   */
+  private static class RecordingSession extends Session {
+
+    private final List<Long> times = Collections.synchronizedList(new ArrayList<>());
+    /**
+     * the insertTablets call that throws an unexpected error, 0 for never
+     */
+    private final int failingCall;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private RecordingSession() {
+      this(0);
+    }
+
+    private RecordingSession(int failingCall) {
+      super("127.0.0.1", 6667, "root", "root");
+      this.failingCall = failingCall;
+    }
+
+    @Override
+    public synchronized void open() {
+      // nothing to connect
+    }
+
+    @Override
+    public synchronized void close() {
+      // nothing to close
+    }
+
+    @Override
+    public void insertTablets(Map<String, Tablet> tablets) {
+      if (calls.incrementAndGet() == failingCall) {
+        throw new IllegalStateException("unexpected error");
+      }
+      for (Tablet tablet : tablets.values()) {
+        for (int i = 0; i < tablet.rowSize; i++) {
+          times.add(tablet.timestamps[i]);
+        }
+      }
+    }
+
+    @Override
+    public void insertRecords(List<String> deviceIds, List<Long> times,
+        List<List<String>> measurementsList, List<List<TSDataType>> typesList,
+        List<List<Object>> valuesList) {
+      this.times.addAll(times);
+    }
+
+    private List<Long> getSortedTimes() {
+      List<Long> sortedTimes = new ArrayList<>(times);
+      Collections.sort(sortedTimes);
+      return sortedTimes;
+    }
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.tool;
+
+import static org.junit.Assert.assertEquals;
+
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.iotdb.tool.ParallelCsvExporter.ExportTask;
+import org.junit.Test;
+
+public class ParallelCsvExporterTest {
+
+  private static final List<String> SERIES = Arrays
+      .asList("root.sg.d1.s1", "root.sg.d2.s1", "root.sg.d1.s2");
+
+  @Test
+  public void testSplitTasksByTimeRange() {
+    List<ExportTask> tasks = new ParallelCsvExporter(SERIES, 0, 250, 100, 2, "dump", "timestamp",
+        ZoneId.systemDefault()).splitTasks();
+
+    assertEquals(6, tasks.size());
+    long[][] ranges = {{0, 100}, {100, 200}, {200, 250}};
+    for (int i = 0; i < tasks.size(); i++) {
+      ExportTask task = tasks.get(i);
+      // the series are grouped by device, and the last range ends at the end time
+      if (i < 3) {
+        assertEquals("root.sg.d1", task.device);
+        assertEquals(Arrays.asList("root.sg.d1.s1", "root.sg.d1.s2"), task.series);
+      } else {
+        assertEquals("root.sg.d2", task.device);
+        assertEquals(Arrays.asList("root.sg.d2.s1"), task.series);
+      }
+      assertEquals(ranges[i % 3][0], task.startTime);
+      assertEquals(ranges[i % 3][1], task.endTime);
+      assertEquals(i % 3, task.index);
+    }
+  }
+
+  @Test
+  public void testSplitTasksWithoutInterval() {
+    List<ExportTask> tasks = new ParallelCsvExporter(SERIES, 10, 250, 0, 2, "dump", "timestamp",
+        ZoneId.systemDefault()).splitTasks();
+
+    // one task of the whole time range for each device
+    assertEquals(2, tasks.size());
+    for (ExportTask task : tasks) {
+      assertEquals(10, task.startTime);
+      assertEquals(250, task.endTime);
+      assertEquals(0, task.index);
+    }
+  }
+}
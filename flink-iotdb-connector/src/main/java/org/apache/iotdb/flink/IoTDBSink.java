@@ -20,25 +20,40 @@ package org.apache.iotdb.flink;
 
 import com.google.common.base.Preconditions;
 import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.state.FunctionInitializationContext;
+import org.apache.flink.runtime.state.FunctionSnapshotContext;
+import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
 import org.apache.iotdb.session.pool.SessionPool;
 import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * The `IoTDBSink` allows flink jobs to write events into IoTDB timeseries. By default send only one
  * event after another, but you can change to batch by invoking `withBatchSize(int)`.
+ * <p>
+ * In the batch mode, the buffered events are grouped by device into tablets and written by a
+ * background thread, so `invoke` only blocks when `withMaxInFlightBatches(int)` batches are waiting
+ * to be written. All buffered events are written before a checkpoint completes, which makes the
+ * sink at-least-once.
  *
  * @param <IN> the input data type
  */
-public class IoTDBSink<IN> extends RichSinkFunction<IN> {
+public class IoTDBSink<IN> extends RichSinkFunction<IN> implements CheckpointedFunction {
 
   private static final long serialVersionUID = 1L;
   private static final Logger LOG = LoggerFactory.getLogger(IoTDBSink.class);
@@ -51,13 +66,17 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
 
   private int batchSize = 0;
   private int flushIntervalMs = 3000;
-  private List<Event> batchList;
+  private int maxInFlightBatches = 4;
   private int sessionPoolSize = 2;
 
+  private transient List<Event> batchList;
+  private transient ExecutorService flushExecutor;
+  private transient Semaphore inFlightBatches;
+  private transient AtomicReference<Exception> flushException;
+
   public IoTDBSink(IoTDBOptions options, IoTSerializationSchema<IN> schema) {
     this.options = options;
     this.serializationSchema = schema;
-    this.batchList = new LinkedList<>();
     this.timeseriesOptionMap = new HashMap<>();
     for (IoTDBOptions.TimeseriesOption timeseriesOption : options.getTimeseriesOptionList()) {
       timeseriesOptionMap.put(timeseriesOption.getPath(), timeseriesOption);
@@ -85,6 +104,12 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
 
   void initScheduler() {
     if (batchSize > 0) {
+      batchList = new ArrayList<>(batchSize);
+      // batches are written one by one so that the events of a device keep their order
+      flushExecutor = Executors.newSingleThreadExecutor();
+      inFlightBatches = new Semaphore(maxInFlightBatches);
+      flushException = new AtomicReference<>();
+
       scheduledExecutor = Executors.newSingleThreadScheduledExecutor();
       scheduledExecutor.scheduleAtFixedRate(() -> {
         try {
@@ -109,13 +134,14 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     }
 
     if (batchSize > 0) {
-      synchronized (batchList) {
+      checkFlushException();
+      synchronized (this) {
         batchList.add(event);
         if (batchList.size() >= batchSize) {
           flush();
         }
-        return;
       }
+      return;
     }
 
     convertText(event.getDevice(), event.getMeasurements(), event.getValues());
@@ -124,6 +150,17 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     LOG.debug("send event successfully");
   }
 
+  @Override
+  public void snapshotState(FunctionSnapshotContext context) throws Exception {
+    flush();
+    waitForInFlightBatches();
+  }
+
+  @Override
+  public void initializeState(FunctionInitializationContext context) {
+    // nothing is kept in the state as all buffered events are written before a checkpoint
+  }
+
   public IoTDBSink<IN> withBatchSize(int batchSize) {
     Preconditions.checkArgument(batchSize >= 0);
     this.batchSize = batchSize;
@@ -136,6 +173,12 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     return this;
   }
 
+  public IoTDBSink<IN> withMaxInFlightBatches(int maxInFlightBatches) {
+    Preconditions.checkArgument(maxInFlightBatches > 0);
+    this.maxInFlightBatches = maxInFlightBatches;
+    return this;
+  }
+
   public IoTDBSink<IN> withSessionPoolSize(int sessionPoolSize) {
     Preconditions.checkArgument(sessionPoolSize > 0);
     this.sessionPoolSize = sessionPoolSize;
@@ -144,16 +187,31 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
 
   @Override
   public void close() throws Exception {
+    if (scheduledExecutor != null) {
+      scheduledExecutor.shutdown();
+    }
+    Exception flushError = null;
     if (pool != null) {
       try {
         flush();
+        waitForInFlightBatches();
       } catch (Exception e) {
         LOG.error("flush error", e);
+        flushError = e;
       }
-      pool.close();
     }
-    if (scheduledExecutor != null) {
-      scheduledExecutor.shutdown();
+    try {
+      if (flushExecutor != null) {
+        flushExecutor.shutdown();
+      }
+    } finally {
+      if (pool != null) {
+        pool.close();
+      }
+    }
+    // the last batches are lost if they cannot be written, so fail the task instead of finishing
+    if (flushError != null) {
+      throw flushError;
     }
   }
 
@@ -171,29 +229,139 @@ public class IoTDBSink<IN> extends RichSinkFunction<IN> {
     }
   }
 
-  private void flush() throws Exception {
-    if (batchSize > 0) {
-      synchronized (batchList) {
-        if (batchList.size() > 0) {
-          List<String> deviceIds = new ArrayList<>();
-          List<Long> timestamps = new ArrayList<>();
-          List<List<String>> measurementsList = new ArrayList<>();
-          List<List<TSDataType>> typesList = new ArrayList<>();
-          List<List<Object>> valuesList = new ArrayList<>();
-
-          for (Event event : batchList) {
-            convertText(event.getDevice(), event.getMeasurements(), event.getValues());
-            deviceIds.add(event.getDevice());
-            timestamps.add(event.getTimestamp());
-            measurementsList.add(event.getMeasurements());
-            typesList.add(event.getTypes());
-            valuesList.add(event.getValues());
-          }
-          pool.insertRecords(deviceIds, timestamps, measurementsList, typesList, valuesList);
+  /**
+   * Submit the buffered events to be written. Both taking the batch and submitting it are done
+   * under the lock, so the batches are written in the order they are taken.
+   */
+  private synchronized void flush() throws Exception {
+    if (batchList == null || batchList.isEmpty()) {
+      return;
+    }
+    List<Event> batch = batchList;
+    batchList = new ArrayList<>(batchSize);
+    submitBatch(batch);
+  }
+
+  /**
+   * write the batch in the background, block if too many batches are being written
+   */
+  private void submitBatch(List<Event> batch) throws InterruptedException {
+    inFlightBatches.acquire();
+    try {
+      flushExecutor.submit(() -> {
+        try {
+          writeBatch(batch);
           LOG.debug("send event successfully");
-          batchList.clear();
+        } catch (Exception e) {
+          LOG.error("flush error", e);
+          flushException.compareAndSet(null, e);
+        } finally {
+          inFlightBatches.release();
+        }
+      });
+    } catch (RejectedExecutionException e) {
+      inFlightBatches.release();
+      throw e;
+    }
+  }
+
+  private void waitForInFlightBatches() throws Exception {
+    if (inFlightBatches != null) {
+      inFlightBatches.acquire(maxInFlightBatches);
+      inFlightBatches.release(maxInFlightBatches);
+      checkFlushException();
+    }
+  }
+
+  /**
+   * fail the job if a batch cannot be written, so that it can be recovered from the last
+   * checkpoint
+   */
+  private void checkFlushException() throws Exception {
+    Exception e = flushException.getAndSet(null);
+    if (e != null) {
+      throw new Exception("Failed to write a batch of events into IoTDB", e);
+    }
+  }
+
+  /**
+   * The events of a device are written in one tablet if they all have the same measurements and
+   * types, otherwise all of them are written as records in their order, so that a later event
+   * always overwrites an earlier one of the same timestamp.
+   */
+  private void writeBatch(List<Event> batch) throws Exception {
+    Map<String, List<Event>> deviceEvents = new LinkedHashMap<>();
+    for (Event event : batch) {
+      convertText(event.getDevice(), event.getMeasurements(), event.getValues());
+      deviceEvents.computeIfAbsent(event.getDevice(), k -> new ArrayList<>()).add(event);
+    }
+
+    Map<String, Tablet> tablets = new HashMap<>();
+    List<Event> records = new ArrayList<>();
+    for (Map.Entry<String, List<Event>> entry : deviceEvents.entrySet()) {
+      List<Event> events = entry.getValue();
+      if (hasSameSchema(events)) {
+        tablets.put(entry.getKey(), toTablet(entry.getKey(), events));
+      } else {
+        records.addAll(events);
+      }
+    }
+
+    if (!tablets.isEmpty()) {
+      pool.insertTablets(tablets);
+    }
+    if (!records.isEmpty()) {
+      List<String> deviceIds = new ArrayList<>();
+      List<Long> timestamps = new ArrayList<>();
+      List<List<String>> measurementsList = new ArrayList<>();
+      List<List<TSDataType>> typesList = new ArrayList<>();
+      List<List<Object>> valuesList = new ArrayList<>();
+      for (Event event : records) {
+        deviceIds.add(event.getDevice());
+        timestamps.add(event.getTimestamp());
+        measurementsList.add(event.getMeasurements());
+        typesList.add(event.getTypes());
+        valuesList.add(event.getValues());
+      }
+      pool.insertRecords(deviceIds, timestamps, measurementsList, typesList, valuesList);
+    }
+  }
+
+  private boolean hasSameSchema(List<Event> events) {
+    Event first = events.get(0);
+    if (first.getMeasurements() == null) {
+      return false;
+    }
+    for (Event event : events) {
+      if (!first.getMeasurements().equals(event.getMeasurements())
+          || !Objects.equals(first.getTypes(), event.getTypes())
+          || event.getValues().size() != first.getMeasurements().size()) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private Tablet toTablet(String device, List<Event> rows) {
+    List<String> measurements = rows.get(0).getMeasurements();
+    List<TSDataType> types = rows.get(0).getTypes();
+    List<MeasurementSchema> schemas = new ArrayList<>(measurements.size());
+    for (int i = 0; i < measurements.size(); i++) {
+      schemas.add(new MeasurementSchema(measurements.get(i), types.get(i)));
+    }
+    Tablet tablet = new Tablet(device, schemas, rows.size());
+    for (int row = 0; row < rows.size(); row++) {
+      Event event = rows.get(row);
+      tablet.addTimestamp(row, event.getTimestamp());
+      for (int i = 0; i < measurements.size(); i++) {
+        Object value = event.getValues().get(i);
+        if (types.get(i) == TSDataType.TEXT) {
+          value = new Binary(String.valueOf(value));
         }
+        tablet.addValue(measurements.get(i), row, value);
       }
     }
+    tablet.rowSize = rows.size();
+    return tablet;
   }
 }
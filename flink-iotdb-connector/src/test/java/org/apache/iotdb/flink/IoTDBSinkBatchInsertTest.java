@@ -18,23 +18,35 @@
 
 package org.apache.iotdb.flink;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 
 import com.google.common.collect.Lists;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
 import org.apache.iotdb.session.pool.SessionPool;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 public class IoTDBSinkBatchInsertTest {
 
   private IoTDBSink ioTDBSink;
   private SessionPool pool;
+  private ArgumentCaptor<Map> tabletsCaptor = ArgumentCaptor.forClass(Map.class);
 
   @Before
   public void setUp() throws Exception {
@@ -44,10 +56,17 @@ public class IoTDBSinkBatchInsertTest {
     ioTDBSink = new IoTDBSink(options, new DefaultIoTSerializationSchema());
     ioTDBSink.withBatchSize(3);
 
+    ioTDBSink.initScheduler();
+
     pool = mock(SessionPool.class);
     ioTDBSink.setSessionPool(pool);
   }
 
+  @After
+  public void tearDown() throws Exception {
+    ioTDBSink.close();
+  }
+
   @Test
   public void testBatchInsert() throws Exception {
     Map<String, String> tuple = new HashMap();
@@ -78,8 +97,12 @@ public class IoTDBSinkBatchInsertTest {
     tuple.put("values", "37.1");
     ioTDBSink.invoke(tuple, null);
 
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    // the batch is written in the background
+    verify(pool, timeout(1000)).insertTablets(tabletsCaptor.capture());
+    Tablet tablet = (Tablet) tabletsCaptor.getValue().get("root.sg.D01");
+    assertEquals(3, tablet.rowSize);
+    assertEquals(1581861293003L, tablet.timestamps[2]);
+    assertEquals(37.1, ((double[]) tablet.values[0])[2], 0);
 
     tuple = new HashMap();
     tuple.put("device", "root.sg.D01");
@@ -104,8 +127,56 @@ public class IoTDBSinkBatchInsertTest {
     verifyZeroInteractions(pool);
 
     ioTDBSink.close();
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    verify(pool).insertTablets(any(Map.class));
+    verify(pool).close();
+  }
+
+  @Test
+  public void closeWithFailedBatch() throws Exception {
+    doThrow(new IoTDBConnectionException("connection lost")).when(pool)
+        .insertTablets(any(Map.class));
+    ioTDBSink.invoke(tuple("root.sg.D01", "1581861293005", "temperature", "DOUBLE", "36.5"),
+        null);
+
+    try {
+      ioTDBSink.close();
+      fail("the task should fail if the last batch cannot be written");
+    } catch (Exception e) {
+      assertTrue(e.getCause() instanceof IoTDBConnectionException);
+    }
+    // the pool is released even though the task fails
     verify(pool).close();
   }
+
+  @Test
+  public void testGroupByDevice() throws Exception {
+    ioTDBSink.withBatchSize(10);
+    ioTDBSink.invoke(tuple("root.sg.D01", "1", "temperature", "DOUBLE", "36.5"), null);
+    ioTDBSink.invoke(tuple("root.sg.D02", "1", "temperature", "DOUBLE", "36.6"), null);
+    // the measurements differ from the former event of the device
+    ioTDBSink.invoke(tuple("root.sg.D01", "2", "temperature,status", "DOUBLE,BOOLEAN",
+        "36.7,true"), null);
+    verifyZeroInteractions(pool);
+
+    // all buffered events are written before the checkpoint completes
+    ioTDBSink.snapshotState(null);
+    verify(pool).insertTablets(tabletsCaptor.capture());
+    Map<String, Tablet> tablets = tabletsCaptor.getValue();
+    assertEquals(1, tablets.size());
+    assertEquals(1, tablets.get("root.sg.D02").rowSize);
+    // all events of the device are written as records in their order
+    verify(pool).insertRecords(eq(Arrays.asList("root.sg.D01", "root.sg.D01")),
+        eq(Arrays.asList(1L, 2L)), any(List.class), any(List.class), any(List.class));
+  }
+
+  private Map<String, String> tuple(String device, String timestamp, String measurements,
+      String types, String values) {
+    Map<String, String> tuple = new HashMap<>();
+    tuple.put("device", device);
+    tuple.put("timestamp", timestamp);
+    tuple.put("measurements", measurements);
+    tuple.put("types", types);
+    tuple.put("values", values);
+    return tuple;
+  }
 }
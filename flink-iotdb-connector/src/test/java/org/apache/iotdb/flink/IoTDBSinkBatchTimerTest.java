@@ -62,8 +62,7 @@ public class IoTDBSinkBatchTimerTest {
 
     Thread.sleep(2500);
 
-    verify(pool).insertRecords(any(List.class), any(List.class), any(List.class), any(List.class),
-        any(List.class));
+    verify(pool).insertTablets(any(Map.class));
 
     Thread.sleep(1000);
 
@@ -26,6 +26,7 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
@@ -112,6 +113,9 @@ public class DatabaseConnectController {
       Pair<ZonedDateTime, ZonedDateTime> timeRange = getTimeFromAndTo(jsonObject);
       JsonArray array = (JsonArray) jsonObject.get("targets"); // []
       JsonArray result = new JsonArray();
+      if (jsonObject.has("maxDataPoints") && getJsonType(jsonObject).equals("timeserie")) {
+        return queryTimeseries(array, timeRange, jsonObject.get("maxDataPoints").getAsInt());
+      }
       for (int i = 0; i < array.size(); i++) {
         JsonObject object = array.get(i).getAsJsonObject(); // {}
         if (!object.has(targetStr)) {
@@ -137,6 +141,34 @@ public class DatabaseConnectController {
     return null;
   }
 
+  /**
+   * query all targets of a panel in one request, downsampled to the number of points the panel
+   * can render.
+   */
+  private String queryTimeseries(JsonArray array, Pair<ZonedDateTime, ZonedDateTime> timeRange,
+      int maxDataPoints) {
+    List<String> targets = new ArrayList<>();
+    for (int i = 0; i < array.size(); i++) {
+      JsonObject object = array.get(i).getAsJsonObject();
+      if (!object.has("target")) {
+        return "[]";
+      }
+      targets.add(object.get("target").getAsString());
+    }
+
+    Map<String, List<TimeValues>> targetToValues = databaseConnectService
+        .querySeries(targets, timeRange, maxDataPoints);
+    JsonArray result = new JsonArray();
+    for (String target : targets) {
+      JsonObject obj = new JsonObject();
+      obj.addProperty("target", target);
+      obj.add("datapoints", toDataPoints(targetToValues.get(target)));
+      result.add(obj);
+    }
+    logger.info("query of {} targets finished", targets.size());
+    return result.toString();
+  }
+
   private Pair<ZonedDateTime, ZonedDateTime> getTimeFromAndTo(JsonObject jsonObject) {
     JsonObject obj = jsonObject.get("range").getAsJsonObject();
     Instant from = Instant.parse(obj.get("from").getAsString());
@@ -176,7 +208,10 @@ public class DatabaseConnectController {
       Pair<ZonedDateTime, ZonedDateTime> timeRange) {
     List<TimeValues> timeValues = databaseConnectService.querySeries(target, timeRange);
     logger.info("query size: {}", timeValues.size());
+    obj.add("datapoints", toDataPoints(timeValues));
+  }
 
+  private JsonArray toDataPoints(List<TimeValues> timeValues) {
     JsonArray dataPoints = new JsonArray();
     for (TimeValues tv : timeValues) {
       long time = tv.getTime();
@@ -186,7 +221,7 @@ public class DatabaseConnectController {
       jsonArray.add(GSON.toJsonTree(value));
       dataPoints.add(jsonArray);
     }
-    obj.add("datapoints", dataPoints);
+    return dataPoints;
   }
 
   /**
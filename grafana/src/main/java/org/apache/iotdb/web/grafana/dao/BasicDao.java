@@ -20,6 +20,7 @@ package org.apache.iotdb.web.grafana.dao;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.web.grafana.bean.TimeValues;
 
@@ -30,6 +31,15 @@ public interface BasicDao {
 
   List<TimeValues> querySeries(String s, Pair<ZonedDateTime, ZonedDateTime> timeRange);
 
+  /**
+   * query several series in one request, each downsampled to at most 4 points for each of the
+   * maxDataPoints buckets.
+   *
+   * @return target -> points
+   */
+  Map<String, List<TimeValues>> querySeries(List<String> targets,
+      Pair<ZonedDateTime, ZonedDateTime> timeRange, int maxDataPoints);
+
   List<String> getMetaData();
 
 }
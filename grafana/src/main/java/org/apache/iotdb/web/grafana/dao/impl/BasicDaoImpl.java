@@ -26,7 +26,11 @@ import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.web.grafana.bean.TimeValues;
 import org.apache.iotdb.web.grafana.dao.BasicDao;
@@ -37,6 +41,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
@@ -158,6 +163,105 @@ public class BasicDaoImpl implements BasicDao {
     return jdbcTemplate.query(sql, new TimeValuesRowMapper(columnName));
   }
 
+  /**
+   * If downsampling is enabled, the targets are queried in one group by query with a bucket for
+   * each of the maxDataPoints pixels, which are aggregated by the query engine mostly from the
+   * statistics of chunks and pages. The m4 aggregation of a bucket gives its first, bottom, top
+   * and last points with their real timestamps, which draw the same pixel column as the raw
+   * points. If the query fails, e.g. because m4 is not supported by a TEXT series, the targets are
+   * queried one by one.
+   */
+  @Override
+  public Map<String, List<TimeValues>> querySeries(List<String> targets,
+      Pair<ZonedDateTime, ZonedDateTime> timeRange, int maxDataPoints) {
+    if (timestampRadioX == -1) {
+      setTimestampRadioX(timestampPrecision);
+    }
+    long from = zonedCovertToLong(timeRange.left);
+    long to = zonedCovertToLong(timeRange.right);
+    if (isDownSampling && maxDataPoints > 0 && to > from && !targets.isEmpty()) {
+      try {
+        return queryM4(new ArrayList<>(new LinkedHashSet<>(targets)), from, to, maxDataPoints);
+      } catch (Exception e) {
+        logger.warn("Cannot downsample {} in one query, query them one by one", targets, e);
+      }
+    }
+    Map<String, List<TimeValues>> result = new LinkedHashMap<>();
+    for (String target : targets) {
+      result.put(target, querySeries(target, timeRange));
+    }
+    return result;
+  }
+
+  private Map<String, List<TimeValues>> queryM4(List<String> targets, long from, long to,
+      int maxDataPoints) {
+    long interval = Math.max(1, (to - from + maxDataPoints - 1) / maxDataPoints);
+    StringBuilder select = new StringBuilder();
+    for (String target : targets) {
+      if (select.length() > 0) {
+        select.append(", ");
+      }
+      select.append("m4(").append(target).append(')');
+    }
+    String sql = String.format("SELECT %s FROM root group by ([%d, %d), %dms)", select,
+        from * timestampRadioX, to * timestampRadioX, interval);
+    logger.info("Downsample {} series to {} buckets of {}ms", targets.size(), maxDataPoints,
+        interval);
+    ResultSetExtractor<Map<String, List<TimeValues>>> extractor = resultSet -> {
+      Map<String, List<TimeValues>> result = new LinkedHashMap<>();
+      for (String target : targets) {
+        result.put(target, new ArrayList<>());
+      }
+      while (resultSet.next()) {
+        for (Map.Entry<String, List<TimeValues>> entry : result.entrySet()) {
+          addM4Points(resultSet, "root." + entry.getKey(), entry.getValue());
+        }
+      }
+      return result;
+    };
+    return jdbcTemplate.query(sql, extractor);
+  }
+
+  /**
+   * add the points of the m4 result of a bucket, which is a text of "time:value" pairs of its
+   * first, bottom, top and last points, in the order of their times and without duplicates
+   */
+  private static void addM4Points(ResultSet resultSet, String path, List<TimeValues> points)
+      throws SQLException {
+    String m4 = resultSet.getString("m4(" + path + ")");
+    if (m4 == null || "null".equals(m4)) {
+      // no point in the bucket
+      return;
+    }
+    TreeMap<Long, Object> bucketPoints = new TreeMap<>();
+    for (String point : m4.split(",")) {
+      int separator = point.indexOf(':');
+      bucketPoints.putIfAbsent(Long.parseLong(point.substring(0, separator)),
+          parseValue(point.substring(separator + 1)));
+    }
+    for (Map.Entry<Long, Object> point : bucketPoints.entrySet()) {
+      points.add(newTimeValues(point.getKey() / timestampRadioX, point.getValue()));
+    }
+  }
+
+  private static TimeValues newTimeValues(long time, Object value) {
+    TimeValues tv = new TimeValues();
+    tv.setTime(time);
+    tv.setValue(value);
+    return tv;
+  }
+
+  private static Object parseValue(String valueString) {
+    if (valueString == null) {
+      return null;
+    }
+    try {
+      return Float.parseFloat(valueString);
+    } catch (Exception e) {
+      return valueString;
+    }
+  }
+
   private Long zonedCovertToLong(ZonedDateTime time) {
     return time.toInstant().toEpochMilli();
   }
@@ -174,14 +278,7 @@ public class BasicDaoImpl implements BasicDao {
     public TimeValues mapRow(ResultSet resultSet, int i) throws SQLException {
       TimeValues tv = new TimeValues();
       tv.setTime(resultSet.getLong("Time") / timestampRadioX);
-      String valueString = resultSet.getString(columnName);
-      if (valueString != null) {
-        try {
-          tv.setValue(Float.parseFloat(resultSet.getString(columnName)));
-        } catch (Exception e) {
-          tv.setValue(resultSet.getString(columnName));
-        }
-      }
+      tv.setValue(parseValue(resultSet.getString(columnName)));
       return tv;
     }
   }
@@ -20,6 +20,7 @@ package org.apache.iotdb.web.grafana.service;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.web.grafana.bean.TimeValues;
 
@@ -29,6 +30,9 @@ public interface DatabaseConnectService {
 
   List<TimeValues> querySeries(String s, Pair<ZonedDateTime, ZonedDateTime> timeRange);
 
+  Map<String, List<TimeValues>> querySeries(List<String> targets,
+      Pair<ZonedDateTime, ZonedDateTime> timeRange, int maxDataPoints);
+
   List<String> getMetaData();
 
 }
@@ -20,6 +20,7 @@ package org.apache.iotdb.web.grafana.service.impl;
 
 import java.time.ZonedDateTime;
 import java.util.List;
+import java.util.Map;
 import org.apache.iotdb.tsfile.utils.Pair;
 import org.apache.iotdb.web.grafana.bean.TimeValues;
 import org.apache.iotdb.web.grafana.dao.BasicDao;
@@ -43,6 +44,12 @@ public class DatabaseConnectServiceImpl implements DatabaseConnectService {
     return basicDao.querySeries(s, timeRange);
   }
 
+  @Override
+  public Map<String, List<TimeValues>> querySeries(List<String> targets,
+      Pair<ZonedDateTime, ZonedDateTime> timeRange, int maxDataPoints) {
+    return basicDao.querySeries(targets, timeRange, maxDataPoints);
+  }
+
   @Override
   public List<String> getMetaData() {
     return basicDao.getMetaData();
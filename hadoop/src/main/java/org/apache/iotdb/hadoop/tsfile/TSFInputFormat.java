@@ -29,11 +29,20 @@ import org.apache.hadoop.io.MapWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.*;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.iotdb.hadoop.fileSystem.HDFSInput;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 public class
@@ -69,8 +78,24 @@ TSFInputFormat extends FileInputFormat<NullWritable, MapWritable> {
    * key to configure the reading measurementIds
    */
   public static final String READ_MEASUREMENTID = "tsfile.read.measurement";
+  /**
+   * key to configure the inclusive start time of the time filter
+   */
+  public static final String FILTER_START_TIME = "tsfile.filter.time.start";
+  /**
+   * key to configure the inclusive end time of the time filter
+   */
+  public static final String FILTER_END_TIME = "tsfile.filter.time.end";
+  /**
+   * key to configure the value filters, which are combined by AND
+   */
+  public static final String FILTER_VALUE = "tsfile.filter.value";
   private static final Logger logger = LoggerFactory.getLogger(TSFInputFormat.class);
   private static final String SEPARATOR = ",";
+  /**
+   * measurementId, operator, value
+   */
+  static final Pattern VALUE_FILTER_PATTERN = Pattern.compile("([^<>=!]+)(<=|>=|!=|<|>|=)(.*)");
 
   /**
    * Set the deltaObjectIds which want to be read
@@ -220,6 +245,66 @@ TSFInputFormat extends FileInputFormat<NullWritable, MapWritable> {
     return configuration.get(FILTER_TYPE);
   }
 
+  /**
+   * Only read the points in [startTime, endTime], the chunks and pages out of the time range are
+   * skipped according to their statistics.
+   */
+  public static void setTimeFilter(Job job, long startTime, long endTime) {
+    job.getConfiguration().setLong(FILTER_START_TIME, startTime);
+    job.getConfiguration().setLong(FILTER_END_TIME, endTime);
+  }
+
+  /**
+   * @return the time filter, or null if it is not set
+   */
+  public static Filter getTimeFilter(Configuration configuration) {
+    String startTime = configuration.get(FILTER_START_TIME);
+    String endTime = configuration.get(FILTER_END_TIME);
+    Filter filter = null;
+    if (startTime != null) {
+      filter = TimeFilter.gtEq(Long.parseLong(startTime));
+    }
+    if (endTime != null) {
+      Filter endFilter = TimeFilter.ltEq(Long.parseLong(endTime));
+      filter = filter == null ? endFilter : FilterFactory.and(filter, endFilter);
+    }
+    return filter;
+  }
+
+  /**
+   * Only read the rows whose value of the measurement satisfies the condition, the chunks and
+   * pages whose statistics cannot satisfy it are skipped. Multiple value filters are combined by
+   * AND, and neither the measurementId nor the value should contain the separator ','.
+   *
+   * @param operator one of <, <=, >, >=, =, !=
+   * @param value the value in the string form of the data type of the measurement
+   * @throws TSFHadoopException if the operator is not supported
+   */
+  public static void addValueFilter(Job job, String measurementId, String operator, String value)
+      throws TSFHadoopException {
+    String valueFilter = measurementId + operator + value;
+    Matcher matcher = VALUE_FILTER_PATTERN.matcher(valueFilter);
+    if (!matcher.matches() || !matcher.group(1).equals(measurementId)
+        || !matcher.group(2).equals(operator)) {
+      throw new TSFHadoopException("Unsupported value filter " + valueFilter);
+    }
+    String valueFilters = job.getConfiguration().get(FILTER_VALUE);
+    job.getConfiguration().set(FILTER_VALUE,
+        valueFilters == null ? valueFilter : valueFilters + SEPARATOR + valueFilter);
+  }
+
+  /**
+   * @return the value filters in the form of measurementId operator value
+   */
+  public static List<String> getValueFilters(Configuration configuration) {
+    String valueFilters = configuration.get(FILTER_VALUE);
+    if (valueFilters == null || valueFilters.length() < 1) {
+      return new LinkedList<>();
+    } else {
+      return Arrays.stream(valueFilters.split(SEPARATOR)).collect(Collectors.toList());
+    }
+  }
+
   @Deprecated
   public static void setFilterExp(Job job, String value) {
     job.getConfiguration().set(FILTER_EXPRESSION, value);
@@ -247,6 +332,8 @@ TSFInputFormat extends FileInputFormat<NullWritable, MapWritable> {
       List<FileStatus> listFileStatus, Logger logger) throws IOException {
     BlockLocation[] blockLocations;
     List<TSFInputSplit> splits = new ArrayList<>();
+    long minSize = configuration.getLong(SPLIT_MINSIZE, 1L);
+    long maxSize = configuration.getLong(SPLIT_MAXSIZE, Long.MAX_VALUE);
     // get the all file in the directory
     logger.info("The number of this job file is {}", listFileStatus.size());
     // For each file
@@ -268,7 +355,8 @@ TSFInputFormat extends FileInputFormat<NullWritable, MapWritable> {
         blockLocations = fileSystem.getFileBlockLocations(fileStatus, 0, length);
 
         logger.info("The block location information is {}", Arrays.toString(blockLocations));
-        splits.addAll(generateSplits(path, blockLocations));
+        long splitSize = Math.max(minSize, Math.min(maxSize, fileStatus.getBlockSize()));
+        splits.addAll(generateSplits(configuration, path, length, splitSize, blockLocations));
       } else {
         logger.warn("The file length is " + length);
       }
@@ -280,18 +368,84 @@ TSFInputFormat extends FileInputFormat<NullWritable, MapWritable> {
   }
 
   /**
-   * get the TSFInputSplit from tsfMetaData and hdfs block location information with the filter
+   * Generate the splits of a TsFile, each of which starts at a chunk group and is about splitSize
+   * long, so that a chunk group is never split into two parts. Each split is placed on the hosts
+   * of the block holding most of its data.
    *
    * @throws IOException
    */
-  private static List<TSFInputSplit> generateSplits(Path path, BlockLocation[] blockLocations)
-      throws IOException {
+  private static List<TSFInputSplit> generateSplits(Configuration configuration, Path path,
+      long length, long splitSize, BlockLocation[] blockLocations) throws IOException {
+    List<Long> chunkGroupOffsets;
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(
+        new HDFSInput(path, configuration))) {
+      chunkGroupOffsets = getChunkGroupOffsets(reader);
+    }
+
     List<TSFInputSplit> splits = new ArrayList<>();
-    for (BlockLocation blockLocation : blockLocations) {
-      splits.add(new TSFInputSplit(path, blockLocation.getHosts(), blockLocation.getOffset(),
-          blockLocation.getLength()));
+    long splitStart = 0;
+    // the first split also holds the head of the file before the first chunk group
+    for (int i = 1; i < chunkGroupOffsets.size(); i++) {
+      long chunkGroupOffset = chunkGroupOffsets.get(i);
+      if (chunkGroupOffset - splitStart >= splitSize) {
+        splits.add(new TSFInputSplit(path, getHosts(blockLocations, splitStart, chunkGroupOffset),
+            splitStart, chunkGroupOffset - splitStart));
+        splitStart = chunkGroupOffset;
+      }
     }
+    splits.add(new TSFInputSplit(path, getHosts(blockLocations, splitStart, length), splitStart,
+        length - splitStart));
     return splits;
   }
 
+  /**
+   * The chunks of a chunk group are stored together and belong to one device, with at most one
+   * chunk for each measurement, so a chunk group starts where the device of the chunk changes or
+   * the measurement of the chunk repeats.
+   *
+   * @return the start offsets of the chunk groups in ascending order
+   */
+  static List<Long> getChunkGroupOffsets(TsFileSequenceReader reader) throws IOException {
+    TreeMap<Long, String[]> chunkOffsets = new TreeMap<>();
+    for (String device : reader.getAllDevices()) {
+      for (Entry<String, List<ChunkMetadata>> entry : reader.readChunkMetadataInDevice(device)
+          .entrySet()) {
+        for (ChunkMetadata chunkMetadata : entry.getValue()) {
+          chunkOffsets.put(chunkMetadata.getOffsetOfChunkHeader(),
+              new String[]{device, entry.getKey()});
+        }
+      }
+    }
+
+    List<Long> chunkGroupOffsets = new ArrayList<>();
+    String currentDevice = null;
+    Set<String> currentMeasurements = new HashSet<>();
+    for (Entry<Long, String[]> entry : chunkOffsets.entrySet()) {
+      String device = entry.getValue()[0];
+      String measurement = entry.getValue()[1];
+      if (!device.equals(currentDevice) || currentMeasurements.contains(measurement)) {
+        chunkGroupOffsets.add(entry.getKey());
+        currentDevice = device;
+        currentMeasurements.clear();
+      }
+      currentMeasurements.add(measurement);
+    }
+    return chunkGroupOffsets;
+  }
+
+  private static String[] getHosts(BlockLocation[] blockLocations, long start, long end)
+      throws IOException {
+    BlockLocation best = null;
+    long bestOverlap = -1;
+    for (BlockLocation blockLocation : blockLocations) {
+      long overlap = Math.min(end, blockLocation.getOffset() + blockLocation.getLength())
+          - Math.max(start, blockLocation.getOffset());
+      if (overlap > bestOverlap) {
+        best = blockLocation;
+        bestOverlap = overlap;
+      }
+    }
+    return best == null ? new String[0] : best.getHosts();
+  }
+
 }
@@ -23,6 +23,8 @@ import static java.util.stream.Collectors.toList;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.io.BooleanWritable;
 import org.apache.hadoop.io.DoubleWritable;
@@ -34,15 +36,25 @@ import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.iotdb.hadoop.fileSystem.HDFSInput;
+import org.apache.iotdb.tsfile.file.metadata.TimeseriesMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.ReadOnlyTsFile;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.IExpression;
 import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.expression.impl.BinaryExpression;
+import org.apache.iotdb.tsfile.read.expression.impl.GlobalTimeExpression;
+import org.apache.iotdb.tsfile.read.expression.impl.SingleSeriesExpression;
+import org.apache.iotdb.tsfile.read.filter.ValueFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.apache.iotdb.tsfile.utils.Binary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +82,18 @@ public class TSFRecordReader extends RecordReader<NullWritable, MapWritable> imp
   private TsFileSequenceReader reader;
   private List<String> measurementIds;
 
+  /**
+   * The value returned by getCurrentValue, which is reused for all rows together with its keys and
+   * values, so that no object is created for each field.
+   */
+  private MapWritable currentValue;
+  private Text timeKey;
+  private Text deviceIdKey;
+  private Text[] measurementKeys;
+  private Text[] deviceIdValues;
+  private LongWritable timeValue;
+  private Writable[] fieldValues;
+
 
   @Override
   public void initialize(InputSplit split, TaskAttemptContext context)
@@ -102,12 +126,24 @@ public class TSFRecordReader extends RecordReader<NullWritable, MapWritable> imp
     readerSet.setReadDeviceId(TSFInputFormat.getReadDeviceId(configuration));
     readerSet.setReadTime(TSFInputFormat.getReadTime(configuration));
 
+    Filter timeFilter = TSFInputFormat.getTimeFilter(configuration);
+    List<String> valueFilters = TSFInputFormat.getValueFilters(configuration);
     try (ReadOnlyTsFile queryEngine = new ReadOnlyTsFile(reader)) {
       for (String deviceId : deviceIds) {
+        IExpression expression = timeFilter == null ? null : new GlobalTimeExpression(timeFilter);
+        if (!valueFilters.isEmpty()) {
+          IExpression valueExpression = getValueExpression(reader, deviceId, valueFilters);
+          if (valueExpression == null) {
+            logger.info("No data of device {} satisfies the value filters", deviceId);
+            continue;
+          }
+          expression = expression == null ? valueExpression
+              : BinaryExpression.and(expression, valueExpression);
+        }
         List<Path> paths = measurementIds.stream()
                 .map(measurementId -> new Path(deviceId, measurementId))
                 .collect(toList());
-        QueryExpression queryExpression = QueryExpression.create(paths, null);
+        QueryExpression queryExpression = QueryExpression.create(paths, expression);
         QueryDataSet dataSet = queryEngine.query(queryExpression,
                 split.getStart(), split.getStart() + split.getLength());
         dataSetList.add(dataSet);
@@ -116,6 +152,79 @@ public class TSFRecordReader extends RecordReader<NullWritable, MapWritable> imp
     }
   }
 
+  /**
+   * Combine the value filters on the measurements of the device by AND.
+   *
+   * @return null if no data of the device can satisfy the value filters according to the
+   * statistics of the file
+   */
+  private static IExpression getValueExpression(TsFileSequenceReader reader, String deviceId,
+      List<String> valueFilters) throws IOException {
+    Map<String, TimeseriesMetadata> deviceMetadata = reader.readDeviceMetadata(deviceId);
+    IExpression expression = null;
+    for (String valueFilter : valueFilters) {
+      Matcher matcher = TSFInputFormat.VALUE_FILTER_PATTERN.matcher(valueFilter);
+      if (!matcher.matches()) {
+        throw new IOException("Unsupported value filter " + valueFilter);
+      }
+      String measurementId = matcher.group(1);
+      TimeseriesMetadata timeseriesMetadata = deviceMetadata.get(measurementId);
+      if (timeseriesMetadata == null) {
+        return null;
+      }
+      Filter filter = getValueFilter(matcher.group(2), matcher.group(3),
+          timeseriesMetadata.getTSDataType());
+      if (!filter.satisfy(timeseriesMetadata.getStatistics())) {
+        return null;
+      }
+      IExpression seriesExpression = new SingleSeriesExpression(new Path(deviceId, measurementId),
+          filter);
+      expression = expression == null ? seriesExpression
+          : BinaryExpression.and(expression, seriesExpression);
+    }
+    return expression;
+  }
+
+  private static Filter getValueFilter(String operator, String value, TSDataType dataType)
+      throws IOException {
+    switch (dataType) {
+      case INT32:
+        return getValueFilter(operator, Integer.parseInt(value));
+      case INT64:
+        return getValueFilter(operator, Long.parseLong(value));
+      case FLOAT:
+        return getValueFilter(operator, Float.parseFloat(value));
+      case DOUBLE:
+        return getValueFilter(operator, Double.parseDouble(value));
+      case BOOLEAN:
+        return getValueFilter(operator, Boolean.parseBoolean(value));
+      case TEXT:
+        return getValueFilter(operator, new Binary(value));
+      default:
+        throw new IOException(String.format("The data type %s is not support ", dataType));
+    }
+  }
+
+  private static <T extends Comparable<T>> Filter getValueFilter(String operator, T value)
+      throws IOException {
+    switch (operator) {
+      case "<":
+        return ValueFilter.lt(value);
+      case "<=":
+        return ValueFilter.ltEq(value);
+      case ">":
+        return ValueFilter.gt(value);
+      case ">=":
+        return ValueFilter.gtEq(value);
+      case "=":
+        return ValueFilter.eq(value);
+      case "!=":
+        return ValueFilter.notEq(value);
+      default:
+        throw new IOException("Unsupported operator " + operator);
+    }
+  }
+
   @Override
   public boolean nextKeyValue() throws IOException, InterruptedException {
     while (currentIndex < dataSetList.size()) {
@@ -138,8 +247,92 @@ public class TSFRecordReader extends RecordReader<NullWritable, MapWritable> imp
 
   @Override
   public MapWritable getCurrentValue() throws InterruptedException {
-    return getCurrentValue(deviceIdList, currentIndex, timestamp, isReadTime, isReadDeviceId,
-        fields, measurementIds);
+    if (currentValue == null) {
+      initCurrentValue();
+    }
+    if (isReadTime) { // time needs to be written into value
+      timeValue.set(timestamp);
+    }
+    if (isReadDeviceId) { // deviceId need to be written into value
+      if (deviceIdValues[currentIndex] == null) {
+        deviceIdValues[currentIndex] = new Text(deviceIdList.get(currentIndex));
+      }
+      currentValue.put(deviceIdKey, deviceIdValues[currentIndex]);
+    }
+    for (int i = 0; i < fields.size(); i++) {
+      currentValue.put(measurementKeys[i], getFieldValue(i, fields.get(i)));
+    }
+    return currentValue;
+  }
+
+  private void initCurrentValue() {
+    currentValue = new MapWritable();
+    timeKey = new Text("time_stamp");
+    deviceIdKey = new Text("device_id");
+    timeValue = new LongWritable();
+    if (isReadTime) {
+      currentValue.put(timeKey, timeValue);
+    }
+    deviceIdValues = new Text[deviceIdList.size()];
+    measurementKeys = new Text[measurementIds.size()];
+    for (int i = 0; i < measurementKeys.length; i++) {
+      measurementKeys[i] = new Text(measurementIds.get(i));
+    }
+    fieldValues = new Writable[measurementIds.size()];
+  }
+
+  /**
+   * @return the writable of the field, which is reused if the data type of the column is the same
+   */
+  private Writable getFieldValue(int index, Field field) throws InterruptedException {
+    if (field == null || field.getDataType() == null) {
+      return NullWritable.get();
+    }
+    Writable writable = fieldValues[index];
+    switch (field.getDataType()) {
+      case INT32:
+        if (!(writable instanceof IntWritable)) {
+          writable = new IntWritable();
+        }
+        ((IntWritable) writable).set(field.getIntV());
+        break;
+      case INT64:
+        if (!(writable instanceof LongWritable)) {
+          writable = new LongWritable();
+        }
+        ((LongWritable) writable).set(field.getLongV());
+        break;
+      case FLOAT:
+        if (!(writable instanceof FloatWritable)) {
+          writable = new FloatWritable();
+        }
+        ((FloatWritable) writable).set(field.getFloatV());
+        break;
+      case DOUBLE:
+        if (!(writable instanceof DoubleWritable)) {
+          writable = new DoubleWritable();
+        }
+        ((DoubleWritable) writable).set(field.getDoubleV());
+        break;
+      case BOOLEAN:
+        if (!(writable instanceof BooleanWritable)) {
+          writable = new BooleanWritable();
+        }
+        ((BooleanWritable) writable).set(field.getBoolV());
+        break;
+      case TEXT:
+        if (!(writable instanceof Text)) {
+          writable = new Text();
+        }
+        ((Text) writable).set(field.getBinaryV().getValues());
+        break;
+      default:
+        logger.error("The data type is not support {}", field.getDataType());
+        throw new InterruptedException(
+            String.format("The data type %s is not support ", field.getDataType()));
+    }
+    fieldValues[index] = writable;
+    return writable;
   }
 
   public static MapWritable getCurrentValue(List<String> deviceIdList, int currentIndex,
@@ -30,6 +30,7 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.*;
 
@@ -103,6 +104,94 @@ public class TSFHadoopTest {
     String filterExpr = "s1>100";
     TSFInputFormat.setFilterExp(job, filterExpr);
     assertEquals(filterExpr, TSFInputFormat.getFilterExp(job.getConfiguration()));
+
+    assertNull(TSFInputFormat.getTimeFilter(job.getConfiguration()));
+    TSFInputFormat.setTimeFilter(job, 1, 10);
+    assertNotNull(TSFInputFormat.getTimeFilter(job.getConfiguration()));
+
+    try {
+      TSFInputFormat.addValueFilter(job, "s1", ">", "100");
+      TSFInputFormat.addValueFilter(job, "s2", "!=", "1.5");
+      assertEquals(Arrays.asList("s1>100", "s2!=1.5"),
+          TSFInputFormat.getValueFilters(job.getConfiguration()));
+    } catch (TSFHadoopException e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+    try {
+      TSFInputFormat.addValueFilter(job, "s1", "=>", "100");
+      fail("The operator => should not be supported");
+    } catch (TSFHadoopException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void chunkGroupSplitTest() throws IOException, InterruptedException, TSFHadoopException {
+    TsFileTestHelper.writeTsFile(tsfilePath);
+    Job job = Job.getInstance();
+    TSFInputFormat.setInputPaths(job, tsfilePath);
+    TSFInputFormat.setReadDeviceIds(job, new String[]{"device_1"});
+    TSFInputFormat.setReadMeasurementIds(job, new String[]{"sensor_1"});
+    // make every chunk group a split
+    job.getConfiguration().setLong(TSFInputFormat.SPLIT_MAXSIZE, 1);
+    List<InputSplit> inputSplits = inputFormat.getSplits(job);
+
+    List<Long> chunkGroupOffsets;
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(
+        new HDFSInput(tsfilePath, job.getConfiguration()))) {
+      chunkGroupOffsets = TSFInputFormat.getChunkGroupOffsets(reader);
+    }
+    assertEquals(chunkGroupOffsets.size(), inputSplits.size());
+    long splitEnd = 0;
+    for (InputSplit inputSplit : inputSplits) {
+      TSFInputSplit split = (TSFInputSplit) inputSplit;
+      // the splits are continuous and start at chunk groups
+      assertEquals(splitEnd, split.getStart());
+      assertTrue(split.getStart() == 0 || chunkGroupOffsets.contains(split.getStart()));
+      splitEnd = split.getStart() + split.getLength();
+    }
+    assertEquals(new File(tsfilePath).length(), splitEnd);
+    // each row is read by exactly one split
+    assertEquals(1000000, readRows(job, inputSplits).size());
+  }
+
+  @Test
+  public void filterTest() throws IOException, InterruptedException, TSFHadoopException {
+    TsFileTestHelper.writeTsFile(tsfilePath);
+    Job job = Job.getInstance();
+    TSFInputFormat.setInputPaths(job, tsfilePath);
+    TSFInputFormat.setReadDeviceIds(job, new String[]{"device_1"});
+    TSFInputFormat.setReadMeasurementIds(job, new String[]{"sensor_1", "sensor_2"});
+    TSFInputFormat.setReadDeviceId(job, false);
+    TSFInputFormat.setTimeFilter(job, 100, 199);
+    // the value is 999999 larger than the time
+    TSFInputFormat.addValueFilter(job, "sensor_1", ">=", "1000149");
+    List<Long> times = readRows(job, inputFormat.getSplits(job));
+    assertEquals(50, times.size());
+    assertEquals(150L, (long) times.get(0));
+    assertEquals(199L, (long) times.get(49));
+
+    // no data satisfies the value filter according to the statistics
+    TSFInputFormat.addValueFilter(job, "sensor_2", "<", "0");
+    assertTrue(readRows(job, inputFormat.getSplits(job)).isEmpty());
+  }
+
+  private List<Long> readRows(Job job, List<InputSplit> inputSplits)
+      throws IOException, InterruptedException {
+    TaskAttemptContextImpl attemptContextImpl = new TaskAttemptContextImpl(job.getConfiguration(),
+        new TaskAttemptID());
+    Text timeKey = new Text("time_stamp");
+    List<Long> times = new ArrayList<>();
+    for (InputSplit inputSplit : inputSplits) {
+      TSFRecordReader recordReader = new TSFRecordReader();
+      recordReader.initialize(inputSplit, attemptContextImpl);
+      while (recordReader.nextKeyValue()) {
+        times.add(((LongWritable) recordReader.getCurrentValue().get(timeKey)).get());
+      }
+      recordReader.close();
+    }
+    return times;
   }
 
   @Test
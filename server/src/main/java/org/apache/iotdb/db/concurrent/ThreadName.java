@@ -41,6 +41,7 @@ public enum ThreadName {
   SYNC_CLIENT("Sync-Client"),
   SYNC_SERVER("Sync-Server"),
   SYNC_MONITOR("Sync-Monitor"),
+  MQTT_BATCH_FLUSH("MQTT-Batch-Flush"),
   LOAD_TSFILE("Load TsFile"),
   TIME_COST_STATSTIC("TIME_COST_STATSTIC"),
   QUERY_SERVICE("Query-ServerServiceImpl");
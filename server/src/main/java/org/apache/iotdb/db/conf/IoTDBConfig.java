@@ -100,6 +100,18 @@ public class IoTDBConfig {
    */
   private int mqttMaxMessageSize = 1048576;
 
+  /**
+   * the interval to insert the buffered mqtt messages, 0 means each message is inserted when it is
+   * received
+   */
+  private long mqttBatchIntervalInMs = 100;
+
+  /**
+   * the max number of buffered mqtt messages of a device, the messages are inserted when it is
+   * reached
+   */
+  private int mqttBatchSize = 1000;
+
 
   /**
    * Rpc binding address.
@@ -131,6 +143,20 @@ public class IoTDBConfig {
    */
   private long allocateMemoryForRead = Runtime.getRuntime().maxMemory() * 3 / 10;
 
+  /**
+   * Whether to control the memory of the primitive arrays of all memtables globally. When the
+   * memory exceeds writeMemoryFlushProportion of allocateMemoryForWrite, the largest memtables are
+   * flushed, and when it exceeds writeMemoryRejectProportion, insertions wait for at most
+   * maxWriteMemoryWaitTimeInMs and are rejected if the memory is still not released.
+   */
+  private boolean enableWriteMemoryControl = false;
+
+  private double writeMemoryFlushProportion = 0.5;
+
+  private double writeMemoryRejectProportion = 0.8;
+
+  private long maxWriteMemoryWaitTimeInMs = 10000;
+
   /**
    * Is dynamic parameter adapter enable.
    */
@@ -252,6 +278,25 @@ public class IoTDBConfig {
    */
   private int avgSeriesPointNumberThreshold = 100000;
 
+  /**
+   * When a memtable reaches memtableSizeThreshold, spill its least recently written chunks holding
+   * at least memChunkSpillPointNumber points to a local file instead of flushing it, so that the
+   * chunks flushed finally are larger than the memory allows. The spilled points are merged back
+   * when the memtable is queried or flushed.
+   */
+  private boolean enableMemChunkSpill = false;
+
+  /**
+   * A chunk of a memtable is spilled only if it holds at least this number of points
+   */
+  private int memChunkSpillPointNumber = 1024;
+
+  /**
+   * When the spilled data of a memtable reaches this size (in byte), the memtable is flushed
+   * instead of being spilled again
+   */
+  private long memChunkSpillSizeThreshold = 4 * 1024 * 1024 * 1024L;
+
   /**
    * Work when tsfile_manage_strategy is level_strategy. When merge point number reaches this, merge
    * the files to the last level.
@@ -274,6 +319,30 @@ public class IoTDBConfig {
    */
   private int maxLevelNum = 2;
 
+  /**
+   * Work when tsfile_manage_strategy is time_window_strategy. The length of a compaction time
+   * window, files whose data falls in the same window are compacted together.
+   */
+  private long compactionTimeWindow = 3_600_000L;
+
+  /**
+   * Work when tsfile_manage_strategy is size_tiered_strategy. Files whose sizes are within this
+   * ratio of the average size of a tier are compacted together.
+   */
+  private double sizeTieredCompactionRatio = 2;
+
+  /**
+   * Work when tsfile_manage_strategy is time_window_strategy or size_tiered_strategy. The min num
+   * of adjacent files in the same tier to start a compaction.
+   */
+  private int tieredCompactionMinFileNum = 4;
+
+  /**
+   * Work when tsfile_manage_strategy is time_window_strategy or size_tiered_strategy. The max num
+   * of files compacted into one file at once.
+   */
+  private int tieredCompactionMaxFileNum = 32;
+
   /**
    * whether to cache meta data(ChunkMetaData and TsFileMetaData) or not.
    */
@@ -488,6 +557,18 @@ public class IoTDBConfig {
    */
   private int mergeChunkSubThreadNum = 4;
 
+  /**
+   * How many series groups (devices) of one merge task can be merged in parallel. The number of
+   * series being merged at the same time is still bounded by the merge memory budget.
+   */
+  private int mergeSeriesGroupThreadNum = 1;
+
+  /**
+   * How many bytes of merged chunks a series group may keep in memory before appending them to the
+   * merge file, which is reserved from the merge memory budget for each series group.
+   */
+  private long mergeSeriesGroupBufferSize = 16 * 1024 * 1024L;
+
   /**
    * If one merge file selection runs for more than this time, it will be ended and its current
    * selection will be used as final selection. Unit: millis. When < 0, it means time is unbounded.
@@ -1143,6 +1224,38 @@ public class IoTDBConfig {
     this.mergeIntervalSec = mergeIntervalSec;
   }
 
+  public boolean isEnableWriteMemoryControl() {
+    return enableWriteMemoryControl;
+  }
+
+  public void setEnableWriteMemoryControl(boolean enableWriteMemoryControl) {
+    this.enableWriteMemoryControl = enableWriteMemoryControl;
+  }
+
+  public double getWriteMemoryFlushProportion() {
+    return writeMemoryFlushProportion;
+  }
+
+  public void setWriteMemoryFlushProportion(double writeMemoryFlushProportion) {
+    this.writeMemoryFlushProportion = writeMemoryFlushProportion;
+  }
+
+  public double getWriteMemoryRejectProportion() {
+    return writeMemoryRejectProportion;
+  }
+
+  public void setWriteMemoryRejectProportion(double writeMemoryRejectProportion) {
+    this.writeMemoryRejectProportion = writeMemoryRejectProportion;
+  }
+
+  public long getMaxWriteMemoryWaitTimeInMs() {
+    return maxWriteMemoryWaitTimeInMs;
+  }
+
+  public void setMaxWriteMemoryWaitTimeInMs(long maxWriteMemoryWaitTimeInMs) {
+    this.maxWriteMemoryWaitTimeInMs = maxWriteMemoryWaitTimeInMs;
+  }
+
   public boolean isEnableParameterAdapter() {
     return enableParameterAdapter;
   }
@@ -1263,6 +1376,30 @@ public class IoTDBConfig {
     this.avgSeriesPointNumberThreshold = avgSeriesPointNumberThreshold;
   }
 
+  public boolean isEnableMemChunkSpill() {
+    return enableMemChunkSpill;
+  }
+
+  public void setEnableMemChunkSpill(boolean enableMemChunkSpill) {
+    this.enableMemChunkSpill = enableMemChunkSpill;
+  }
+
+  public int getMemChunkSpillPointNumber() {
+    return memChunkSpillPointNumber;
+  }
+
+  public void setMemChunkSpillPointNumber(int memChunkSpillPointNumber) {
+    this.memChunkSpillPointNumber = memChunkSpillPointNumber;
+  }
+
+  public long getMemChunkSpillSizeThreshold() {
+    return memChunkSpillSizeThreshold;
+  }
+
+  public void setMemChunkSpillSizeThreshold(long memChunkSpillSizeThreshold) {
+    this.memChunkSpillSizeThreshold = memChunkSpillSizeThreshold;
+  }
+
   public int getMergeChunkPointNumberThreshold() {
     return mergeChunkPointNumberThreshold;
   }
@@ -1306,6 +1443,38 @@ public class IoTDBConfig {
     this.maxLevelNum = maxLevelNum;
   }
 
+  public long getCompactionTimeWindow() {
+    return compactionTimeWindow;
+  }
+
+  public void setCompactionTimeWindow(long compactionTimeWindow) {
+    this.compactionTimeWindow = compactionTimeWindow;
+  }
+
+  public double getSizeTieredCompactionRatio() {
+    return sizeTieredCompactionRatio;
+  }
+
+  public void setSizeTieredCompactionRatio(double sizeTieredCompactionRatio) {
+    this.sizeTieredCompactionRatio = sizeTieredCompactionRatio;
+  }
+
+  public int getTieredCompactionMinFileNum() {
+    return tieredCompactionMinFileNum;
+  }
+
+  public void setTieredCompactionMinFileNum(int tieredCompactionMinFileNum) {
+    this.tieredCompactionMinFileNum = tieredCompactionMinFileNum;
+  }
+
+  public int getTieredCompactionMaxFileNum() {
+    return tieredCompactionMaxFileNum;
+  }
+
+  public void setTieredCompactionMaxFileNum(int tieredCompactionMaxFileNum) {
+    this.tieredCompactionMaxFileNum = tieredCompactionMaxFileNum;
+  }
+
   public int getMergeChunkSubThreadNum() {
     return mergeChunkSubThreadNum;
   }
@@ -1314,6 +1483,22 @@ public class IoTDBConfig {
     this.mergeChunkSubThreadNum = mergeChunkSubThreadNum;
   }
 
+  public int getMergeSeriesGroupThreadNum() {
+    return mergeSeriesGroupThreadNum;
+  }
+
+  public void setMergeSeriesGroupThreadNum(int mergeSeriesGroupThreadNum) {
+    this.mergeSeriesGroupThreadNum = mergeSeriesGroupThreadNum;
+  }
+
+  public long getMergeSeriesGroupBufferSize() {
+    return mergeSeriesGroupBufferSize;
+  }
+
+  public void setMergeSeriesGroupBufferSize(long mergeSeriesGroupBufferSize) {
+    this.mergeSeriesGroupBufferSize = mergeSeriesGroupBufferSize;
+  }
+
   public long getMergeFileSelectionTimeBudget() {
     return mergeFileSelectionTimeBudget;
   }
@@ -1755,6 +1940,22 @@ public class IoTDBConfig {
     this.mqttMaxMessageSize = mqttMaxMessageSize;
   }
 
+  public long getMqttBatchIntervalInMs() {
+    return mqttBatchIntervalInMs;
+  }
+
+  public void setMqttBatchIntervalInMs(long mqttBatchIntervalInMs) {
+    this.mqttBatchIntervalInMs = mqttBatchIntervalInMs;
+  }
+
+  public int getMqttBatchSize() {
+    return mqttBatchSize;
+  }
+
+  public void setMqttBatchSize(int mqttBatchSize) {
+    this.mqttBatchSize = mqttBatchSize;
+  }
+
   public int getTagAttributeTotalSize() {
     return tagAttributeTotalSize;
   }
@@ -110,4 +110,6 @@ public class IoTDBConstant {
   public static final String MQTT_HANDLER_POOL_SIZE_NAME = "mqtt_handler_pool_size";
   public static final String MQTT_PAYLOAD_FORMATTER_NAME = "mqtt_payload_formatter";
   public static final String MQTT_MAX_MESSAGE_SIZE = "mqtt_max_message_size";
+  public static final String MQTT_BATCH_INTERVAL_IN_MS = "mqtt_batch_interval_in_ms";
+  public static final String MQTT_BATCH_SIZE = "mqtt_batch_size";
 }
@@ -203,6 +203,22 @@ public class IoTDBDescriptor {
           Boolean.parseBoolean(properties.getProperty("enable_parameter_adapter",
               Boolean.toString(conf.isEnableParameterAdapter()))));
 
+      conf.setEnableWriteMemoryControl(Boolean.parseBoolean(properties
+          .getProperty("enable_write_memory_control",
+              Boolean.toString(conf.isEnableWriteMemoryControl())).trim()));
+
+      conf.setWriteMemoryFlushProportion(Double.parseDouble(properties
+          .getProperty("write_memory_flush_proportion",
+              Double.toString(conf.getWriteMemoryFlushProportion())).trim()));
+
+      conf.setWriteMemoryRejectProportion(Double.parseDouble(properties
+          .getProperty("write_memory_reject_proportion",
+              Double.toString(conf.getWriteMemoryRejectProportion())).trim()));
+
+      conf.setMaxWriteMemoryWaitTimeInMs(Long.parseLong(properties
+          .getProperty("max_write_memory_wait_time_in_ms",
+              Long.toString(conf.getMaxWriteMemoryWaitTimeInMs())).trim()));
+
       conf.setMetaDataCacheEnable(
           Boolean.parseBoolean(properties.getProperty("meta_data_cache_enable",
               Boolean.toString(conf.isMetaDataCacheEnable()))));
@@ -272,6 +288,18 @@ public class IoTDBDescriptor {
           .getProperty("avg_series_point_number_threshold",
               Integer.toString(conf.getAvgSeriesPointNumberThreshold()))));
 
+      conf.setEnableMemChunkSpill(Boolean.parseBoolean(properties
+          .getProperty("enable_mem_chunk_spill",
+              Boolean.toString(conf.isEnableMemChunkSpill())).trim()));
+
+      conf.setMemChunkSpillPointNumber(Integer.parseInt(properties
+          .getProperty("mem_chunk_spill_point_number",
+              Integer.toString(conf.getMemChunkSpillPointNumber())).trim()));
+
+      conf.setMemChunkSpillSizeThreshold(Long.parseLong(properties
+          .getProperty("mem_chunk_spill_size_threshold",
+              Long.toString(conf.getMemChunkSpillSizeThreshold())).trim()));
+
       conf.setMergeChunkPointNumberThreshold(Integer.parseInt(properties
           .getProperty("merge_chunk_point_number",
               Integer.toString(conf.getMergeChunkPointNumberThreshold()))));
@@ -288,6 +316,28 @@ public class IoTDBDescriptor {
           .getProperty("max_file_num_in_each_level",
               Integer.toString(conf.getMaxFileNumInEachLevel()))));
 
+      long compactionTimeWindow = Long.parseLong(properties
+          .getProperty("compaction_time_window",
+              Long.toString(conf.getCompactionTimeWindow())).trim());
+      if (compactionTimeWindow > 0) {
+        conf.setCompactionTimeWindow(compactionTimeWindow);
+      } else {
+        logger.warn("compaction_time_window should be positive, use the default value {}",
+            conf.getCompactionTimeWindow());
+      }
+
+      conf.setSizeTieredCompactionRatio(Double.parseDouble(properties
+          .getProperty("size_tiered_compaction_ratio",
+              Double.toString(conf.getSizeTieredCompactionRatio()))));
+
+      conf.setTieredCompactionMinFileNum(Integer.parseInt(properties
+          .getProperty("tiered_compaction_min_file_num",
+              Integer.toString(conf.getTieredCompactionMinFileNum()))));
+
+      conf.setTieredCompactionMaxFileNum(Integer.parseInt(properties
+          .getProperty("tiered_compaction_max_file_num",
+              Integer.toString(conf.getTieredCompactionMaxFileNum()))));
+
       conf.setSyncEnable(Boolean
           .parseBoolean(properties.getProperty("is_sync_enable",
               Boolean.toString(conf.isSyncEnable()))));
@@ -347,6 +397,12 @@ public class IoTDBDescriptor {
       conf.setMergeChunkSubThreadNum(Integer.parseInt(properties.getProperty
           ("merge_chunk_subthread_num",
               Integer.toString(conf.getMergeChunkSubThreadNum()))));
+      conf.setMergeSeriesGroupThreadNum(Integer.parseInt(properties.getProperty
+          ("merge_series_group_thread_num",
+              Integer.toString(conf.getMergeSeriesGroupThreadNum()))));
+      conf.setMergeSeriesGroupBufferSize(Long.parseLong(properties.getProperty
+          ("merge_series_group_buffer_size",
+              Long.toString(conf.getMergeSeriesGroupBufferSize()))));
       conf.setContinueMergeAfterReboot(Boolean.parseBoolean(properties.getProperty(
           "continue_merge_after_reboot", Boolean.toString(conf.isContinueMergeAfterReboot()))));
       conf.setMergeFileSelectionTimeBudget(Long.parseLong(properties.getProperty
@@ -480,6 +536,14 @@ public class IoTDBDescriptor {
         conf.setMqttMaxMessageSize(
             Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_MAX_MESSAGE_SIZE)));
       }
+      if (properties.getProperty(IoTDBConstant.MQTT_BATCH_INTERVAL_IN_MS) != null) {
+        conf.setMqttBatchIntervalInMs(
+            Long.parseLong(properties.getProperty(IoTDBConstant.MQTT_BATCH_INTERVAL_IN_MS)));
+      }
+      if (properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE) != null) {
+        conf.setMqttBatchSize(
+            Integer.parseInt(properties.getProperty(IoTDBConstant.MQTT_BATCH_SIZE)));
+      }
 
       conf.setAuthorizerProvider(properties.getProperty("authorizer_provider_class",
           "org.apache.iotdb.db.auth.authorizer.LocalFileAuthorizer"));
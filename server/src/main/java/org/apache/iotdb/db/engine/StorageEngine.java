@@ -21,6 +21,7 @@ package org.apache.iotdb.db.engine;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.List;
@@ -55,6 +56,7 @@ import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.StorageGroupProcessorException;
 import org.apache.iotdb.db.exception.TsFileProcessorException;
 import org.apache.iotdb.db.exception.WriteProcessException;
+import org.apache.iotdb.db.exception.WriteProcessRejectException;
 import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
@@ -66,6 +68,7 @@ import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryFileManager;
+import org.apache.iotdb.db.rescon.WriteMemoryController;
 import org.apache.iotdb.db.service.IService;
 import org.apache.iotdb.db.service.IoTDB;
 import org.apache.iotdb.db.service.ServiceType;
@@ -75,6 +78,7 @@ import org.apache.iotdb.db.utils.UpgradeUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.expression.impl.SingleSeriesExpression;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -347,6 +351,7 @@ public class StorageEngine implements IService {
 
     // TODO monitor: update statistics
     try {
+      WriteMemoryController.getInstance().checkBeforeWrite();
       storageGroupProcessor.insert(insertRowPlan);
     } catch (WriteProcessException e) {
       throw new StorageEngineException(e);
@@ -366,6 +371,11 @@ public class StorageEngine implements IService {
           + "failed", insertTabletPlan.getDeviceId()), e);
     }
 
+    try {
+      WriteMemoryController.getInstance().checkBeforeWrite();
+    } catch (WriteProcessRejectException e) {
+      throw new StorageEngineException(e);
+    }
     // TODO monitor: update statistics
     storageGroupProcessor.insertTablet(insertTabletPlan);
   }
@@ -387,6 +397,10 @@ public class StorageEngine implements IService {
     }
   }
 
+  public Collection<StorageGroupProcessor> getProcessors() {
+    return processorMap.values();
+  }
+
   public void asyncCloseProcessor(PartialPath storageGroupPath, boolean isSeq) {
     StorageGroupProcessor processor = processorMap.get(storageGroupPath);
     if (processor != null) {
@@ -491,6 +505,19 @@ public class StorageEngine implements IService {
         .query(deviceId, measurementId, context, filePathsManager, seriesExpression.getFilter());
   }
 
+  /**
+   * query several measurements of one device, with the same time filter.
+   *
+   * @return the QueryDataSource of each measurement, in the order of measurementIds
+   */
+  public List<QueryDataSource> query(PartialPath deviceId, List<String> measurementIds,
+      Filter timeFilter, QueryContext context, QueryFileManager filePathsManager)
+      throws StorageEngineException, QueryProcessException {
+    StorageGroupProcessor storageGroupProcessor = getProcessor(deviceId);
+    return storageGroupProcessor
+        .query(deviceId, measurementIds, context, filePathsManager, timeFilter);
+  }
+
   /**
    * count all Tsfiles which need to be upgraded
    *
@@ -18,8 +18,10 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -35,6 +37,7 @@ import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.rescon.PrimitiveArrayPool;
 import org.apache.iotdb.db.rescon.TVListAllocator;
 import org.apache.iotdb.db.utils.MemUtils;
 import org.apache.iotdb.db.utils.datastructure.TVList;
@@ -42,9 +45,13 @@ import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.read.common.TimeRange;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public abstract class AbstractMemTable implements IMemTable {
 
+  private static final Logger logger = LoggerFactory.getLogger(AbstractMemTable.class);
+
   private final Map<String, Map<String, IWritableMemChunk>> memTableMap;
 
   private long version = Long.MAX_VALUE;
@@ -56,12 +63,30 @@ public abstract class AbstractMemTable implements IMemTable {
 
   private long memSize = 0;
 
+  /**
+   * updated by the writing thread and read by the thread that selects memtables to flush
+   */
+  private volatile long arrayMemory = 0;
+
   private int seriesNumber = 0;
 
   private long totalPointsNum = 0;
 
   private long totalPointsNumThreshold = 0;
 
+  /**
+   * increased by each write into a chunk, the chunks with the smallest last write sequences are
+   * spilled first
+   */
+  private long writeSequence = 0;
+
+  private MemChunkSpillLog spillLog;
+
+  /**
+   * the lists merged from the spill log for flushing, released with this memtable
+   */
+  private final List<TVList> mergedTVLists = new ArrayList<>();
+
   public AbstractMemTable() {
     this.memTableMap = new HashMap<>();
   }
@@ -136,7 +161,10 @@ public abstract class AbstractMemTable implements IMemTable {
   public void write(String deviceId, String measurement, MeasurementSchema schema, long insertTime,
       Object objectValue) {
     IWritableMemChunk memSeries = createIfNotExistAndGet(deviceId, measurement, schema);
+    long arrayMemoryBefore = getArrayMemory(memSeries);
     memSeries.write(insertTime, objectValue);
+    memSeries.setLastWriteSequence(writeSequence++);
+    arrayMemory += getArrayMemory(memSeries) - arrayMemoryBefore;
   }
 
   @Override
@@ -147,8 +175,11 @@ public abstract class AbstractMemTable implements IMemTable {
       }
       IWritableMemChunk memSeries = createIfNotExistAndGet(insertTabletPlan.getDeviceId().getFullPath(),
           insertTabletPlan.getMeasurements()[i], insertTabletPlan.getMeasurementMNodes()[i].getSchema());
+      long arrayMemoryBefore = getArrayMemory(memSeries);
       memSeries.write(insertTabletPlan.getTimes(), insertTabletPlan.getColumns()[i],
           insertTabletPlan.getDataTypes()[i], start, end);
+      memSeries.setLastWriteSequence(writeSequence++);
+      arrayMemory += getArrayMemory(memSeries) - arrayMemoryBefore;
     }
   }
 
@@ -177,6 +208,20 @@ public abstract class AbstractMemTable implements IMemTable {
     return memSize;
   }
 
+  @Override
+  public long getArrayMemory() {
+    return arrayMemory;
+  }
+
+  private static long getArrayMemory(IWritableMemChunk memChunk) {
+    return getArrayMemory(memChunk.getTVList(), memChunk.getSchema().getType());
+  }
+
+  private static long getArrayMemory(TVList list, TSDataType dataType) {
+    return list.getArrayNum() * (PrimitiveArrayPool.getArrayMemorySize(TSDataType.INT64)
+        + PrimitiveArrayPool.getArrayMemorySize(dataType));
+  }
+
   @Override
   public boolean reachTotalPointNumThreshold() {
     if (totalPointsNum == 0) {
@@ -185,11 +230,69 @@ public abstract class AbstractMemTable implements IMemTable {
     return totalPointsNum >= totalPointsNumThreshold;
   }
 
+  @Override
+  public TVList getSortedTVList(String deviceId, String measurement) throws IOException {
+    IWritableMemChunk memChunk = memTableMap.get(deviceId).get(measurement);
+    if (spillLog == null || !spillLog.contains(deviceId, measurement)) {
+      return memChunk.getSortedTVList();
+    }
+    TVList merged = spillLog.merge(deviceId, measurement, memChunk.getSchema().getType(),
+        memChunk.getTVList());
+    merged.sort();
+    mergedTVLists.add(merged);
+    arrayMemory += getArrayMemory(merged, memChunk.getSchema().getType());
+    return merged;
+  }
+
+  /**
+   * The chunks are spilled from the least recently written one. A chunk still being written is
+   * kept in memory, as it would be spilled again soon and its later points would be merged with
+   * more spilled segments. The chunks of the slowly arriving series, which the spill log is for,
+   * are spilled instead, while they are still large enough to be worth a sequential write.
+   */
+  @Override
+  public long spill(File spillFile, int minPointNum, long targetMemSize) throws IOException {
+    if (spillLog == null) {
+      spillLog = new MemChunkSpillLog(spillFile);
+    }
+    List<SpillCandidate> candidates = new ArrayList<>();
+    for (Entry<String, Map<String, IWritableMemChunk>> deviceEntry : memTableMap.entrySet()) {
+      for (Entry<String, IWritableMemChunk> entry : deviceEntry.getValue().entrySet()) {
+        IWritableMemChunk memChunk = entry.getValue();
+        if (memChunk.count() > 0 && memChunk.count() >= minPointNum) {
+          candidates.add(new SpillCandidate(deviceEntry.getKey(), entry.getKey(), memChunk));
+        }
+      }
+    }
+    candidates.sort(Comparator.comparingLong(c -> c.memChunk.getLastWriteSequence()));
+
+    long releasedSize = 0;
+    for (SpillCandidate candidate : candidates) {
+      if (memSize - releasedSize <= targetMemSize) {
+        break;
+      }
+      TVList sortedList = candidate.memChunk.getSortedTVList();
+      releasedSize += spillLog.append(candidate.deviceId, candidate.measurement,
+          candidate.memChunk.getSchema().getType(), sortedList);
+      // the arrays are returned to the pool and the list is reused by the later insertions
+      arrayMemory -= getArrayMemory(candidate.memChunk);
+      sortedList.clear();
+    }
+    memSize -= releasedSize;
+    return releasedSize;
+  }
+
+  @Override
+  public long getSpilledSize() {
+    return spillLog == null ? 0 : spillLog.getSize();
+  }
+
   @Override
   public void clear() {
     memTableMap.clear();
     modifications.clear();
     memSize = 0;
+    arrayMemory = 0;
     seriesNumber = 0;
     totalPointsNum = 0;
     totalPointsNumThreshold = 0;
@@ -209,7 +312,15 @@ public abstract class AbstractMemTable implements IMemTable {
     }
     List<TimeRange> deletionList = constructDeletionList(deviceId, measurement, timeLowerBound);
     IWritableMemChunk memChunk = memTableMap.get(deviceId).get(measurement);
-    TVList chunkCopy = memChunk.getTVList().clone();
+    TVList chunkCopy;
+    if (spillLog != null && spillLog.contains(deviceId, measurement)) {
+      TVList merged = spillLog.merge(deviceId, measurement, dataType, memChunk.getTVList());
+      // the copy is not backed by the array pool as it is left to GC after the query
+      chunkCopy = merged.clone();
+      TVListAllocator.getInstance().release(merged);
+    } else {
+      chunkCopy = memChunk.getTVList().clone();
+    }
 
     chunkCopy.setDeletionList(deletionList);
     return new ReadOnlyMemChunk(measurement, dataType, encoding, chunkCopy, props, getVersion());
@@ -245,10 +356,17 @@ public abstract class AbstractMemTable implements IMemTable {
       IWritableMemChunk chunk = entry.getValue();
       PartialPath fullPath = devicePath.concatNode(entry.getKey());
       if (originalPath.matchFullPath(fullPath)) {
+        if (spillLog != null) {
+          spillLog.delete(devicePath.getFullPath(), entry.getKey(), startTimestamp, endTimestamp);
+        }
+        long arrayMemoryBefore = getArrayMemory(chunk);
+        boolean removed = false;
         if (startTimestamp == Long.MIN_VALUE && endTimestamp == Long.MAX_VALUE) {
           iter.remove();
+          removed = true;
         }
         int deletedPointsNumber = chunk.delete(startTimestamp, endTimestamp);
+        arrayMemory -= removed ? arrayMemoryBefore : arrayMemoryBefore - getArrayMemory(chunk);
         totalPointsNum -= deletedPointsNumber;
       }
     }
@@ -274,5 +392,30 @@ public abstract class AbstractMemTable implements IMemTable {
         TVListAllocator.getInstance().release(subEntry.getValue().getTVList());
       }
     }
+    for (TVList mergedTVList : mergedTVLists) {
+      TVListAllocator.getInstance().release(mergedTVList);
+    }
+    mergedTVLists.clear();
+    if (spillLog != null) {
+      try {
+        spillLog.close();
+      } catch (IOException e) {
+        logger.warn("Cannot delete the spill file {}", spillLog.getFile(), e);
+      }
+      spillLog = null;
+    }
+  }
+
+  private static class SpillCandidate {
+
+    private final String deviceId;
+    private final String measurement;
+    private final IWritableMemChunk memChunk;
+
+    private SpillCandidate(String deviceId, String measurement, IWritableMemChunk memChunk) {
+      this.deviceId = deviceId;
+      this.measurement = measurement;
+      this.memChunk = memChunk;
+    }
   }
 }
@@ -18,6 +18,7 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Map;
 import org.apache.iotdb.db.engine.modification.Deletion;
@@ -27,6 +28,7 @@ import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
@@ -57,6 +59,12 @@ public interface IMemTable {
    */
   long memSize();
 
+  /**
+   * @return the memory of the primitive arrays held by the TVLists of this memtable, which is what
+   * WriteMemoryController accounts, unlike the estimated record size of memSize()
+   */
+  long getArrayMemory();
+
   /**
    * @return whether the average number of points in each WritableChunk reaches the threshold
    */
@@ -79,6 +87,27 @@ public interface IMemTable {
       TSEncoding encoding, Map<String, String> props, long timeLowerBound)
       throws IOException, QueryProcessException;
 
+  /**
+   * Get the sorted points of a series for flushing, including the spilled ones.
+   */
+  TVList getSortedTVList(String deviceId, String measurement) throws IOException;
+
+  /**
+   * Write the points of the least recently written chunks holding at least minPointNum points into
+   * the spill log of this memtable and release their memory, until the memory size is not above
+   * targetMemSize. The spilled points are merged back when the memtable is queried or flushed.
+   *
+   * @param spillFile the file of the spill log, only used when the memtable is spilled for the
+   * first time
+   * @return the released memory size
+   */
+  long spill(File spillFile, int minPointNum, long targetMemSize) throws IOException;
+
+  /**
+   * @return the size of the spilled data in byte
+   */
+  long getSpilledSize();
+
   /**
    * putBack all the memory resources.
    */
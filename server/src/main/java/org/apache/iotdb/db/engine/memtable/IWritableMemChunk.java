@@ -73,6 +73,14 @@ public interface IWritableMemChunk {
 
   MeasurementSchema getSchema();
 
+  /**
+   * @return the sequence number of the last write of the memtable into this chunk, which tells
+   * how recently the chunk is written
+   */
+  long getLastWriteSequence();
+
+  void setLastWriteSequence(long lastWriteSequence);
+
   /**
    * served for query requests.
    *
@@ -0,0 +1,284 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.engine.memtable;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.iotdb.db.rescon.TVListAllocator;
+import org.apache.iotdb.db.utils.MemUtils;
+import org.apache.iotdb.db.utils.datastructure.TVList;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.common.TimeRange;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.PublicBAOS;
+
+/**
+ * MemChunkSpillLog is an append-only local file holding the points spilled from the chunks of one
+ * memtable. Each spill of a chunk appends one segment of time-ordered points, and the segments of a
+ * series are read back in the order they are appended, so a later point overwrites an earlier one
+ * of the same timestamp just like in a TVList.
+ * <p>
+ * The file is only a cache of the memtable: the spilled points are still in the WAL until the
+ * memtable is flushed, so the file is deleted when the memtable is released or the system restarts.
+ */
+public class MemChunkSpillLog {
+
+  public static final String SPILL_SUFFIX = ".spill";
+
+  private final File file;
+  private final FileChannel channel;
+  private long position = 0;
+
+  /**
+   * deviceId -> measurementId -> spilled segments in the appending order
+   */
+  private final Map<String, Map<String, List<Segment>>> segments = new HashMap<>();
+
+  public MemChunkSpillLog(File file) throws IOException {
+    this.file = file;
+    this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+  }
+
+  /**
+   * append the points of a sorted TVList as a new segment of the series.
+   *
+   * @return the memory size of the appended points
+   */
+  public synchronized long append(String deviceId, String measurement, TSDataType dataType,
+      TVList sortedList) throws IOException {
+    PublicBAOS buffer = new PublicBAOS();
+    DataOutputStream out = new DataOutputStream(buffer);
+    long memSize = 0;
+    for (int i = 0; i < sortedList.size(); i++) {
+      out.writeLong(sortedList.getTime(i));
+      switch (dataType) {
+        case BOOLEAN:
+          out.writeBoolean(sortedList.getBoolean(i));
+          break;
+        case INT32:
+          out.writeInt(sortedList.getInt(i));
+          break;
+        case INT64:
+          out.writeLong(sortedList.getLong(i));
+          break;
+        case FLOAT:
+          out.writeFloat(sortedList.getFloat(i));
+          break;
+        case DOUBLE:
+          out.writeDouble(sortedList.getDouble(i));
+          break;
+        case TEXT:
+          Binary binary = sortedList.getBinary(i);
+          out.writeInt(binary.getLength());
+          out.write(binary.getValues());
+          memSize += MemUtils.getRecordSize(dataType, binary);
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+    out.flush();
+    if (dataType != TSDataType.TEXT) {
+      memSize = sortedList.size() * MemUtils.getRecordSize(dataType, null);
+    }
+
+    ByteBuffer byteBuffer = ByteBuffer.wrap(buffer.getBuf(), 0, buffer.size());
+    long writePosition = position;
+    while (byteBuffer.hasRemaining()) {
+      writePosition += channel.write(byteBuffer, writePosition);
+    }
+    segments.computeIfAbsent(deviceId, k -> new HashMap<>())
+        .computeIfAbsent(measurement, k -> new ArrayList<>())
+        .add(new Segment(position, buffer.size(), sortedList.size()));
+    position = writePosition;
+    return memSize;
+  }
+
+  public synchronized boolean contains(String deviceId, String measurement) {
+    Map<String, List<Segment>> seriesSegments = segments.get(deviceId);
+    return seriesSegments != null && seriesSegments.containsKey(measurement);
+  }
+
+  /**
+   * the deletion only applies to the points spilled before it, the points inserted later are kept
+   */
+  public synchronized void delete(String deviceId, String measurement, long startTime,
+      long endTime) {
+    Map<String, List<Segment>> seriesSegments = segments.get(deviceId);
+    if (seriesSegments == null || !seriesSegments.containsKey(measurement)) {
+      return;
+    }
+    for (Segment segment : seriesSegments.get(measurement)) {
+      segment.deletions.add(new TimeRange(startTime, endTime));
+    }
+  }
+
+  /**
+   * read the spilled points of a series and the points of memList into a new TVList, the points
+   * of memList come last as they are inserted after the spilled ones. The returned list is not
+   * sorted, and should be released to TVListAllocator after use.
+   */
+  public synchronized TVList merge(String deviceId, String measurement, TSDataType dataType,
+      TVList memList) throws IOException {
+    TVList result = TVListAllocator.getInstance().allocate(dataType);
+    Map<String, List<Segment>> seriesSegments = segments.get(deviceId);
+    if (seriesSegments != null && seriesSegments.containsKey(measurement)) {
+      for (Segment segment : seriesSegments.get(measurement)) {
+        readSegment(segment, dataType, result);
+      }
+    }
+    for (int i = 0; i < memList.size(); i++) {
+      long time = memList.getTime(i);
+      switch (dataType) {
+        case BOOLEAN:
+          result.putBoolean(time, memList.getBoolean(i));
+          break;
+        case INT32:
+          result.putInt(time, memList.getInt(i));
+          break;
+        case INT64:
+          result.putLong(time, memList.getLong(i));
+          break;
+        case FLOAT:
+          result.putFloat(time, memList.getFloat(i));
+          break;
+        case DOUBLE:
+          result.putDouble(time, memList.getDouble(i));
+          break;
+        case TEXT:
+          result.putBinary(time, memList.getBinary(i));
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+    return result;
+  }
+
+  private void readSegment(Segment segment, TSDataType dataType, TVList result)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(segment.length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, segment.offset + buffer.position()) < 0) {
+        throw new IOException(
+            String.format("Unexpected end of spill file %s at %d", file, segment.offset));
+      }
+    }
+    buffer.flip();
+    for (int i = 0; i < segment.count; i++) {
+      long time = buffer.getLong();
+      boolean deleted = segment.isDeleted(time);
+      switch (dataType) {
+        case BOOLEAN:
+          boolean boolValue = buffer.get() != 0;
+          if (!deleted) {
+            result.putBoolean(time, boolValue);
+          }
+          break;
+        case INT32:
+          int intValue = buffer.getInt();
+          if (!deleted) {
+            result.putInt(time, intValue);
+          }
+          break;
+        case INT64:
+          long longValue = buffer.getLong();
+          if (!deleted) {
+            result.putLong(time, longValue);
+          }
+          break;
+        case FLOAT:
+          float floatValue = buffer.getFloat();
+          if (!deleted) {
+            result.putFloat(time, floatValue);
+          }
+          break;
+        case DOUBLE:
+          double doubleValue = buffer.getDouble();
+          if (!deleted) {
+            result.putDouble(time, doubleValue);
+          }
+          break;
+        case TEXT:
+          byte[] bytes = new byte[buffer.getInt()];
+          buffer.get(bytes);
+          if (!deleted) {
+            result.putBinary(time, new Binary(bytes));
+          }
+          break;
+        default:
+          throw new UnSupportedDataTypeException("Unsupported data type:" + dataType);
+      }
+    }
+  }
+
+  /**
+   * @return the size of the spilled data in byte
+   */
+  public synchronized long getSize() {
+    return position;
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  /**
+   * close and delete the spill file
+   */
+  public synchronized void close() throws IOException {
+    segments.clear();
+    channel.close();
+    Files.deleteIfExists(file.toPath());
+  }
+
+  private static class Segment {
+
+    private final long offset;
+    private final int length;
+    private final int count;
+    private final List<TimeRange> deletions = new ArrayList<>();
+
+    private Segment(long offset, int length, int count) {
+      this.offset = offset;
+      this.length = length;
+      this.count = count;
+    }
+
+    private boolean isDeleted(long time) {
+      for (TimeRange deletion : deletions) {
+        if (deletion.contains(time)) {
+          return true;
+        }
+      }
+      return false;
+    }
+  }
+}
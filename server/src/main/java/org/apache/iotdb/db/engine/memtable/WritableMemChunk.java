@@ -28,12 +28,23 @@ public class WritableMemChunk implements IWritableMemChunk {
 
   private MeasurementSchema schema;
   private TVList list;
+  private long lastWriteSequence;
 
   public WritableMemChunk(MeasurementSchema schema, TVList list) {
     this.schema = schema;
     this.list = list;
   }
 
+  @Override
+  public long getLastWriteSequence() {
+    return lastWriteSequence;
+  }
+
+  @Override
+  public void setLastWriteSequence(long lastWriteSequence) {
+    this.lastWriteSequence = lastWriteSequence;
+  }
+
   @Override
   public void write(long insertTime, Object objectValue) {
     switch (schema.getType()) {
@@ -19,11 +19,13 @@
 
 package org.apache.iotdb.db.engine.merge.manage;
 
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
 import org.apache.iotdb.db.metadata.PartialPath;
 
@@ -32,9 +34,12 @@ import org.apache.iotdb.db.metadata.PartialPath;
  */
 public class MergeContext {
 
-  private Map<TsFileResource, Integer> mergedChunkCnt = new HashMap<>();
-  private Map<TsFileResource, Integer> unmergedChunkCnt = new HashMap<>();
-  private Map<TsFileResource, Map<PartialPath, List<Long>>> unmergedChunkStartTimes = new HashMap<>();
+  private Map<TsFileResource, Integer> mergedChunkCnt = new ConcurrentHashMap<>();
+  private Map<TsFileResource, Integer> unmergedChunkCnt = new ConcurrentHashMap<>();
+  private Map<TsFileResource, Map<PartialPath, List<Long>>> unmergedChunkStartTimes =
+      new ConcurrentHashMap<>();
+  // series groups merged in parallel must not interleave their chunk groups in one merge file
+  private Map<TsFileResource, Lock> chunkGroupLocks = new ConcurrentHashMap<>();
 
   private AtomicInteger totalChunkWritten = new AtomicInteger();
   private AtomicLong totalPointWritten = new AtomicLong();
@@ -43,6 +48,7 @@ public class MergeContext {
     mergedChunkCnt.clear();
     unmergedChunkCnt.clear();
     unmergedChunkStartTimes.clear();
+    chunkGroupLocks.clear();
   }
 
   public Map<TsFileResource, Integer> getMergedChunkCnt() {
@@ -72,6 +78,14 @@ public class MergeContext {
     this.unmergedChunkStartTimes = unmergedChunkStartTimes;
   }
 
+  /**
+   * @return the lock that must be held while writing a chunk group into the merge temp file of
+   * the given seqFile
+   */
+  public Lock getChunkGroupLock(TsFileResource seqFile) {
+    return chunkGroupLocks.computeIfAbsent(seqFile, f -> new ReentrantLock());
+  }
+
   public int getTotalChunkWritten() {
     return totalChunkWritten.get();
   }
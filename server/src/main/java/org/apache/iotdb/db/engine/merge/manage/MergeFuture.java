@@ -26,6 +26,7 @@ import java.util.Objects;
 import java.util.concurrent.Callable;
 import java.util.concurrent.FutureTask;
 import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeChunkHeapTask;
+import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeSeriesGroupTask;
 import org.apache.iotdb.db.engine.merge.task.MergeTask;
 
 public abstract class MergeFuture extends FutureTask<Void> implements Comparable<MergeFuture> {
@@ -148,6 +149,44 @@ public abstract class MergeFuture extends FutureTask<Void> implements Comparable
       return Objects.hash(super.hashCode(), bindingTask);
     }
   }
-}
 
+  public static class SeriesGroupMergeFuture extends MergeFuture {
+
+    private MergeSeriesGroupTask bindingTask;
+
+    public SeriesGroupMergeFuture(MergeSeriesGroupTask task) {
+      super(task);
+      bindingTask = task;
+    }
+
+    @Override
+    public String getTaskName() {
+      return bindingTask.getTaskName();
+    }
+
+    @Override
+    public String getProgress() {
+      return bindingTask.getProgress();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      if (!super.equals(o)) {
+        return false;
+      }
+      SeriesGroupMergeFuture that = (SeriesGroupMergeFuture) o;
+      return Objects.equals(bindingTask, that.bindingTask);
+    }
 
+    @Override
+    public int hashCode() {
+      return Objects.hash(super.hashCode(), bindingTask);
+    }
+  }
+}
@@ -37,11 +37,16 @@ import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.ToLongFunction;
 import org.apache.iotdb.db.conf.IoTDBConstant;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeChunkHeapTask;
+import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeSeriesGroupTask;
 import org.apache.iotdb.db.engine.merge.task.MergeTask;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.engine.tsfilemanagement.TsFileManagement;
+import org.apache.iotdb.db.engine.tsfilemanagement.tiered.TieredTsFileManagement;
 import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.service.IService;
 import org.apache.iotdb.db.service.JMXService;
@@ -65,6 +70,7 @@ public class MergeManager implements IService, MergeManagerMBean {
   private AtomicInteger threadCnt = new AtomicInteger();
   private ThreadPoolExecutor mergeTaskPool;
   private ThreadPoolExecutor mergeChunkSubTaskPool;
+  private ThreadPoolExecutor mergeSeriesGroupTaskPool;
   private ScheduledExecutorService timedMergeThreadPool;
   private ScheduledExecutorService taskCleanerThreadPool;
 
@@ -121,6 +127,14 @@ public class MergeManager implements IService, MergeManagerMBean {
     return future;
   }
 
+  public Future<Void> submitSeriesGroupSubTask(MergeSeriesGroupTask task) {
+    MergeFuture future = (MergeFuture) mergeSeriesGroupTaskPool.submit(task);
+    storageGroupSubTasks
+        .computeIfAbsent(task.getStorageGroupName(), k -> new ConcurrentSkipListSet<>())
+        .add(future);
+    return future;
+  }
+
   @Override
   public void start() {
     JMXService.registerMBean(this, mbeanName);
@@ -135,10 +149,18 @@ public class MergeManager implements IService, MergeManagerMBean {
         chunkSubThreadNum = 1;
       }
 
+      int seriesGroupThreadNum = IoTDBDescriptor.getInstance().getConfig()
+          .getMergeSeriesGroupThreadNum();
+      if (seriesGroupThreadNum <= 0) {
+        seriesGroupThreadNum = 1;
+      }
+
       mergeTaskPool = new MergeThreadPool(threadNum,
           r -> new Thread(r, "MergeThread-" + threadCnt.getAndIncrement()));
       mergeChunkSubTaskPool = new MergeThreadPool(threadNum * chunkSubThreadNum,
           r -> new Thread(r, "MergeChunkSubThread-" + threadCnt.getAndIncrement()));
+      mergeSeriesGroupTaskPool = new MergeThreadPool(threadNum * seriesGroupThreadNum,
+          r -> new Thread(r, "MergeSeriesGroupThread-" + threadCnt.getAndIncrement()));
       long mergeInterval = IoTDBDescriptor.getInstance().getConfig().getMergeIntervalSec();
       if (mergeInterval > 0) {
         timedMergeThreadPool = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r,
@@ -164,10 +186,12 @@ public class MergeManager implements IService, MergeManagerMBean {
       taskCleanerThreadPool.shutdownNow();
       taskCleanerThreadPool = null;
       mergeTaskPool.shutdownNow();
+      mergeSeriesGroupTaskPool.shutdownNow();
       mergeChunkSubTaskPool.shutdownNow();
       logger.info("Waiting for task pool to shut down");
       long startTime = System.currentTimeMillis();
-      while (!mergeTaskPool.isTerminated() || !mergeChunkSubTaskPool.isTerminated()) {
+      while (!mergeTaskPool.isTerminated() || !mergeSeriesGroupTaskPool.isTerminated()
+          || !mergeChunkSubTaskPool.isTerminated()) {
         // wait
         long time = System.currentTimeMillis() - startTime;
         if (time % 60_000 == 0) {
@@ -193,10 +217,12 @@ public class MergeManager implements IService, MergeManagerMBean {
       taskCleanerThreadPool = null;
 
       awaitTermination(mergeTaskPool, millseconds);
+      awaitTermination(mergeSeriesGroupTaskPool, millseconds);
       awaitTermination(mergeChunkSubTaskPool, millseconds);
       logger.info("Waiting for task pool to shut down");
       long startTime = System.currentTimeMillis();
-      while (!mergeTaskPool.isTerminated() || !mergeChunkSubTaskPool.isTerminated()) {
+      while (!mergeTaskPool.isTerminated() || !mergeSeriesGroupTaskPool.isTerminated()
+          || !mergeChunkSubTaskPool.isTerminated()) {
         // wait
         long time = System.currentTimeMillis() - startTime;
         if (time % 60_000 == 0) {
@@ -265,6 +291,46 @@ public class MergeManager implements IService, MergeManagerMBean {
     }
   }
 
+  @Override
+  public long getTieredFlushedBytes() {
+    return sumTieredMetric(TieredTsFileManagement::getFlushedBytes);
+  }
+
+  @Override
+  public long getTieredCompactionReadBytes() {
+    return sumTieredMetric(TieredTsFileManagement::getCompactionReadBytes);
+  }
+
+  @Override
+  public long getTieredCompactionWrittenBytes() {
+    return sumTieredMetric(TieredTsFileManagement::getCompactionWrittenBytes);
+  }
+
+  @Override
+  public long getTieredCompactionNum() {
+    return sumTieredMetric(TieredTsFileManagement::getCompactionNum);
+  }
+
+  @Override
+  public double getTieredWriteAmplification() {
+    long flushed = getTieredFlushedBytes();
+    if (flushed == 0) {
+      return 1;
+    }
+    return (double) (flushed + getTieredCompactionWrittenBytes()) / flushed;
+  }
+
+  private long sumTieredMetric(ToLongFunction<TieredTsFileManagement> metric) {
+    long sum = 0;
+    for (StorageGroupProcessor processor : StorageEngine.getInstance().getProcessors()) {
+      TsFileManagement tsFileManagement = processor.getTsFileManagement();
+      if (tsFileManagement instanceof TieredTsFileManagement) {
+        sum += metric.applyAsLong((TieredTsFileManagement) tsFileManagement);
+      }
+    }
+    return sum;
+  }
+
   private void cleanFinishedTask() {
     for (Set<MergeFuture> subTasks : storageGroupSubTasks.values()) {
       subTasks.removeIf(next -> next.isDone() || next.isCancelled());
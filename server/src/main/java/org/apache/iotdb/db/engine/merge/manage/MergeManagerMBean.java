@@ -23,4 +23,27 @@ public interface MergeManagerMBean {
   void printMergeStatus();
 
   void abortMerge(String storageGroup);
+
+  /**
+   * @return bytes flushed into storage groups using tiered compaction
+   */
+  long getTieredFlushedBytes();
+
+  /**
+   * @return bytes read by tiered compactions
+   */
+  long getTieredCompactionReadBytes();
+
+  /**
+   * @return bytes written by tiered compactions
+   */
+  long getTieredCompactionWrittenBytes();
+
+  long getTieredCompactionNum();
+
+  /**
+   * @return (bytes flushed + bytes written by tiered compactions) / bytes flushed, 1 if nothing
+   * has been flushed
+   */
+  double getTieredWriteAmplification();
 }
@@ -45,8 +45,6 @@ import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
-import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
-import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 
@@ -61,9 +59,8 @@ public class MergeResource {
 
   private Map<TsFileResource, TsFileSequenceReader> fileReaderCache = new HashMap<>();
   private Map<TsFileResource, RestorableTsFileIOWriter> fileWriterCache = new HashMap<>();
-  private Map<TsFileResource, List<Modification>> modificationCache = new HashMap<>();
+  private Map<TsFileResource, List<Modification>> modificationCache = new ConcurrentHashMap<>();
   private Map<PartialPath, MeasurementSchema> measurementSchemaMap = new HashMap<>(); //is this too waste?
-  private Map<MeasurementSchema, IChunkWriter> chunkWriterCache = new ConcurrentHashMap<>();
 
   private long timeLowerBound = Long.MIN_VALUE;
 
@@ -101,7 +98,6 @@ public class MergeResource {
     fileWriterCache.clear();
     modificationCache.clear();
     measurementSchemaMap.clear();
-    chunkWriterCache.clear();
   }
 
   public MeasurementSchema getSchema(PartialPath path) {
@@ -113,7 +109,8 @@ public class MergeResource {
    * SeqFile. The path of the merge temp file will be the seqFile's + ".merge".
    * @return A RestorableTsFileIOWriter of a merge temp file for a SeqFile.
    */
-  public RestorableTsFileIOWriter getMergeFileWriter(TsFileResource resource) throws IOException {
+  public synchronized RestorableTsFileIOWriter getMergeFileWriter(TsFileResource resource)
+      throws IOException {
     RestorableTsFileIOWriter writer = fileWriterCache.get(resource);
     if (writer == null) {
       writer = new RestorableTsFileIOWriter(FSFactoryProducer.getFSFactory()
@@ -138,7 +135,8 @@ public class MergeResource {
    * Construct the a new or get an existing TsFileSequenceReader of a TsFile.
    * @return a TsFileSequenceReader
    */
-  public TsFileSequenceReader getFileReader(TsFileResource tsFileResource) throws IOException {
+  public synchronized TsFileSequenceReader getFileReader(TsFileResource tsFileResource)
+      throws IOException {
     TsFileSequenceReader reader = fileReaderCache.get(tsFileResource);
     if (reader == null) {
       reader = new TsFileSequenceReader(tsFileResource.getTsFilePath(), true, cacheDeviceMeta);
@@ -163,14 +161,6 @@ public class MergeResource {
     return ret;
   }
 
-  /**
-   * Construct the a new or get an existing ChunkWriter of a measurement. Different timeseries of
-   * the same measurement and data type shares the same instance.
-   */
-  public IChunkWriter getChunkWriter(MeasurementSchema measurementSchema) {
-    return chunkWriterCache.computeIfAbsent(measurementSchema, ChunkWriterImpl::new);
-  }
-
   /**
    * Get the modifications of a timeseries in the ModificationFile of a TsFile.
    * @param path name of the time series
@@ -253,8 +243,4 @@ public class MergeResource {
     this.measurementSchemaMap = measurementSchemaMap;
   }
 
-  public void clearChunkWriterCache() {
-    this.chunkWriterCache.clear();
-  }
-
 }
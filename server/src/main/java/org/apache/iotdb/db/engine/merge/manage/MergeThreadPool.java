@@ -26,8 +26,10 @@ import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import org.apache.iotdb.db.engine.merge.manage.MergeFuture.MainMergeFuture;
+import org.apache.iotdb.db.engine.merge.manage.MergeFuture.SeriesGroupMergeFuture;
 import org.apache.iotdb.db.engine.merge.manage.MergeFuture.SubMergeFuture;
 import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeChunkHeapTask;
+import org.apache.iotdb.db.engine.merge.task.MergeMultiChunkTask.MergeSeriesGroupTask;
 import org.apache.iotdb.db.engine.merge.task.MergeTask;
 
 public class MergeThreadPool extends ThreadPoolExecutor {
@@ -41,6 +43,8 @@ public class MergeThreadPool extends ThreadPoolExecutor {
   protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
     if (callable instanceof MergeTask) {
       return (RunnableFuture<T>) new MainMergeFuture((MergeTask) callable);
+    } else if (callable instanceof MergeSeriesGroupTask) {
+      return (RunnableFuture<T>) new SeriesGroupMergeFuture((MergeSeriesGroupTask) callable);
     } else {
       return (RunnableFuture<T>) new SubMergeFuture((MergeChunkHeapTask) callable);
     }
@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import org.apache.iotdb.db.conf.IoTDBConfig;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.merge.manage.MergeResource;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
@@ -138,7 +139,7 @@ public class MaxFileMergeFileSelector implements IMergeFileSelector {
     maxSeqFileCost = 0;
     tempMaxSeqFileCost = 0;
 
-    totalCost = 0;
+    totalCost = calculateSeriesGroupBufferCost();
 
     int unseqIndex = 0;
     long startTime = System.currentTimeMillis();
@@ -180,6 +181,17 @@ public class MaxFileMergeFileSelector implements IMergeFileSelector {
     }
   }
 
+  /**
+   * The chunks merged by parallel series groups are buffered before they are appended to the merge
+   * files, so the buffers are reserved from the budget.
+   */
+  private long calculateSeriesGroupBufferCost() {
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    int seriesGroupThreadNum = config.getMergeSeriesGroupThreadNum();
+    return seriesGroupThreadNum > 1
+        ? seriesGroupThreadNum * config.getMergeSeriesGroupBufferSize() : 0;
+  }
+
   private void updateSelectedFiles(long newCost, TsFileResource unseqFile) {
     if (totalCost + newCost < memoryBudget) {
       selectedUnseqFiles.add(unseqFile);
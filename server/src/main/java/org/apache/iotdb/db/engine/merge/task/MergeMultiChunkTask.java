@@ -23,15 +23,23 @@ import static org.apache.iotdb.db.utils.MergeUtils.writeBatchPoint;
 import static org.apache.iotdb.db.utils.MergeUtils.writeTVPair;
 import static org.apache.iotdb.db.utils.QueryUtils.modifyChunkMetaData;
 
+import com.google.common.util.concurrent.RateLimiter;
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.PriorityQueue;
+import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.merge.manage.MergeContext;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
@@ -45,12 +53,14 @@ import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.utils.MergeUtils;
 import org.apache.iotdb.db.utils.MergeUtils.MetaListEntry;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.common.Chunk;
 import org.apache.iotdb.tsfile.read.reader.IPointReader;
 import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.write.chunk.ChunkWriterImpl;
 import org.apache.iotdb.tsfile.write.chunk.IChunkWriter;
 import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
@@ -84,6 +94,18 @@ public class MergeMultiChunkTask {
 
   private String storageGroupName;
 
+  private int seriesGroupThreadNum = IoTDBDescriptor.getInstance().getConfig()
+      .getMergeSeriesGroupThreadNum();
+  private long seriesGroupBufferSize = IoTDBDescriptor.getInstance().getConfig()
+      .getMergeSeriesGroupBufferSize();
+  // not null if this task merges one series group of its parent task in parallel with others
+  private MergeMultiChunkTask parentTask;
+  private RateLimiter rateLimiter;
+  private volatile boolean aborted;
+  // series of the same measurement may be merged by parallel series groups, so the chunk writers
+  // are not shared through MergeResource
+  private Map<MeasurementSchema, IChunkWriter> chunkWriterCache = new ConcurrentHashMap<>();
+
   public MergeMultiChunkTask(MergeContext context, String taskName, MergeLogger mergeLogger,
       MergeResource mergeResource, boolean fullMerge, List<PartialPath> unmergedSeries,
       int concurrentMergeSeriesNum, String storageGroupName) {
@@ -97,30 +119,36 @@ public class MergeMultiChunkTask {
     this.storageGroupName = storageGroupName;
   }
 
+  private MergeMultiChunkTask(MergeMultiChunkTask parentTask, int groupIdx,
+      int concurrentMergeSeriesNum) {
+    this(parentTask.mergeContext, parentTask.taskName + "_g" + groupIdx, parentTask.mergeLogger,
+        parentTask.resource, parentTask.fullMerge, parentTask.unmergedSeries,
+        concurrentMergeSeriesNum, parentTask.storageGroupName);
+    this.parentTask = parentTask;
+    this.rateLimiter = MergeManager.getINSTANCE().getMergeRateLimiter();
+  }
+
   void mergeSeries() throws IOException {
     if (logger.isInfoEnabled()) {
       logger.info("{} starts to merge {} series", taskName, unmergedSeries.size());
     }
     long startTime = System.currentTimeMillis();
     for (TsFileResource seqFile : resource.getSeqFiles()) {
-      mergeContext.getUnmergedChunkStartTimes().put(seqFile, new HashMap<>());
+      mergeContext.getUnmergedChunkStartTimes().put(seqFile, new ConcurrentHashMap<>());
     }
     // merge each series and write data into each seqFile's corresponding temp merge file
     List<List<PartialPath>> devicePaths = MergeUtils.splitPathsByDevice(unmergedSeries);
-    for (List<PartialPath> pathList : devicePaths) {
-      // TODO: use statistics of queries to better rearrange series
-      IMergePathSelector pathSelector = new NaivePathSelector(pathList, concurrentMergeSeriesNum);
-      while (pathSelector.hasNext()) {
-        currMergingPaths = pathSelector.next();
-        mergePaths();
-        resource.clearChunkWriterCache();
-        if (Thread.interrupted()) {
-          logger.info("MergeMultiChunkTask {} aborted", taskName);
-          Thread.currentThread().interrupt();
+    int parallelism = Math.min(Math.min(seriesGroupThreadNum, concurrentMergeSeriesNum),
+        devicePaths.size());
+    if (parallelism > 1) {
+      if (!mergeSeriesGroupsInParallel(devicePaths, parallelism)) {
+        return;
+      }
+    } else {
+      for (List<PartialPath> pathList : devicePaths) {
+        if (!mergeDevicePaths(pathList)) {
           return;
         }
-        mergedSeriesCnt += currMergingPaths.size();
-        logMergeProgress();
       }
     }
     if (logger.isInfoEnabled()) {
@@ -130,6 +158,101 @@ public class MergeMultiChunkTask {
     mergeLogger.logAllTsEnd();
   }
 
+  /**
+   * Merge the series of one device, at most concurrentMergeSeriesNum series at a time.
+   * @return false if the merge is aborted
+   */
+  private boolean mergeDevicePaths(List<PartialPath> pathList) throws IOException {
+    // TODO: use statistics of queries to better rearrange series
+    IMergePathSelector pathSelector = new NaivePathSelector(pathList, concurrentMergeSeriesNum);
+    while (pathSelector.hasNext()) {
+      currMergingPaths = pathSelector.next();
+      mergePaths();
+      chunkWriterCache.clear();
+      if (Thread.interrupted()) {
+        logger.info("MergeMultiChunkTask {} aborted", taskName);
+        Thread.currentThread().interrupt();
+        aborted = true;
+        return false;
+      }
+      onPathsMerged(currMergingPaths.size());
+    }
+    return true;
+  }
+
+  /**
+   * Merge the devices in several series groups in parallel. Each group takes the next unmerged
+   * device once it finishes one and merges at most concurrentMergeSeriesNum / parallelism series at
+   * a time, so the series being merged together never exceed what the file selector estimated
+   * under the memory budget. Each group merges a chunk group in memory and only appends it to the
+   * merge file of a seqFile under the lock of the file, unless the chunk group outgrows the buffer
+   * of the group, see SeriesGroupChunkGroup.
+   * As the chunk groups of different groups interleave in the merge files, the progress is only
+   * logged after all groups finish, so a merge recovered before that re-merges all series.
+   * @return false if the merge is aborted
+   */
+  private boolean mergeSeriesGroupsInParallel(List<List<PartialPath>> devicePaths,
+      int parallelism) throws IOException {
+    logger.info("{} merges {} devices in {} series groups", taskName, devicePaths.size(),
+        parallelism);
+    Queue<List<PartialPath>> remainingDevices = new ConcurrentLinkedQueue<>(devicePaths);
+    int groupSeriesNum = concurrentMergeSeriesNum / parallelism;
+    List<MergeMultiChunkTask> groupTasks = new ArrayList<>();
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < parallelism; i++) {
+      MergeMultiChunkTask groupTask = new MergeMultiChunkTask(this, i, groupSeriesNum);
+      groupTasks.add(groupTask);
+      futures.add(MergeManager.getINSTANCE()
+          .submitSeriesGroupSubTask(new MergeSeriesGroupTask(groupTask, remainingDevices)));
+    }
+    try {
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException | CancellationException e) {
+      logger.info("MergeMultiChunkTask {} aborted", taskName);
+      futures.forEach(future -> future.cancel(true));
+      Thread.currentThread().interrupt();
+      return false;
+    } catch (ExecutionException e) {
+      futures.forEach(future -> future.cancel(true));
+      throw new IOException(e);
+    }
+    if (groupTasks.stream().anyMatch(groupTask -> groupTask.aborted)) {
+      logger.info("MergeMultiChunkTask {} aborted", taskName);
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    mergeLogger.logTSStart(unmergedSeries);
+    for (TsFileResource seqFile : resource.getSeqFiles()) {
+      File mergeFile = FSFactoryProducer.getFSFactory()
+          .getFile(seqFile.getTsFilePath() + MergeTask.MERGE_SUFFIX);
+      if (mergeFile.exists()) {
+        mergeLogger.logFilePosition(mergeFile);
+      }
+    }
+    mergeLogger.logTSEnd();
+    return true;
+  }
+
+  private void onPathsMerged(int pathNum) {
+    mergedSeriesCnt += pathNum;
+    if (parentTask != null) {
+      parentTask.onGroupPathsMerged(pathNum);
+    } else {
+      logMergeProgress();
+    }
+  }
+
+  private synchronized void onGroupPathsMerged(int pathNum) {
+    onPathsMerged(pathNum);
+  }
+
+  private IChunkWriter getChunkWriter(MeasurementSchema measurementSchema) {
+    return chunkWriterCache.computeIfAbsent(measurementSchema, ChunkWriterImpl::new);
+  }
+
   private void logMergeProgress() {
     if (logger.isInfoEnabled()) {
       double newProgress = 100 * mergedSeriesCnt / (double) (unmergedSeries.size());
@@ -145,7 +268,9 @@ public class MergeMultiChunkTask {
   }
 
   private void mergePaths() throws IOException {
-    mergeLogger.logTSStart(currMergingPaths);
+    if (parentTask == null) {
+      mergeLogger.logTSStart(currMergingPaths);
+    }
     IPointReader[] unseqReaders;
     unseqReaders = resource.getUnseqReaders(currMergingPaths);
     currTimeValuePairs = new TimeValuePair[currMergingPaths.size()];
@@ -163,7 +288,9 @@ public class MergeMultiChunkTask {
         return;
       }
     }
-    mergeLogger.logTSEnd();
+    if (parentTask == null) {
+      mergeLogger.logTSEnd();
+    }
   }
 
   private void pathsMergeOneFile(int seqFileIdx, IPointReader[] unseqReaders)
@@ -194,7 +321,9 @@ public class MergeMultiChunkTask {
     List<ChunkMetadata>[] seqChunkMeta = new List[currMergingPaths.size()];
     for (int i = 0; i < currMergingPaths.size(); i++) {
       modifications[i] = resource.getModifications(currTsFile, currMergingPaths.get(i));
-      seqChunkMeta[i] = resource.queryChunkMetadata(currMergingPaths.get(i), currTsFile);
+      synchronized (fileSequenceReader) {
+        seqChunkMeta[i] = resource.queryChunkMetadata(currMergingPaths.get(i), currTsFile);
+      }
       modifyChunkMetaData(seqChunkMeta[i], modifications[i]);
 
       if (Thread.interrupted()) {
@@ -209,19 +338,37 @@ public class MergeMultiChunkTask {
     }
 
     RestorableTsFileIOWriter mergeFileWriter = resource.getMergeFileWriter(currTsFile);
-    for (PartialPath path : currMergingPaths) {
-      MeasurementSchema schema = resource.getSchema(path);
-      mergeFileWriter.addSchema(path, schema);
-    }
-    // merge unseq data with seq data in this file or small chunks in this file into a larger chunk
-    mergeFileWriter.startChunkGroup(deviceId);
-    boolean dataWritten = mergeChunks(seqChunkMeta, isLastFile, fileSequenceReader, unseqReaders,
-        mergeFileWriter, currTsFile);
-    if (dataWritten) {
-      mergeFileWriter.writeVersion(0L);
-      mergeFileWriter.endChunkGroup();
-      mergeLogger.logFilePosition(mergeFileWriter.getFile());
-      currTsFile.putStartTime(deviceId, currDeviceMinTime);
+    if (parentTask == null) {
+      for (PartialPath path : currMergingPaths) {
+        MeasurementSchema schema = resource.getSchema(path);
+        mergeFileWriter.addSchema(path, schema);
+      }
+      // merge unseq data with seq data in this file or small chunks in this file into a larger
+      // chunk
+      mergeFileWriter.startChunkGroup(deviceId);
+      boolean dataWritten = mergeChunks(seqChunkMeta, isLastFile, fileSequenceReader, unseqReaders,
+          mergeFileWriter, currTsFile, null);
+      if (dataWritten) {
+        mergeFileWriter.writeVersion(0L);
+        mergeFileWriter.endChunkGroup();
+        mergeLogger.logFilePosition(mergeFileWriter.getFile());
+        currTsFile.putStartTime(deviceId, currDeviceMinTime);
+      }
+      return;
+    }
+
+    // a series group merges the chunks in memory and only holds the chunk group lock of the file
+    // to append them, so the groups writing into the same file do not wait for each other's merge
+    SeriesGroupChunkGroup chunkGroup = new SeriesGroupChunkGroup(currTsFile, mergeFileWriter,
+        deviceId);
+    try {
+      boolean dataWritten = mergeChunks(seqChunkMeta, isLastFile, fileSequenceReader,
+          unseqReaders, mergeFileWriter, currTsFile, chunkGroup);
+      if (dataWritten && !Thread.currentThread().isInterrupted()) {
+        chunkGroup.finish(currDeviceMinTime);
+      }
+    } finally {
+      chunkGroup.release();
     }
   }
 
@@ -242,8 +389,8 @@ public class MergeMultiChunkTask {
   @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   private boolean mergeChunks(List<ChunkMetadata>[] seqChunkMeta, boolean isLastFile,
       TsFileSequenceReader reader, IPointReader[] unseqReaders,
-      RestorableTsFileIOWriter mergeFileWriter, TsFileResource currFile)
-      throws IOException {
+      RestorableTsFileIOWriter mergeFileWriter, TsFileResource currFile,
+      SeriesGroupChunkGroup chunkGroup) throws IOException {
     int[] ptWrittens = new int[seqChunkMeta.length];
     int mergeChunkSubTaskNum = IoTDBDescriptor.getInstance().getConfig()
         .getMergeChunkSubThreadNum();
@@ -269,13 +416,45 @@ public class MergeMultiChunkTask {
     mergedChunkNum.set(0);
     unmergedChunkNum.set(0);
 
+    if (!mergeChunkHeaps(chunkIdxHeaps, metaListEntries, ptWrittens, reader, mergeFileWriter,
+        chunkGroup, unseqReaders, currFile, isLastFile)) {
+      return false;
+    }
+    if (chunkGroup != null && chunkGroup.isFull()) {
+      // the sub-tasks stop once the buffered chunks exceed the buffer of the series group, the
+      // rest of the chunk group is written directly under the chunk group lock
+      chunkGroup.start();
+      if (!mergeChunkHeaps(chunkIdxHeaps, metaListEntries, ptWrittens, reader, mergeFileWriter,
+          chunkGroup, unseqReaders, currFile, isLastFile)) {
+        return false;
+      }
+    }
+
+    // add merge and unmerged chunk statistic
+    mergeContext.getMergedChunkCnt().compute(currFile, (tsFileResource, anInt) -> anInt == null ?
+        mergedChunkNum.get() : anInt + mergedChunkNum.get());
+    mergeContext.getUnmergedChunkCnt().compute(currFile, (tsFileResource, anInt) -> anInt == null ?
+        unmergedChunkNum.get() : anInt + unmergedChunkNum.get());
+
+    return mergedChunkNum.get() > 0;
+  }
+
+  /**
+   * Merge the chunks in the heaps with one sub-task for each heap.
+   * @return false if the merge is interrupted
+   */
+  private boolean mergeChunkHeaps(PriorityQueue<Integer>[] chunkIdxHeaps,
+      MetaListEntry[] metaListEntries, int[] ptWrittens, TsFileSequenceReader reader,
+      RestorableTsFileIOWriter mergeFileWriter, SeriesGroupChunkGroup chunkGroup,
+      IPointReader[] unseqReaders, TsFileResource currFile, boolean isLastFile)
+      throws IOException {
     List<Future<Void>> futures = new ArrayList<>();
-    for (int i = 0; i < mergeChunkSubTaskNum; i++) {
+    for (int i = 0; i < chunkIdxHeaps.length; i++) {
       futures.add(MergeManager.getINSTANCE()
           .submitChunkSubTask(new MergeChunkHeapTask(chunkIdxHeaps[i],
               metaListEntries, ptWrittens,
               reader,
-              mergeFileWriter, unseqReaders,
+              mergeFileWriter, chunkGroup, unseqReaders,
               currFile,
               isLastFile, i)));
 
@@ -284,9 +463,9 @@ public class MergeMultiChunkTask {
         return false;
       }
     }
-    for (int i = 0; i < mergeChunkSubTaskNum; i++) {
+    for (Future<Void> future : futures) {
       try {
-        futures.get(i).get();
+        future.get();
       } catch (InterruptedException e) {
         Thread.currentThread().interrupt();
         return false;
@@ -294,14 +473,7 @@ public class MergeMultiChunkTask {
         throw new IOException(e);
       }
     }
-
-    // add merge and unmerged chunk statistic
-    mergeContext.getMergedChunkCnt().compute(currFile, (tsFileResource, anInt) -> anInt == null ?
-        mergedChunkNum.get() : anInt + mergedChunkNum.get());
-    mergeContext.getUnmergedChunkCnt().compute(currFile, (tsFileResource, anInt) -> anInt == null ?
-        unmergedChunkNum.get() : anInt + unmergedChunkNum.get());
-
-    return mergedChunkNum.get() > 0;
+    return true;
   }
 
 
@@ -322,7 +494,7 @@ public class MergeMultiChunkTask {
   @SuppressWarnings("java:S2445") // avoid writing the same writer concurrently
   private int mergeChunkV2(ChunkMetadata currMeta, boolean chunkOverflowed,
       boolean chunkTooSmall, Chunk chunk, int lastUnclosedChunkPoint, int pathIdx,
-      TsFileIOWriter mergeFileWriter, IPointReader unseqReader,
+      TsFileIOWriter mergeFileWriter, SeriesGroupChunkGroup chunkGroup, IPointReader unseqReader,
       IChunkWriter chunkWriter, TsFileResource currFile) throws IOException {
 
     int unclosedChunkPoint = lastUnclosedChunkPoint;
@@ -341,8 +513,13 @@ public class MergeMultiChunkTask {
     // write SK to .merge.file without compressing
     if (fullMerge && lastUnclosedChunkPoint == 0 && !chunkTooSmall && !chunkOverflowed
         && !chunkModified) {
-      synchronized (mergeFileWriter) {
-        mergeFileWriter.writeChunk(chunk, currMeta);
+      if (chunkGroup != null) {
+        chunkGroup.add(writer -> writer.writeChunk(chunk, currMeta),
+            chunk.getHeader().getDataSize());
+      } else {
+        synchronized (mergeFileWriter) {
+          mergeFileWriter.writeChunk(chunk, currMeta);
+        }
       }
       mergeContext.incTotalPointWritten(currMeta.getNumOfPoints());
       mergeContext.incTotalChunkWritten();
@@ -366,12 +543,26 @@ public class MergeMultiChunkTask {
     if (minChunkPointNum > 0 && unclosedChunkPoint >= minChunkPointNum
         || unclosedChunkPoint > 0 && minChunkPointNum < 0) {
       // the new chunk's size is large enough and it should be flushed
+      flushChunkWriter(resource.getSchema(currMergingPaths.get(pathIdx)), chunkWriter,
+          mergeFileWriter, chunkGroup);
+      unclosedChunkPoint = 0;
+    }
+    return unclosedChunkPoint;
+  }
+
+  @SuppressWarnings("java:S2445") // avoid writing the same writer concurrently
+  private void flushChunkWriter(MeasurementSchema measurementSchema, IChunkWriter chunkWriter,
+      TsFileIOWriter mergeFileWriter, SeriesGroupChunkGroup chunkGroup) throws IOException {
+    if (chunkGroup == null) {
       synchronized (mergeFileWriter) {
         chunkWriter.writeToFileWriter(mergeFileWriter);
       }
-      unclosedChunkPoint = 0;
+    } else {
+      // the writer may keep the encoded pages until the chunk group is written, the following
+      // points of the series go to a new writer
+      chunkWriterCache.put(measurementSchema, new ChunkWriterImpl(measurementSchema));
+      chunkGroup.add(chunkWriter::writeToFileWriter, chunkWriter.estimateMaxSeriesMemSize());
     }
-    return unclosedChunkPoint;
   }
 
   private int writeRemainingUnseq(IChunkWriter chunkWriter,
@@ -429,6 +620,89 @@ public class MergeMultiChunkTask {
     return cnt;
   }
 
+  /**
+   * A chunk merged by a series group, which is appended to the merge file together with the other
+   * chunks of its chunk group.
+   */
+  private interface PendingChunk {
+
+    void writeTo(TsFileIOWriter writer) throws IOException;
+  }
+
+  /**
+   * The chunk group of a device that a series group merges into the merge file of a seqFile. The
+   * merged chunks are buffered so that the chunk group lock of the file is only held to append
+   * them. Once the buffered chunks exceed mergeSeriesGroupBufferSize, the chunk merge sub-tasks
+   * stop and the series group takes the lock to write them and the rest of the chunk group
+   * directly, so a series group never buffers much more than the size reserved for it from the
+   * merge memory budget. The lock is only taken and released by the thread of the series group.
+   */
+  private class SeriesGroupChunkGroup {
+
+    private final TsFileResource seqFile;
+    private final RestorableTsFileIOWriter mergeFileWriter;
+    private final String deviceId;
+    private final Lock chunkGroupLock;
+    private final Queue<PendingChunk> pendingChunks = new ArrayDeque<>();
+    private long pendingSize;
+    private boolean started;
+
+    private SeriesGroupChunkGroup(TsFileResource seqFile, RestorableTsFileIOWriter mergeFileWriter,
+        String deviceId) {
+      this.seqFile = seqFile;
+      this.mergeFileWriter = mergeFileWriter;
+      this.deviceId = deviceId;
+      this.chunkGroupLock = mergeContext.getChunkGroupLock(seqFile);
+    }
+
+    /**
+     * called by the chunk merge sub-tasks of the series group
+     */
+    private synchronized void add(PendingChunk chunk, long size) throws IOException {
+      if (started) {
+        chunk.writeTo(mergeFileWriter);
+      } else {
+        pendingChunks.add(chunk);
+        pendingSize += size;
+      }
+    }
+
+    private synchronized boolean isFull() {
+      return !started && pendingSize > seriesGroupBufferSize;
+    }
+
+    private synchronized void start() throws IOException {
+      chunkGroupLock.lock();
+      started = true;
+      for (PartialPath path : currMergingPaths) {
+        mergeFileWriter.addSchema(path, resource.getSchema(path));
+      }
+      mergeFileWriter.startChunkGroup(deviceId);
+      for (PendingChunk pendingChunk : pendingChunks) {
+        pendingChunk.writeTo(mergeFileWriter);
+      }
+      pendingChunks.clear();
+      pendingSize = 0;
+    }
+
+    private synchronized void finish(long deviceMinTime) throws IOException {
+      if (!started) {
+        start();
+      }
+      mergeFileWriter.writeVersion(0L);
+      mergeFileWriter.endChunkGroup();
+      seqFile.putStartTime(deviceId, deviceMinTime);
+    }
+
+    private synchronized void release() {
+      pendingChunks.clear();
+      if (started) {
+        started = false;
+        chunkGroupLock.unlock();
+      }
+    }
+  }
+
   public class MergeChunkHeapTask implements Callable<Void> {
 
     private PriorityQueue<Integer> chunkIdxHeap;
@@ -436,6 +710,7 @@ public class MergeMultiChunkTask {
     private int[] ptWrittens;
     private TsFileSequenceReader reader;
     private RestorableTsFileIOWriter mergeFileWriter;
+    private SeriesGroupChunkGroup chunkGroup;
     private IPointReader[] unseqReaders;
     private TsFileResource currFile;
     private boolean isLastFile;
@@ -446,13 +721,14 @@ public class MergeMultiChunkTask {
     public MergeChunkHeapTask(PriorityQueue<Integer> chunkIdxHeap,
         MetaListEntry[] metaListEntries, int[] ptWrittens,
         TsFileSequenceReader reader,
-        RestorableTsFileIOWriter mergeFileWriter,
+        RestorableTsFileIOWriter mergeFileWriter, SeriesGroupChunkGroup chunkGroup,
         IPointReader[] unseqReaders, TsFileResource currFile, boolean isLastFile, int taskNum) {
       this.chunkIdxHeap = chunkIdxHeap;
       this.metaListEntries = metaListEntries;
       this.ptWrittens = ptWrittens;
       this.reader = reader;
       this.mergeFileWriter = mergeFileWriter;
+      this.chunkGroup = chunkGroup;
       this.unseqReaders = unseqReaders;
       this.currFile = currFile;
       this.isLastFile = isLastFile;
@@ -469,10 +745,14 @@ public class MergeMultiChunkTask {
     @SuppressWarnings("java:S2445") // avoid reading the same reader concurrently
     private void mergeChunkHeap() throws IOException {
       while (!chunkIdxHeap.isEmpty()) {
+        if (chunkGroup != null && chunkGroup.isFull()) {
+          // the remaining chunks are merged after the buffered ones are written
+          return;
+        }
         int pathIdx = chunkIdxHeap.poll();
         PartialPath path = currMergingPaths.get(pathIdx);
         MeasurementSchema measurementSchema = resource.getSchema(path);
-        IChunkWriter chunkWriter = resource.getChunkWriter(measurementSchema);
+        IChunkWriter chunkWriter = getChunkWriter(measurementSchema);
         if (Thread.interrupted()) {
           Thread.currentThread().interrupt();
           return;
@@ -491,9 +771,14 @@ public class MergeMultiChunkTask {
           synchronized (reader) {
             chunk = reader.readMemChunk(currMeta);
           }
+          if (rateLimiter != null) {
+            MergeManager.mergeRateLimiterAcquire(rateLimiter, chunk.getHeader().getDataSize());
+          }
           ptWrittens[pathIdx] = mergeChunkV2(currMeta, chunkOverflowed, chunkTooSmall, chunk,
-              ptWrittens[pathIdx], pathIdx, mergeFileWriter, unseqReaders[pathIdx], chunkWriter,
-              currFile);
+              ptWrittens[pathIdx], pathIdx, mergeFileWriter, chunkGroup, unseqReaders[pathIdx],
+              chunkWriter, currFile);
+          // the writer is replaced if its chunk is pending
+          chunkWriter = getChunkWriter(measurementSchema);
 
           if (!isLastChunk) {
             metaListEntry.next();
@@ -511,9 +796,7 @@ public class MergeMultiChunkTask {
         }
         // the last merged chunk may still be smaller than the threshold, flush it anyway
         if (ptWrittens[pathIdx] > 0) {
-          synchronized (mergeFileWriter) {
-            chunkWriter.writeToFileWriter(mergeFileWriter);
-          }
+          flushChunkWriter(measurementSchema, chunkWriter, mergeFileWriter, chunkGroup);
         }
       }
     }
@@ -531,4 +814,39 @@ public class MergeMultiChunkTask {
           totalSeriesNum);
     }
   }
+
+  public class MergeSeriesGroupTask implements Callable<Void> {
+
+    private MergeMultiChunkTask groupTask;
+    private Queue<List<PartialPath>> remainingDevices;
+
+    public MergeSeriesGroupTask(MergeMultiChunkTask groupTask,
+        Queue<List<PartialPath>> remainingDevices) {
+      this.groupTask = groupTask;
+      this.remainingDevices = remainingDevices;
+    }
+
+    @Override
+    public Void call() throws Exception {
+      List<PartialPath> pathList;
+      while ((pathList = remainingDevices.poll()) != null) {
+        if (!groupTask.mergeDevicePaths(pathList)) {
+          return null;
+        }
+      }
+      return null;
+    }
+
+    public String getStorageGroupName() {
+      return storageGroupName;
+    }
+
+    public String getTaskName() {
+      return groupTask.taskName;
+    }
+
+    public String getProgress() {
+      return String.format("Processed %d series", groupTask.mergedSeriesCnt);
+    }
+  }
 }
@@ -0,0 +1,260 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import org.apache.iotdb.tsfile.read.filter.basic.BinaryFilter;
+import org.apache.iotdb.tsfile.read.filter.basic.Filter;
+import org.apache.iotdb.tsfile.read.filter.operator.NotFilter;
+
+/**
+ * DeviceTsFileIndex is an immutable index over a snapshot of the sequence or unsequence TsFile
+ * list of a storage group. For each device, the time ranges of the closed files containing the
+ * device are organized as a segment tree, so that a query only visits the files which may overlap
+ * its time filter instead of scanning the whole list.
+ * <p>
+ * Unclosed files are always returned as candidates because their time ranges are still growing.
+ * The returned files keep the order of the snapshot and the caller should still check each of
+ * them exactly.
+ * <p>
+ * The index of a newer snapshot is derived by {@link #update(List, long)}, which only builds the
+ * segment trees of the devices whose closed files are added or removed again, and shares the
+ * others with this index. The time ranges of a closed file are assumed to be unchanged while it is
+ * in the list, otherwise the index should be built from scratch.
+ */
+public class DeviceTsFileIndex {
+
+  private final List<TsFileResource> tsFileResources;
+  /**
+   * the file list version of TsFileManagement when the snapshot was taken
+   */
+  private final long version;
+  /**
+   * file -> position in the snapshot
+   */
+  private final Map<TsFileResource, Integer> filePositions;
+  /**
+   * positions of the files which were not closed when the index was built
+   */
+  private final int[] unsealedPositions;
+  /**
+   * the closed files, whose time ranges are in the segment trees
+   */
+  private final Set<TsFileResource> sealedFiles;
+  private final Map<String, DeviceIntervals> deviceIntervalsMap = new HashMap<>();
+
+  public DeviceTsFileIndex(List<TsFileResource> tsFileResources, long version) {
+    this(tsFileResources, version, null);
+  }
+
+  private DeviceTsFileIndex(List<TsFileResource> tsFileResources, long version,
+      DeviceTsFileIndex previous) {
+    this.tsFileResources = tsFileResources;
+    this.version = version;
+    this.filePositions = new IdentityHashMap<>(tsFileResources.size());
+    this.sealedFiles = Collections.newSetFromMap(new IdentityHashMap<>(tsFileResources.size()));
+
+    List<Integer> unsealed = new ArrayList<>();
+    List<TsFileResource> addedFiles = new ArrayList<>();
+    for (int i = 0; i < tsFileResources.size(); i++) {
+      TsFileResource tsFileResource = tsFileResources.get(i);
+      filePositions.put(tsFileResource, i);
+      if (!tsFileResource.isClosed()) {
+        unsealed.add(i);
+        continue;
+      }
+      sealedFiles.add(tsFileResource);
+      if (previous == null || !previous.sealedFiles.contains(tsFileResource)) {
+        addedFiles.add(tsFileResource);
+      }
+    }
+    unsealedPositions = new int[unsealed.size()];
+    for (int i = 0; i < unsealedPositions.length; i++) {
+      unsealedPositions[i] = unsealed.get(i);
+    }
+
+    Set<String> changedDevices = new HashSet<>();
+    for (TsFileResource tsFileResource : addedFiles) {
+      changedDevices.addAll(tsFileResource.getDeviceToIndexMap().keySet());
+    }
+    Map<String, List<TsFileResource>> deviceFiles = new HashMap<>();
+    if (previous != null) {
+      for (TsFileResource tsFileResource : previous.sealedFiles) {
+        if (!sealedFiles.contains(tsFileResource)) {
+          changedDevices.addAll(tsFileResource.getDeviceToIndexMap().keySet());
+        }
+      }
+      for (Entry<String, DeviceIntervals> entry : previous.deviceIntervalsMap.entrySet()) {
+        if (!changedDevices.contains(entry.getKey())) {
+          deviceIntervalsMap.put(entry.getKey(), entry.getValue());
+          continue;
+        }
+        // keep the files of the device which are still in the list
+        for (TsFileResource tsFileResource : entry.getValue().files) {
+          if (sealedFiles.contains(tsFileResource)) {
+            deviceFiles.computeIfAbsent(entry.getKey(), k -> new ArrayList<>())
+                .add(tsFileResource);
+          }
+        }
+      }
+    }
+    for (TsFileResource tsFileResource : addedFiles) {
+      for (String deviceId : tsFileResource.getDeviceToIndexMap().keySet()) {
+        deviceFiles.computeIfAbsent(deviceId, k -> new ArrayList<>()).add(tsFileResource);
+      }
+    }
+    for (Entry<String, List<TsFileResource>> entry : deviceFiles.entrySet()) {
+      List<TsFileResource> files = entry.getValue();
+      files.sort(Comparator.comparingInt(filePositions::get));
+      deviceIntervalsMap.put(entry.getKey(), new DeviceIntervals(entry.getKey(), files));
+    }
+  }
+
+  /**
+   * @return the index of a newer snapshot of the same file list
+   */
+  public DeviceTsFileIndex update(List<TsFileResource> tsFileResources, long version) {
+    return new DeviceTsFileIndex(tsFileResources, version, this);
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * @param timeFilter may be null
+   * @param timeLowerBound files whose end time of the device is smaller than it are skipped
+   * @return the files that may contain data of the device in the time range, in the order of the
+   * snapshot
+   */
+  public List<TsFileResource> getTsFileResources(String deviceId, Filter timeFilter,
+      long timeLowerBound) {
+    List<TsFileResource> files = new ArrayList<>();
+    DeviceIntervals deviceIntervals = deviceIntervalsMap.get(deviceId);
+    if (deviceIntervals != null) {
+      // the segment tree prunes a whole subtree by the union of its time ranges, which is only
+      // correct when a filter satisfied by a range is also satisfied by its super range
+      Filter prunableFilter = isMonotonic(timeFilter) ? timeFilter : null;
+      deviceIntervals.search(1, 0, deviceIntervals.size() - 1, prunableFilter, timeLowerBound,
+          files);
+    }
+    List<Integer> positions = new ArrayList<>(files.size());
+    for (TsFileResource file : files) {
+      positions.add(filePositions.get(file));
+    }
+    // the shared segment trees are in the order of an older snapshot
+    Collections.sort(positions);
+
+    // merge the two ascending position lists to keep the order of the snapshot
+    List<TsFileResource> result = new ArrayList<>(positions.size() + unsealedPositions.length);
+    int i = 0;
+    int j = 0;
+    while (i < positions.size() || j < unsealedPositions.length) {
+      if (j == unsealedPositions.length
+          || (i < positions.size() && positions.get(i) < unsealedPositions[j])) {
+        result.add(tsFileResources.get(positions.get(i++)));
+      } else {
+        result.add(tsFileResources.get(unsealedPositions[j++]));
+      }
+    }
+    return result;
+  }
+
+  private static boolean isMonotonic(Filter filter) {
+    if (filter == null || filter instanceof NotFilter) {
+      return false;
+    }
+    if (filter instanceof BinaryFilter) {
+      return isMonotonic(((BinaryFilter) filter).getLeft())
+          && isMonotonic(((BinaryFilter) filter).getRight());
+    }
+    return true;
+  }
+
+  /**
+   * time ranges of one device in the closed files, with a segment tree of the minimal start time
+   * and the maximal end time of each subtree
+   */
+  private static class DeviceIntervals {
+
+    private final TsFileResource[] files;
+    private final long[] minStartTimes;
+    private final long[] maxEndTimes;
+
+    private DeviceIntervals(String deviceId, List<TsFileResource> fileList) {
+      int size = fileList.size();
+      files = fileList.toArray(new TsFileResource[0]);
+      long[] startTimes = new long[size];
+      long[] endTimes = new long[size];
+      for (int i = 0; i < size; i++) {
+        int deviceIndex = files[i].getDeviceToIndexMap().get(deviceId);
+        startTimes[i] = files[i].getStartTime(deviceIndex);
+        endTimes[i] = files[i].getEndTime(deviceIndex);
+      }
+      minStartTimes = new long[4 * size];
+      maxEndTimes = new long[4 * size];
+      build(1, 0, size - 1, startTimes, endTimes);
+    }
+
+    private int size() {
+      return files.length;
+    }
+
+    private void build(int node, int left, int right, long[] startTimes, long[] endTimes) {
+      if (left == right) {
+        minStartTimes[node] = startTimes[left];
+        maxEndTimes[node] = endTimes[left];
+        return;
+      }
+      int mid = (left + right) >>> 1;
+      build(2 * node, left, mid, startTimes, endTimes);
+      build(2 * node + 1, mid + 1, right, startTimes, endTimes);
+      minStartTimes[node] = Math.min(minStartTimes[2 * node], minStartTimes[2 * node + 1]);
+      maxEndTimes[node] = Math.max(maxEndTimes[2 * node], maxEndTimes[2 * node + 1]);
+    }
+
+    private void search(int node, int left, int right, Filter timeFilter, long timeLowerBound,
+        List<TsFileResource> results) {
+      if (maxEndTimes[node] < timeLowerBound) {
+        return;
+      }
+      if (timeFilter != null
+          && !timeFilter.satisfyStartEndTime(minStartTimes[node], maxEndTimes[node])) {
+        return;
+      }
+      if (left == right) {
+        results.add(files[left]);
+        return;
+      }
+      int mid = (left + right) >>> 1;
+      search(2 * node, left, mid, timeFilter, timeLowerBound, results);
+      search(2 * node + 1, mid + 1, right, timeFilter, timeLowerBound, results);
+    }
+  }
+}
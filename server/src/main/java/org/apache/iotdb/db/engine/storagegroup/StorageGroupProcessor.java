@@ -49,6 +49,7 @@ import org.apache.iotdb.db.conf.directories.DirectoryManager;
 import org.apache.iotdb.db.engine.StorageEngine;
 import org.apache.iotdb.db.engine.fileSystem.SystemFileFactory;
 import org.apache.iotdb.db.engine.flush.TsFileFlushPolicy;
+import org.apache.iotdb.db.engine.memtable.MemChunkSpillLog;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
 import org.apache.iotdb.db.engine.merge.manage.MergeResource;
 import org.apache.iotdb.db.engine.merge.selector.IMergeFileSelector;
@@ -210,6 +211,12 @@ public class StorageGroupProcessor {
 
   // manage seqFileList and unSeqFileList
   private TsFileManagement tsFileManagement;
+  /**
+   * per-device time range indexes over seqFileList and unSeqFileList used to find the files of a
+   * query, rebuilt when the file lists change
+   */
+  private volatile DeviceTsFileIndex sequenceFileIndex;
+  private volatile DeviceTsFileIndex unSequenceFileIndex;
 
   /**
    * time partition id -> version controller which assigns a version for each MemTable and
@@ -516,6 +523,9 @@ public class StorageGroupProcessor {
             // the process was interrupted before the merged files could be named
             continueFailedRenames(partitionFolder, MERGE_SUFFIX);
 
+            // the spilled points of the memtables are recovered from the WAL
+            deleteSpillFiles(partitionFolder);
+
             Collections.addAll(tsFiles,
                 fsFactory.listFilesBySuffix(partitionFolder.getAbsolutePath(), TSFILE_SUFFIX));
           }
@@ -538,6 +548,18 @@ public class StorageGroupProcessor {
     return new Pair<>(ret, upgradeRet);
   }
 
+  private void deleteSpillFiles(File partitionFolder) {
+    File[] files = fsFactory
+        .listFilesBySuffix(partitionFolder.getAbsolutePath(), MemChunkSpillLog.SPILL_SUFFIX);
+    if (files != null) {
+      for (File spillFile : files) {
+        if (!spillFile.delete()) {
+          logger.warn("Cannot delete the spill file {}", spillFile);
+        }
+      }
+    }
+  }
+
   private void continueFailedRenames(File fileFolder, String suffix) {
     File[] files = fsFactory.listFilesBySuffix(fileFolder.getAbsolutePath(), suffix);
     if (files != null) {
@@ -1004,6 +1026,23 @@ public class StorageGroupProcessor {
   }
 
 
+  /**
+   * flush the working memtable of a TsFileProcessor to release the memory for writing, or close
+   * the TsFileProcessor if its file is large enough.
+   */
+  public void asyncFlushMemTable(TsFileProcessor tsFileProcessor) {
+    writeLock();
+    try {
+      boolean sequence = workSequenceTsFileProcessors.containsValue(tsFileProcessor);
+      // the processor may have been closed since it was selected
+      if (sequence || workUnsequenceTsFileProcessors.containsValue(tsFileProcessor)) {
+        fileFlushPolicy.apply(this, tsFileProcessor, sequence);
+      }
+    } finally {
+      writeUnlock();
+    }
+  }
+
   /**
    * thread-safety should be ensured by caller
    */
@@ -1246,26 +1285,41 @@ public class StorageGroupProcessor {
   // TODO need a read lock, please consider the concurrency with flush manager threads.
   public QueryDataSource query(PartialPath deviceId, String measurementId, QueryContext context,
       QueryFileManager filePathsManager, Filter timeFilter) throws QueryProcessException {
+    return query(deviceId, Collections.singletonList(measurementId), context, filePathsManager,
+        timeFilter).get(0);
+  }
+
+  /**
+   * query several measurements of one device, the files are filtered and the unsealed files are
+   * snapshot only once for all the measurements.
+   *
+   * @return the QueryDataSource of each measurement, in the order of measurementIds
+   */
+  public List<QueryDataSource> query(PartialPath deviceId, List<String> measurementIds,
+      QueryContext context, QueryFileManager filePathsManager, Filter timeFilter)
+      throws QueryProcessException {
     insertLock.readLock().lock();
     mergeLock.readLock().lock();
     tsFileManagement.readLock();
     try {
-      List<TsFileResource> seqResources = getFileResourceListForQuery(
-          tsFileManagement.getTsFileList(true),
-          upgradeSeqFileList, deviceId, measurementId, context, timeFilter, true);
-      List<TsFileResource> unseqResources = getFileResourceListForQuery(
-          tsFileManagement.getTsFileList(false),
-          upgradeUnseqFileList, deviceId, measurementId, context, timeFilter, false);
-      QueryDataSource dataSource = new QueryDataSource(deviceId,
-          seqResources, unseqResources);
-      // used files should be added before mergeLock is unlocked, or they may be deleted by
-      // running merge
-      // is null only in tests
-      if (filePathsManager != null) {
-        filePathsManager.addUsedFilesForQuery(context.getQueryId(), dataSource);
-      }
-      dataSource.setDataTTL(dataTTL);
-      return dataSource;
+      List<List<TsFileResource>> seqResources = getFileResourceListForQuery(
+          upgradeSeqFileList, deviceId, measurementIds, context, timeFilter, true);
+      List<List<TsFileResource>> unseqResources = getFileResourceListForQuery(
+          upgradeUnseqFileList, deviceId, measurementIds, context, timeFilter, false);
+      List<QueryDataSource> dataSources = new ArrayList<>(measurementIds.size());
+      for (int i = 0; i < measurementIds.size(); i++) {
+        QueryDataSource dataSource = new QueryDataSource(deviceId,
+            seqResources.get(i), unseqResources.get(i));
+        // used files should be added before mergeLock is unlocked, or they may be deleted by
+        // running merge
+        // is null only in tests
+        if (filePathsManager != null) {
+          filePathsManager.addUsedFilesForQuery(context.getQueryId(), dataSource);
+        }
+        dataSource.setDataTTL(dataTTL);
+        dataSources.add(dataSource);
+      }
+      return dataSources;
     } catch (MetadataException e) {
       throw new QueryProcessException(e);
     } finally {
@@ -1285,22 +1339,29 @@ public class StorageGroupProcessor {
 
 
   /**
-   * @param tsFileResources includes sealed and unsealed tsfile resources
-   * @return fill unsealed tsfile resources with memory data and ChunkMetadataList of data in disk
+   * the sealed and unsealed tsfile resources are found by the file index of isSeq
+   *
+   * @return for each measurement, fill unsealed tsfile resources with memory data and
+   * ChunkMetadataList of data in disk
    */
-  private List<TsFileResource> getFileResourceListForQuery(
-      Collection<TsFileResource> tsFileResources, List<TsFileResource> upgradeTsFileResources,
-      PartialPath deviceId, String measurementId, QueryContext context, Filter timeFilter,
-      boolean isSeq)
+  private List<List<TsFileResource>> getFileResourceListForQuery(
+      List<TsFileResource> upgradeTsFileResources, PartialPath deviceId,
+      List<String> measurementIds, QueryContext context, Filter timeFilter, boolean isSeq)
       throws MetadataException {
 
-    MeasurementSchema schema = IoTDB.metaManager.getSeriesSchema(deviceId, measurementId);
+    List<MeasurementSchema> schemas = new ArrayList<>(measurementIds.size());
+    List<List<TsFileResource>> tsfileResourcesForQuery = new ArrayList<>(measurementIds.size());
+    for (String measurementId : measurementIds) {
+      schemas.add(IoTDB.metaManager.getSeriesSchema(deviceId, measurementId));
+      tsfileResourcesForQuery.add(new ArrayList<>());
+    }
 
-    List<TsFileResource> tsfileResourcesForQuery = new ArrayList<>();
     long timeLowerBound = dataTTL != Long.MAX_VALUE ? System.currentTimeMillis() - dataTTL : Long
         .MIN_VALUE;
     context.setQueryTimeLowerBound(timeLowerBound);
 
+    List<TsFileResource> tsFileResources = getFileIndex(isSeq)
+        .getTsFileResources(deviceId.getFullPath(), timeFilter, timeLowerBound);
     for (TsFileResource tsFileResource : tsFileResources) {
       if (!isTsFileResourceSatisfied(tsFileResource, deviceId.getFullPath(), timeFilter, isSeq)) {
         continue;
@@ -1308,12 +1369,12 @@ public class StorageGroupProcessor {
       closeQueryLock.readLock().lock();
       try {
         if (tsFileResource.isClosed()) {
-          tsfileResourcesForQuery.add(tsFileResource);
+          for (List<TsFileResource> resources : tsfileResourcesForQuery) {
+            resources.add(tsFileResource);
+          }
         } else {
           tsFileResource.getUnsealedFileProcessor()
-              .query(deviceId.getFullPath(), measurementId, schema.getType(),
-                  schema.getEncodingType(),
-                  schema.getProps(), context, tsfileResourcesForQuery);
+              .query(deviceId.getFullPath(), schemas, context, tsfileResourcesForQuery);
         }
       } catch (IOException e) {
         throw new MetadataException(e);
@@ -1328,7 +1389,9 @@ public class StorageGroupProcessor {
       }
       closeQueryLock.readLock().lock();
       try {
-        tsfileResourcesForQuery.add(tsFileResource);
+        for (List<TsFileResource> resources : tsfileResourcesForQuery) {
+          resources.add(tsFileResource);
+        }
       } finally {
         closeQueryLock.readLock().unlock();
       }
@@ -1336,6 +1399,29 @@ public class StorageGroupProcessor {
     return tsfileResourcesForQuery;
   }
 
+  /**
+   * get the file index of the sequence or unsequence files, the index is updated with the added
+   * and removed files if the file list has been changed since it was built. The caller should hold
+   * the read lock of tsFileManagement.
+   */
+  private DeviceTsFileIndex getFileIndex(boolean sequence) {
+    // read the version before the list, so a concurrent change can only make the index older
+    long version = tsFileManagement.getFileListVersion();
+    DeviceTsFileIndex fileIndex = sequence ? sequenceFileIndex : unSequenceFileIndex;
+    if (fileIndex != null && fileIndex.getVersion() == version) {
+      return fileIndex;
+    }
+    List<TsFileResource> tsFileList = tsFileManagement.getTsFileList(sequence);
+    fileIndex = fileIndex == null ? new DeviceTsFileIndex(tsFileList, version)
+        : fileIndex.update(tsFileList, version);
+    if (sequence) {
+      sequenceFileIndex = fileIndex;
+    } else {
+      unSequenceFileIndex = fileIndex;
+    }
+    return fileIndex;
+  }
+
   /**
    * @return true if the device is contained in the TsFile and it lives beyond TTL
    */
@@ -1836,6 +1922,10 @@ public class StorageGroupProcessor {
           removeMergingModification();
           isMerging = false;
           mergeLog.delete();
+          // the time ranges of the merged seq files are changed in place, which the file indexes
+          // cannot find out by the added and removed files, so they are built again
+          sequenceFileIndex = null;
+          unSequenceFileIndex = null;
         }
       } finally {
         doubleWriteUnlock(seqFile);
@@ -2460,6 +2550,10 @@ public class StorageGroupProcessor {
     return storageGroupName;
   }
 
+  public TsFileManagement getTsFileManagement() {
+    return tsFileManagement;
+  }
+
   /**
    * Check if the data of "tsFileResource" all exist locally by comparing the historical versions in
    * the partition of "partitionNumber". This is available only when the IoTDB instances which
@@ -2513,6 +2607,9 @@ public class StorageGroupProcessor {
       // remove data files
       removePartitions(filter, tsFileManagement.getIterator(true));
       removePartitions(filter, tsFileManagement.getIterator(false));
+      // the files are removed through the iterators, which does not change the file list version
+      sequenceFileIndex = null;
+      unSequenceFileIndex = null;
 
     } finally {
       insertLock.writeLock().unlock();
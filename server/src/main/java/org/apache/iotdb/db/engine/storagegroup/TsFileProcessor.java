@@ -40,6 +40,7 @@ import org.apache.iotdb.db.engine.flush.FlushManager;
 import org.apache.iotdb.db.engine.flush.MemTableFlushTask;
 import org.apache.iotdb.db.engine.flush.NotifyFlushMemTable;
 import org.apache.iotdb.db.engine.memtable.IMemTable;
+import org.apache.iotdb.db.engine.memtable.MemChunkSpillLog;
 import org.apache.iotdb.db.engine.modification.Deletion;
 import org.apache.iotdb.db.engine.modification.Modification;
 import org.apache.iotdb.db.engine.modification.ModificationFile;
@@ -65,8 +66,10 @@ import org.apache.iotdb.rpc.RpcUtils;
 import org.apache.iotdb.rpc.TSStatusCode;
 import org.apache.iotdb.service.rpc.thrift.TSStatus;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.apache.iotdb.tsfile.write.writer.RestorableTsFileIOWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -110,6 +113,10 @@ public class TsFileProcessor {
   private WriteLogNode logNode;
   private final boolean sequence;
   private long totalMemTableSize;
+  /**
+   * how many memtables of this processor have been spilled, used to name the spill files
+   */
+  private int spilledMemTableNum;
 
   private static final String FLUSH_QUERY_WRITE_LOCKED = "{}: {} get flushQueryLock write lock";
   private static final String FLUSH_QUERY_WRITE_RELEASE = "{}: {} get flushQueryLock write lock released";
@@ -268,7 +275,8 @@ public class TsFileProcessor {
       return false;
     }
 
-    if (workMemTable.memSize() >= getMemtableSizeThresholdBasedOnSeriesNum()) {
+    if (workMemTable.memSize() >= getMemtableSizeThresholdBasedOnSeriesNum()
+        && !spillWorkMemTable()) {
       logger.info("The memtable size {} of tsfile {} reaches the threshold",
           workMemTable.memSize(), tsFileResource.getTsFile().getAbsolutePath());
       return true;
@@ -284,6 +292,49 @@ public class TsFileProcessor {
     return false;
   }
 
+  /**
+   * Spill the least recently written chunks of the working memtable to a local file instead of
+   * flushing it, so that the memtable keeps accumulating points and the chunks of slowly arriving
+   * series are larger when it is flushed finally. The memtable is spilled to half of its size
+   * threshold, so that the chunks kept in memory can grow before it is spilled again.
+   *
+   * @return true if the memtable size is below the threshold after spilling
+   */
+  private boolean spillWorkMemTable() {
+    if (!config.isEnableMemChunkSpill()
+        || workMemTable.getSpilledSize() >= config.getMemChunkSpillSizeThreshold()) {
+      return false;
+    }
+    flushQueryLock.writeLock().lock();
+    if (logger.isDebugEnabled()) {
+      logger
+          .debug(FLUSH_QUERY_WRITE_LOCKED, storageGroupName, tsFileResource.getTsFile().getName());
+    }
+    try {
+      if (workMemTable.getSpilledSize() == 0) {
+        spilledMemTableNum++;
+      }
+      File spillFile = new File(tsFileResource.getTsFilePath() + "." + spilledMemTableNum
+          + MemChunkSpillLog.SPILL_SUFFIX);
+      long releasedSize = workMemTable.spill(spillFile, config.getMemChunkSpillPointNumber(),
+          getMemtableSizeThresholdBasedOnSeriesNum() / 2);
+      logger.info("{}: {} spilled {} bytes of the working memtable, memtable size: {}, "
+              + "spilled size: {}", storageGroupName, tsFileResource.getTsFile().getName(),
+          releasedSize, workMemTable.memSize(), workMemTable.getSpilledSize());
+      return workMemTable.memSize() < getMemtableSizeThresholdBasedOnSeriesNum();
+    } catch (IOException e) {
+      logger.error("{}: {} cannot spill the working memtable, flush it instead", storageGroupName,
+          tsFileResource.getTsFile().getName(), e);
+      return false;
+    } finally {
+      flushQueryLock.writeLock().unlock();
+      if (logger.isDebugEnabled()) {
+        logger.debug(FLUSH_QUERY_WRITE_RELEASE, storageGroupName,
+            tsFileResource.getTsFile().getName());
+      }
+    }
+  }
+
   /**
    * <p>In the dynamic parameter adjustment module{@link IoTDBConfigDynamicAdapter}, it calculated
    * the average size of each metatable{@link IoTDBConfigDynamicAdapter#tryToAdaptParameters()}.
@@ -706,6 +757,21 @@ public class TsFileProcessor {
     return flushingMemTables.size();
   }
 
+  public long getWorkMemTableArrayMemory() {
+    IMemTable memTable = workMemTable;
+    return memTable == null ? 0 : memTable.getArrayMemory();
+  }
+
+  public long getFlushingMemTableArrayMemory() {
+    long arrayMemory = 0;
+    for (IMemTable memTable : flushingMemTables) {
+      if (!memTable.isSignalMemTable()) {
+        arrayMemory += memTable.getArrayMemory();
+      }
+    }
+    return arrayMemory;
+  }
+
   RestorableTsFileIOWriter getWriter() {
     return writer;
   }
@@ -724,15 +790,48 @@ public class TsFileProcessor {
    * @param dataType data type
    * @param encoding encoding
    */
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public void query(String deviceId, String measurementId, TSDataType dataType, TSEncoding encoding,
       Map<String, String> props, QueryContext context,
       List<TsFileResource> tsfileResourcesForQuery) throws IOException, MetadataException {
+    query(deviceId, Collections.singletonList(
+        new MeasurementSchema(measurementId, dataType, encoding, CompressionType.UNCOMPRESSED,
+            props)), context, Collections.singletonList(tsfileResourcesForQuery));
+  }
+
+  /**
+   * query several measurements of a device with one snapshot of the memtables, the result of the
+   * i-th measurement is added into the i-th list of tsfileResourcesForQuery.
+   *
+   * @param deviceId device id
+   * @param schemas schemas of the measurements
+   */
+  public void query(String deviceId, List<MeasurementSchema> schemas, QueryContext context,
+      List<List<TsFileResource>> tsfileResourcesForQuery) throws IOException, MetadataException {
     if (logger.isDebugEnabled()) {
       logger.debug("{}: {} get flushQueryLock and vmMergeLock read lock", storageGroupName,
           tsFileResource.getTsFile().getName());
     }
     flushQueryLock.readLock().lock();
+    try {
+      for (int i = 0; i < schemas.size(); i++) {
+        queryMeasurement(deviceId, schemas.get(i), context, tsfileResourcesForQuery.get(i));
+      }
+    } finally {
+      flushQueryLock.readLock().unlock();
+      if (logger.isDebugEnabled()) {
+        logger.debug("{}: {} release flushQueryLock", storageGroupName,
+            tsFileResource.getTsFile().getName());
+      }
+    }
+  }
+
+  /**
+   * the caller should hold the read lock of flushQueryLock
+   */
+  private void queryMeasurement(String deviceId, MeasurementSchema schema, QueryContext context,
+      List<TsFileResource> tsfileResourcesForQuery) throws IOException, MetadataException {
+    String measurementId = schema.getMeasurementId();
+    TSDataType dataType = schema.getType();
     try {
       List<ReadOnlyMemChunk> readOnlyMemChunks = new ArrayList<>();
       for (IMemTable flushingMemTable : flushingMemTables) {
@@ -740,14 +839,15 @@ public class TsFileProcessor {
           continue;
         }
         ReadOnlyMemChunk memChunk = flushingMemTable.query(deviceId, measurementId,
-            dataType, encoding, props, context.getQueryTimeLowerBound());
+            dataType, schema.getEncodingType(), schema.getProps(),
+            context.getQueryTimeLowerBound());
         if (memChunk != null) {
           readOnlyMemChunks.add(memChunk);
         }
       }
       if (workMemTable != null) {
-        ReadOnlyMemChunk memChunk = workMemTable.query(deviceId, measurementId, dataType, encoding,
-            props, context.getQueryTimeLowerBound());
+        ReadOnlyMemChunk memChunk = workMemTable.query(deviceId, measurementId, dataType,
+            schema.getEncodingType(), schema.getProps(), context.getQueryTimeLowerBound());
         if (memChunk != null) {
           readOnlyMemChunks.add(memChunk);
         }
@@ -773,12 +873,6 @@ public class TsFileProcessor {
     } catch (QueryProcessException e) {
       logger.error("{}: {} get ReadOnlyMemChunk has error", storageGroupName,
           tsFileResource.getTsFile().getName(), e);
-    } finally {
-      flushQueryLock.readLock().unlock();
-      if (logger.isDebugEnabled()) {
-        logger.debug("{}: {} release flushQueryLock", storageGroupName,
-            tsFileResource.getTsFile().getName());
-      }
     }
   }
 
@@ -22,6 +22,7 @@ package org.apache.iotdb.db.engine.tsfilemanagement;
 import java.io.IOException;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor.CloseHotCompactionMergeCallBack;
@@ -36,6 +37,11 @@ public abstract class TsFileManagement {
    * processor.
    */
   private final ReadWriteLock hotCompactionMergeLock = new ReentrantReadWriteLock();
+  /**
+   * fileListVersion is increased after every change of the TsFile lists, so that the indexes built
+   * over the lists can find out they are stale.
+   */
+  private final AtomicLong fileListVersion = new AtomicLong();
 
   public TsFileManagement(String storageGroupName, String storageGroupDir) {
     this.storageGroupName = storageGroupName;
@@ -120,6 +126,8 @@ public abstract class TsFileManagement {
   }
 
   public void writeUnlock() {
+    // the lists may have been changed by hot compaction while the lock is held
+    increaseFileListVersion();
     hotCompactionMergeLock.writeLock().unlock();
   }
 
@@ -127,6 +135,17 @@ public abstract class TsFileManagement {
     return hotCompactionMergeLock.writeLock().tryLock();
   }
 
+  public long getFileListVersion() {
+    return fileListVersion.get();
+  }
+
+  /**
+   * called after the TsFile lists are changed
+   */
+  protected void increaseFileListVersion() {
+    fileListVersion.incrementAndGet();
+  }
+
   protected abstract void merge(long timePartition);
 
   public class HotCompactionMergeTask implements Runnable {
@@ -21,15 +21,25 @@ package org.apache.iotdb.db.engine.tsfilemanagement;
 
 import org.apache.iotdb.db.engine.tsfilemanagement.level.LevelTsFileManagement;
 import org.apache.iotdb.db.engine.tsfilemanagement.normal.NormalTsFileManagement;
+import org.apache.iotdb.db.engine.tsfilemanagement.tiered.TieredTsFileManagement;
+import org.apache.iotdb.db.engine.tsfilemanagement.tiered.TieredTsFileManagement.TieredMode;
 
 public enum TsFileManagementStrategy {
   LEVEL_STRATEGY,
-  NORMAL_STRATEGY;
+  NORMAL_STRATEGY,
+  TIME_WINDOW_STRATEGY,
+  SIZE_TIERED_STRATEGY;
 
   public TsFileManagement getTsFileManagement(String storageGroupName, String storageGroupDir) {
     switch (this) {
       case LEVEL_STRATEGY:
         return new LevelTsFileManagement(storageGroupName, storageGroupDir);
+      case TIME_WINDOW_STRATEGY:
+        return new TieredTsFileManagement(storageGroupName, storageGroupDir,
+            TieredMode.TIME_WINDOW);
+      case SIZE_TIERED_STRATEGY:
+        return new TieredTsFileManagement(storageGroupName, storageGroupDir,
+            TieredMode.SIZE_TIERED);
       case NORMAL_STRATEGY:
       default:
         return new NormalTsFileManagement(storageGroupName, storageGroupDir);
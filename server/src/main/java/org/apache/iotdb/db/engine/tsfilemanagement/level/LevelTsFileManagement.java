@@ -182,6 +182,7 @@ public class LevelTsFileManagement extends TsFileManagement {
         unSequenceTsFileResource.remove(tsFileResource);
       }
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -201,6 +202,7 @@ public class LevelTsFileManagement extends TsFileManagement {
         }
       }
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -228,6 +230,7 @@ public class LevelTsFileManagement extends TsFileManagement {
             .get(maxLevelNum - 1).add(tsFileResource);
       }
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -261,6 +264,7 @@ public class LevelTsFileManagement extends TsFileManagement {
   public void clear() {
     sequenceTsFileResources.clear();
     unSequenceTsFileResources.clear();
+    increaseFileListVersion();
   }
 
   @Override
@@ -394,6 +398,7 @@ public class LevelTsFileManagement extends TsFileManagement {
     } catch (IOException e) {
       logger.error("recover vm error ", e);
     } finally {
+      increaseFileListVersion();
       if (logFile.exists()) {
         try {
           Files.delete(logFile.toPath());
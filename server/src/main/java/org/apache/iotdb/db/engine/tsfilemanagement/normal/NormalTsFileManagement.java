@@ -92,6 +92,7 @@ public class NormalTsFileManagement extends TsFileManagement {
     } else {
       unSequenceFileList.remove(tsFileResource);
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -101,6 +102,7 @@ public class NormalTsFileManagement extends TsFileManagement {
     } else {
       unSequenceFileList.removeAll(tsFileResourceList);
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -110,6 +112,7 @@ public class NormalTsFileManagement extends TsFileManagement {
     } else {
       unSequenceFileList.add(tsFileResource);
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -119,6 +122,7 @@ public class NormalTsFileManagement extends TsFileManagement {
     } else {
       unSequenceFileList.addAll(tsFileResourceList);
     }
+    increaseFileListVersion();
   }
 
   @Override
@@ -134,6 +138,7 @@ public class NormalTsFileManagement extends TsFileManagement {
   public void clear() {
     sequenceFileTreeSet.clear();
     unSequenceFileList.clear();
+    increaseFileListVersion();
   }
 
   @Override
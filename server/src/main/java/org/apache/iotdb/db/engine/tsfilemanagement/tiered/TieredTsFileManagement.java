@@ -0,0 +1,572 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.tsfilemanagement.tiered;
+
+import static org.apache.iotdb.db.conf.IoTDBConstant.FILE_NAME_SEPARATOR;
+import static org.apache.iotdb.db.engine.tsfilemanagement.normal.NormalTsFileManagement.compareFileName;
+import static org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionLogger.HOT_COMPACTION_LOG_NAME;
+import static org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionLogger.SOURCE_NAME;
+import static org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionLogger.TARGET_NAME;
+import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.TSFILE_SUFFIX;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.cache.ChunkMetadataCache;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.engine.tsfilemanagement.TsFileManagement;
+import org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionLogAnalyzer;
+import org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionLogger;
+import org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionUtils;
+import org.apache.iotdb.db.query.control.FileReaderManager;
+import org.apache.iotdb.tsfile.fileSystem.FSFactoryProducer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The TsFileManagement for TIME_WINDOW_STRATEGY and SIZE_TIERED_STRATEGY. Closed TsFiles of a
+ * time partition are grouped into tiers, and a run of adjacent files in the same tier is compacted
+ * into one file once it is long enough.
+ * <p>
+ * In TIME_WINDOW mode, a tier is a time window of compaction_time_window: files whose data falls in
+ * the same window are compacted together, files spanning several windows are never compacted, and
+ * a window is left alone once it holds a single file, so data older than the newest window is
+ * rewritten at most once more.
+ * <p>
+ * In SIZE_TIERED mode, a tier is a set of files of similar size (within size_tiered_compaction_ratio
+ * of the average size of the run), so every byte is rewritten about log(N) times.
+ * <p>
+ * Only adjacent files are compacted together, which keeps the order of sequence files and the
+ * overwrite order of unsequence files.
+ */
+public class TieredTsFileManagement extends TsFileManagement {
+
+  private static final Logger logger = LoggerFactory.getLogger(TieredTsFileManagement.class);
+  private static final long NO_WINDOW = Long.MIN_VALUE;
+
+  private final TieredMode mode;
+  private final long timeWindow;
+  private final double sizeRatio;
+  private final int minFileNum;
+  private final int maxFileNum;
+
+  // partition -> files of the partition
+  private final Map<Long, TreeSet<TsFileResource>> sequenceTsFileResources = new ConcurrentSkipListMap<>();
+  private final Map<Long, List<TsFileResource>> unSequenceTsFileResources = new ConcurrentSkipListMap<>();
+  // runs of files chosen by the last fork, each run is compacted into one file
+  private final List<List<TsFileResource>> forkedSequenceTsFileResources = new ArrayList<>();
+  private final List<List<TsFileResource>> forkedUnSequenceTsFileResources = new ArrayList<>();
+  // files chosen by the last fork, they are not stable until the compaction ends
+  private final Set<TsFileResource> compactingFiles = ConcurrentHashMap.newKeySet();
+
+  // write amplification metrics, flushedBytes counts the flushed files that have been seen closed
+  private final Set<TsFileResource> countedFlushedFiles = ConcurrentHashMap.newKeySet();
+  private final AtomicLong flushedBytes = new AtomicLong();
+  private final AtomicLong compactionReadBytes = new AtomicLong();
+  private final AtomicLong compactionWrittenBytes = new AtomicLong();
+  private final AtomicLong compactionNum = new AtomicLong();
+
+  public enum TieredMode {
+    TIME_WINDOW, SIZE_TIERED
+  }
+
+  public TieredTsFileManagement(String storageGroupName, String storageGroupDir,
+      TieredMode mode) {
+    super(storageGroupName, storageGroupDir);
+    this.mode = mode;
+    IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+    this.timeWindow = config.getCompactionTimeWindow();
+    this.sizeRatio = config.getSizeTieredCompactionRatio();
+    this.minFileNum = Math.max(2, config.getTieredCompactionMinFileNum());
+    this.maxFileNum = Math.max(minFileNum, config.getTieredCompactionMaxFileNum());
+    clear();
+  }
+
+  @Override
+  public List<TsFileResource> getStableTsFileList(boolean sequence) {
+    List<TsFileResource> result = new ArrayList<>();
+    for (TsFileResource tsFileResource : getTsFileList(sequence)) {
+      if (!compactingFiles.contains(tsFileResource)) {
+        result.add(tsFileResource);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public List<TsFileResource> getTsFileList(boolean sequence) {
+    List<TsFileResource> result = new ArrayList<>();
+    if (sequence) {
+      for (TreeSet<TsFileResource> sequenceTsFileList : sequenceTsFileResources.values()) {
+        result.addAll(sequenceTsFileList);
+      }
+    } else {
+      for (List<TsFileResource> unSequenceTsFileList : unSequenceTsFileResources.values()) {
+        result.addAll(unSequenceTsFileList);
+      }
+    }
+    return result;
+  }
+
+  @Override
+  public Iterator<TsFileResource> getIterator(boolean sequence) {
+    return getTsFileList(sequence).iterator();
+  }
+
+  @Override
+  public void remove(TsFileResource tsFileResource, boolean sequence) {
+    if (sequence) {
+      Collection<TsFileResource> partitionFiles = sequenceTsFileResources
+          .get(tsFileResource.getTimePartition());
+      if (partitionFiles != null) {
+        partitionFiles.remove(tsFileResource);
+      }
+    } else {
+      Collection<TsFileResource> partitionFiles = unSequenceTsFileResources
+          .get(tsFileResource.getTimePartition());
+      if (partitionFiles != null) {
+        partitionFiles.remove(tsFileResource);
+      }
+    }
+    countedFlushedFiles.remove(tsFileResource);
+    increaseFileListVersion();
+  }
+
+  @Override
+  public void removeAll(List<TsFileResource> tsFileResourceList, boolean sequence) {
+    if (sequence) {
+      for (TreeSet<TsFileResource> partitionFiles : sequenceTsFileResources.values()) {
+        partitionFiles.removeAll(tsFileResourceList);
+      }
+    } else {
+      for (List<TsFileResource> partitionFiles : unSequenceTsFileResources.values()) {
+        partitionFiles.removeAll(tsFileResourceList);
+      }
+    }
+    countedFlushedFiles.removeAll(tsFileResourceList);
+    increaseFileListVersion();
+  }
+
+  @Override
+  public void add(TsFileResource tsFileResource, boolean sequence) {
+    long timePartitionId = tsFileResource.getTimePartition();
+    if (sequence) {
+      sequenceTsFileResources.computeIfAbsent(timePartitionId, this::newSequenceTsFileResources)
+          .add(tsFileResource);
+    } else {
+      unSequenceTsFileResources
+          .computeIfAbsent(timePartitionId, this::newUnSequenceTsFileResources)
+          .add(tsFileResource);
+    }
+    increaseFileListVersion();
+  }
+
+  @Override
+  public void addAll(List<TsFileResource> tsFileResourceList, boolean sequence) {
+    for (TsFileResource tsFileResource : tsFileResourceList) {
+      add(tsFileResource, sequence);
+    }
+  }
+
+  @Override
+  public boolean contains(TsFileResource tsFileResource, boolean sequence) {
+    if (sequence) {
+      return sequenceTsFileResources
+          .computeIfAbsent(tsFileResource.getTimePartition(), this::newSequenceTsFileResources)
+          .contains(tsFileResource);
+    } else {
+      return unSequenceTsFileResources
+          .computeIfAbsent(tsFileResource.getTimePartition(), this::newUnSequenceTsFileResources)
+          .contains(tsFileResource);
+    }
+  }
+
+  @Override
+  public void clear() {
+    sequenceTsFileResources.clear();
+    unSequenceTsFileResources.clear();
+    countedFlushedFiles.clear();
+    increaseFileListVersion();
+  }
+
+  @Override
+  public boolean isEmpty(boolean sequence) {
+    if (sequence) {
+      for (TreeSet<TsFileResource> partitionFiles : sequenceTsFileResources.values()) {
+        if (!partitionFiles.isEmpty()) {
+          return false;
+        }
+      }
+    } else {
+      for (List<TsFileResource> partitionFiles : unSequenceTsFileResources.values()) {
+        if (!partitionFiles.isEmpty()) {
+          return false;
+        }
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int size(boolean sequence) {
+    int result = 0;
+    if (sequence) {
+      for (TreeSet<TsFileResource> partitionFiles : sequenceTsFileResources.values()) {
+        result += partitionFiles.size();
+      }
+    } else {
+      for (List<TsFileResource> partitionFiles : unSequenceTsFileResources.values()) {
+        result += partitionFiles.size();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * The merge finished mark is logged as soon as the target file is completely written, so an
+   * unfinished compaction is rolled back by removing the target file, and a finished one is rolled
+   * forward by removing the source files that are left.
+   */
+  @Override
+  public void recover() {
+    File logFile = FSFactoryProducer.getFSFactory()
+        .getFile(storageGroupDir, storageGroupName + HOT_COMPACTION_LOG_NAME);
+    try {
+      if (logFile.exists()) {
+        HotCompactionLogAnalyzer logAnalyzer = new HotCompactionLogAnalyzer(logFile);
+        logAnalyzer.analyze();
+        File targetFile = logAnalyzer.getTargetFile();
+        boolean isSeq = logAnalyzer.isSeq();
+        if (targetFile == null) {
+          return;
+        }
+        if (logAnalyzer.isMergeFinished()) {
+          Set<File> sourceFiles = new HashSet<>(logAnalyzer.getSourceFiles());
+          List<TsFileResource> remainingSources = new ArrayList<>();
+          for (TsFileResource tsFileResource : getTsFileList(isSeq)) {
+            if (sourceFiles.contains(tsFileResource.getTsFile())) {
+              remainingSources.add(tsFileResource);
+            }
+          }
+          deleteTieredFiles(remainingSources, isSeq);
+        } else {
+          TsFileResource targetResource = null;
+          for (TsFileResource tsFileResource : getTsFileList(isSeq)) {
+            if (tsFileResource.getTsFile().equals(targetFile)) {
+              targetResource = tsFileResource;
+            }
+          }
+          if (targetResource != null) {
+            remove(targetResource, isSeq);
+            targetResource.delete();
+          } else {
+            Files.deleteIfExists(targetFile.toPath());
+          }
+        }
+      }
+    } catch (IOException e) {
+      logger.error("{} recover tiered compaction error", storageGroupName, e);
+    } finally {
+      if (logFile.exists()) {
+        try {
+          Files.delete(logFile.toPath());
+        } catch (IOException e) {
+          logger.error("{} delete tiered compaction log file error", storageGroupName, e);
+        }
+      }
+    }
+  }
+
+  @Override
+  public void forkCurrentFileList(long timePartition) {
+    compactingFiles.clear();
+    forkTsFileList(forkedSequenceTsFileResources, new ArrayList<>(
+        sequenceTsFileResources.computeIfAbsent(timePartition, this::newSequenceTsFileResources)));
+    forkTsFileList(forkedUnSequenceTsFileResources, new ArrayList<>(
+        unSequenceTsFileResources
+            .computeIfAbsent(timePartition, this::newUnSequenceTsFileResources)));
+  }
+
+  /**
+   * split the ordered file list of a partition into runs of adjacent closed files in the same tier
+   * and keep the runs that are long enough
+   */
+  private void forkTsFileList(List<List<TsFileResource>> forkedTsFileResources,
+      List<TsFileResource> rawTsFileResources) {
+    forkedTsFileResources.clear();
+    long newestWindow = NO_WINDOW;
+    for (TsFileResource tsFileResource : rawTsFileResources) {
+      if (tsFileResource.isClosed()) {
+        countFlushedFile(tsFileResource);
+        newestWindow = Math.max(newestWindow, getWindow(tsFileResource));
+      }
+    }
+
+    List<TsFileResource> run = new ArrayList<>();
+    long runWindow = NO_WINDOW;
+    long runSize = 0;
+    for (TsFileResource tsFileResource : rawTsFileResources) {
+      long window = getWindow(tsFileResource);
+      long fileSize = tsFileResource.getTsFileSize();
+      // an unsealed file or a file spanning several windows breaks the run
+      boolean eligible = tsFileResource.isClosed() && !tsFileResource.isDeleted()
+          && (mode != TieredMode.TIME_WINDOW || window != NO_WINDOW);
+      boolean sameTier = mode == TieredMode.TIME_WINDOW ? window == runWindow
+          : isSimilarSize(fileSize, runSize / Math.max(1, run.size()));
+      if (!run.isEmpty() && (!eligible || !sameTier || run.size() >= maxFileNum)) {
+        addRun(forkedTsFileResources, run, runWindow, newestWindow);
+        run = new ArrayList<>();
+        runSize = 0;
+      }
+      if (!eligible) {
+        continue;
+      }
+      run.add(tsFileResource);
+      runWindow = window;
+      runSize += fileSize;
+    }
+    addRun(forkedTsFileResources, run, runWindow, newestWindow);
+  }
+
+  private void addRun(List<List<TsFileResource>> forkedTsFileResources, List<TsFileResource> run,
+      long runWindow, long newestWindow) {
+    // an old window will not receive new files, so it is compacted into one file at once
+    int threshold = mode == TieredMode.TIME_WINDOW && runWindow != newestWindow ? 2 : minFileNum;
+    if (run.size() >= threshold) {
+      forkedTsFileResources.add(run);
+      compactingFiles.addAll(run);
+    }
+  }
+
+  private boolean isSimilarSize(long fileSize, long averageSize) {
+    return fileSize <= averageSize * sizeRatio && fileSize * sizeRatio >= averageSize;
+  }
+
+  /**
+   * @return the time window of all data in the file, or NO_WINDOW if the data spans more than one
+   * window
+   */
+  private long getWindow(TsFileResource tsFileResource) {
+    long startTime = Long.MAX_VALUE;
+    long endTime = Long.MIN_VALUE;
+    for (int index : tsFileResource.getDeviceToIndexMap().values()) {
+      startTime = Math.min(startTime, tsFileResource.getStartTime(index));
+      endTime = Math.max(endTime, tsFileResource.getEndTime(index));
+    }
+    if (startTime > endTime) {
+      return NO_WINDOW;
+    }
+    long window = Math.floorDiv(startTime, timeWindow);
+    return window == Math.floorDiv(endTime, timeWindow) ? window : NO_WINDOW;
+  }
+
+  private void countFlushedFile(TsFileResource tsFileResource) {
+    if (getMergeNum(tsFileResource.getTsFile()) == 0 && countedFlushedFiles.add(tsFileResource)) {
+      flushedBytes.addAndGet(tsFileResource.getTsFileSize());
+    }
+  }
+
+  @Override
+  protected void merge(long timePartition) {
+    try {
+      merge(forkedSequenceTsFileResources, true);
+      merge(forkedUnSequenceTsFileResources, false);
+    } finally {
+      compactingFiles.clear();
+    }
+  }
+
+  private void merge(List<List<TsFileResource>> mergeResources, boolean sequence) {
+    for (List<TsFileResource> run : mergeResources) {
+      long startTimeMillis = System.currentTimeMillis();
+      try {
+        compactRun(run, sequence);
+      } catch (Exception e) {
+        logger.error("{} Error occurred in tiered compaction", storageGroupName, e);
+        return;
+      }
+      if (logger.isInfoEnabled()) {
+        logger.info("{} [Hot Compaction] {} compaction of {} {} files consumes {} ms, "
+                + "write amplification: {}", storageGroupName, mode, run.size(),
+            sequence ? "sequence" : "unsequence", System.currentTimeMillis() - startTimeMillis,
+            getWriteAmplification());
+      }
+    }
+  }
+
+  private void compactRun(List<TsFileResource> run, boolean sequence) throws IOException {
+    int mergeNum = 0;
+    long readBytes = 0;
+    for (TsFileResource tsFileResource : run) {
+      mergeNum = Math.max(mergeNum, getMergeNum(tsFileResource.getTsFile()));
+      readBytes += tsFileResource.getTsFileSize();
+    }
+    File newFile = createNewTsFileName(run.get(0).getTsFile(), mergeNum + 1);
+    TsFileResource newResource = new TsFileResource(newFile);
+
+    File logFile = FSFactoryProducer.getFSFactory()
+        .getFile(storageGroupDir, storageGroupName + HOT_COMPACTION_LOG_NAME);
+    HotCompactionLogger hotCompactionLogger = new HotCompactionLogger(storageGroupDir,
+        storageGroupName);
+    try {
+      for (TsFileResource tsFileResource : run) {
+        hotCompactionLogger.logFile(SOURCE_NAME, tsFileResource.getTsFile());
+      }
+      hotCompactionLogger.logSequence(sequence);
+      hotCompactionLogger.logFile(TARGET_NAME, newFile);
+      HotCompactionUtils.merge(newResource, run, storageGroupName, hotCompactionLogger,
+          new HashSet<>(), sequence);
+      hotCompactionLogger.logMergeFinish();
+    } catch (IOException e) {
+      hotCompactionLogger.close();
+      // the source files are untouched, roll back by dropping the partial target
+      Files.deleteIfExists(newFile.toPath());
+      Files.deleteIfExists(logFile.toPath());
+      throw e;
+    }
+
+    writeLock();
+    try {
+      if (sequence) {
+        deleteTieredFiles(run, true);
+        add(newResource, true);
+      } else {
+        // keep the position of the run so that the list stays in flush order
+        List<TsFileResource> partitionFiles = unSequenceTsFileResources
+            .computeIfAbsent(newResource.getTimePartition(), this::newUnSequenceTsFileResources);
+        int index = partitionFiles.indexOf(run.get(0));
+        deleteTieredFiles(run, false);
+        if (index >= 0 && index <= partitionFiles.size()) {
+          partitionFiles.add(index, newResource);
+        } else {
+          partitionFiles.add(newResource);
+        }
+      }
+    } finally {
+      writeUnlock();
+    }
+    hotCompactionLogger.close();
+    Files.deleteIfExists(logFile.toPath());
+
+    compactionNum.incrementAndGet();
+    compactionReadBytes.addAndGet(readBytes);
+    compactionWrittenBytes.addAndGet(newResource.getTsFileSize());
+  }
+
+  private void deleteTieredFiles(List<TsFileResource> mergeTsFiles, boolean sequence) {
+    for (TsFileResource mergeTsFile : mergeTsFiles) {
+      mergeTsFile.writeLock();
+      try {
+        ChunkMetadataCache.getInstance().remove(mergeTsFile);
+        FileReaderManager.getInstance().closeFileAndRemoveReader(mergeTsFile.getTsFilePath());
+        mergeTsFile.setDeleted(true);
+        mergeTsFile.delete();
+      } catch (IOException e) {
+        logger.error(e.getMessage(), e);
+      } finally {
+        mergeTsFile.writeUnlock();
+      }
+    }
+    removeAll(mergeTsFiles, sequence);
+  }
+
+  /**
+   * @return bytes of the flushed files
+   */
+  public long getFlushedBytes() {
+    return flushedBytes.get();
+  }
+
+  /**
+   * @return bytes of the files read by compactions
+   */
+  public long getCompactionReadBytes() {
+    return compactionReadBytes.get();
+  }
+
+  /**
+   * @return bytes of the files written by compactions
+   */
+  public long getCompactionWrittenBytes() {
+    return compactionWrittenBytes.get();
+  }
+
+  public long getCompactionNum() {
+    return compactionNum.get();
+  }
+
+  /**
+   * @return (bytes flushed + bytes written by compactions) / bytes flushed, 1 if nothing has been
+   * flushed
+   */
+  public double getWriteAmplification() {
+    long flushed = flushedBytes.get();
+    if (flushed == 0) {
+      return 1;
+    }
+    return (double) (flushed + compactionWrittenBytes.get()) / flushed;
+  }
+
+  public TieredMode getMode() {
+    return mode;
+  }
+
+  private File createNewTsFileName(File sourceFile, int mergeNum) {
+    String path = sourceFile.getAbsolutePath();
+    String prefixPath = path.substring(0, path.lastIndexOf(FILE_NAME_SEPARATOR) + 1);
+    return new File(prefixPath + mergeNum + TSFILE_SUFFIX);
+  }
+
+  private static int getMergeNum(File file) {
+    String mergeNumStr = file.getPath()
+        .substring(file.getPath().lastIndexOf(FILE_NAME_SEPARATOR) + 1)
+        .replaceAll(TSFILE_SUFFIX, "");
+    return Integer.parseInt(mergeNumStr);
+  }
+
+  private TreeSet<TsFileResource> newSequenceTsFileResources(Long k) {
+    return new TreeSet<>(
+        (o1, o2) -> {
+          int rangeCompare = Long
+              .compare(Long.parseLong(o1.getTsFile().getParentFile().getName()),
+                  Long.parseLong(o2.getTsFile().getParentFile().getName()));
+          return rangeCompare == 0 ? compareFileName(o1.getTsFile(), o2.getTsFile())
+              : rangeCompare;
+        });
+  }
+
+  private List<TsFileResource> newUnSequenceTsFileResources(Long k) {
+    return new CopyOnWriteArrayList<>();
+  }
+}
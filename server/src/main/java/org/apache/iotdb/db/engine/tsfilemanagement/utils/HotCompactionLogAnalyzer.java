@@ -88,6 +88,7 @@ public class HotCompactionLogAnalyzer {
             offset = Long.parseLong(resultList[1]);
             break;
         }
+        currLine = bufferedReader.readLine();
       }
     }
   }
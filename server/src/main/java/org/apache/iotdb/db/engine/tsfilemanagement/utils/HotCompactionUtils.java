@@ -23,6 +23,9 @@ import static org.apache.iotdb.db.utils.MergeUtils.writeTVPair;
 
 import com.google.common.util.concurrent.RateLimiter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -32,6 +35,9 @@ import java.util.Set;
 import java.util.TreeMap;
 import org.apache.iotdb.db.engine.merge.manage.MergeManager;
 import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.tsfile.exception.write.PageException;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.file.header.PageHeader;
 import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.read.TimeValuePair;
@@ -91,10 +97,14 @@ public class HotCompactionUtils {
     return new Pair<>(newChunkMetadata, newChunk);
   }
 
-  private static long readUnseqChunk(String storageGroup,
+  /**
+   * Collect the pages of a series in the given unseq files. The pages are recorded in the order
+   * they are read, so a page read later overwrites the points of earlier ones with the same
+   * timestamps.
+   */
+  private static long collectUnseqPages(String storageGroup,
       Map<String, TsFileSequenceReader> tsFileSequenceReaderMap, String deviceId, long maxVersion,
-      String measurementId,
-      Map<Long, TimeValuePair> timeValuePairMap, List<TsFileResource> levelResources)
+      String measurementId, List<UnseqPage> unseqPages, List<TsFileResource> levelResources)
       throws IOException {
     for (TsFileResource levelResource : levelResources) {
       TsFileSequenceReader reader = buildReaderFromTsFileResource(levelResource,
@@ -107,21 +117,96 @@ public class HotCompactionUtils {
           .getChunkMetadataList(new Path(deviceId, measurementId));
       for (ChunkMetadata chunkMetadata : chunkMetadataList) {
         maxVersion = Math.max(chunkMetadata.getVersion(), maxVersion);
-        IChunkReader chunkReader = new ChunkReaderByTimestamp(
-            reader.readMemChunk(chunkMetadata));
-        while (chunkReader.hasNextSatisfiedPage()) {
-          IPointReader iPointReader = new BatchDataIterator(
-              chunkReader.nextPageData());
-          while (iPointReader.hasNextTimeValuePair()) {
-            TimeValuePair timeValuePair = iPointReader.nextTimeValuePair();
-            timeValuePairMap.put(timeValuePair.getTimestamp(), timeValuePair);
-          }
+        Chunk chunk = reader.readMemChunk(chunkMetadata);
+        ChunkHeader chunkHeader = chunk.getHeader();
+        ByteBuffer chunkDataBuffer = chunk.getData();
+        while (chunkDataBuffer.remaining() > 0) {
+          int pageStart = chunkDataBuffer.position();
+          PageHeader pageHeader = PageHeader
+              .deserializeFrom(chunkDataBuffer, chunkHeader.getDataType());
+          int pageBodyStart = chunkDataBuffer.position();
+          int pageEnd = pageBodyStart + pageHeader.getCompressedSize();
+          unseqPages.add(new UnseqPage(chunkHeader, pageHeader,
+              slice(chunkDataBuffer, pageStart, pageEnd),
+              slice(chunkDataBuffer, pageBodyStart, pageEnd), unseqPages.size()));
+          chunkDataBuffer.position(pageEnd);
         }
       }
     }
     return maxVersion;
   }
 
+  private static ByteBuffer slice(ByteBuffer buffer, int start, int end) {
+    ByteBuffer duplicate = buffer.duplicate();
+    duplicate.position(start);
+    duplicate.limit(end);
+    return duplicate.slice();
+  }
+
+  /**
+   * Write the unseq pages of a series in time order. A page that overlaps no other page and is
+   * encoded and compressed as the new chunk is copied with its header and statistics, while pages
+   * overlapping each other are decoded, deduplicated and rewritten point by point.
+   */
+  private static void writeUnseqPages(String deviceId, List<UnseqPage> unseqPages,
+      MeasurementSchema schema, IChunkWriter chunkWriter, TsFileResource targetResource)
+      throws IOException {
+    unseqPages.sort(Comparator.comparingLong(page -> page.pageHeader.getStartTime()));
+    int overlapStart = 0;
+    while (overlapStart < unseqPages.size()) {
+      // find the pages overlapping the first one directly or transitively
+      long overlapEndTime = unseqPages.get(overlapStart).pageHeader.getEndTime();
+      int overlapEnd = overlapStart + 1;
+      while (overlapEnd < unseqPages.size()
+          && unseqPages.get(overlapEnd).pageHeader.getStartTime() <= overlapEndTime) {
+        overlapEndTime = Math.max(overlapEndTime,
+            unseqPages.get(overlapEnd).pageHeader.getEndTime());
+        overlapEnd++;
+      }
+      UnseqPage firstPage = unseqPages.get(overlapStart);
+      if (overlapEnd == overlapStart + 1 && firstPage.canBeCopiedInto(schema)) {
+        // pages copied into the chunk must follow the points written before
+        chunkWriter.sealCurrentPage();
+        try {
+          chunkWriter.writePageHeaderAndDataIntoBuff(firstPage.compressedPageBody,
+              firstPage.pageHeader);
+        } catch (PageException e) {
+          throw new IOException(e);
+        }
+        targetResource.updateStartTime(deviceId, firstPage.pageHeader.getStartTime());
+        targetResource.updateEndTime(deviceId, firstPage.pageHeader.getEndTime());
+      } else {
+        rewriteOverlappedPages(deviceId, unseqPages.subList(overlapStart, overlapEnd),
+            chunkWriter, targetResource);
+      }
+      overlapStart = overlapEnd;
+    }
+  }
+
+  private static void rewriteOverlappedPages(String deviceId, List<UnseqPage> overlappedPages,
+      IChunkWriter chunkWriter, TsFileResource targetResource) throws IOException {
+    List<UnseqPage> pagesInReadOrder = new ArrayList<>(overlappedPages);
+    pagesInReadOrder.sort(Comparator.comparingInt(page -> page.readOrder));
+    Map<Long, TimeValuePair> timeValuePairMap = new TreeMap<>();
+    for (UnseqPage page : pagesInReadOrder) {
+      IChunkReader chunkReader = new ChunkReaderByTimestamp(
+          new Chunk(page.chunkHeader, page.pageWithHeader.duplicate(), null));
+      while (chunkReader.hasNextSatisfiedPage()) {
+        IPointReader iPointReader = new BatchDataIterator(
+            chunkReader.nextPageData());
+        while (iPointReader.hasNextTimeValuePair()) {
+          TimeValuePair timeValuePair = iPointReader.nextTimeValuePair();
+          timeValuePairMap.put(timeValuePair.getTimestamp(), timeValuePair);
+        }
+      }
+    }
+    for (TimeValuePair timeValuePair : timeValuePairMap.values()) {
+      writeTVPair(timeValuePair, chunkWriter);
+      targetResource.updateStartTime(deviceId, timeValuePair.getTimestamp());
+      targetResource.updateEndTime(deviceId, timeValuePair.getTimestamp());
+    }
+  }
+
   private static void fillDeviceMeasurementMap(Set<String> devices,
       Map<String, Map<String, MeasurementSchema>> deviceMeasurementMap,
       List<TsFileResource> subLevelResources,
@@ -171,15 +256,19 @@ public class HotCompactionUtils {
         for (Entry<String, MeasurementSchema> entry : deviceMeasurementEntry.getValue()
             .entrySet()) {
           String measurementId = entry.getKey();
-          Map<Long, TimeValuePair> timeValuePairMap = new TreeMap<>();
-          maxVersion = readUnseqChunk(storageGroup, tsFileSequenceReaderMap, deviceId,
-              maxVersion, measurementId, timeValuePairMap, tsFileResources);
-          IChunkWriter chunkWriter = new ChunkWriterImpl(entry.getValue());
-          for (TimeValuePair timeValuePair : timeValuePairMap.values()) {
-            writeTVPair(timeValuePair, chunkWriter);
-            targetResource.updateStartTime(deviceId, timeValuePair.getTimestamp());
-            targetResource.updateEndTime(deviceId, timeValuePair.getTimestamp());
+          List<UnseqPage> unseqPages = new ArrayList<>();
+          maxVersion = collectUnseqPages(storageGroup, tsFileSequenceReaderMap, deviceId,
+              maxVersion, measurementId, unseqPages, tsFileResources);
+          if (unseqPages.isEmpty()) {
+            continue;
           }
+          // keep the encoding and compression of the series so that its pages can be copied
+          ChunkHeader chunkHeader = unseqPages.get(0).chunkHeader;
+          MeasurementSchema schema = new MeasurementSchema(measurementId,
+              chunkHeader.getDataType(), chunkHeader.getEncodingType(),
+              chunkHeader.getCompressionType());
+          IChunkWriter chunkWriter = new ChunkWriterImpl(schema);
+          writeUnseqPages(deviceId, unseqPages, schema, chunkWriter, targetResource);
           // wait for limit write
           MergeManager
               .mergeRateLimiterAcquire(compactionRateLimiter, chunkWriter.getCurrentChunkSize());
@@ -232,6 +321,31 @@ public class HotCompactionUtils {
     targetResource.close();
   }
 
+  private static class UnseqPage {
+
+    private ChunkHeader chunkHeader;
+    private PageHeader pageHeader;
+    // the serialized page header followed by the compressed page body
+    private ByteBuffer pageWithHeader;
+    private ByteBuffer compressedPageBody;
+    private int readOrder;
+
+    private UnseqPage(ChunkHeader chunkHeader, PageHeader pageHeader, ByteBuffer pageWithHeader,
+        ByteBuffer compressedPageBody, int readOrder) {
+      this.chunkHeader = chunkHeader;
+      this.pageHeader = pageHeader;
+      this.pageWithHeader = pageWithHeader;
+      this.compressedPageBody = compressedPageBody;
+      this.readOrder = readOrder;
+    }
+
+    private boolean canBeCopiedInto(MeasurementSchema schema) {
+      return chunkHeader.getDataType() == schema.getType()
+          && chunkHeader.getEncodingType() == schema.getEncodingType()
+          && chunkHeader.getCompressionType() == schema.getCompressor();
+    }
+  }
+
   private static TsFileSequenceReader buildReaderFromTsFileResource(TsFileResource levelResource,
       Map<String, TsFileSequenceReader> tsFileSequenceReaderMap, String storageGroup) {
     return tsFileSequenceReaderMap.computeIfAbsent(levelResource.getTsFile().getAbsolutePath(),
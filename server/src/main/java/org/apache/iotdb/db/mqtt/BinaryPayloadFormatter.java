@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The binary payload formatter. A client registers a schema, which is a device with its
+ * measurements and their data types, under an id of its choice, and then sends the typed values of
+ * the schema with the id only, so the payload contains neither names nor text values. All the
+ * numbers are big-endian, and a string is a 2-byte length followed by the UTF-8 bytes.
+ * <pre>
+ * register: byte 0, int schemaId, string device, short measurementNum,
+ *           (string measurement, byte dataType) * measurementNum
+ * data:     byte 1, int schemaId, int rowNum, long time * rowNum,
+ *           (value * rowNum) * measurementNum
+ * </pre>
+ * The data types are the serialized TSDataType, i.e. 0 for BOOLEAN, 1 for INT32, 2 for INT64, 3
+ * for FLOAT, 4 for DOUBLE and 5 for TEXT. A BOOLEAN value is a byte, and a TEXT value is an int
+ * length followed by the bytes. The ids are shared by all the clients, registering an id again
+ * replaces its schema, and the schemas are kept in memory only, so the clients should register
+ * them again after the server restarts. The data of an unknown id and a malformed payload, e.g.
+ * a truncated one, are dropped.
+ */
+public class BinaryPayloadFormatter implements PayloadFormatter {
+    private static final Logger LOG = LoggerFactory.getLogger(BinaryPayloadFormatter.class);
+
+    static final byte REGISTER = 0;
+    static final byte DATA = 1;
+
+    private final Map<Integer, Schema> schemas = new ConcurrentHashMap<>();
+
+    @Override
+    public List<Message> format(ByteBuf payload) {
+        if (payload == null || !payload.isReadable()) {
+            return null;
+        }
+        try {
+            byte type = payload.readByte();
+            switch (type) {
+                case REGISTER:
+                    register(payload);
+                    return Collections.emptyList();
+                case DATA:
+                    TabletMessage message = readData(payload);
+                    return message == null ? Collections.emptyList()
+                        : Collections.singletonList(message);
+                default:
+                    throw new IllegalArgumentException("Unknown binary payload type: " + type);
+            }
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            // a truncated payload or an unknown type byte
+            LOG.warn("Drop the malformed binary payload, because ", e);
+            return Collections.emptyList();
+        }
+    }
+
+    private void register(ByteBuf payload) {
+        int schemaId = payload.readInt();
+        String device = readString(payload);
+        int measurementNum = payload.readUnsignedShort();
+        List<String> measurements = new ArrayList<>(measurementNum);
+        TSDataType[] dataTypes = new TSDataType[measurementNum];
+        for (int i = 0; i < measurementNum; i++) {
+            measurements.add(readString(payload));
+            dataTypes[i] = TSDataType.deserialize(payload.readByte());
+        }
+        schemas.put(schemaId, new Schema(device, Collections.unmodifiableList(measurements),
+            dataTypes));
+        LOG.debug("Register schema {}: device {}, measurements {}", schemaId, device, measurements);
+    }
+
+    private TabletMessage readData(ByteBuf payload) {
+        int schemaId = payload.readInt();
+        Schema schema = schemas.get(schemaId);
+        if (schema == null) {
+            LOG.warn("Drop the data of unregistered schema {}", schemaId);
+            return null;
+        }
+        int rowNum = payload.readInt();
+        if (rowNum <= 0) {
+            return null;
+        }
+        // check the length before allocating the arrays of the rows
+        if ((long) rowNum * Long.BYTES > payload.readableBytes()) {
+            throw new IndexOutOfBoundsException(String.format(
+                "%d rows of schema %d need more than the %d readable bytes", rowNum, schemaId,
+                payload.readableBytes()));
+        }
+        long[] times = new long[rowNum];
+        for (int i = 0; i < rowNum; i++) {
+            times[i] = payload.readLong();
+        }
+        Object[] columns = new Object[schema.dataTypes.length];
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = readColumn(payload, schema.dataTypes[i], rowNum);
+        }
+        sortByTime(times, columns, schema.dataTypes);
+
+        TabletMessage message = new TabletMessage();
+        message.setDevice(schema.device);
+        message.setMeasurements(schema.measurements);
+        message.setDataTypes(schema.dataTypes);
+        message.setTimes(times);
+        message.setColumns(columns);
+        return message;
+    }
+
+    private Object readColumn(ByteBuf payload, TSDataType dataType, int rowNum) {
+        switch (dataType) {
+            case BOOLEAN:
+                boolean[] booleanValues = new boolean[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    booleanValues[i] = payload.readByte() != 0;
+                }
+                return booleanValues;
+            case INT32:
+                int[] intValues = new int[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    intValues[i] = payload.readInt();
+                }
+                return intValues;
+            case INT64:
+                long[] longValues = new long[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    longValues[i] = payload.readLong();
+                }
+                return longValues;
+            case FLOAT:
+                float[] floatValues = new float[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    floatValues[i] = payload.readFloat();
+                }
+                return floatValues;
+            case DOUBLE:
+                double[] doubleValues = new double[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    doubleValues[i] = payload.readDouble();
+                }
+                return doubleValues;
+            case TEXT:
+                Binary[] binaryValues = new Binary[rowNum];
+                for (int i = 0; i < rowNum; i++) {
+                    int length = payload.readInt();
+                    if (length < 0 || length > payload.readableBytes()) {
+                        throw new IndexOutOfBoundsException(String.format(
+                            "Invalid text length %d with %d readable bytes", length,
+                            payload.readableBytes()));
+                    }
+                    byte[] bytes = new byte[length];
+                    payload.readBytes(bytes);
+                    binaryValues[i] = new Binary(bytes);
+                }
+                return binaryValues;
+            default:
+                throw new UnSupportedDataTypeException(
+                    String.format("Data type %s is not supported.", dataType));
+        }
+    }
+
+    /**
+     * the times of a tablet should be sorted, the rows are reordered if they are not
+     */
+    private void sortByTime(long[] times, Object[] columns, TSDataType[] dataTypes) {
+        boolean sorted = true;
+        for (int i = 1; i < times.length && sorted; i++) {
+            sorted = times[i - 1] <= times[i];
+        }
+        if (sorted) {
+            return;
+        }
+        Integer[] index = new Integer[times.length];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = i;
+        }
+        Arrays.sort(index, (i1, i2) -> Long.compare(times[i1], times[i2]));
+        long[] sortedTimes = new long[times.length];
+        for (int i = 0; i < index.length; i++) {
+            sortedTimes[i] = times[index[i]];
+        }
+        System.arraycopy(sortedTimes, 0, times, 0, times.length);
+        for (int i = 0; i < columns.length; i++) {
+            columns[i] = reorder(columns[i], dataTypes[i], index);
+        }
+    }
+
+    private Object reorder(Object column, TSDataType dataType, Integer[] index) {
+        switch (dataType) {
+            case BOOLEAN:
+                boolean[] booleanValues = (boolean[]) column;
+                boolean[] sortedBooleanValues = new boolean[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedBooleanValues[i] = booleanValues[index[i]];
+                }
+                return sortedBooleanValues;
+            case INT32:
+                int[] intValues = (int[]) column;
+                int[] sortedIntValues = new int[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedIntValues[i] = intValues[index[i]];
+                }
+                return sortedIntValues;
+            case INT64:
+                long[] longValues = (long[]) column;
+                long[] sortedLongValues = new long[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedLongValues[i] = longValues[index[i]];
+                }
+                return sortedLongValues;
+            case FLOAT:
+                float[] floatValues = (float[]) column;
+                float[] sortedFloatValues = new float[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedFloatValues[i] = floatValues[index[i]];
+                }
+                return sortedFloatValues;
+            case DOUBLE:
+                double[] doubleValues = (double[]) column;
+                double[] sortedDoubleValues = new double[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedDoubleValues[i] = doubleValues[index[i]];
+                }
+                return sortedDoubleValues;
+            case TEXT:
+                Binary[] binaryValues = (Binary[]) column;
+                Binary[] sortedBinaryValues = new Binary[index.length];
+                for (int i = 0; i < index.length; i++) {
+                    sortedBinaryValues[i] = binaryValues[index[i]];
+                }
+                return sortedBinaryValues;
+            default:
+                throw new UnSupportedDataTypeException(
+                    String.format("Data type %s is not supported.", dataType));
+        }
+    }
+
+    private String readString(ByteBuf payload) {
+        int length = payload.readUnsignedShort();
+        String str = payload.toString(payload.readerIndex(), length, StandardCharsets.UTF_8);
+        payload.skipBytes(length);
+        return str;
+    }
+
+    @Override
+    public String getName() {
+        return "binary";
+    }
+
+    private static class Schema {
+        private final String device;
+        private final List<String> measurements;
+        private final TSDataType[] dataTypes;
+
+        private Schema(String device, List<String> measurements, TSDataType[] dataTypes) {
+            this.device = device;
+            this.measurements = measurements;
+            this.dataTypes = dataTypes;
+        }
+    }
+}
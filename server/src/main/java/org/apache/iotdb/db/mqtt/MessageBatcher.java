@@ -0,0 +1,433 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
+import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.db.utils.CommonUtils;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * MessageBatcher coalesces the messages of each device into InsertTabletPlans, so the schema
+ * check and the insertion are done once for a batch of rows instead of once for each message.
+ * The rows of a device are inserted when they reach the batch size, and all the buffered rows are
+ * inserted every batch interval and when the batcher is closed.
+ * <p>
+ * The values of a message are strings, so the data type of each measurement is inferred when it
+ * is inserted the first time. Such a message is inserted as an InsertRowPlan, which infers the
+ * types and creates the timeseries if necessary, and the resulting types are cached to parse the
+ * values of the later messages. The cache of a device is dropped when its tablet fails, e.g. the
+ * timeseries are deleted and created again with other types, and the rows of the failed tablet are
+ * inserted one by one like such messages.
+ * <p>
+ * The buffered rows of a device are inserted before any message of the device that is inserted
+ * directly, and the rows of a device are inserted by one thread at a time, so a later message is
+ * never overwritten by an earlier one of the same timestamp.
+ */
+public class MessageBatcher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MessageBatcher.class);
+
+    private final IPlanExecutor executor;
+    private final int batchSize;
+    private final ScheduledExecutorService flushService;
+
+    /**
+     * device -> measurement -> data type, learned from the inserted rows
+     */
+    private final Map<String, Map<String, TSDataType>> schemaCache = new ConcurrentHashMap<>();
+
+    /**
+     * device -> buffered rows of the device
+     */
+    private final Map<String, List<Row>> buffers = new HashMap<>();
+    private int bufferedRowNum = 0;
+
+    /**
+     * device -> the lock held while inserting the rows of the device
+     */
+    private final Map<String, Object> insertLocks = new ConcurrentHashMap<>();
+
+    public MessageBatcher(IPlanExecutor executor, long batchIntervalInMs, int batchSize) {
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.flushService = IoTDBThreadPoolFactory
+            .newSingleThreadScheduledExecutor(ThreadName.MQTT_BATCH_FLUSH.getName());
+        flushService.scheduleWithFixedDelay(this::flushAll, batchIntervalInMs, batchIntervalInMs,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffer the message as a row of its device, or insert it directly if the types of some of its
+     * measurements are not known yet.
+     */
+    public void add(Message message) {
+        String device = message.getDevice();
+        String[] measurements = message.getMeasurements().toArray(new String[0]);
+        Map<String, TSDataType> deviceSchema = schemaCache.get(device);
+        TSDataType[] dataTypes = new TSDataType[measurements.length];
+        Object[] values = new Object[measurements.length];
+        try {
+            for (int i = 0; i < measurements.length; i++) {
+                dataTypes[i] = deviceSchema == null ? null : deviceSchema.get(measurements[i]);
+                if (dataTypes[i] == null) {
+                    insertDirectly(message);
+                    return;
+                }
+                values[i] = CommonUtils.parseValue(dataTypes[i], message.getValues().get(i));
+            }
+        } catch (QueryProcessException e) {
+            // let the row plan report the value that does not match the type
+            insertDirectly(message);
+            return;
+        }
+
+        boolean full;
+        synchronized (this) {
+            List<Row> rows = buffers.computeIfAbsent(device, k -> new ArrayList<>());
+            rows.add(new Row(message, measurements, dataTypes, values));
+            bufferedRowNum++;
+            full = rows.size() >= batchSize;
+        }
+        if (full) {
+            flush(device);
+        }
+    }
+
+    /**
+     * insert the buffered rows of the device of the message before the message itself
+     */
+    private void insertDirectly(Message message) {
+        synchronized (getInsertLock(message.getDevice())) {
+            flush(message.getDevice());
+            insertRowAndCacheTypes(message);
+        }
+    }
+
+    /**
+     * insert all the buffered rows
+     */
+    public void flushAll() {
+        List<String> devices;
+        synchronized (this) {
+            if (bufferedRowNum == 0) {
+                return;
+            }
+            devices = new ArrayList<>(buffers.keySet());
+        }
+        for (String device : devices) {
+            // an unexpected error of a device must not cancel the periodical flush
+            try {
+                flush(device);
+            } catch (RuntimeException e) {
+                LOG.error("meet error when inserting the rows of device {}, because ", device, e);
+            }
+        }
+    }
+
+    /**
+     * insert the buffered rows of the device
+     */
+    private void flush(String device) {
+        synchronized (getInsertLock(device)) {
+            List<Row> rows;
+            synchronized (this) {
+                rows = buffers.remove(device);
+                if (rows == null) {
+                    return;
+                }
+                bufferedRowNum -= rows.size();
+            }
+            insertRows(device, rows);
+        }
+    }
+
+    private Object getInsertLock(String device) {
+        return insertLocks.computeIfAbsent(device, k -> new Object());
+    }
+
+    /**
+     * stop the periodical flush and insert the buffered rows
+     */
+    public void close() {
+        flushService.shutdown();
+        try {
+            flushService.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            LOG.warn("Interrupted when waiting for the flush of the mqtt messages", e);
+        }
+        flushAll();
+    }
+
+    /**
+     * insert the message and cache the types of its measurements
+     */
+    private void insertRowAndCacheTypes(Message message) {
+        InsertRowPlan plan = insertRow(executor, message);
+        // the types are resolved by the executor even if some of the measurements failed
+        TSDataType[] dataTypes = plan.getDataTypes();
+        String[] measurements = plan.getMeasurements();
+        for (int i = 0; i < dataTypes.length; i++) {
+            if (dataTypes[i] != null && (plan.getFailedMeasurements() == null
+                || !plan.getFailedMeasurements().contains(measurements[i]))) {
+                schemaCache.computeIfAbsent(message.getDevice(), k -> new ConcurrentHashMap<>())
+                    .put(message.getMeasurements().get(i), dataTypes[i]);
+            }
+        }
+    }
+
+    /**
+     * insert the message as an InsertRowPlan whose types are inferred from the values
+     *
+     * @return the executed plan
+     */
+    static InsertRowPlan insertRow(IPlanExecutor executor, Message message) {
+        InsertRowPlan plan = new InsertRowPlan();
+        plan.setTime(message.getTimestamp());
+        plan.setMeasurements(message.getMeasurements().toArray(new String[0]));
+        plan.setValues(message.getValues().toArray(new Object[0]));
+        plan.setDataTypes(new TSDataType[message.getValues().size()]);
+        plan.setNeedInferType(true);
+
+        boolean status = false;
+        try {
+            plan.setDeviceId(new PartialPath(message.getDevice()));
+            status = executeNonQuery(executor, plan);
+        } catch (QueryProcessException | StorageGroupNotSetException | StorageEngineException
+            | IllegalPathException e) {
+            LOG.warn(
+                "meet error when inserting device {}, measurements {}, at time {}, because ",
+                message.getDevice(), message.getMeasurements(), message.getTimestamp(), e);
+        }
+        LOG.debug("event process result: {}", status);
+        return plan;
+    }
+
+    /**
+     * insert the typed values of the message after the buffered rows of its device
+     */
+    public void addTablet(TabletMessage message) {
+        synchronized (getInsertLock(message.getDevice())) {
+            flush(message.getDevice());
+            insertTablet(executor, message);
+        }
+    }
+
+    /**
+     * insert the typed values of the message as an InsertTabletPlan, or as one InsertRowPlan for
+     * each row if the tablet fails, so only the rows and measurements that cannot be inserted are
+     * lost
+     */
+    static void insertTablet(IPlanExecutor executor, TabletMessage message) {
+        boolean status = false;
+        try {
+            InsertTabletPlan plan = new InsertTabletPlan(new PartialPath(message.getDevice()),
+                message.getMeasurements().toArray(new String[0]));
+            plan.setDataTypes(message.getDataTypes().clone());
+            plan.setTimes(message.getTimes());
+            plan.setColumns(message.getColumns());
+            plan.setRowCount(message.getTimes().length);
+            status = executeNonQuery(executor, plan);
+        } catch (QueryProcessException | StorageGroupNotSetException | StorageEngineException
+            | IllegalPathException e) {
+            LOG.warn("meet error when inserting {} rows of device {}, measurements {}, "
+                    + "insert them one by one, because ", message.getTimes().length,
+                message.getDevice(), message.getMeasurements(), e);
+            insertTypedRows(executor, message);
+        }
+        LOG.debug("tablet process result: {}", status);
+    }
+
+    private static void insertTypedRows(IPlanExecutor executor, TabletMessage message) {
+        String[] measurements = message.getMeasurements().toArray(new String[0]);
+        for (int i = 0; i < message.getTimes().length; i++) {
+            Object[] values = new Object[measurements.length];
+            for (int j = 0; j < values.length; j++) {
+                values[j] = Array.get(message.getColumns()[j], i);
+            }
+            InsertRowPlan plan = new InsertRowPlan();
+            plan.setTime(message.getTimes()[i]);
+            // the failed measurements are removed from the plan
+            plan.setMeasurements(measurements.clone());
+            plan.setDataTypes(message.getDataTypes().clone());
+            plan.setValues(values);
+            try {
+                plan.setDeviceId(new PartialPath(message.getDevice()));
+                executeNonQuery(executor, plan);
+            } catch (QueryProcessException | StorageGroupNotSetException | StorageEngineException
+                | IllegalPathException e) {
+                LOG.error(
+                    "meet error when inserting device {}, measurements {}, at time {}, because ",
+                    message.getDevice(), message.getMeasurements(), message.getTimes()[i], e);
+            }
+        }
+    }
+
+    /**
+     * insert the rows of a device as one tablet for each set of measurements and their types
+     */
+    private void insertRows(String device, List<Row> rows) {
+        Map<List<Object>, List<Row>> rowsOfSchema = new LinkedHashMap<>();
+        for (Row row : rows) {
+            // the cached types of a measurement may change between the rows of a batch
+            List<Object> schema = new ArrayList<>(row.measurements.length * 2);
+            schema.addAll(Arrays.asList(row.measurements));
+            schema.addAll(Arrays.asList(row.dataTypes));
+            rowsOfSchema.computeIfAbsent(schema, k -> new ArrayList<>()).add(row);
+        }
+        for (List<Row> tabletRows : rowsOfSchema.values()) {
+            // the times of a tablet should be sorted
+            tabletRows.sort((r1, r2) -> Long.compare(r1.time, r2.time));
+            Row firstRow = tabletRows.get(0);
+            boolean status = false;
+            try {
+                InsertTabletPlan plan = new InsertTabletPlan(new PartialPath(device),
+                    firstRow.measurements.clone());
+                plan.setDataTypes(firstRow.dataTypes.clone());
+                long[] times = new long[tabletRows.size()];
+                for (int i = 0; i < times.length; i++) {
+                    times[i] = tabletRows.get(i).time;
+                }
+                plan.setTimes(times);
+                plan.setColumns(toColumns(firstRow.dataTypes, tabletRows));
+                plan.setRowCount(times.length);
+                status = executeNonQuery(executor, plan);
+            } catch (QueryProcessException | StorageGroupNotSetException | StorageEngineException
+                | IllegalPathException e) {
+                LOG.warn("meet error when inserting {} rows of device {}, measurements {}, "
+                        + "insert them one by one, because ", tabletRows.size(), device,
+                    Arrays.asList(firstRow.measurements), e);
+                schemaCache.remove(device);
+                for (Row row : tabletRows) {
+                    insertRowAndCacheTypes(row.message);
+                }
+            }
+            LOG.debug("tablet process result: {}", status);
+        }
+    }
+
+    private Object[] toColumns(TSDataType[] dataTypes, List<Row> rows) {
+        Object[] columns = new Object[dataTypes.length];
+        for (int i = 0; i < dataTypes.length; i++) {
+            switch (dataTypes[i]) {
+                case BOOLEAN:
+                    boolean[] booleanValues = new boolean[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        booleanValues[j] = (boolean) rows.get(j).values[i];
+                    }
+                    columns[i] = booleanValues;
+                    break;
+                case INT32:
+                    int[] intValues = new int[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        intValues[j] = (int) rows.get(j).values[i];
+                    }
+                    columns[i] = intValues;
+                    break;
+                case INT64:
+                    long[] longValues = new long[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        longValues[j] = (long) rows.get(j).values[i];
+                    }
+                    columns[i] = longValues;
+                    break;
+                case FLOAT:
+                    float[] floatValues = new float[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        floatValues[j] = (float) rows.get(j).values[i];
+                    }
+                    columns[i] = floatValues;
+                    break;
+                case DOUBLE:
+                    double[] doubleValues = new double[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        doubleValues[j] = (double) rows.get(j).values[i];
+                    }
+                    columns[i] = doubleValues;
+                    break;
+                case TEXT:
+                    Binary[] binaryValues = new Binary[rows.size()];
+                    for (int j = 0; j < rows.size(); j++) {
+                        binaryValues[j] = (Binary) rows.get(j).values[i];
+                    }
+                    columns[i] = binaryValues;
+                    break;
+                default:
+                    throw new UnSupportedDataTypeException(
+                        String.format("Data type %s is not supported.", dataTypes[i]));
+            }
+        }
+        return columns;
+    }
+
+    private static boolean executeNonQuery(IPlanExecutor executor, PhysicalPlan plan)
+        throws QueryProcessException, StorageGroupNotSetException, StorageEngineException {
+        if (IoTDBDescriptor.getInstance().getConfig().isReadOnly()) {
+            throw new QueryProcessException(
+                "Current system mode is read-only, does not support non-query operation");
+        }
+        return executor.processNonQuery(plan);
+    }
+
+    private static class Row {
+
+        private final long time;
+        private final String[] measurements;
+        private final TSDataType[] dataTypes;
+        private final Object[] values;
+        /**
+         * the original message, which is inserted alone if the tablet of the row fails
+         */
+        private final Message message;
+
+        private Row(Message message, String[] measurements, TSDataType[] dataTypes,
+            Object[] values) {
+            this.time = message.getTimestamp();
+            this.measurements = measurements;
+            this.dataTypes = dataTypes;
+            this.values = values;
+            this.message = message;
+        }
+    }
+}
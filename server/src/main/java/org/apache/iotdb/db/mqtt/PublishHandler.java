@@ -23,28 +23,24 @@ import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.mqtt.MqttQoS;
 import java.util.List;
 import org.apache.iotdb.db.conf.IoTDBConfig;
-import org.apache.iotdb.db.conf.IoTDBDescriptor;
-import org.apache.iotdb.db.exception.StorageEngineException;
-import org.apache.iotdb.db.exception.metadata.IllegalPathException;
-import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
-import org.apache.iotdb.db.metadata.PartialPath;
 import org.apache.iotdb.db.qp.executor.IPlanExecutor;
 import org.apache.iotdb.db.qp.executor.PlanExecutor;
-import org.apache.iotdb.db.qp.physical.PhysicalPlan;
-import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
-import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
- * PublishHandler handle the messages from MQTT clients.
+ * PublishHandler handle the messages from MQTT clients. The payloads are decoded in the
+ * interceptor threads of the broker, whose number is mqtt_handler_pool_size, and the messages are
+ * inserted in batches by a {@link MessageBatcher} unless mqtt_batch_interval_in_ms is 0. A {@link
+ * TabletMessage} is already a batch, so it is inserted right after the buffered rows of its device.
  */
 public class PublishHandler extends AbstractInterceptHandler {
     private static final Logger LOG = LoggerFactory.getLogger(PublishHandler.class);
 
     private IPlanExecutor executor;
     private PayloadFormatter payloadFormat;
+    private MessageBatcher batcher;
 
     public PublishHandler(IoTDBConfig config) {
         this.payloadFormat = PayloadFormatManager.getPayloadFormat(config.getMqttPayloadFormatter());
@@ -53,6 +49,10 @@ public class PublishHandler extends AbstractInterceptHandler {
         } catch (QueryProcessException e) {
             throw new RuntimeException(e);
         }
+        if (config.getMqttBatchIntervalInMs() > 0) {
+            this.batcher = new MessageBatcher(executor, config.getMqttBatchIntervalInMs(),
+                config.getMqttBatchSize());
+        }
     }
 
     protected PublishHandler(IPlanExecutor executor, PayloadFormatter payloadFormat) {
@@ -60,6 +60,12 @@ public class PublishHandler extends AbstractInterceptHandler {
         this.payloadFormat = payloadFormat;
     }
 
+    protected PublishHandler(IPlanExecutor executor, PayloadFormatter payloadFormat,
+        MessageBatcher batcher) {
+        this(executor, payloadFormat);
+        this.batcher = batcher;
+    }
+
     @Override
     public String getID() {
         return "iotdb-mqtt-broker-listener";
@@ -81,39 +87,30 @@ public class PublishHandler extends AbstractInterceptHandler {
             return;
         }
 
-        // since device ids from messages maybe different, so we use the InsertPlan not InsertTabletPlan.
         for (Message event : events) {
             if (event == null) {
                 continue;
             }
-
-            InsertRowPlan plan = new InsertRowPlan();
-            plan.setTime(event.getTimestamp());
-            plan.setMeasurements(event.getMeasurements().toArray(new String[event.getMeasurements().size()]));
-            plan.setValues(event.getValues().toArray(new Object[event.getValues().size()]));
-            plan.setDataTypes(new TSDataType[event.getValues().size()]);
-            plan.setNeedInferType(true);
-
-            boolean status = false;
-            try {
-                plan.setDeviceId(new PartialPath(event.getDevice()));
-                status = executeNonQuery(plan);
-            } catch (QueryProcessException | StorageGroupNotSetException | StorageEngineException | IllegalPathException e ) {
-                LOG.warn(
-                    "meet error when inserting device {}, measurements {}, at time {}, because ",
-                    event.getDevice(), event.getMeasurements(), event.getTimestamp(), e);
+            if (event instanceof TabletMessage) {
+                if (batcher != null) {
+                    batcher.addTablet((TabletMessage) event);
+                } else {
+                    MessageBatcher.insertTablet(executor, (TabletMessage) event);
+                }
+            } else if (batcher != null) {
+                batcher.add(event);
+            } else {
+                MessageBatcher.insertRow(executor, event);
             }
-
-            LOG.debug("event process result: {}", status);
         }
     }
 
-    private boolean executeNonQuery(PhysicalPlan plan)
-        throws QueryProcessException, StorageGroupNotSetException, StorageEngineException {
-        if (IoTDBDescriptor.getInstance().getConfig().isReadOnly()) {
-            throw new QueryProcessException(
-                    "Current system mode is read-only, does not support non-query operation");
+    /**
+     * insert the messages buffered in the batcher
+     */
+    public void close() {
+        if (batcher != null) {
+            batcher.close();
         }
-        return executor.processNonQuery(plan);
     }
 }
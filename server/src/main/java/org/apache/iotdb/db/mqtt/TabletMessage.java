@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import java.util.Arrays;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+
+/**
+ * TabletMessage describes the typed values of several timestamps sent from a device, which are
+ * stored in columns like an InsertTabletPlan, so they need neither type inference nor parsing.
+ * The values are not in {@link #getValues()} and there is no single {@link #getTimestamp()}.
+ */
+public class TabletMessage extends Message {
+    private TSDataType[] dataTypes;
+    private long[] times;
+    /**
+     * the values of each measurement, an array of the type of the measurement
+     */
+    private Object[] columns;
+
+    public TSDataType[] getDataTypes() {
+        return dataTypes;
+    }
+
+    public void setDataTypes(TSDataType[] dataTypes) {
+        this.dataTypes = dataTypes;
+    }
+
+    public long[] getTimes() {
+        return times;
+    }
+
+    public void setTimes(long[] times) {
+        this.times = times;
+    }
+
+    public Object[] getColumns() {
+        return columns;
+    }
+
+    public void setColumns(Object[] columns) {
+        this.columns = columns;
+    }
+
+    @Override
+    public String toString() {
+        return "TabletMessage{" +
+                "device='" + getDevice() + '\'' +
+                ", measurements=" + getMeasurements() +
+                ", dataTypes=" + Arrays.toString(dataTypes) +
+                ", rowCount=" + (times == null ? 0 : times.length) +
+                '}';
+    }
+}
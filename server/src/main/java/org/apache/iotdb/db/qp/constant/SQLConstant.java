@@ -68,6 +68,8 @@ public class SQLConstant {
   public static final String AVG = "avg";
   public static final String SUM = "sum";
 
+  public static final String M4 = "m4";
+
   public static final String ALL = "all";
 
   public static final int KW_AND = 1;
@@ -730,6 +730,12 @@ public class PlanExecutor implements IPlanExecutor {
 
   private void recursionFileDir(File curFile, OperateFilePlan plan) throws QueryProcessException {
     File[] files = curFile.listFiles();
+    if (files == null) {
+      return;
+    }
+    // load the files in name order, so that the files named in the order of their time ranges
+    // (e.g., the ones generated by TsFileBulkWriter) are appended to the sequence list one by one
+    Arrays.sort(files);
     for (File file : files) {
       if (file.isDirectory()) {
         recursionFileDir(file, plan);
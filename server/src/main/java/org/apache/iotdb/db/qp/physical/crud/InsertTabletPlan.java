@@ -177,9 +177,8 @@ public class InsertTabletPlan extends InsertPlan {
     buffer.putInt(end - start);
 
     if (timeBuffer == null) {
-      for (int i = start; i < end; i++) {
-        buffer.putLong(times[i]);
-      }
+      buffer.asLongBuffer().put(times, start, end - start);
+      buffer.position(buffer.position() + (end - start) * Long.BYTES);
     } else {
       buffer.put(timeBuffer.array());
       timeBuffer = null;
@@ -212,28 +211,20 @@ public class InsertTabletPlan extends InsertPlan {
       int start, int end) {
     switch (dataType) {
       case INT32:
-        int[] intValues = (int[]) column;
-        for (int j = start; j < end; j++) {
-          buffer.putInt(intValues[j]);
-        }
+        buffer.asIntBuffer().put((int[]) column, start, end - start);
+        buffer.position(buffer.position() + (end - start) * Integer.BYTES);
         break;
       case INT64:
-        long[] longValues = (long[]) column;
-        for (int j = start; j < end; j++) {
-          buffer.putLong(longValues[j]);
-        }
+        buffer.asLongBuffer().put((long[]) column, start, end - start);
+        buffer.position(buffer.position() + (end - start) * Long.BYTES);
         break;
       case FLOAT:
-        float[] floatValues = (float[]) column;
-        for (int j = start; j < end; j++) {
-          buffer.putFloat(floatValues[j]);
-        }
+        buffer.asFloatBuffer().put((float[]) column, start, end - start);
+        buffer.position(buffer.position() + (end - start) * Float.BYTES);
         break;
       case DOUBLE:
-        double[] doubleValues = (double[]) column;
-        for (int j = start; j < end; j++) {
-          buffer.putDouble(doubleValues[j]);
-        }
+        buffer.asDoubleBuffer().put((double[]) column, start, end - start);
+        buffer.position(buffer.position() + (end - start) * Double.BYTES);
         break;
       case BOOLEAN:
         boolean[] boolValues = (boolean[]) column;
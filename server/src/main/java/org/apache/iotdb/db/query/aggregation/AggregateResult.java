@@ -67,6 +67,16 @@ public abstract class AggregateResult {
   public abstract void updateResultFromStatistics(Statistics statistics)
       throws QueryProcessException;
 
+  /**
+   * Judge if the aggregation can be updated from the statistics of a file, chunk or page, or the
+   * data has to be read though the statistics can be used for other aggregations.
+   *
+   * @param statistics fileStatistics, chunkStatistics or pageStatistics
+   */
+  public boolean canUpdateFromStatistics(Statistics statistics) {
+    return true;
+  }
+
   /**
    * Aggregate results cannot be calculated using Statistics directly, using the data in each page
    *
@@ -26,7 +26,7 @@ import org.apache.iotdb.tsfile.utils.BytesUtils;
 
 public enum AggregationType {
 
-  COUNT, AVG, SUM, FIRST_VALUE, LAST_VALUE, MAX_TIME, MIN_TIME, MAX_VALUE, MIN_VALUE;
+  COUNT, AVG, SUM, FIRST_VALUE, LAST_VALUE, MAX_TIME, MIN_TIME, MAX_VALUE, MIN_VALUE, M4;
 
   /**
    * give an integer to return a data type.
@@ -54,6 +54,8 @@ public enum AggregationType {
         return MAX_VALUE;
       case 8:
         return MIN_VALUE;
+      case 9:
+        return M4;
       default:
         throw new IllegalArgumentException("Invalid Aggregation Type: " + i);
     }
@@ -89,6 +91,9 @@ public enum AggregationType {
       case MIN_VALUE:
         i = 8;
         break;
+      case M4:
+        i = 9;
+        break;
       default:
         throw new IllegalArgumentException("Invalid Aggregation Type: " + this.name());
     }
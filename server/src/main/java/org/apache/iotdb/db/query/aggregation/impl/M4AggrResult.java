@@ -0,0 +1,265 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.query.aggregation.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.query.aggregation.AggregateResult;
+import org.apache.iotdb.db.query.aggregation.AggregationType;
+import org.apache.iotdb.db.query.reader.series.IReaderByTimestamp;
+import org.apache.iotdb.tsfile.exception.filter.StatisticsClassException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.ReadWriteIOUtils;
+
+/**
+ * M4 keeps the first, bottom (min value), top (max value) and last points of a series with their
+ * timestamps, which are enough to draw the line chart of the series exactly when the result of a
+ * group by time is rendered as a column of pixels. The result is a text of "time:value" pairs in
+ * the order of first, bottom, top and last, separated by ",", e.g. "1:3.0,2:1.0,5:9.0,8:4.0". If
+ * the min or max value occurs more than once, the earliest point is returned.
+ * <p>
+ * The statistics of a chunk or page contain its min and max values but not their timestamps, so
+ * the statistics are only used when the extremes cannot be changed by them (see {@link
+ * #canUpdateFromStatistics(Statistics)}), and other chunks and pages are read to find the times.
+ */
+public class M4AggrResult extends AggregateResult {
+
+  private static final int FIRST = 0;
+  private static final int BOTTOM = 1;
+  private static final int TOP = 2;
+  private static final int LAST = 3;
+  private static final int POINT_NUM = 4;
+
+  private TSDataType seriesDataType;
+  private final long[] times = new long[POINT_NUM];
+  private final Object[] values = new Object[POINT_NUM];
+
+  public M4AggrResult(TSDataType seriesDataType) {
+    super(TSDataType.TEXT, AggregationType.M4);
+    this.seriesDataType = seriesDataType;
+    reset();
+  }
+
+  @Override
+  protected boolean hasResult() {
+    return values[FIRST] != null;
+  }
+
+  @Override
+  public Binary getResult() {
+    if (!hasResult()) {
+      return null;
+    }
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < POINT_NUM; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(times[i]).append(':').append(values[i]);
+    }
+    setBinaryValue(Binary.valueOf(builder.toString()));
+    return getBinaryValue();
+  }
+
+  /**
+   * @return false if the min or max value of the statistics may be a new bottom or top point,
+   * whose time is only known from the data
+   */
+  @Override
+  public boolean canUpdateFromStatistics(Statistics statistics) {
+    if (!hasResult()) {
+      return statistics.getStartTime() == statistics.getEndTime();
+    }
+    return !isBetterBottom(statistics.getStartTime(), statistics.getMinValue())
+        && !isBetterTop(statistics.getStartTime(), statistics.getMaxValue());
+  }
+
+  @Override
+  public void updateResultFromStatistics(Statistics statistics) throws QueryProcessException {
+    checkDataType(statistics.getType());
+    if (!canUpdateFromStatistics(statistics)) {
+      throw new QueryProcessException(
+          "The times of the extreme values of m4 cannot be calculated from statistics");
+    }
+    updatePoint(statistics.getStartTime(), statistics.getFirstValue());
+    updatePoint(statistics.getEndTime(), statistics.getLastValue());
+  }
+
+  @Override
+  public void updateResultFromPageData(BatchData dataInThisPage) throws IOException {
+    updateResultFromPageData(dataInThisPage, Long.MIN_VALUE, Long.MAX_VALUE);
+  }
+
+  @Override
+  public void updateResultFromPageData(BatchData dataInThisPage, long minBound, long maxBound)
+      throws IOException {
+    checkPageDataType();
+    while (dataInThisPage.hasCurrent()
+        && dataInThisPage.currentTime() < maxBound
+        && dataInThisPage.currentTime() >= minBound) {
+      updatePoint(dataInThisPage.currentTime(), dataInThisPage.currentValue());
+      dataInThisPage.next();
+    }
+  }
+
+  @Override
+  public void updateResultUsingTimestamps(long[] timestamps, int length,
+      IReaderByTimestamp dataReader) throws IOException {
+    checkPageDataType();
+    for (int i = 0; i < length; i++) {
+      Object value = dataReader.getValueInTimestamp(timestamps[i]);
+      if (value != null) {
+        updatePoint(timestamps[i], value);
+      }
+    }
+  }
+
+  @Override
+  public boolean isCalculatedAggregationResult() {
+    return false;
+  }
+
+  @Override
+  public void merge(AggregateResult another) {
+    M4AggrResult anotherM4 = (M4AggrResult) another;
+    if (!anotherM4.hasResult()) {
+      return;
+    }
+    if (!hasResult()) {
+      System.arraycopy(anotherM4.times, 0, times, 0, POINT_NUM);
+      System.arraycopy(anotherM4.values, 0, values, 0, POINT_NUM);
+      return;
+    }
+    if (anotherM4.times[FIRST] < times[FIRST]) {
+      setPoint(FIRST, anotherM4.times[FIRST], anotherM4.values[FIRST]);
+    }
+    if (anotherM4.times[LAST] > times[LAST]) {
+      setPoint(LAST, anotherM4.times[LAST], anotherM4.values[LAST]);
+    }
+    if (isBetterBottom(anotherM4.times[BOTTOM], anotherM4.values[BOTTOM])) {
+      setPoint(BOTTOM, anotherM4.times[BOTTOM], anotherM4.values[BOTTOM]);
+    }
+    if (isBetterTop(anotherM4.times[TOP], anotherM4.values[TOP])) {
+      setPoint(TOP, anotherM4.times[TOP], anotherM4.values[TOP]);
+    }
+  }
+
+  @Override
+  public void serializeTo(OutputStream outputStream) throws IOException {
+    // the text of the result is only built when it is fetched
+    getResult();
+    super.serializeTo(outputStream);
+  }
+
+  @Override
+  protected void deserializeSpecificFields(ByteBuffer buffer) {
+    this.seriesDataType = TSDataType.deserialize(buffer.getShort());
+    for (int i = 0; i < POINT_NUM; i++) {
+      times[i] = buffer.getLong();
+      values[i] = ReadWriteIOUtils.readObject(buffer);
+    }
+  }
+
+  @Override
+  protected void serializeSpecificFields(OutputStream outputStream) throws IOException {
+    ReadWriteIOUtils.write(seriesDataType, outputStream);
+    DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+    for (int i = 0; i < POINT_NUM; i++) {
+      dataOutputStream.writeLong(times[i]);
+      ReadWriteIOUtils.writeObject(values[i], dataOutputStream);
+    }
+    dataOutputStream.flush();
+  }
+
+  @Override
+  public void reset() {
+    super.reset();
+    for (int i = 0; i < POINT_NUM; i++) {
+      times[i] = 0;
+      values[i] = null;
+    }
+  }
+
+  private void updatePoint(long time, Object value) {
+    if (!hasResult()) {
+      for (int i = 0; i < POINT_NUM; i++) {
+        setPoint(i, time, value);
+      }
+      return;
+    }
+    if (time < times[FIRST]) {
+      setPoint(FIRST, time, value);
+    }
+    if (time > times[LAST]) {
+      setPoint(LAST, time, value);
+    }
+    if (isBetterBottom(time, value)) {
+      setPoint(BOTTOM, time, value);
+    }
+    if (isBetterTop(time, value)) {
+      setPoint(TOP, time, value);
+    }
+  }
+
+  private void setPoint(int index, long time, Object value) {
+    times[index] = time;
+    values[index] = value;
+  }
+
+  /**
+   * @return true if the value is less than the bottom value, or equal to it and the time is
+   * earlier, where time is the earliest time the value may occur at
+   */
+  @SuppressWarnings("unchecked")
+  private boolean isBetterBottom(long time, Object value) {
+    int cmp = ((Comparable<Object>) value).compareTo(values[BOTTOM]);
+    return cmp < 0 || (cmp == 0 && time < times[BOTTOM]);
+  }
+
+  /**
+   * @return true if the value is greater than the top value, or equal to it and the time is
+   * earlier, where time is the earliest time the value may occur at
+   */
+  @SuppressWarnings("unchecked")
+  private boolean isBetterTop(long time, Object value) {
+    int cmp = ((Comparable<Object>) value).compareTo(values[TOP]);
+    return cmp > 0 || (cmp == 0 && time < times[TOP]);
+  }
+
+  private void checkDataType(TSDataType dataType) {
+    if (dataType == TSDataType.BOOLEAN || dataType == TSDataType.TEXT) {
+      throw new StatisticsClassException(
+          String.format("%s statistics does not support: m4", dataType));
+    }
+  }
+
+  private void checkPageDataType() throws IOException {
+    if (seriesDataType == TSDataType.BOOLEAN || seriesDataType == TSDataType.TEXT) {
+      throw new IOException(
+          String.format("Unsupported data type in aggregation M4 : %s", seriesDataType));
+    }
+  }
+}
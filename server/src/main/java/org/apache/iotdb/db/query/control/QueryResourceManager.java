@@ -22,9 +22,12 @@ import java.io.File;
 import java.io.IOException;
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -130,6 +133,44 @@ public class QueryResourceManager {
     return queryDataSource;
   }
 
+  /**
+   * get the QueryDataSources of several series with the same filter. The series are grouped by
+   * their devices, so that the files of a device are filtered and its unsealed files are snapshot
+   * once for all of its measurements in the query.
+   *
+   * @return the QueryDataSource of each series, in the order of selectedPaths
+   */
+  public List<QueryDataSource> getQueryDataSources(List<PartialPath> selectedPaths,
+      QueryContext context, Filter filter) throws StorageEngineException, QueryProcessException {
+    Map<PartialPath, List<Integer>> deviceToPathIndexes = new LinkedHashMap<>();
+    for (int i = 0; i < selectedPaths.size(); i++) {
+      deviceToPathIndexes.computeIfAbsent(selectedPaths.get(i).getDevicePath(),
+          k -> new ArrayList<>()).add(i);
+    }
+
+    QueryDataSource[] queryDataSources = new QueryDataSource[selectedPaths.size()];
+    for (Entry<PartialPath, List<Integer>> entry : deviceToPathIndexes.entrySet()) {
+      List<String> measurementIds = new ArrayList<>(entry.getValue().size());
+      for (int index : entry.getValue()) {
+        measurementIds.add(selectedPaths.get(index).getMeasurement());
+      }
+      List<QueryDataSource> deviceDataSources = StorageEngine.getInstance()
+          .query(entry.getKey(), measurementIds, filter, context, filePathsManager);
+      for (int i = 0; i < deviceDataSources.size(); i++) {
+        QueryDataSource queryDataSource = deviceDataSources.get(i);
+        // calculate the distinct number of seq and unseq tsfiles
+        if (config.isEnablePerformanceTracing()) {
+          seqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+              .addAll((queryDataSource.getSeqResources()));
+          unseqFileNumMap.computeIfAbsent(context.getQueryId(), k -> new HashSet<>())
+              .addAll((queryDataSource.getUnseqResources()));
+        }
+        queryDataSources[entry.getValue().get(i)] = queryDataSource;
+      }
+    }
+    return Arrays.asList(queryDataSources);
+  }
+
   /**
    * Whenever the jdbc request is closed normally or abnormally, this method must be invoked. All
    * query tokens created by this jdbc request must be cleared.
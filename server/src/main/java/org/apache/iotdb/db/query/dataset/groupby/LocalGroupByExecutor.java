@@ -167,6 +167,22 @@ public class LocalGroupByExecutor implements GroupByExecutor {
     }
   }
 
+  /**
+   * @return true if the statistics are totally in the current interval and can be used by all the
+   * aggregations, e.g. m4 has to read the data if the extremes may be changed by it
+   */
+  private boolean canUseStatistics(Statistics statistics) {
+    if (!timeRange.contains(statistics.getStartTime(), statistics.getEndTime())) {
+      return false;
+    }
+    for (AggregateResult result : results) {
+      if (!result.isCalculatedAggregationResult() && !result.canUpdateFromStatistics(statistics)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   @Override
   public List<AggregateResult> calcResult(long curStartTime, long curEndTime)
       throws IOException, QueryProcessException {
@@ -198,8 +214,7 @@ public class LocalGroupByExecutor implements GroupByExecutor {
         return results;
       }
       // calc from fileMetaData
-      if (reader.canUseCurrentFileStatistics()
-          && timeRange.contains(fileStatistics.getStartTime(), fileStatistics.getEndTime())) {
+      if (reader.canUseCurrentFileStatistics() && canUseStatistics(fileStatistics)) {
         calcFromStatistics(fileStatistics);
         reader.skipCurrentFile();
         continue;
@@ -256,8 +271,7 @@ public class LocalGroupByExecutor implements GroupByExecutor {
         }
       }
       // calc from chunkMetaData
-      if (reader.canUseCurrentChunkStatistics()
-          && timeRange.contains(chunkStatistics.getStartTime(), chunkStatistics.getEndTime())) {
+      if (reader.canUseCurrentChunkStatistics() && canUseStatistics(chunkStatistics)) {
         calcFromStatistics(chunkStatistics);
         reader.skipCurrentChunk();
         continue;
@@ -286,8 +300,7 @@ public class LocalGroupByExecutor implements GroupByExecutor {
           }
         }
         // can use pageHeader
-        if (reader.canUseCurrentPageStatistics()
-            && timeRange.contains(pageStatistics.getStartTime(), pageStatistics.getEndTime())) {
+        if (reader.canUseCurrentPageStatistics() && canUseStatistics(pageStatistics)) {
           calcFromStatistics(pageStatistics);
           reader.skipCurrentPage();
           if (isEndCalc()) {
@@ -95,11 +95,15 @@ public class AggregationExecutor {
 
     // TODO use multi-thread
     Map<PartialPath, List<Integer>> pathToAggrIndexesMap = groupAggregationsBySeries(selectedSeries);
+    // the series of the same device share one resolution of their data sources
+    List<QueryDataSource> queryDataSources = QueryResourceManager.getInstance()
+        .getQueryDataSources(new ArrayList<>(pathToAggrIndexesMap.keySet()), context, timeFilter);
     AggregateResult[] aggregateResultList = new AggregateResult[selectedSeries.size()];
+    int seriesIndex = 0;
     for (Map.Entry<PartialPath, List<Integer>> entry : pathToAggrIndexesMap.entrySet()) {
       List<AggregateResult> aggregateResults = aggregateOneSeries(entry,
           aggregationPlan.getAllMeasurementsInDevice(entry.getKey().getDevice()), timeFilter,
-          context, aggregationPlan.isAscending());
+          context, queryDataSources.get(seriesIndex++), aggregationPlan.isAscending());
       int index = 0;
       for (int i : entry.getValue()) {
         aggregateResultList[i] = aggregateResults.get(index);
@@ -116,12 +120,13 @@ public class AggregationExecutor {
    * @param pathToAggrIndexes entry of path to aggregation indexes map
    * @param timeFilter        time filter
    * @param context           query context
+   * @param queryDataSource   data source of the series
    * @return AggregateResult list
    */
   protected List<AggregateResult> aggregateOneSeries(
       Map.Entry<PartialPath, List<Integer>> pathToAggrIndexes,
       Set<String> measurements,
-      Filter timeFilter, QueryContext context, boolean ascending)
+      Filter timeFilter, QueryContext context, QueryDataSource queryDataSource, boolean ascending)
       throws IOException, QueryProcessException, StorageEngineException {
     List<AggregateResult> aggregateResultList = new ArrayList<>();
 
@@ -134,8 +139,8 @@ public class AggregationExecutor {
           .getAggrResultByName(aggregations.get(i), tsDataType);
       aggregateResultList.add(aggregateResult);
     }
-    aggregateOneSeries(seriesPath, measurements, context, timeFilter, tsDataType,
-        aggregateResultList, null, ascending);
+    aggregateOneSeries(seriesPath, measurements, context, queryDataSource, timeFilter,
+        tsDataType, aggregateResultList, null, ascending);
     return aggregateResultList;
   }
 
@@ -149,6 +154,15 @@ public class AggregationExecutor {
     // construct series reader without value filter
     QueryDataSource queryDataSource = QueryResourceManager.getInstance()
         .getQueryDataSource(seriesPath, context, timeFilter);
+    aggregateOneSeries(seriesPath, measurements, context, queryDataSource, timeFilter, tsDataType,
+        aggregateResultList, fileFilter, ascending);
+  }
+
+  @SuppressWarnings("squid:S107")
+  private static void aggregateOneSeries(PartialPath seriesPath, Set<String> measurements,
+      QueryContext context, QueryDataSource queryDataSource, Filter timeFilter,
+      TSDataType tsDataType, List<AggregateResult> aggregateResultList, TsFileFilter fileFilter,
+      boolean ascending) throws IOException, QueryProcessException {
     if (fileFilter != null) {
       QueryUtils.filterQueryDataSource(queryDataSource, fileFilter);
     }
@@ -168,7 +182,8 @@ public class AggregationExecutor {
 
     while (seriesReader.hasNextFile()) {
       // cal by file statistics
-      if (seriesReader.canUseCurrentFileStatistics()) {
+      if (seriesReader.canUseCurrentFileStatistics() && canUseStatistics(aggregateResultList,
+          isCalculatedArray, seriesReader.currentFileStatistics())) {
         Statistics fileStatistics = seriesReader.currentFileStatistics();
         remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
             remainingToCalculate, fileStatistics);
@@ -181,7 +196,8 @@ public class AggregationExecutor {
 
       while (seriesReader.hasNextChunk()) {
         // cal by chunk statistics
-        if (seriesReader.canUseCurrentChunkStatistics()) {
+        if (seriesReader.canUseCurrentChunkStatistics() && canUseStatistics(aggregateResultList,
+            isCalculatedArray, seriesReader.currentChunkStatistics())) {
           Statistics chunkStatistics = seriesReader.currentChunkStatistics();
           remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
               remainingToCalculate, chunkStatistics);
@@ -202,6 +218,20 @@ public class AggregationExecutor {
 
   }
 
+  /**
+   * @return true if all the results not calculated yet can be updated from the statistics
+   */
+  private static boolean canUseStatistics(List<AggregateResult> aggregateResultList,
+      boolean[] isCalculatedArray, Statistics statistics) {
+    for (int i = 0; i < aggregateResultList.size(); i++) {
+      if (!isCalculatedArray[i]
+          && !aggregateResultList.get(i).canUpdateFromStatistics(statistics)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
   /**
    * Aggregate each result in the list with the statistics
    *
@@ -239,7 +269,8 @@ public class AggregationExecutor {
       throws IOException, QueryProcessException {
     while (seriesReader.hasNextPage()) {
       //cal by page statistics
-      if (seriesReader.canUseCurrentPageStatistics()) {
+      if (seriesReader.canUseCurrentPageStatistics() && canUseStatistics(aggregateResultList,
+          isCalculatedArray, seriesReader.currentPageStatistics())) {
         Statistics pageStatistic = seriesReader.currentPageStatistics();
         remainingToCalculate = aggregateStatistics(aggregateResultList, isCalculatedArray,
             remainingToCalculate, pageStatistic);
@@ -24,8 +24,11 @@ import static org.apache.iotdb.db.conf.IoTDBConstant.COLUMN_TIMESERIES;
 import static org.apache.iotdb.db.conf.IoTDBConstant.COLUMN_VALUE;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.engine.querycontext.QueryDataSource;
@@ -34,8 +37,10 @@ import org.apache.iotdb.db.exception.StorageEngineException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.metadata.mnode.MNode;
 import org.apache.iotdb.db.metadata.mnode.MeasurementMNode;
 import org.apache.iotdb.db.qp.physical.crud.LastQueryPlan;
+import org.apache.iotdb.db.qp.physical.crud.RawDataQueryPlan;
 import org.apache.iotdb.db.query.context.QueryContext;
 import org.apache.iotdb.db.query.control.QueryResourceManager;
 import org.apache.iotdb.db.query.dataset.ListDataSet;
@@ -81,12 +86,10 @@ public class LastQueryExecutor {
         Arrays.asList(new PartialPath(COLUMN_TIMESERIES, false), new PartialPath(COLUMN_VALUE, false)),
         Arrays.asList(TSDataType.TEXT, TSDataType.TEXT));
 
+    List<TimeValuePair> lastPairs = calculateLastPairs(context, lastQueryPlan);
     for (int i = 0; i < selectedSeries.size(); i++) {
-      TimeValuePair lastTimeValuePair;
-      lastTimeValuePair = calculateLastPairForOneSeries(
-              selectedSeries.get(i), dataTypes.get(i), context,
-              lastQueryPlan.getAllMeasurementsInDevice(selectedSeries.get(i).getDevice()));
-      if (lastTimeValuePair.getValue() != null) {
+      TimeValuePair lastTimeValuePair = lastPairs.get(i);
+      if (lastTimeValuePair != null && lastTimeValuePair.getValue() != null) {
         RowRecord resultRecord = new RowRecord(lastTimeValuePair.getTimestamp());
         Field pathField = new Field(TSDataType.TEXT);
         if (selectedSeries.get(i).getTsAlias() != null) {
@@ -101,7 +104,10 @@ public class LastQueryExecutor {
         resultRecord.addField(pathField);
 
         Field valueField = new Field(TSDataType.TEXT);
-        valueField.setBinaryV(new Binary(lastTimeValuePair.getValue().getStringValue()));
+        TsPrimitiveType value = lastTimeValuePair.getValue();
+        // text values are already binaries
+        valueField.setBinaryV(value.getDataType() == TSDataType.TEXT ? value.getBinary()
+            : new Binary(value.getStringValue()));
         resultRecord.addField(valueField);
 
         dataSet.putRecord(resultRecord);
@@ -114,11 +120,83 @@ public class LastQueryExecutor {
     return dataSet;
   }
 
-  protected TimeValuePair calculateLastPairForOneSeries(
-      PartialPath seriesPath, TSDataType tsDataType, QueryContext context, Set<String> deviceMeasurements)
-      throws IOException, QueryProcessException, StorageEngineException {
-    return calculateLastPairForOneSeriesLocally(seriesPath, tsDataType, context,
-        deviceMeasurements);
+  /**
+   * get the last pairs of all the selected series. The measurement nodes are resolved once for each
+   * device, and the series whose last values are not cached share the data sources of their
+   * devices.
+   *
+   * @param context query context
+   * @param lastQueryPlan provides the measurements of each device in the query
+   * @return the last pair of each selected series, null if the series does not exist
+   */
+  public List<TimeValuePair> calculateLastPairs(QueryContext context,
+      RawDataQueryPlan lastQueryPlan)
+      throws StorageEngineException, IOException, QueryProcessException {
+    TimeValuePair[] lastPairs = new TimeValuePair[selectedSeries.size()];
+    MeasurementMNode[] nodes = getMeasurementNodes(selectedSeries);
+
+    List<Integer> uncachedIndexes = new ArrayList<>();
+    List<PartialPath> uncachedSeries = new ArrayList<>();
+    for (int i = 0; i < selectedSeries.size(); i++) {
+      MeasurementMNode node = nodes[i];
+      if (lastCacheEnabled) {
+        // the metadata manager may still find the last cache of a series whose node is not found
+        TimeValuePair cachedLast = node != null ? node.getCachedLast()
+            : IoTDB.metaManager.getLastCache(selectedSeries.get(i));
+        if (cachedLast != null) {
+          lastPairs[i] = cachedLast;
+          continue;
+        }
+      }
+      if (node == null && dataTypes == null) {
+        // the series does not exist, so its type is unknown
+        continue;
+      }
+      uncachedIndexes.add(i);
+      uncachedSeries.add(selectedSeries.get(i));
+    }
+
+    if (!uncachedSeries.isEmpty()) {
+      List<QueryDataSource> dataSources = QueryResourceManager.getInstance()
+          .getQueryDataSources(uncachedSeries, context, null);
+      for (int j = 0; j < uncachedIndexes.size(); j++) {
+        int i = uncachedIndexes.get(j);
+        PartialPath seriesPath = selectedSeries.get(i);
+        TSDataType dataType =
+            dataTypes != null ? dataTypes.get(i) : nodes[i].getSchema().getType();
+        lastPairs[i] = calculateLastPairByScanningTsFiles(seriesPath, dataType, context,
+            lastQueryPlan.getAllMeasurementsInDevice(seriesPath.getDevice()),
+            lastCacheEnabled ? nodes[i] : null, dataSources.get(j));
+      }
+    }
+    return Arrays.asList(lastPairs);
+  }
+
+  /**
+   * look up the measurement nodes of the series, each device node is got only once.
+   *
+   * @return the node of each series, null if the series does not exist
+   */
+  private static MeasurementMNode[] getMeasurementNodes(List<PartialPath> seriesPaths) {
+    MeasurementMNode[] nodes = new MeasurementMNode[seriesPaths.size()];
+    Map<String, MNode> deviceNodes = new HashMap<>();
+    for (int i = 0; i < seriesPaths.size(); i++) {
+      PartialPath seriesPath = seriesPaths.get(i);
+      MNode deviceNode = deviceNodes.computeIfAbsent(seriesPath.getDevice(), device -> {
+        try {
+          return IoTDB.metaManager.getDeviceNode(seriesPath.getDevicePath());
+        } catch (MetadataException e) {
+          return null;
+        }
+      });
+      if (deviceNode != null) {
+        MNode node = deviceNode.getChild(seriesPath.getMeasurement());
+        if (node instanceof MeasurementMNode) {
+          nodes[i] = (MeasurementMNode) node;
+        }
+      }
+    }
+    return nodes;
   }
 
   /**
@@ -149,15 +227,15 @@ public class LastQueryExecutor {
       }
     }
 
-    return calculateLastPairByScanningTsFiles(seriesPath, tsDataType, context, deviceMeasurements, node);
+    QueryDataSource dataSource =
+        QueryResourceManager.getInstance().getQueryDataSource(seriesPath, context, null);
+    return calculateLastPairByScanningTsFiles(seriesPath, tsDataType, context, deviceMeasurements,
+        node, dataSource);
   }
 
   private static TimeValuePair calculateLastPairByScanningTsFiles(
           PartialPath seriesPath, TSDataType tsDataType, QueryContext context, Set<String> deviceMeasurements,
-          MeasurementMNode node) throws QueryProcessException, StorageEngineException, IOException {
-
-    QueryDataSource dataSource =
-        QueryResourceManager.getInstance().getQueryDataSource(seriesPath, context, null);
+          MeasurementMNode node, QueryDataSource dataSource) throws IOException {
 
     List<TsFileResource> seqFileResources = dataSource.getSeqResources();
     List<TsFileResource> unseqFileResources = dataSource.getUnseqResources();
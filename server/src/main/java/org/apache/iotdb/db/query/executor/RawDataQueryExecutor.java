@@ -90,13 +90,15 @@ public class RawDataQueryExecutor {
       timeFilter = ((GlobalTimeExpression) queryPlan.getExpression()).getFilter();
     }
 
+    // the series of the same device share one resolution of their data sources
+    List<QueryDataSource> queryDataSources = QueryResourceManager.getInstance()
+        .getQueryDataSources(queryPlan.getDeduplicatedPaths(), context, timeFilter);
     List<ManagedSeriesReader> readersOfSelectedSeries = new ArrayList<>();
     for (int i = 0; i < queryPlan.getDeduplicatedPaths().size(); i++) {
       PartialPath path = queryPlan.getDeduplicatedPaths().get(i);
       TSDataType dataType = queryPlan.getDeduplicatedDataTypes().get(i);
 
-      QueryDataSource queryDataSource = QueryResourceManager.getInstance()
-          .getQueryDataSource(path, context, timeFilter);
+      QueryDataSource queryDataSource = queryDataSources.get(i);
       timeFilter = queryDataSource.updateFilterUsingTTL(timeFilter);
 
       ManagedSeriesReader reader = new SeriesRawDataBatchReader(path,
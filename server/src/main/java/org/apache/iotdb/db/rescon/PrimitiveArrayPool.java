@@ -18,34 +18,60 @@
  */
 package org.apache.iotdb.db.rescon;
 
-import java.util.ArrayDeque;
 import java.util.Arrays;
 import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.RamUsageEstimator;
 
 /**
  * Manage all primitive data list in memory, including get and release operation.
+ * <p>
+ * Each thread caches the released arrays of each data type in its own magazine, so most get and
+ * release operations touch no shared state. A full magazine is handed over to the lock-free depot
+ * of its data type, and a thread whose magazine is empty takes a whole magazine from the depot, so
+ * the arrays released by the flush threads are reused by the insertion threads in batches. The
+ * magazines of a thread are guarded by their own monitor, which is only contended when the idle
+ * magazines are reclaimed under memory pressure.
  */
 public class PrimitiveArrayPool {
 
+  public static final int ARRAY_SIZE =
+      IoTDBDescriptor.getInstance().getConfig().getPrimitiveArraySize();
+
   /**
-   * data type -> Array<PrimitiveArray>
+   * how many arrays of a data type a thread caches before handing them over to the depot
    */
-  private static final EnumMap<TSDataType, ArrayDeque<Object>> primitiveArraysMap = new EnumMap<>(TSDataType.class);
+  private static final int MAGAZINE_SIZE = 64;
 
-  public static final int ARRAY_SIZE =
-      IoTDBDescriptor.getInstance().getConfig().getPrimitiveArraySize();
+  private static final int TYPE_NUM = TSDataType.values().length;
+
+  /**
+   * data type -> memory size of one primitive array
+   */
+  private static final EnumMap<TSDataType, Long> arraySizeMap = new EnumMap<>(TSDataType.class);
 
   static {
-    primitiveArraysMap.put(TSDataType.BOOLEAN, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.INT32, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.INT64, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.FLOAT, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.DOUBLE, new ArrayDeque<>());
-    primitiveArraysMap.put(TSDataType.TEXT, new ArrayDeque<>());
+    arraySizeMap.put(TSDataType.BOOLEAN, RamUsageEstimator.sizeOf(new boolean[ARRAY_SIZE]));
+    arraySizeMap.put(TSDataType.INT32, RamUsageEstimator.sizeOf(new int[ARRAY_SIZE]));
+    arraySizeMap.put(TSDataType.INT64, RamUsageEstimator.sizeOf(new long[ARRAY_SIZE]));
+    arraySizeMap.put(TSDataType.FLOAT, RamUsageEstimator.sizeOf(new float[ARRAY_SIZE]));
+    arraySizeMap.put(TSDataType.DOUBLE, RamUsageEstimator.sizeOf(new double[ARRAY_SIZE]));
+    arraySizeMap.put(TSDataType.TEXT, RamUsageEstimator.alignObjectSize(
+        RamUsageEstimator.NUM_BYTES_ARRAY_HEADER
+            + (long) RamUsageEstimator.NUM_BYTES_OBJECT_REF * ARRAY_SIZE));
+  }
+
+  /**
+   * @return the memory size of one primitive array of the data type
+   */
+  public static long getArrayMemorySize(TSDataType dataType) {
+    return arraySizeMap.get(dataType);
   }
 
   public static PrimitiveArrayPool getInstance() {
@@ -54,72 +80,223 @@ public class PrimitiveArrayPool {
 
   private static final PrimitiveArrayPool INSTANCE = new PrimitiveArrayPool();
 
+  /**
+   * data type ordinal -> magazines shared by all threads
+   */
+  private final ConcurrentLinkedQueue<Object[]>[] depots;
+
+  private final ThreadLocal<Magazines> localMagazines = ThreadLocal
+      .withInitial(this::registerMagazines);
 
-  private PrimitiveArrayPool() {}
+  /**
+   * magazines of all threads, the magazines of a dead thread are moved into the depots
+   */
+  private final ConcurrentLinkedQueue<Magazines> threadMagazines = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder createdArrayNum = new LongAdder();
+  private final LongAdder localReusedArrayNum = new LongAdder();
+  /**
+   * the number of magazines taken from the depots, the first array of each is counted here and the
+   * others are counted as locally reused when they are popped
+   */
+  private final LongAdder depotReusedMagazineNum = new LongAdder();
+  private final LongAdder discardedArrayNum = new LongAdder();
+
+  @SuppressWarnings("unchecked")
+  private PrimitiveArrayPool() {
+    depots = new ConcurrentLinkedQueue[TYPE_NUM];
+    for (int i = 0; i < TYPE_NUM; i++) {
+      depots[i] = new ConcurrentLinkedQueue<>();
+    }
+  }
+
+  private Magazines registerMagazines() {
+    reclaimMagazinesOfDeadThreads();
+    Magazines magazines = new Magazines(Thread.currentThread());
+    threadMagazines.add(magazines);
+    return magazines;
+  }
+
+  /**
+   * move the arrays cached by the dead threads into the depots, so that they are neither lost nor
+   * left in the accounting of WriteMemoryController.
+   */
+  private synchronized void reclaimMagazinesOfDeadThreads() {
+    Iterator<Magazines> iterator = threadMagazines.iterator();
+    while (iterator.hasNext()) {
+      Magazines magazines = iterator.next();
+      if (!magazines.owner.isAlive()) {
+        iterator.remove();
+        for (int type = 0; type < TYPE_NUM; type++) {
+          if (magazines.counts[type] > 0) {
+            depots[type].add(Arrays.copyOf(magazines.arrays[type], magazines.counts[type]));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * move the arrays cached by the living threads that have not got or released an array since the
+   * last call into the depots, and clear the use stamps of the others, so that a thread that stops
+   * inserting, e.g. an idle RPC thread, does not keep its arrays until it dies.
+   */
+  private void reclaimIdleMagazines() {
+    for (Magazines magazines : threadMagazines) {
+      synchronized (magazines) {
+        if (magazines.used) {
+          magazines.used = false;
+          continue;
+        }
+        for (int type = 0; type < TYPE_NUM; type++) {
+          int count = magazines.counts[type];
+          if (count > 0) {
+            depots[type].add(Arrays.copyOf(magazines.arrays[type], count));
+            Arrays.fill(magazines.arrays[type], 0, count, null);
+            magazines.counts[type] = 0;
+          }
+        }
+      }
+    }
+  }
+
+  public Object getPrimitiveDataListByType(TSDataType dataType) {
+    Object dataArray = takeCachedArray(dataType.ordinal());
+    if (dataArray != null) {
+      return dataArray;
+    }
 
-  public synchronized Object getPrimitiveDataListByType(TSDataType dataType) {
-    ArrayDeque<Object> dataListQueue = primitiveArraysMap.computeIfAbsent(dataType, k ->new ArrayDeque<>());
-    Object dataArray = dataListQueue.poll();
     switch (dataType) {
       case BOOLEAN:
-        if (dataArray == null) {
-          dataArray = new boolean[ARRAY_SIZE];
-        }
+        dataArray = new boolean[ARRAY_SIZE];
         break;
       case INT32:
-        if (dataArray == null) {
-          dataArray = new int[ARRAY_SIZE];
-        }
+        dataArray = new int[ARRAY_SIZE];
         break;
       case INT64:
-        if (dataArray == null) {
-          dataArray = new long[ARRAY_SIZE];
-        }
+        dataArray = new long[ARRAY_SIZE];
         break;
       case FLOAT:
-        if (dataArray == null) {
-          dataArray = new float[ARRAY_SIZE];
-        }
+        dataArray = new float[ARRAY_SIZE];
         break;
       case DOUBLE:
-        if (dataArray == null) {
-          dataArray = new double[ARRAY_SIZE];
-        }
+        dataArray = new double[ARRAY_SIZE];
         break;
       case TEXT:
-        if (dataArray == null) {
-          dataArray = new Binary[ARRAY_SIZE];
-        }
+        dataArray = new Binary[ARRAY_SIZE];
         break;
       default:
         throw new UnSupportedDataTypeException("DataType: " + dataType);
     }
+    createdArrayNum.increment();
+    WriteMemoryController.getInstance().allocate(arraySizeMap.get(dataType));
     return dataArray;
   }
 
+  /**
+   * @return an array from the magazine of the current thread, or from a magazine of the depot, or
+   * null if no array of the type is cached
+   */
+  private Object takeCachedArray(int type) {
+    Magazines magazines = localMagazines.get();
+    synchronized (magazines) {
+      magazines.used = true;
+      Object dataArray = magazines.pop(type);
+      if (dataArray != null) {
+        localReusedArrayNum.increment();
+        return dataArray;
+      }
+      Object[] magazine = depots[type].poll();
+      if (magazine != null) {
+        magazines.arrays[type] = magazine;
+        magazines.counts[type] = magazine.length;
+        depotReusedMagazineNum.increment();
+        return magazines.pop(type);
+      }
+    }
+    return null;
+  }
+
 
-  public synchronized void release(Object dataArray) {
+  public void release(Object dataArray) {
+    TSDataType dataType;
     if (dataArray instanceof boolean[]) {
-      primitiveArraysMap.get(TSDataType.BOOLEAN).add(dataArray);
+      dataType = TSDataType.BOOLEAN;
     } else if (dataArray instanceof int[]) {
-      primitiveArraysMap.get(TSDataType.INT32).add(dataArray);
+      dataType = TSDataType.INT32;
     } else if (dataArray instanceof long[]){
-      primitiveArraysMap.get(TSDataType.INT64).add(dataArray);
+      dataType = TSDataType.INT64;
     } else if (dataArray instanceof float[]) {
-      primitiveArraysMap.get(TSDataType.FLOAT).add(dataArray);
+      dataType = TSDataType.FLOAT;
     } else if (dataArray instanceof double[]) {
-      primitiveArraysMap.get(TSDataType.DOUBLE).add(dataArray);
+      dataType = TSDataType.DOUBLE;
     } else if (dataArray instanceof Binary[]) {
+      dataType = TSDataType.TEXT;
+    } else {
+      return;
+    }
+    // leave the array to GC when the memory for writing is insufficient
+    if (WriteMemoryController.getInstance().shouldDiscardArray()) {
+      discardedArrayNum.increment();
+      WriteMemoryController.getInstance().free(arraySizeMap.get(dataType));
+      return;
+    }
+    if (dataType == TSDataType.TEXT) {
       Arrays.fill((Binary[]) dataArray, null);
-      primitiveArraysMap.get(TSDataType.TEXT).add(dataArray);
     }
+
+    int type = dataType.ordinal();
+    Magazines magazines = localMagazines.get();
+    synchronized (magazines) {
+      magazines.used = true;
+      if (magazines.counts[type] == magazines.arrays[type].length) {
+        // hand the full magazine over to the depot and start a new one
+        depots[type].add(magazines.arrays[type]);
+        magazines.arrays[type] = new Object[MAGAZINE_SIZE];
+        magazines.counts[type] = 0;
+      }
+      magazines.arrays[type][magazines.counts[type]++] = dataArray;
+    }
+  }
+
+  /**
+   * discard the idle arrays in the depots so that their memory can be reclaimed, including the
+   * arrays cached by the threads that are dead or have not used the pool since the last call. The
+   * magazines of the threads that keep using the pool are kept.
+   */
+  public void discardIdleArrays() {
+    reclaimMagazinesOfDeadThreads();
+    reclaimIdleMagazines();
+    for (TSDataType dataType : TSDataType.values()) {
+      Object[] magazine;
+      while ((magazine = depots[dataType.ordinal()].poll()) != null) {
+        discardedArrayNum.add(magazine.length);
+        WriteMemoryController.getInstance().free(arraySizeMap.get(dataType) * magazine.length);
+      }
+    }
+  }
+
+  public long getCreatedArrayNum() {
+    return createdArrayNum.sum();
+  }
+
+  public long getLocalReusedArrayNum() {
+    return localReusedArrayNum.sum();
+  }
+
+  public long getDepotReusedMagazineNum() {
+    return depotReusedMagazineNum.sum();
+  }
+
+  public long getDiscardedArrayNum() {
+    return discardedArrayNum.sum();
   }
 
   /**
    * @param size needed capacity
    * @return an array of primitive data arrays
    */
-  public synchronized Object getDataListsByType(TSDataType dataType, int size) {
+  public Object getDataListsByType(TSDataType dataType, int size) {
     int arrayNumber = (int) Math.ceil((float) size / (float)ARRAY_SIZE);
     switch (dataType) {
       case BOOLEAN:
@@ -163,4 +340,31 @@ public class PrimitiveArrayPool {
     }
   }
 
+  /**
+   * the magazines of one thread, accessed by the owner thread while it is alive and by the thread
+   * reclaiming the idle magazines, both holding the monitor of the magazines
+   */
+  private static class Magazines {
+
+    private final Thread owner;
+    private final Object[][] arrays = new Object[TYPE_NUM][MAGAZINE_SIZE];
+    private final int[] counts = new int[TYPE_NUM];
+    /**
+     * whether the owner has got or released an array since the idle magazines were last reclaimed
+     */
+    private boolean used = true;
+
+    private Magazines(Thread owner) {
+      this.owner = owner;
+    }
+
+    private Object pop(int type) {
+      if (counts[type] == 0) {
+        return null;
+      }
+      Object dataArray = arrays[type][--counts[type]];
+      arrays[type][counts[type]] = null;
+      return dataArray;
+    }
+  }
 }
@@ -88,6 +88,31 @@ public class TVListAllocator implements TVListAllocatorMBean, IService {
     return number;
   }
 
+  @Override
+  public long getCreatedPrimitiveArrayNum() {
+    return PrimitiveArrayPool.getInstance().getCreatedArrayNum();
+  }
+
+  @Override
+  public long getLocalReusedPrimitiveArrayNum() {
+    return PrimitiveArrayPool.getInstance().getLocalReusedArrayNum();
+  }
+
+  @Override
+  public long getDepotReusedMagazineNum() {
+    return PrimitiveArrayPool.getInstance().getDepotReusedMagazineNum();
+  }
+
+  @Override
+  public long getDiscardedPrimitiveArrayNum() {
+    return PrimitiveArrayPool.getInstance().getDiscardedArrayNum();
+  }
+
+  @Override
+  public long getPrimitiveArrayMemory() {
+    return WriteMemoryController.getInstance().getArrayMemory();
+  }
+
   @Override
   public void start() throws StartupException {
     try {
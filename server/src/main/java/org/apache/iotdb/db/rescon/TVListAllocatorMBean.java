@@ -22,4 +22,14 @@ public interface TVListAllocatorMBean {
 
   int getNumberOfTVLists();
 
+  long getCreatedPrimitiveArrayNum();
+
+  long getLocalReusedPrimitiveArrayNum();
+
+  long getDepotReusedMagazineNum();
+
+  long getDiscardedPrimitiveArrayNum();
+
+  long getPrimitiveArrayMemory();
+
 }
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.iotdb.db.concurrent.IoTDBThreadPoolFactory;
+import org.apache.iotdb.db.concurrent.ThreadName;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.storagegroup.StorageGroupProcessor;
+import org.apache.iotdb.db.engine.storagegroup.TsFileProcessor;
+import org.apache.iotdb.db.exception.WriteProcessRejectException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * WriteMemoryController tracks the memory of the primitive arrays created by {@link
+ * PrimitiveArrayPool}, which are either held by the TVLists of memtables or idle in the pool. When
+ * the memory exceeds the flush threshold, the largest working memtables of all storage groups are
+ * flushed in a background thread and the released arrays are discarded instead of being pooled.
+ * When it exceeds the reject threshold, insertions are blocked until enough memory is released or
+ * the max wait time is reached, and then rejected.
+ */
+public class WriteMemoryController {
+
+  private static final Logger logger = LoggerFactory.getLogger(WriteMemoryController.class);
+  private static final IoTDBConfig CONFIG = IoTDBDescriptor.getInstance().getConfig();
+  private static final long CHECK_INTERVAL_MS = 50;
+
+  private final AtomicLong arrayMemory = new AtomicLong();
+  private final AtomicInteger blockedWriterNum = new AtomicInteger();
+  private final AtomicBoolean flushSubmitted = new AtomicBoolean();
+  private ExecutorService flushTrigger;
+
+  private WriteMemoryController() {
+  }
+
+  public static WriteMemoryController getInstance() {
+    return InstanceHolder.INSTANCE;
+  }
+
+  private long getFlushThreshold() {
+    return (long) (CONFIG.getAllocateMemoryForWrite() * CONFIG.getWriteMemoryFlushProportion());
+  }
+
+  private long getRejectThreshold() {
+    return (long) (CONFIG.getAllocateMemoryForWrite() * CONFIG.getWriteMemoryRejectProportion());
+  }
+
+  /**
+   * called when a new primitive array is created.
+   */
+  void allocate(long size) {
+    long memory = arrayMemory.addAndGet(size);
+    if (CONFIG.isEnableWriteMemoryControl() && memory >= getFlushThreshold()) {
+      triggerFlush();
+    }
+  }
+
+  /**
+   * called when a primitive array is discarded.
+   */
+  void free(long size) {
+    long memory = arrayMemory.addAndGet(-size);
+    if (blockedWriterNum.get() > 0 && memory < getRejectThreshold()) {
+      synchronized (this) {
+        notifyAll();
+      }
+    }
+  }
+
+  /**
+   * @return true if a released primitive array should be discarded rather than pooled, so that
+   * the memory can be reclaimed
+   */
+  boolean shouldDiscardArray() {
+    return CONFIG.isEnableWriteMemoryControl() && arrayMemory.get() >= getFlushThreshold();
+  }
+
+  public long getArrayMemory() {
+    return arrayMemory.get();
+  }
+
+  /**
+   * Block the insertion while the memory exceeds the reject threshold.
+   *
+   * @throws WriteProcessRejectException if the memory is not released in the max wait time
+   */
+  public void checkBeforeWrite() throws WriteProcessRejectException {
+    if (!CONFIG.isEnableWriteMemoryControl() || arrayMemory.get() < getRejectThreshold()) {
+      return;
+    }
+    triggerFlush();
+    long startTime = System.currentTimeMillis();
+    blockedWriterNum.incrementAndGet();
+    try {
+      synchronized (this) {
+        while (arrayMemory.get() >= getRejectThreshold()) {
+          long waitedTime = System.currentTimeMillis() - startTime;
+          if (waitedTime >= CONFIG.getMaxWriteMemoryWaitTimeInMs()) {
+            throw new WriteProcessRejectException(String.format(
+                "The memory for writing %d exceeds the reject threshold %d after waiting for %dms",
+                arrayMemory.get(), getRejectThreshold(), waitedTime));
+          }
+          wait(CHECK_INTERVAL_MS);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new WriteProcessRejectException("Interrupted when waiting for the memory for writing");
+    } finally {
+      blockedWriterNum.decrementAndGet();
+    }
+  }
+
+  private void triggerFlush() {
+    if (!flushSubmitted.compareAndSet(false, true)) {
+      return;
+    }
+    synchronized (this) {
+      if (flushTrigger == null) {
+        flushTrigger = IoTDBThreadPoolFactory
+            .newSingleThreadExecutor(ThreadName.FLUSH_PARTIAL_POLICY.getName());
+      }
+    }
+    flushTrigger.submit(() -> {
+      try {
+        flushLargestMemTables();
+      } catch (Exception e) {
+        logger.error("Cannot flush memtables to release the memory for writing", e);
+      } finally {
+        flushSubmitted.set(false);
+      }
+    });
+  }
+
+  /**
+   * Flush the working memtables holding the most primitive arrays until the array memory they
+   * hold, together with that of the memtables being flushed, brings the memory under the flush
+   * threshold. The array memory rather than the estimated record size is compared, as it is what
+   * the flushes release and what the threshold applies to.
+   */
+  private void flushLargestMemTables() {
+    // the idle arrays are the cheapest to release
+    PrimitiveArrayPool.getInstance().discardIdleArrays();
+
+    List<FlushCandidate> candidates = new ArrayList<>();
+    long flushingMemory = 0;
+    for (StorageGroupProcessor storageGroupProcessor : StorageEngine.getInstance()
+        .getProcessors()) {
+      // to avoid concurrent modification problem, we need a new array list
+      List<TsFileProcessor> tsFileProcessors;
+      storageGroupProcessor.writeLock();
+      try {
+        tsFileProcessors = new ArrayList<>(storageGroupProcessor.getWorkSequenceTsFileProcessors());
+        tsFileProcessors.addAll(storageGroupProcessor.getWorkUnsequenceTsFileProcessor());
+      } finally {
+        storageGroupProcessor.writeUnlock();
+      }
+      for (TsFileProcessor tsFileProcessor : tsFileProcessors) {
+        flushingMemory += tsFileProcessor.getFlushingMemTableArrayMemory();
+        long workMemTableArrayMemory = tsFileProcessor.getWorkMemTableArrayMemory();
+        if (workMemTableArrayMemory > 0) {
+          candidates.add(
+              new FlushCandidate(storageGroupProcessor, tsFileProcessor, workMemTableArrayMemory));
+        }
+      }
+    }
+
+    long toRelease = arrayMemory.get() - flushingMemory - getFlushThreshold();
+    if (toRelease <= 0) {
+      return;
+    }
+    candidates.sort((c1, c2) -> Long.compare(c2.arrayMemory, c1.arrayMemory));
+    for (FlushCandidate candidate : candidates) {
+      if (toRelease <= 0) {
+        break;
+      }
+      logger.info("The memory for writing {} exceeds the flush threshold {}, flush the memtable "
+              + "of {} holding arrays of {}", arrayMemory.get(), getFlushThreshold(),
+          candidate.tsFileProcessor.getTsFileResource().getTsFile().getAbsolutePath(),
+          candidate.arrayMemory);
+      candidate.storageGroupProcessor.asyncFlushMemTable(candidate.tsFileProcessor);
+      toRelease -= candidate.arrayMemory;
+    }
+  }
+
+  private static class FlushCandidate {
+
+    private final StorageGroupProcessor storageGroupProcessor;
+    private final TsFileProcessor tsFileProcessor;
+    private final long arrayMemory;
+
+    private FlushCandidate(StorageGroupProcessor storageGroupProcessor,
+        TsFileProcessor tsFileProcessor, long arrayMemory) {
+      this.storageGroupProcessor = storageGroupProcessor;
+      this.tsFileProcessor = tsFileProcessor;
+      this.arrayMemory = arrayMemory;
+    }
+  }
+
+  private static class InstanceHolder {
+
+    private static final WriteMemoryController INSTANCE = new WriteMemoryController();
+
+    private InstanceHolder() {
+    }
+  }
+}
@@ -31,6 +31,7 @@ import org.apache.iotdb.db.cost.statistic.Operation;
 import org.apache.iotdb.db.exception.BatchInsertionException;
 import org.apache.iotdb.db.exception.QueryInBatchStatementException;
 import org.apache.iotdb.db.exception.StorageEngineException;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.metadata.MetadataException;
 import org.apache.iotdb.db.exception.metadata.StorageGroupNotSetException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
@@ -58,6 +59,7 @@ import org.apache.iotdb.db.query.control.TracingManager;
 import org.apache.iotdb.db.query.dataset.AlignByDeviceDataSet;
 import org.apache.iotdb.db.query.dataset.NonAlignEngineDataSet;
 import org.apache.iotdb.db.query.dataset.RawQueryDataSetWithoutValueFilter;
+import org.apache.iotdb.db.query.executor.LastQueryExecutor;
 import org.apache.iotdb.db.tools.watermark.GroupedLSBWatermarkEncoder;
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
 import org.apache.iotdb.db.utils.FilePathUtils;
@@ -87,6 +89,8 @@ import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertStringRecordsReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataQueryReq;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataResp;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
@@ -100,6 +104,7 @@ import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.Path;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.thrift.TException;
@@ -580,6 +585,65 @@ public class TSServiceImpl implements TSIService.Iface, ServerContext {
     }
   }
 
+  /**
+   * get the last values of a batch of series in one request. Unlike the SQL last query, the
+   * values are returned as typed columns instead of a text result set, and no result set is
+   * cached in the server.
+   */
+  @Override
+  public TSLastDataResp executeLastDataQuery(TSLastDataQueryReq req) {
+    long startTime = System.currentTimeMillis();
+    long queryId = -1;
+    try {
+      if (!checkLogin(req.getSessionId())) {
+        logger.info(INFO_NOT_LOGIN, IoTDBConstant.GLOBAL_DB_NAME);
+        return new TSLastDataResp(RpcUtils.getStatus(TSStatusCode.NOT_LOGIN_ERROR));
+      }
+
+      List<PartialPath> paths = new ArrayList<>(req.getPathsSize());
+      for (String path : req.getPaths()) {
+        paths.add(new PartialPath(path));
+      }
+      LastQueryPlan plan = new LastQueryPlan();
+      plan.setPaths(paths);
+      plan.setDeduplicatedPaths(paths);
+      TSStatus status = checkAuthority(plan, req.getSessionId());
+      if (status != null) {
+        return new TSLastDataResp(status);
+      }
+
+      queryId = generateQueryId(true);
+      // register the query so its resources are released if the session closes meanwhile
+      statementId2QueryId.computeIfAbsent(req.getStatementId(), k -> new HashSet<>())
+          .add(queryId);
+      // the data types are taken from the measurement nodes resolved by the executor
+      List<TimeValuePair> lastPairs = new LastQueryExecutor(paths, null)
+          .calculateLastPairs(genQueryContext(queryId), plan);
+      TSLastDataResp resp = new TSLastDataResp(RpcUtils.getStatus(TSStatusCode.SUCCESS_STATUS));
+      resp.setLastDataSet(QueryDataSetUtils.convertLastPairs(lastPairs));
+      return resp;
+    } catch (IllegalPathException e) {
+      return new TSLastDataResp(RpcUtils.getStatus(TSStatusCode.PATH_ILLEGAL, e.getMessage()));
+    } catch (Exception e) {
+      logger.error(SERVER_INTERNAL_ERROR, IoTDBConstant.GLOBAL_DB_NAME, e);
+      return new TSLastDataResp(
+          RpcUtils.getStatus(TSStatusCode.INTERNAL_SERVER_ERROR, e.getMessage()));
+    } finally {
+      if (queryId != -1) {
+        Set<Long> queryIds = statementId2QueryId.get(req.getStatementId());
+        if (queryIds != null) {
+          queryIds.remove(queryId);
+        }
+        try {
+          releaseQueryResource(queryId);
+        } catch (StorageEngineException e) {
+          logger.error("Error happened while releasing query resource: ", e);
+        }
+      }
+      Measurement.INSTANCE.addOperationLatency(Operation.EXECUTE_QUERY, startTime);
+    }
+  }
+
   /**
    * @param plan must be a plan for Query: FillQueryPlan, AggregationPlan, GroupByTimePlan, some
    *             AuthorPlan
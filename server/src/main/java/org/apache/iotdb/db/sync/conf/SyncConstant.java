@@ -35,11 +35,21 @@ public class SyncConstant {
 
   public static final String SYNC_DIR_NAME_SEPARATOR = "_";
 
+  /**
+   * Separator between the sender name and the id of a stream of the sender
+   */
+  public static final String SYNC_STREAM_SEPARATOR = "-";
+
   /**
    * Split data file, block size at each transmission
    **/
   public static final int DATA_CHUNK_SIZE = 64 * 1024 * 1024;
 
+  /**
+   * Buffer size to read the segments of a tsfile
+   **/
+  public static final int SEGMENT_READ_BUFFER_SIZE = 1024 * 1024;
+
   // sender section
 
   public static final String LOCK_FILE_NAME = "sync_lock";
@@ -76,6 +86,16 @@ public class SyncConstant {
 
   public static final String DEVICE_OWNER_TMP_FILE_NAME = "device_owner.tmp";
 
+  /**
+   * Folder of the hard links of deleted tsfiles, whose chunks may be reused in the same sync task
+   */
+  public static final String RECEIVER_DELETED_FOLDER_NAME = "deleted";
+
+  /**
+   * The maximum number of chunk digests the receiver keeps for each sender
+   */
+  public static final int CHUNK_INDEX_CAPACITY = 1000000;
+
   public static final int SUCCESS_CODE = 1;
 
   public static final int ERROR_CODE = -1;
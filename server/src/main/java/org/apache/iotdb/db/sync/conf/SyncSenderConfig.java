@@ -41,6 +41,22 @@ public class SyncSenderConfig {
    */
   private int maxNumOfSyncFileRetry = 5;
 
+  /**
+   * The number of connections to transfer data to the receiver concurrently. Each storage group is
+   * transferred through one of them.
+   */
+  private int syncStreamNum = 1;
+
+  /**
+   * The number of pieces of a file sent before waiting for the acknowledgement of the receiver.
+   */
+  private int pipelineWindowSize = 1;
+
+  /**
+   * Whether to compress the pieces of files by LZ4 when they are transferred.
+   */
+  private boolean lz4CompressionEnable = false;
+
   /**
    * Storage groups which participate in sync process
    */
@@ -127,4 +143,28 @@ public class SyncSenderConfig {
   public void setMaxNumOfSyncFileRetry(int maxNumOfSyncFileRetry) {
     this.maxNumOfSyncFileRetry = maxNumOfSyncFileRetry;
   }
+
+  public int getSyncStreamNum() {
+    return syncStreamNum;
+  }
+
+  public void setSyncStreamNum(int syncStreamNum) {
+    this.syncStreamNum = syncStreamNum;
+  }
+
+  public int getPipelineWindowSize() {
+    return pipelineWindowSize;
+  }
+
+  public void setPipelineWindowSize(int pipelineWindowSize) {
+    this.pipelineWindowSize = pipelineWindowSize;
+  }
+
+  public boolean isLz4CompressionEnable() {
+    return lz4CompressionEnable;
+  }
+
+  public void setLz4CompressionEnable(boolean lz4CompressionEnable) {
+    this.lz4CompressionEnable = lz4CompressionEnable;
+  }
 }
@@ -101,6 +101,14 @@ public class SyncSenderDescriptor {
       conf.setMaxNumOfSyncFileRetry(Integer
           .parseInt(properties.getProperty("max_number_of_sync_file_retry",
               Integer.toString(conf.getMaxNumOfSyncFileRetry()))));
+      conf.setSyncStreamNum(Math.max(1, Integer.parseInt(properties
+          .getProperty("sync_stream_num", Integer.toString(conf.getSyncStreamNum())))));
+      conf.setPipelineWindowSize(Math.max(1, Integer.parseInt(properties
+          .getProperty("sync_pipeline_window_size",
+              Integer.toString(conf.getPipelineWindowSize())))));
+      conf.setLz4CompressionEnable(Boolean.parseBoolean(properties
+          .getProperty("sync_lz4_compression_enable",
+              Boolean.toString(conf.isLz4CompressionEnable()))));
     } catch (IOException e) {
       logger.warn("Cannot load sync config file, use default sync configuration.", e);
     } catch (Exception e) {
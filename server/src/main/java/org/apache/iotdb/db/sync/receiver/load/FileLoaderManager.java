@@ -95,6 +95,11 @@ public class FileLoaderManager {
       throws SyncDeviceOwnerConflictException, IOException {
     String curOwner = tsFileResource.getTsFile().getParentFile().getParentFile().getParentFile()
         .getName();
+    // the devices belong to the sender rather than a stream of it
+    int streamSeparatorIndex = curOwner.indexOf(SyncConstant.SYNC_STREAM_SEPARATOR);
+    if (streamSeparatorIndex >= 0) {
+      curOwner = curOwner.substring(0, streamSeparatorIndex);
+    }
     Set<String> deviceSet = tsFileResource.getDeviceToIndexMap().keySet();
     checkDeviceConflict(curOwner, deviceSet);
     updateDeviceOwner(curOwner, deviceSet);
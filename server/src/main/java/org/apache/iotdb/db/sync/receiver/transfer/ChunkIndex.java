@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.receiver.transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * ChunkIndex records where the chunks received from each sender are, by the MD5 of the chunks, so
+ * that a chunk which is already on the receiver, e.g. one copied unchanged into a new file by a
+ * merge of the sender, is not transferred again.
+ * <p>
+ * A received tsfile is moved into the storage group when it is loaded, and is deleted when the
+ * sender deletes it or the receiver merges it, so the index follows the loaded files and every
+ * chunk is checked against its digest before it is reused. The index is kept in memory only, and
+ * the chunks received before the receiver restarts are transferred again.
+ */
+public class ChunkIndex {
+
+  private static final Logger logger = LoggerFactory.getLogger(ChunkIndex.class);
+
+  /**
+   * sender name -> index of the sender
+   */
+  private final Map<String, SenderIndex> senderIndexes = new HashMap<>();
+
+  private ChunkIndex() {
+  }
+
+  public static ChunkIndex getInstance() {
+    return ChunkIndexHolder.INSTANCE;
+  }
+
+  /**
+   * Add the chunks of a received tsfile.
+   *
+   * @param storageGroup storage group of the file, the files of different storage groups may
+   * have the same name
+   * @param file         where the file is now
+   * @param segments     segments of the file, the ones with a digest are chunks
+   */
+  public synchronized void addFile(String senderName, String storageGroup, File file,
+      List<FileSegment> segments) {
+    SenderIndex index = senderIndexes.computeIfAbsent(senderName, s -> new SenderIndex());
+    String fileKey = getFileKey(storageGroup, file.getName());
+    index.files.put(fileKey, file);
+    long offset = 0;
+    for (FileSegment segment : segments) {
+      if (!segment.digest.isEmpty()) {
+        index.chunks.put(segment.digest, new ChunkLocation(fileKey, offset, segment.length));
+      }
+      offset += segment.length;
+    }
+  }
+
+  /**
+   * Update the location of a tsfile after it is loaded.
+   */
+  public synchronized void moveFile(String senderName, String storageGroup, File file) {
+    SenderIndex index = senderIndexes.get(senderName);
+    if (index != null) {
+      index.files.computeIfPresent(getFileKey(storageGroup, file.getName()), (k, f) -> file);
+    }
+  }
+
+  /**
+   * Keep the chunks of a tsfile to be deleted available in the current sync task, as the new files
+   * of the same task are usually merged from the deleted ones. A hard link of the file is created
+   * in the folder, which is removed when the task ends.
+   */
+  public synchronized void linkDeletedFile(String senderName, String storageGroup,
+      String fileName, File folder) {
+    SenderIndex index = senderIndexes.get(senderName);
+    if (index == null) {
+      return;
+    }
+    String fileKey = getFileKey(storageGroup, fileName);
+    File file = index.files.get(fileKey);
+    if (file == null || !file.exists()) {
+      return;
+    }
+    File link = new File(folder, fileKey);
+    try {
+      if (!link.getParentFile().exists()) {
+        link.getParentFile().mkdirs();
+      }
+      Files.deleteIfExists(link.toPath());
+      Files.createLink(link.toPath(), file.toPath());
+      index.files.put(fileKey, link);
+    } catch (IOException e) {
+      logger.warn("Can not link the deleted tsfile {}, its chunks will not be reused", file, e);
+      index.files.remove(fileKey);
+    }
+  }
+
+  /**
+   * Remove the files which do not exist anymore, e.g. the links of deleted files when a sync task
+   * ends. Their chunks are removed when they are looked up.
+   */
+  public synchronized void removeMissingFiles(String senderName) {
+    SenderIndex index = senderIndexes.get(senderName);
+    if (index != null) {
+      index.files.values().removeIf(file -> !file.exists());
+    }
+  }
+
+  /**
+   * Write a chunk with the digest to the channel at the position if the chunk is in the index.
+   *
+   * @return true if the chunk is written
+   */
+  public boolean copyChunk(String senderName, String digest, long length, FileChannel target,
+      long position) {
+    File file;
+    ChunkLocation location;
+    synchronized (this) {
+      SenderIndex index = senderIndexes.get(senderName);
+      location = index == null ? null : index.chunks.get(digest);
+      if (location == null || location.length != length) {
+        return false;
+      }
+      file = index.files.get(location.fileKey);
+      if (file == null) {
+        index.chunks.remove(digest);
+        return false;
+      }
+    }
+
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      ByteBuffer buffer = ByteBuffer.allocate((int) length);
+      while (buffer.hasRemaining()) {
+        if (channel.read(buffer, location.offset + buffer.position()) < 0) {
+          break;
+        }
+      }
+      MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+      md.update(buffer.array(), 0, buffer.position());
+      if (!buffer.hasRemaining() && digest.equals(new BigInteger(1, md.digest()).toString(16))) {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+          target.write(buffer, position + buffer.position());
+        }
+        return true;
+      }
+    } catch (IOException | NoSuchAlgorithmException e) {
+      logger.debug("Can not read chunk {} from {}", digest, file, e);
+    }
+    // the file has been deleted or rewritten
+    synchronized (this) {
+      SenderIndex index = senderIndexes.get(senderName);
+      if (index != null) {
+        index.chunks.remove(digest);
+      }
+    }
+    return false;
+  }
+
+  private String getFileKey(String storageGroup, String fileName) {
+    return storageGroup + File.separatorChar + fileName;
+  }
+
+  private static class SenderIndex {
+
+    /**
+     * file key -> current location of the file
+     */
+    private final Map<String, File> files = new HashMap<>();
+
+    /**
+     * digest of a chunk -> location of the chunk, the least recently used ones are evicted
+     */
+    private final Map<String, ChunkLocation> chunks = new LinkedHashMap<String, ChunkLocation>(
+        16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Entry<String, ChunkLocation> eldest) {
+        return size() > SyncConstant.CHUNK_INDEX_CAPACITY;
+      }
+    };
+  }
+
+  private static class ChunkLocation {
+
+    private final String fileKey;
+    private final long offset;
+    private final long length;
+
+    private ChunkLocation(String fileKey, long offset, long length) {
+      this.fileKey = fileKey;
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+
+  private static class ChunkIndexHolder {
+
+    private static final ChunkIndex INSTANCE = new ChunkIndex();
+  }
+}
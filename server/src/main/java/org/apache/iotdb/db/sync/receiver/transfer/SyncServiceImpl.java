@@ -38,14 +38,19 @@ import org.apache.iotdb.db.sync.receiver.recover.SyncReceiverLogger;
 import org.apache.iotdb.db.utils.FilePathUtils;
 import org.apache.iotdb.db.utils.SyncUtils;
 import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.apache.iotdb.service.sync.thrift.SyncSegmentsStatus;
 import org.apache.iotdb.service.sync.thrift.SyncService;
 import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
 import org.apache.thrift.TException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
@@ -53,6 +58,10 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 
 public class SyncServiceImpl implements SyncService.Iface {
 
@@ -74,6 +83,23 @@ public class SyncServiceImpl implements SyncService.Iface {
 
   private ThreadLocal<MessageDigest> messageDigest = new ThreadLocal<>();
 
+  /**
+   * Segments of the current file if it is transferred in segments.
+   */
+  private ThreadLocal<List<FileSegment>> currentSegments = new ThreadLocal<>();
+
+  /**
+   * Positions and lengths of the missing segments of the current file which are not received yet.
+   */
+  private ThreadLocal<Deque<long[]>> missingSegments = new ThreadLocal<>();
+
+  /**
+   * The first error of the pieces received by {@link #syncDataInPipeline(ByteBuffer, int)}.
+   */
+  private ThreadLocal<SyncStatus> pipelineError = new ThreadLocal<>();
+
+  private IUnCompressor unCompressor = IUnCompressor.getUnCompressor(CompressionType.LZ4);
+
   /**
    * Verify IP address of sender
    */
@@ -93,7 +119,12 @@ public class SyncServiceImpl implements SyncService.Iface {
               IoTDBDescriptor.getInstance().getConfig().getPartitionInterval()));
     }
     if (SyncUtils.verifyIPSegment(config.getIpWhiteList(), ipAddress)) {
-      senderName.set(ipAddress + SyncConstant.SYNC_DIR_NAME_SEPARATOR + uuid);
+      String name = ipAddress + SyncConstant.SYNC_DIR_NAME_SEPARATOR + uuid;
+      // each stream of a sender is received independently
+      if (info.isSetStreamId() && info.streamId > 0) {
+        name += SyncConstant.SYNC_STREAM_SEPARATOR + info.streamId;
+      }
+      senderName.set(name);
       if (checkRecovery()) {
         logger.info("Start to sync with sender {}", senderName.get());
         return getSuccessResult();
@@ -168,6 +199,8 @@ public class SyncServiceImpl implements SyncService.Iface {
     try {
       syncLog.get().finishSyncDeletedFileName(
           new File(getSyncDataPath(), currentSG.get() + File.separatorChar + fileName));
+      ChunkIndex.getInstance().linkDeletedFile(senderName.get(), currentSG.get(), fileName,
+          new File(getSyncDataPath(), SyncConstant.RECEIVER_DELETED_FOLDER_NAME));
       FileLoaderManager.getInstance().getFileLoader(senderName.get()).addDeletedFileName(
           new File(getSyncDataPath(), currentSG.get() + File.separatorChar + fileName));
     } catch (IOException e) {
@@ -199,6 +232,9 @@ public class SyncServiceImpl implements SyncService.Iface {
       currentFileWriter.set(new FileOutputStream(file).getChannel());
       syncLog.get().startSyncTsFiles();
       messageDigest.set(MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME));
+      currentSegments.remove();
+      missingSegments.remove();
+      pipelineError.remove();
     } catch (IOException | NoSuchAlgorithmException e) {
       logger.error("Can not init sync resource for file {}", filename, e);
       return getErrorResult(
@@ -208,8 +244,50 @@ public class SyncServiceImpl implements SyncService.Iface {
     return getSuccessResult();
   }
 
+  /**
+   * Init the file to be transferred in segments. The chunks which are in the {@link ChunkIndex}
+   * are copied from the local files, and the other segments are received by {@link
+   * #syncData(ByteBuffer)} in order.
+   */
+  @Override
+  public SyncSegmentsStatus initSyncDataInSegments(String filename, List<FileSegment> segments)
+      throws TException {
+    SyncStatus status = initSyncData(filename);
+    if (status.code != SyncConstant.SUCCESS_CODE) {
+      return new SyncSegmentsStatus(status.code, status.msg);
+    }
+    List<Integer> missingIndexes = new ArrayList<>();
+    Deque<long[]> missingRanges = new ArrayDeque<>();
+    long position = 0;
+    for (int i = 0; i < segments.size(); i++) {
+      FileSegment segment = segments.get(i);
+      if (segment.digest.isEmpty() || !ChunkIndex.getInstance()
+          .copyChunk(senderName.get(), segment.digest, segment.length, currentFileWriter.get(),
+              position)) {
+        missingIndexes.add(i);
+        if (segment.length > 0) {
+          missingRanges.add(new long[]{position, segment.length});
+        }
+      }
+      position += segment.length;
+    }
+    currentSegments.set(segments);
+    missingSegments.set(missingRanges);
+    logger.info("{} of {} segments of file {} need to be received.", missingIndexes.size(),
+        segments.size(), currentFile.get());
+    SyncSegmentsStatus segmentsStatus = new SyncSegmentsStatus(SyncConstant.SUCCESS_CODE, "");
+    segmentsStatus.setMissingSegments(missingIndexes);
+    return segmentsStatus;
+  }
+
   @Override
   public SyncStatus syncData(ByteBuffer buff) {
+    if (pipelineError.get() != null) {
+      return pipelineError.get();
+    }
+    if (missingSegments.get() != null) {
+      return syncMissingSegments(buff);
+    }
     try {
       int pos = buff.position();
       currentFileWriter.get().write(buff);
@@ -224,17 +302,97 @@ public class SyncServiceImpl implements SyncService.Iface {
     return getSuccessResult();
   }
 
+  /**
+   * Receive a piece of data like {@link #syncData(ByteBuffer)}. The pieces after an error are
+   * dropped until the next file, as the sender will transfer the file again. The sender never
+   * packs more than DATA_CHUNK_SIZE bytes into a piece, so a larger uncompressed length is
+   * rejected before the buffer is allocated.
+   */
+  @Override
+  public void syncDataInPipeline(ByteBuffer buff, int uncompressedLength) {
+    if (pipelineError.get() != null) {
+      return;
+    }
+    if (uncompressedLength > SyncConstant.DATA_CHUNK_SIZE) {
+      logger.error("The uncompressed length {} of a piece of file {} exceeds {}",
+          uncompressedLength, currentFile.get().getAbsoluteFile(), SyncConstant.DATA_CHUNK_SIZE);
+      pipelineError.set(getErrorResult(String
+          .format("The uncompressed length %d of a piece of file %s exceeds %d",
+              uncompressedLength, currentFile.get().getName(), SyncConstant.DATA_CHUNK_SIZE)));
+      return;
+    }
+    ByteBuffer data = buff;
+    if (uncompressedLength > 0) {
+      data = ByteBuffer.allocate(uncompressedLength);
+      try {
+        unCompressor.uncompress(buff, data);
+      } catch (IOException e) {
+        logger.error("Can not uncompress data for file {}", currentFile.get().getAbsoluteFile(), e);
+        pipelineError.set(getErrorResult(String
+            .format("Can not uncompress data for file %s because %s", currentFile.get().getName(),
+                e.getMessage())));
+        return;
+      }
+      data.flip();
+    }
+    SyncStatus status = syncData(data);
+    if (status.code != SyncConstant.SUCCESS_CODE) {
+      pipelineError.set(status);
+    }
+  }
+
+  /**
+   * Write the data to the missing segments of the current file in order.
+   */
+  private SyncStatus syncMissingSegments(ByteBuffer buff) {
+    try {
+      Deque<long[]> ranges = missingSegments.get();
+      while (buff.hasRemaining()) {
+        long[] range = ranges.peek();
+        if (range == null) {
+          throw new IOException("The data is longer than the missing segments");
+        }
+        int length = (int) Math.min(buff.remaining(), range[1]);
+        ByteBuffer piece = buff.duplicate();
+        piece.limit(piece.position() + length);
+        while (piece.hasRemaining()) {
+          currentFileWriter.get().write(piece, range[0] + piece.position() - buff.position());
+        }
+        buff.position(buff.position() + length);
+        range[0] += length;
+        range[1] -= length;
+        if (range[1] == 0) {
+          ranges.poll();
+        }
+      }
+    } catch (IOException e) {
+      logger.error("Can not sync data for file {}", currentFile.get().getAbsoluteFile(), e);
+      return getErrorResult(String
+          .format("Can not sync data for file %s because %s", currentFile.get().getName(),
+              e.getMessage()));
+    }
+    return getSuccessResult();
+  }
+
   @SuppressWarnings("squid:S2095") // Suppress unclosed resource warning
   @Override
   public SyncStatus checkDataMD5(String md5OfSender) throws TException {
-    String md5OfReceiver = (new BigInteger(1, messageDigest.get().digest())).toString(16);
+    String md5OfReceiver = null;
     try {
       if (currentFileWriter.get() != null && currentFileWriter.get().isOpen()) {
         currentFileWriter.get().close();
       }
+      if (currentSegments.get() == null) {
+        md5OfReceiver = (new BigInteger(1, messageDigest.get().digest())).toString(16);
+      } else {
+        md5OfReceiver = getFileMD5(currentFile.get());
+      }
       if (!md5OfSender.equals(md5OfReceiver)) {
         currentFile.get().delete();
         currentFileWriter.set(new FileOutputStream(currentFile.get()).getChannel());
+        currentSegments.remove();
+        missingSegments.remove();
+        pipelineError.remove();
         return getErrorResult(String
                 .format("MD5 of the sender is differ from MD5 of the receiver of the file %s.",
                         currentFile.get().getAbsolutePath()));
@@ -247,12 +405,16 @@ public class SyncServiceImpl implements SyncService.Iface {
             FileLoaderManager.getInstance().checkAndUpdateDeviceOwner(
                 new TsFileResource(new File(currentFile.get() + TsFileResource.RESOURCE_SUFFIX)));
             syncLog.get().finishSyncTsfile(currentFile.get());
+            if (currentSegments.get() != null) {
+              ChunkIndex.getInstance().addFile(senderName.get(), currentSG.get(),
+                  currentFile.get(), currentSegments.get());
+            }
             FileLoaderManager.getInstance().getFileLoader(senderName.get())
                 .addTsfile(currentFile.get());
           }
         }
       }
-    } catch (IOException e) {
+    } catch (IOException | NoSuchAlgorithmException e) {
       logger.error("Can not check data MD5 for file {}", currentFile.get().getAbsoluteFile(), e);
       return getErrorResult(String
           .format("Can not check data MD5 for file %s because %s", currentFile.get().getName(),
@@ -267,6 +429,18 @@ public class SyncServiceImpl implements SyncService.Iface {
     return new SyncStatus(SyncConstant.SUCCESS_CODE, md5OfReceiver);
   }
 
+  private String getFileMD5(File file) throws IOException, NoSuchAlgorithmException {
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    byte[] buffer = new byte[SyncConstant.SEGMENT_READ_BUFFER_SIZE];
+    try (FileInputStream fis = new FileInputStream(file)) {
+      int dataLength;
+      while ((dataLength = fis.read(buffer)) != -1) {
+        md.update(buffer, 0, dataLength);
+      }
+    }
+    return new BigInteger(1, md.digest()).toString(16);
+  }
+
   private void loadMetadata() {
     logger.info("Start to load metadata in sync process.");
     if (currentFile.get().exists()) {
@@ -311,6 +485,9 @@ public class SyncServiceImpl implements SyncService.Iface {
       currentFile.remove();
       currentFileWriter.remove();
       messageDigest.remove();
+      currentSegments.remove();
+      missingSegments.remove();
+      pipelineError.remove();
     }
     return getSuccessResult();
   }
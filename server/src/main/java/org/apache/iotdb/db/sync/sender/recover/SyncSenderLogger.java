@@ -27,6 +27,12 @@ public class SyncSenderLogger implements ISyncSenderLogger {
 
   private BufferedWriter bw;
 
+  /**
+   * The section being written, as the storage groups may be synced concurrently and each file name
+   * must follow the start of its section.
+   */
+  private String currentSection;
+
   public SyncSenderLogger(File file) throws IOException {
     if (!file.getParentFile().exists()) {
       file.getParentFile().mkdirs();
@@ -35,35 +41,43 @@ public class SyncSenderLogger implements ISyncSenderLogger {
   }
 
   @Override
-  public void startSyncDeletedFilesName() throws IOException {
-    bw.write(SYNC_DELETED_FILE_NAME_START);
-    bw.newLine();
-    bw.flush();
+  public synchronized void startSyncDeletedFilesName() throws IOException {
+    startSection(SYNC_DELETED_FILE_NAME_START);
   }
 
   @Override
-  public void finishSyncDeletedFileName(File file) throws IOException {
+  public synchronized void finishSyncDeletedFileName(File file) throws IOException {
+    startSection(SYNC_DELETED_FILE_NAME_START);
     bw.write(file.getAbsolutePath());
     bw.newLine();
     bw.flush();
   }
 
   @Override
-  public void startSyncTsFiles() throws IOException {
-    bw.write(SYNC_TSFILE_START);
-    bw.newLine();
-    bw.flush();
+  public synchronized void startSyncTsFiles() throws IOException {
+    startSection(SYNC_TSFILE_START);
   }
 
   @Override
-  public void finishSyncTsfile(File file) throws IOException {
+  public synchronized void finishSyncTsfile(File file) throws IOException {
+    startSection(SYNC_TSFILE_START);
     bw.write(file.getAbsolutePath());
     bw.newLine();
     bw.flush();
   }
 
+  private void startSection(String section) throws IOException {
+    if (section.equals(currentSection)) {
+      return;
+    }
+    currentSection = section;
+    bw.write(section);
+    bw.newLine();
+    bw.flush();
+  }
+
   @Override
-  public void close() throws IOException {
+  public synchronized void close() throws IOException {
     if(bw != null) {
       bw.close();
       bw = null;
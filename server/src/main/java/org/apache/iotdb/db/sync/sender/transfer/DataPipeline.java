@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import static org.apache.iotdb.db.sync.conf.SyncConstant.CONFLICT_CODE;
+import static org.apache.iotdb.db.sync.conf.SyncConstant.SUCCESS_CODE;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.ICompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.thrift.TException;
+
+/**
+ * DataPipeline sends the pieces of a file to the receiver. If the window size is larger than 1 or
+ * the compression is enabled, the pieces are sent without waiting for the reply of each one, and
+ * the receiver acknowledges them once per window, so the transfer is not bounded by the round trip
+ * time. Otherwise each piece is acknowledged before the next one is sent.
+ */
+public class DataPipeline {
+
+  private static final ByteBuffer EMPTY_PIECE = ByteBuffer.allocate(0);
+
+  private final SyncService.Client serviceClient;
+
+  private final int windowSize;
+
+  private final ICompressor compressor;
+
+  private byte[] compressed;
+
+  /**
+   * The number of pieces sent but not acknowledged
+   */
+  private int unackedNum = 0;
+
+  private String errorMsg;
+
+  public DataPipeline(SyncService.Client serviceClient, int windowSize,
+      boolean lz4CompressionEnable) {
+    this.serviceClient = serviceClient;
+    this.windowSize = windowSize;
+    this.compressor = lz4CompressionEnable ? ICompressor.getCompressor(CompressionType.LZ4) : null;
+  }
+
+  /**
+   * Send the remaining bytes of the buffer, which must have a backing array.
+   *
+   * @return false if the receiver failed to receive the pieces sent, and the pieces sent later are
+   * dropped by the receiver until the transfer of the file is restarted
+   */
+  public boolean send(ByteBuffer piece)
+      throws TException, IOException, SyncDeviceOwnerConflictException {
+    if (compressor == null && windowSize <= 1) {
+      return checkStatus(serviceClient.syncData(piece));
+    }
+    int length = piece.remaining();
+    ByteBuffer toSend = piece;
+    int uncompressedLength = 0;
+    if (compressor != null) {
+      int maxLength = compressor.getMaxBytesForCompression(length);
+      if (compressed == null || compressed.length < maxLength) {
+        compressed = new byte[maxLength];
+      }
+      int compressedLength = compressor
+          .compress(piece.array(), piece.arrayOffset() + piece.position(), length, compressed);
+      // the data may be compressed already, e.g. the pages of a tsfile
+      if (compressedLength < length) {
+        toSend = ByteBuffer.wrap(compressed, 0, compressedLength);
+        uncompressedLength = length;
+      }
+    }
+    serviceClient.syncDataInPipeline(toSend, uncompressedLength);
+    unackedNum++;
+    return unackedNum < windowSize || flush();
+  }
+
+  /**
+   * Wait for the acknowledgement of the pieces sent.
+   *
+   * @return false if the receiver failed to receive any of them
+   */
+  public boolean flush() throws TException, SyncDeviceOwnerConflictException {
+    if (unackedNum == 0) {
+      return true;
+    }
+    unackedNum = 0;
+    return checkStatus(serviceClient.syncData(EMPTY_PIECE.duplicate()));
+  }
+
+  /**
+   * @return the reason of the last failure of the receiver
+   */
+  public String getErrorMsg() {
+    return errorMsg;
+  }
+
+  private boolean checkStatus(SyncStatus status) throws SyncDeviceOwnerConflictException {
+    if (status.code == CONFLICT_CODE) {
+      throw new SyncDeviceOwnerConflictException(status.msg);
+    }
+    if (status.code != SUCCESS_CODE) {
+      errorMsg = status.msg;
+      return false;
+    }
+    return true;
+  }
+}
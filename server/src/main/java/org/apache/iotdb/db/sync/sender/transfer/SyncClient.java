@@ -25,7 +25,6 @@ import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -34,20 +33,24 @@ import java.io.RandomAccessFile;
 import java.math.BigInteger;
 import java.net.Socket;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import org.apache.commons.io.FileUtils;
@@ -69,6 +72,8 @@ import org.apache.iotdb.db.sync.sender.recover.SyncSenderLogAnalyzer;
 import org.apache.iotdb.db.sync.sender.recover.SyncSenderLogger;
 import org.apache.iotdb.db.utils.SyncUtils;
 import org.apache.iotdb.service.sync.thrift.ConfirmInfo;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.apache.iotdb.service.sync.thrift.SyncSegmentsStatus;
 import org.apache.iotdb.service.sync.thrift.SyncService;
 import org.apache.iotdb.service.sync.thrift.SyncStatus;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
@@ -104,6 +109,21 @@ public class SyncClient implements ISyncClient {
 
   private SyncService.Client serviceClient;
 
+  /**
+   * Sends the pieces of files through the main connection.
+   */
+  private DataPipeline dataPipeline;
+
+  /**
+   * Connections of the streams other than the main one, the id of a stream is its index plus 1.
+   */
+  private List<SyncStream> extraStreams = new ArrayList<>();
+
+  /**
+   * The stream used by the current thread, which is the main one if it is not set.
+   */
+  private ThreadLocal<SyncStream> currentStream = new ThreadLocal<>();
+
   private Map<String, Set<Long>> allSG;
 
   private Map<String, Map<Long, Set<File>>> toBeSyncedFilesMap;
@@ -231,7 +251,10 @@ public class SyncClient implements ISyncClient {
     // 2. Sync Schema
     syncSchema();
 
-    // 3. Sync all data
+    // 3. Connect the other streams and confirm identity
+    openExtraStreams();
+
+    // 4. Sync all data
     String[] dataDirs = IoTDBDescriptor.getInstance().getConfig().getDataDirs();
     logger.info("There are {} data dirs to be synced.", dataDirs.length);
     for (int i = 0 ; i < dataDirs.length; i++) {
@@ -256,7 +279,7 @@ public class SyncClient implements ISyncClient {
           dataDirs.length);
     }
 
-    // 4. notify receiver that synchronization finish
+    // 5. notify receiver that synchronization finish
     // At this point the synchronization has finished even if connection fails
     try {
       serviceClient.endSync();
@@ -265,6 +288,43 @@ public class SyncClient implements ISyncClient {
     } catch (TException e) {
       logger.error("Unable to connect to receiver.", e);
     }
+    closeExtraStreams(true);
+  }
+
+  /**
+   * Open the connections of the streams other than the main one, each of which is received as an
+   * individual sync task by the receiver.
+   */
+  private void openExtraStreams() throws SyncConnectionException, TException {
+    closeExtraStreams(false);
+    for (int streamId = 1; streamId < config.getSyncStreamNum(); streamId++) {
+      SyncStream stream = connect(config.getServerIp(), config.getServerPort());
+      extraStreams.add(stream);
+      confirmIdentity(stream.serviceClient, streamId);
+      SyncStatus status = stream.serviceClient.startSync();
+      if (status.code != SUCCESS_CODE) {
+        throw new SyncConnectionException(
+            String.format("Unable to start sync of stream %d because %s", streamId, status.msg));
+      }
+    }
+  }
+
+  /**
+   * @param endSync whether to notify the receiver that the synchronization of the streams finish
+   */
+  private void closeExtraStreams(boolean endSync) {
+    for (SyncStream stream : extraStreams) {
+      try {
+        if (endSync) {
+          stream.serviceClient.endSync();
+        }
+      } catch (TException e) {
+        logger.error("Unable to connect to receiver.", e);
+      } finally {
+        stream.transport.close();
+      }
+    }
+    extraStreams.clear();
   }
 
   private void checkRecovery() throws IOException {
@@ -273,26 +333,44 @@ public class SyncClient implements ISyncClient {
 
   @Override
   public void establishConnection(String serverIp, int serverPort) throws SyncConnectionException {
-    transport = new TFastFramedTransport(new TSocket(serverIp, serverPort, TIMEOUT_MS));
-    TProtocol protocol = new TBinaryProtocol(transport);
-    serviceClient = new SyncService.Client(protocol);
+    SyncStream stream = connect(serverIp, serverPort);
+    transport = stream.transport;
+    serviceClient = stream.serviceClient;
+    dataPipeline = stream.dataPipeline;
+  }
+
+  private SyncStream connect(String serverIp, int serverPort) throws SyncConnectionException {
+    TTransport streamTransport = new TFastFramedTransport(
+        new TSocket(serverIp, serverPort, TIMEOUT_MS));
+    TProtocol protocol = new TBinaryProtocol(streamTransport);
+    SyncService.Client client = new SyncService.Client(protocol);
     try {
-      if (!transport.isOpen()) {
-        transport.open();
+      if (!streamTransport.isOpen()) {
+        streamTransport.open();
       }
     } catch (TTransportException e) {
       logger.error("Cannot connect to the receiver.");
       throw new SyncConnectionException(e);
     }
+    return new SyncStream(streamTransport, client, new DataPipeline(client,
+        config.getPipelineWindowSize(), config.isLz4CompressionEnable()));
   }
 
   @Override
   public void confirmIdentity() throws SyncConnectionException {
+    confirmIdentity(serviceClient, 0);
+  }
+
+  private void confirmIdentity(SyncService.Client client, int streamId)
+      throws SyncConnectionException {
     try (Socket socket = new Socket(config.getServerIp(), config.getServerPort())) {
       ConfirmInfo info = new ConfirmInfo(socket.getLocalAddress().getHostAddress(),
           getOrCreateUUID(getUuidFile()),
           IoTDBDescriptor.getInstance().getConfig().getPartitionInterval(), IoTDBConstant.VERSION);
-      SyncStatus status = serviceClient
+      if (streamId > 0) {
+        info.setStreamId(streamId);
+      }
+      SyncStatus status = client
           .check(info);
       if (status.code != SUCCESS_CODE) {
         throw new SyncConnectionException(
@@ -456,47 +534,28 @@ public class SyncClient implements ISyncClient {
   public void sync() throws IOException {
     try {
       syncStatus = true;
+      syncLog = new SyncSenderLogger(getSyncLogFile());
 
+      // each storage group is always synced through the same stream
       List<String> storageGroups = config.getStorageGroupList();
-      for (Entry<String, Set<Long>> entry : allSG.entrySet()) {
-        String sgName = entry.getKey();
+      List<List<String>> storageGroupsOfStreams = new ArrayList<>();
+      for (int i = 0; i <= extraStreams.size(); i++) {
+        storageGroupsOfStreams.add(new ArrayList<>());
+      }
+      for (String sgName : allSG.keySet()) {
         if (!storageGroups.isEmpty() && !storageGroups.contains(sgName)) {
           continue;
         }
         lastLocalFilesMap.putIfAbsent(sgName, new HashMap<>());
-        syncLog = new SyncSenderLogger(getSyncLogFile());
-        try {
-          SyncStatus status = serviceClient.init(sgName);
-          if (status.code != SUCCESS_CODE) {
-            throw new SyncConnectionException("Unable init receiver because " + status.msg);
-          }
-        } catch (TException | SyncConnectionException e) {
-          throw new SyncConnectionException("Unable to connect to receiver", e);
-        }
-        logger.info(
-            "Sync process starts to transfer data of storage group {}, it has {} time ranges.",
-            sgName, entry.getValue().size());
-        try {
-          for (Long timeRangeId : entry.getValue()) {
-            lastLocalFilesMap.get(sgName).putIfAbsent(timeRangeId, new HashSet<>());
-            syncDeletedFilesNameInOneGroup(sgName, timeRangeId,
-                deletedFilesMap.getOrDefault(sgName, Collections.emptyMap())
-                    .getOrDefault(timeRangeId, Collections.emptySet()));
-            syncDataFilesInOneGroup(sgName, timeRangeId,
-                toBeSyncedFilesMap.getOrDefault(sgName, Collections.emptyMap())
-                    .getOrDefault(timeRangeId, Collections.emptySet()));
-          }
-        } catch (SyncDeviceOwnerConflictException e) {
-          deletedFilesMap.remove(sgName);
-          toBeSyncedFilesMap.remove(sgName);
-          storageGroups.remove(sgName);
-          config.setStorageGroupList(storageGroups);
-          logger.error("Skip the data files of the storage group {}", sgName, e);
-        }
-        logger.info(
-            "Sync process finished the task to sync data of storage group {}.", sgName);
+        storageGroupsOfStreams
+            .get(Math.floorMod(sgName.hashCode(), storageGroupsOfStreams.size())).add(sgName);
       }
 
+      if (extraStreams.isEmpty()) {
+        syncStorageGroups(storageGroupsOfStreams.get(0));
+      } else {
+        syncStorageGroupsInStreams(storageGroupsOfStreams);
+      }
     } catch (SyncConnectionException e) {
       logger.error("cannot finish sync process", e);
     } finally {
@@ -507,6 +566,85 @@ public class SyncClient implements ISyncClient {
     }
   }
 
+  private void syncStorageGroupsInStreams(List<List<String>> storageGroupsOfStreams) {
+    ExecutorService streamPool = IoTDBThreadPoolFactory
+        .newFixedThreadPool(storageGroupsOfStreams.size(), ThreadName.SYNC_CLIENT.getName());
+    List<Future<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < storageGroupsOfStreams.size(); i++) {
+      SyncStream stream = i == 0 ? null : extraStreams.get(i - 1);
+      List<String> sgNames = storageGroupsOfStreams.get(i);
+      futures.add(streamPool.submit(() -> {
+        if (stream != null) {
+          currentStream.set(stream);
+        }
+        try {
+          syncStorageGroups(sgNames);
+        } finally {
+          currentStream.remove();
+        }
+        return null;
+      }));
+    }
+    try {
+      for (int i = 0; i < futures.size(); i++) {
+        try {
+          futures.get(i).get();
+        } catch (ExecutionException e) {
+          logger.error("cannot finish sync process of stream {}", i, e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      logger.error("Sync process is interrupted.");
+      Thread.currentThread().interrupt();
+    } finally {
+      streamPool.shutdownNow();
+    }
+  }
+
+  private void syncStorageGroups(List<String> sgNames)
+      throws SyncConnectionException, IOException {
+    for (String sgName : sgNames) {
+      Set<Long> timeRangeIds = allSG.get(sgName);
+      try {
+        SyncStatus status = getServiceClient().init(sgName);
+        if (status.code != SUCCESS_CODE) {
+          throw new SyncConnectionException("Unable init receiver because " + status.msg);
+        }
+      } catch (TException | SyncConnectionException e) {
+        throw new SyncConnectionException("Unable to connect to receiver", e);
+      }
+      logger.info(
+          "Sync process starts to transfer data of storage group {}, it has {} time ranges.",
+          sgName, timeRangeIds.size());
+      try {
+        for (Long timeRangeId : timeRangeIds) {
+          lastLocalFilesMap.get(sgName).putIfAbsent(timeRangeId, new HashSet<>());
+          syncDeletedFilesNameInOneGroup(sgName, timeRangeId,
+              getFiles(deletedFilesMap, sgName, timeRangeId));
+          syncDataFilesInOneGroup(sgName, timeRangeId,
+              getFiles(toBeSyncedFilesMap, sgName, timeRangeId));
+        }
+      } catch (SyncDeviceOwnerConflictException e) {
+        synchronized (this) {
+          deletedFilesMap.remove(sgName);
+          toBeSyncedFilesMap.remove(sgName);
+          List<String> storageGroups = config.getStorageGroupList();
+          storageGroups.remove(sgName);
+          config.setStorageGroupList(storageGroups);
+        }
+        logger.error("Skip the data files of the storage group {}", sgName, e);
+      }
+      logger.info(
+          "Sync process finished the task to sync data of storage group {}.", sgName);
+    }
+  }
+
+  private synchronized Set<File> getFiles(Map<String, Map<Long, Set<File>>> filesMap,
+      String sgName, Long timeRangeId) {
+    return filesMap.getOrDefault(sgName, Collections.emptyMap())
+        .getOrDefault(timeRangeId, Collections.emptySet());
+  }
+
   @Override
   public void syncDeletedFilesNameInOneGroup(String sgName, Long timeRangeId, Set<File> deletedFilesName)
       throws IOException {
@@ -518,7 +656,7 @@ public class SyncClient implements ISyncClient {
     logger.info("Start to sync names of deleted files in storage group {}", sgName);
     for (File file : deletedFilesName) {
       try {
-        if (serviceClient.syncDeletedFileName(file.getName()).code == SUCCESS_CODE) {
+        if (getServiceClient().syncDeletedFileName(file.getName()).code == SUCCESS_CODE) {
           logger.info("Receiver has received deleted file name {} successfully.", file.getName());
           lastLocalFilesMap.get(sgName).get(timeRangeId).remove(file);
           syncLog.finishSyncDeletedFileName(file);
@@ -546,7 +684,7 @@ public class SyncClient implements ISyncClient {
         File snapshotFile = makeFileSnapshot(tsfile);
         // firstly sync .resource file, then sync tsfile
         syncSingleFile(new File(snapshotFile.getAbsolutePath() + TsFileResource.RESOURCE_SUFFIX));
-        syncSingleFile(snapshotFile);
+        syncTsFile(snapshotFile);
         lastLocalFilesMap.get(sgName).get(timeRangeId).add(tsfile);
         syncLog.finishSyncTsfile(tsfile);
         logger.info("Task of synchronization has completed {}/{}.", cnt, toBeSyncFiles.size());
@@ -580,6 +718,119 @@ public class SyncClient implements ISyncClient {
     return snapshotFile;
   }
 
+  /**
+   * Transfer a tsfile to the receiver, sending only the chunks that the receiver does not have. If
+   * it fails, the whole file is transferred.
+   */
+  private void syncTsFile(File snapshotFile)
+      throws SyncConnectionException, SyncDeviceOwnerConflictException {
+    try {
+      if (syncFileInSegments(snapshotFile)) {
+        return;
+      }
+    } catch (IOException | TException | NoSuchAlgorithmException e) {
+      logger.warn("Can not sync the chunks of tsfile {}, transfer the whole file.",
+          snapshotFile.getAbsoluteFile(), e);
+    }
+    syncSingleFile(snapshotFile);
+  }
+
+  /**
+   * @return true if the receiver has received the tsfile correctly
+   */
+  private boolean syncFileInSegments(File snapshotFile)
+      throws IOException, TException, NoSuchAlgorithmException, SyncDeviceOwnerConflictException {
+    TsFileSegments tsFileSegments = TsFileSegments.split(snapshotFile);
+    List<FileSegment> segments = tsFileSegments.getSegments();
+    SyncSegmentsStatus segmentsStatus = getServiceClient()
+        .initSyncDataInSegments(snapshotFile.getName(), segments);
+    if (segmentsStatus.code != SUCCESS_CODE) {
+      logger.info("Receiver failed to init the segments of {} because {}.",
+          snapshotFile.getAbsoluteFile(), segmentsStatus.msg);
+      return false;
+    }
+    List<Integer> missingSegments = segmentsStatus.isSetMissingSegments()
+        ? segmentsStatus.getMissingSegments() : Collections.emptyList();
+    long sentLength = sendSegments(snapshotFile, segments, missingSegments);
+    if (sentLength < 0) {
+      logger.info("Receiver failed to receive the segments of {} because {}.",
+          snapshotFile.getAbsoluteFile(), getDataPipeline().getErrorMsg());
+      return false;
+    }
+
+    SyncStatus status = getServiceClient().checkDataMD5(tsFileSegments.getMd5());
+    if (status.code == CONFLICT_CODE) {
+      throw new SyncDeviceOwnerConflictException(status.msg);
+    }
+    if (status.code == SUCCESS_CODE && tsFileSegments.getMd5().equals(status.msg)) {
+      logger.info("Receiver has received {} successfully, {} of {} bytes are transferred.",
+          snapshotFile.getAbsoluteFile(), sentLength, snapshotFile.length());
+      return true;
+    }
+    logger.error("MD5 check of the segments of tsfile {} failed.", snapshotFile.getAbsoluteFile());
+    return false;
+  }
+
+  /**
+   * Send the missing segments of a file in order, packed into pieces of at most DATA_CHUNK_SIZE.
+   *
+   * @return the number of bytes sent, or -1 if the receiver failed to receive them
+   */
+  private long sendSegments(File file, List<FileSegment> segments, List<Integer> missingSegments)
+      throws IOException, TException, SyncDeviceOwnerConflictException {
+    long[] offsets = new long[segments.size()];
+    for (int i = 1; i < offsets.length; i++) {
+      offsets[i] = offsets[i - 1] + segments.get(i - 1).length;
+    }
+    DataPipeline pipeline = getDataPipeline();
+    long sentLength = 0;
+    ByteBuffer buffer = allocateDataBuffer(file);
+    try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+        FileChannel channel = raf.getChannel()) {
+      for (int index : missingSegments) {
+        long position = offsets[index];
+        long end = position + segments.get(index).length;
+        while (position < end) {
+          if (!buffer.hasRemaining() && !sendPiece(pipeline, buffer)) {
+            return -1;
+          }
+          int limit = buffer.limit();
+          buffer.limit((int) Math.min(limit, buffer.position() + end - position));
+          int read = channel.read(buffer, position);
+          buffer.limit(limit);
+          if (read < 0) {
+            throw new IOException("Unexpected end of file " + file.getAbsolutePath());
+          }
+          position += read;
+          sentLength += read;
+        }
+      }
+      if (buffer.position() > 0 && !sendPiece(pipeline, buffer)) {
+        return -1;
+      }
+    }
+    return pipeline.flush() ? sentLength : -1;
+  }
+
+  /**
+   * Send the data in the buffer and clear it.
+   */
+  private boolean sendPiece(DataPipeline pipeline, ByteBuffer buffer)
+      throws TException, IOException, SyncDeviceOwnerConflictException {
+    buffer.flip();
+    boolean success = pipeline.send(buffer);
+    buffer.clear();
+    return success;
+  }
+
+  /**
+   * The buffer is reused for all the pieces of a file, and is not larger than the file.
+   */
+  private ByteBuffer allocateDataBuffer(File file) {
+    return ByteBuffer
+        .allocate((int) Math.max(1, Math.min(SyncConstant.DATA_CHUNK_SIZE, file.length())));
+  }
+
   /**
    * Transfer data of a tsfile to the receiver.
    */
@@ -589,7 +840,9 @@ public class SyncClient implements ISyncClient {
     try {
       int retryCount = 0;
       MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
-      serviceClient.initSyncData(snapshotFile.getName());
+      SyncService.Client client = getServiceClient();
+      DataPipeline pipeline = getDataPipeline();
+      ByteBuffer buffer = allocateDataBuffer(snapshotFile);
       outer:
       while (true) {
         retryCount++;
@@ -598,31 +851,41 @@ public class SyncClient implements ISyncClient {
               .format("Can not sync file %s after %s tries.", snapshotFile.getAbsoluteFile(),
                   config.getMaxNumOfSyncFileRetry()));
         }
+        // the receiver drops the data sent after a failure until the transfer is restarted
+        client.initSyncData(snapshotFile.getName());
         md.reset();
-        byte[] buffer = new byte[SyncConstant.DATA_CHUNK_SIZE];
-        int dataLength;
-        try (FileInputStream fis = new FileInputStream(snapshotFile);
-            ByteArrayOutputStream bos = new ByteArrayOutputStream(SyncConstant.DATA_CHUNK_SIZE)) {
-          while ((dataLength = fis.read(buffer)) != -1) { // cut the file into pieces to send
-            bos.write(buffer, 0, dataLength);
-            md.update(buffer, 0, dataLength);
-            ByteBuffer buffToSend = ByteBuffer.wrap(bos.toByteArray());
-            bos.reset();
-            SyncStatus status = serviceClient.syncData(buffToSend);
-            if(status.code == CONFLICT_CODE){
-              throw new SyncDeviceOwnerConflictException(status.msg);
+        try (RandomAccessFile raf = new RandomAccessFile(snapshotFile, "r");
+            FileChannel channel = raf.getChannel()) {
+          buffer.clear();
+          while (channel.read(buffer) != -1) { // cut the file into pieces to send
+            if (buffer.hasRemaining()) {
+              continue;
             }
-            if (status.code != SUCCESS_CODE) {
+            md.update(buffer.array(), 0, buffer.position());
+            if (!sendPiece(pipeline, buffer)) {
               logger.info("Receiver failed to receive data from {} because {}, retry.",
-                  status.msg, snapshotFile.getAbsoluteFile());
+                  snapshotFile.getAbsoluteFile(), pipeline.getErrorMsg());
               continue outer;
             }
           }
+          if (buffer.position() > 0) {
+            md.update(buffer.array(), 0, buffer.position());
+            if (!sendPiece(pipeline, buffer)) {
+              logger.info("Receiver failed to receive data from {} because {}, retry.",
+                  snapshotFile.getAbsoluteFile(), pipeline.getErrorMsg());
+              continue;
+            }
+          }
+          if (!pipeline.flush()) {
+            logger.info("Receiver failed to receive data from {} because {}, retry.",
+                snapshotFile.getAbsoluteFile(), pipeline.getErrorMsg());
+            continue;
+          }
         }
 
         // the file is sent successfully
         String md5OfSender = (new BigInteger(1, md.digest())).toString(16);
-        SyncStatus status = serviceClient.checkDataMD5(md5OfSender);
+        SyncStatus status = client.checkDataMD5(md5OfSender);
         if (status.code == SUCCESS_CODE && md5OfSender.equals(status.msg)) {
           logger.info("Receiver has received {} successfully.", snapshotFile.getAbsoluteFile());
           break;
@@ -690,6 +953,36 @@ public class SyncClient implements ISyncClient {
         SyncConstant.UUID_FILE_NAME);
   }
 
+  /**
+   * @return the client of the stream used by the current thread
+   */
+  private SyncService.Client getServiceClient() {
+    SyncStream stream = currentStream.get();
+    return stream == null ? serviceClient : stream.serviceClient;
+  }
+
+  /**
+   * @return the pipeline of the stream used by the current thread
+   */
+  private DataPipeline getDataPipeline() {
+    SyncStream stream = currentStream.get();
+    return stream == null ? dataPipeline : stream.dataPipeline;
+  }
+
+  private static class SyncStream {
+
+    private final TTransport transport;
+    private final SyncService.Client serviceClient;
+    private final DataPipeline dataPipeline;
+
+    private SyncStream(TTransport transport, SyncService.Client serviceClient,
+        DataPipeline dataPipeline) {
+      this.transport = transport;
+      this.serviceClient = serviceClient;
+      this.dataPipeline = dataPipeline;
+    }
+  }
+
   private static class InstanceHolder {
 
     private static final SyncClient INSTANCE = new SyncClient();
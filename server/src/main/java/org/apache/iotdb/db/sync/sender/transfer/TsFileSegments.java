@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.apache.iotdb.tsfile.common.conf.TSFileConfig;
+import org.apache.iotdb.tsfile.file.MetaMarker;
+import org.apache.iotdb.tsfile.file.header.ChunkHeader;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+
+/**
+ * A sealed tsfile cut at the boundaries of its chunks. Each chunk is a segment identified by the
+ * MD5 of its bytes, and the bytes between two chunks (the head of the file, chunk group footers,
+ * versions and the metadata at the tail) form segments without a digest. A chunk which is copied
+ * unchanged into another file by a merge has the same digest there, so the receiver can reuse it
+ * instead of receiving it again.
+ */
+public class TsFileSegments {
+
+  private final List<FileSegment> segments;
+
+  /**
+   * MD5 of the whole file
+   */
+  private final String md5;
+
+  private TsFileSegments(List<FileSegment> segments, String md5) {
+    this.segments = segments;
+    this.md5 = md5;
+  }
+
+  public List<FileSegment> getSegments() {
+    return segments;
+  }
+
+  public String getMd5() {
+    return md5;
+  }
+
+  /**
+   * @param tsFile a complete tsfile
+   */
+  public static TsFileSegments split(File tsFile) throws IOException, NoSuchAlgorithmException {
+    List<long[]> chunks = getChunkPositions(tsFile);
+    List<FileSegment> segments = new ArrayList<>(chunks.size() * 2 + 1);
+    MessageDigest fileDigest = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    MessageDigest chunkDigest = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    try (RandomAccessFile raf = new RandomAccessFile(tsFile, "r");
+        FileChannel channel = raf.getChannel()) {
+      ByteBuffer buffer = ByteBuffer.allocate(SyncConstant.SEGMENT_READ_BUFFER_SIZE);
+      long position = 0;
+      for (long[] chunk : chunks) {
+        if (chunk[0] > position) {
+          readRange(channel, buffer, chunk[0] - position, fileDigest, null);
+          segments.add(new FileSegment(chunk[0] - position, ""));
+        }
+        chunkDigest.reset();
+        readRange(channel, buffer, chunk[1], fileDigest, chunkDigest);
+        segments.add(new FileSegment(chunk[1], toHex(chunkDigest.digest())));
+        position = chunk[0] + chunk[1];
+      }
+      long fileLength = channel.size();
+      if (fileLength > position) {
+        readRange(channel, buffer, fileLength - position, fileDigest, null);
+        segments.add(new FileSegment(fileLength - position, ""));
+      }
+    }
+    return new TsFileSegments(segments, toHex(fileDigest.digest()));
+  }
+
+  /**
+   * @return the offset and length of each chunk in the order of the file
+   */
+  private static List<long[]> getChunkPositions(File tsFile) throws IOException {
+    List<long[]> chunks = new ArrayList<>();
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(tsFile.getAbsolutePath(), false)) {
+      if (!reader.isComplete()) {
+        throw new IOException(
+            String.format("Can not split the incomplete tsfile %s", tsFile.getAbsolutePath()));
+      }
+      reader.position((long) TSFileConfig.MAGIC_STRING.getBytes().length
+          + TSFileConfig.VERSION_NUMBER.getBytes().length);
+      byte marker;
+      while ((marker = reader.readMarker()) != MetaMarker.SEPARATOR) {
+        switch (marker) {
+          case MetaMarker.CHUNK_HEADER:
+            long offset = reader.position() - 1;
+            ChunkHeader chunkHeader = reader.readChunkHeader();
+            reader.position(reader.position() + chunkHeader.getDataSize());
+            chunks.add(new long[]{offset, reader.position() - offset});
+            break;
+          case MetaMarker.CHUNK_GROUP_FOOTER:
+            reader.readChunkGroupFooter();
+            break;
+          case MetaMarker.VERSION:
+            reader.readVersion();
+            break;
+          default:
+            MetaMarker.handleUnexpectedMarker(marker);
+        }
+      }
+    }
+    return chunks;
+  }
+
+  private static void readRange(FileChannel channel, ByteBuffer buffer, long length,
+      MessageDigest fileDigest, MessageDigest chunkDigest) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      buffer.clear();
+      buffer.limit((int) Math.min(buffer.capacity(), remaining));
+      int read = channel.read(buffer);
+      if (read < 0) {
+        throw new IOException("Unexpected end of the tsfile");
+      }
+      buffer.flip();
+      fileDigest.update(buffer.array(), 0, read);
+      if (chunkDigest != null) {
+        chunkDigest.update(buffer.array(), 0, read);
+      }
+      remaining -= read;
+    }
+  }
+
+  static String toHex(byte[] digest) {
+    return new BigInteger(1, digest).toString(16);
+  }
+}
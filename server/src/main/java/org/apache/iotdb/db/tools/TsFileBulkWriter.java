@@ -0,0 +1,717 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.tools;
+
+import static org.apache.iotdb.tsfile.common.constant.TsFileConstant.TSFILE_SUFFIX;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.engine.StorageEngine;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.exception.query.LogicalOperatorException;
+import org.apache.iotdb.db.qp.constant.DatetimeUtils;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * TsFileBulkWriter converts CSV files into sealed TsFiles with their .resource files offline, so
+ * that large historical data can be loaded by the "load" statement without going through the
+ * write path, WAL and memtables of the server.
+ * <p>
+ * The first line of a CSV file is like "Time,root.sg.d1.s1(INT64),root.sg.d1.s2", the data type
+ * of a column without "(TYPE)" is inferred from its first values. The files are split into
+ * line-aligned byte ranges, which are parsed in parallel. Points are partitioned by storage group
+ * and time partition, so each generated TsFile belongs to one storage group and one time partition
+ * and is written to "outputDir/storageGroup/partition". Each series is sorted before written.
+ * <p>
+ * The generated TsFiles of a partition are named in the order of their time ranges, and the load
+ * statement loads the files of a directory in name order, so the files of time-ordered input are
+ * appended to the sequence files instead of being loaded as unsequence files.
+ */
+public class TsFileBulkWriter {
+
+  private static final Logger logger = LoggerFactory.getLogger(TsFileBulkWriter.class);
+
+  private static final String CSV_SUFFIX = ".csv";
+  private static final String TMP_SUFFIX = ".tmp";
+  private static final String TYPE_START = "(";
+  private static final String TYPE_END = ")";
+  private static final long RANGE_SIZE = 64L * 1024 * 1024;
+  private static final int TYPE_INFERENCE_LINE_NUM = 1000;
+  public static final long DEFAULT_MAX_POINT_NUM_IN_MEMORY = 10_000_000L;
+
+  private final IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+
+  private final File input;
+  private final File outputDir;
+  private final int sgLevel;
+  private final int threadNum;
+  /**
+   * the max number of points buffered by one thread before they are written into TsFiles
+   */
+  private final long maxPointNumInMemory;
+  private final long timePartitionInterval;
+  private final ZoneId zoneId;
+
+  private final AtomicInteger tmpFileIndex = new AtomicInteger();
+  private final List<WrittenFile> writtenFiles = Collections.synchronizedList(new ArrayList<>());
+
+  public TsFileBulkWriter(File input, File outputDir, int sgLevel, int threadNum,
+      long maxPointNumInMemory) {
+    this.input = input;
+    this.outputDir = outputDir;
+    this.sgLevel = sgLevel;
+    this.threadNum = threadNum;
+    this.maxPointNumInMemory = maxPointNumInMemory;
+    this.timePartitionInterval = config.isEnablePartition() ? StorageEngine
+        .convertMilliWithPrecision(config.getPartitionInterval() * 1000L) : Long.MAX_VALUE;
+    this.zoneId = config.getZoneID();
+  }
+
+  /**
+   * write all CSV files of the input into TsFiles
+   *
+   * @return the generated TsFiles in the order to be loaded
+   */
+  public List<File> write() throws IOException {
+    List<File> csvFiles = new ArrayList<>();
+    if (input.isDirectory()) {
+      File[] files = input.listFiles((dir, name) -> name.endsWith(CSV_SUFFIX));
+      if (files != null) {
+        Arrays.sort(files);
+        csvFiles.addAll(Arrays.asList(files));
+      }
+    } else {
+      csvFiles.add(input);
+    }
+
+    ExecutorService pool = Executors.newFixedThreadPool(threadNum);
+    List<Future<Void>> futures = new ArrayList<>();
+    boolean succeeded = false;
+    try {
+      for (File csvFile : csvFiles) {
+        CsvSchema schema = readSchema(csvFile);
+        for (long[] range : splitRanges(csvFile, schema.dataStart)) {
+          futures.add(pool.submit(() -> {
+            new RangeWriter(csvFile, schema, range[0], range[1]).write();
+            return null;
+          }));
+        }
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      List<File> result = sealFiles();
+      succeeded = true;
+      return result;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException(e);
+    } catch (ExecutionException e) {
+      throw new IOException(e.getCause());
+    } finally {
+      pool.shutdownNow();
+      if (!succeeded) {
+        removeTmpFiles(pool);
+      }
+    }
+  }
+
+  /**
+   * remove the files that are not renamed by sealFiles() after the running RangeWriters stop, so
+   * that a failed write leaves no .tmp files behind
+   */
+  private void removeTmpFiles(ExecutorService pool) {
+    try {
+      if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+        logger.warn("Some ranges are still being written, their .tmp files may be left");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    synchronized (writtenFiles) {
+      for (WrittenFile writtenFile : writtenFiles) {
+        deleteTmpFile(writtenFile.file);
+      }
+    }
+  }
+
+  private static void deleteTmpFile(File file) {
+    try {
+      Files.deleteIfExists(file.toPath());
+    } catch (IOException e) {
+      logger.warn("Cannot delete {}", file, e);
+    }
+  }
+
+  /**
+   * name the written files of each partition in the order of their time ranges and write their
+   * .resource files
+   */
+  private List<File> sealFiles() throws IOException {
+    Map<File, List<WrittenFile>> dirToFiles = new HashMap<>();
+    for (WrittenFile writtenFile : writtenFiles) {
+      dirToFiles.computeIfAbsent(writtenFile.file.getParentFile(), k -> new ArrayList<>())
+          .add(writtenFile);
+    }
+    List<File> dirs = new ArrayList<>(dirToFiles.keySet());
+    Collections.sort(dirs);
+
+    List<File> result = new ArrayList<>();
+    // all names share the same number of digits so that name order is the numeric order
+    long timePrefix = System.currentTimeMillis();
+    int overlappedFileNum = 0;
+    for (File dir : dirs) {
+      List<WrittenFile> files = dirToFiles.get(dir);
+      files.sort(Comparator.comparingLong(WrittenFile::getMinStartTime)
+          .thenComparingLong(WrittenFile::getMaxEndTime));
+      Map<String, Long> deviceEndTimes = new HashMap<>();
+      for (int i = 0; i < files.size(); i++) {
+        WrittenFile writtenFile = files.get(i);
+        if (writtenFile.overlaps(deviceEndTimes)) {
+          overlappedFileNum++;
+        }
+        long version = i + 1L;
+        File tsFile = new File(dir, (timePrefix + i) + IoTDBConstant.FILE_NAME_SEPARATOR + version
+            + IoTDBConstant.FILE_NAME_SEPARATOR + 0 + TSFILE_SUFFIX);
+        if (!writtenFile.file.renameTo(tsFile)) {
+          throw new IOException("Cannot rename " + writtenFile.file + " to " + tsFile);
+        }
+        TsFileResource resource = new TsFileResource(tsFile);
+        for (Entry<String, long[]> entry : writtenFile.deviceTimes.entrySet()) {
+          resource.updateStartTime(entry.getKey(), entry.getValue()[0]);
+          resource.updateEndTime(entry.getKey(), entry.getValue()[1]);
+        }
+        resource.setHistoricalVersions(Collections.singleton(version));
+        resource.serialize();
+        result.add(tsFile);
+      }
+    }
+    if (overlappedFileNum > 0) {
+      logger.warn("{} TsFiles overlap the previous files of the same partition and will be loaded "
+          + "as unsequence files, sort the input by time to avoid it", overlappedFileNum);
+    }
+    return result;
+  }
+
+  private CsvSchema readSchema(File csvFile) throws IOException {
+    try (BufferedReader reader = new BufferedReader(new FileReader(csvFile))) {
+      String header = reader.readLine();
+      if (header == null) {
+        throw new IOException(csvFile + " is empty");
+      }
+      String[] columns = header.split(",");
+      if (columns.length <= 1) {
+        throw new IOException("The header of " + csvFile + " has no series");
+      }
+      CsvSchema schema = new CsvSchema(columns.length - 1,
+          header.getBytes(StandardCharsets.UTF_8).length + 1L);
+      List<String[]> firstLines = new ArrayList<>();
+      String line;
+      while (firstLines.size() < TYPE_INFERENCE_LINE_NUM && (line = reader.readLine()) != null) {
+        firstLines.add(line.split(",", columns.length));
+      }
+
+      for (int i = 0; i < schema.columnNum; i++) {
+        String column = columns[i + 1].trim();
+        TSDataType dataType = null;
+        if (column.endsWith(TYPE_END) && column.contains(TYPE_START)) {
+          dataType = TSDataType.valueOf(column.substring(column.lastIndexOf(TYPE_START) + 1,
+              column.length() - 1).trim().toUpperCase());
+          column = column.substring(0, column.lastIndexOf(TYPE_START)).trim();
+        }
+        if (dataType == null) {
+          dataType = inferType(firstLines, i + 1);
+        }
+        int separator = column.lastIndexOf(IoTDBConstant.PATH_SEPARATOR);
+        schema.devices[i] = column.substring(0, separator);
+        schema.measurements[i] = column.substring(separator + 1);
+        schema.types[i] = dataType;
+        schema.storageGroups[i] = getStorageGroup(schema.devices[i]);
+      }
+      return schema;
+    }
+  }
+
+  private static TSDataType inferType(List<String[]> lines, int column) {
+    TSDataType result = null;
+    for (String[] line : lines) {
+      if (line.length <= column || line[column].isEmpty()) {
+        continue;
+      }
+      String value = line[column];
+      TSDataType dataType;
+      if ("true".equalsIgnoreCase(value) || "false".equalsIgnoreCase(value)) {
+        dataType = TSDataType.BOOLEAN;
+      } else {
+        try {
+          Long.parseLong(value);
+          dataType = TSDataType.INT64;
+        } catch (NumberFormatException e) {
+          try {
+            Double.parseDouble(value);
+            dataType = TSDataType.DOUBLE;
+          } catch (NumberFormatException e1) {
+            return TSDataType.TEXT;
+          }
+        }
+      }
+      if (result == null || result == TSDataType.INT64 && dataType == TSDataType.DOUBLE) {
+        result = dataType;
+      } else if (result != dataType && !(result == TSDataType.DOUBLE
+          && dataType == TSDataType.INT64)) {
+        return TSDataType.TEXT;
+      }
+    }
+    return result == null ? TSDataType.DOUBLE : result;
+  }
+
+  private String getStorageGroup(String device) {
+    String[] nodes = device.split("\\" + IoTDBConstant.PATH_SEPARATOR);
+    if (nodes.length <= sgLevel) {
+      throw new IllegalArgumentException(
+          "The level of " + device + " is smaller than the storage group level " + sgLevel);
+    }
+    return String.join(IoTDBConstant.PATH_SEPARATOR + "", Arrays.copyOf(nodes, sgLevel + 1));
+  }
+
+  private static List<long[]> splitRanges(File csvFile, long dataStart) throws IOException {
+    List<long[]> ranges = new ArrayList<>();
+    try (RandomAccessFile raf = new RandomAccessFile(csvFile, "r")) {
+      long length = raf.length();
+      long start = dataStart;
+      while (start < length) {
+        long end;
+        if (start + RANGE_SIZE >= length) {
+          end = length;
+        } else {
+          raf.seek(start + RANGE_SIZE - 1);
+          end = start + RANGE_SIZE - 1;
+          int b;
+          while ((b = raf.read()) != -1) {
+            end++;
+            if (b == '\n') {
+              break;
+            }
+          }
+        }
+        ranges.add(new long[]{start, end});
+        start = end;
+      }
+    }
+    return ranges;
+  }
+
+  private TSEncoding getDefaultEncoding(TSDataType dataType) {
+    switch (dataType) {
+      case BOOLEAN:
+        return config.getDefaultBooleanEncoding();
+      case INT32:
+        return config.getDefaultInt32Encoding();
+      case INT64:
+        return config.getDefaultInt64Encoding();
+      case FLOAT:
+        return config.getDefaultFloatEncoding();
+      case DOUBLE:
+        return config.getDefaultDoubleEncoding();
+      case TEXT:
+        return config.getDefaultTextEncoding();
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", dataType.toString()));
+    }
+  }
+
+  private static class CsvSchema {
+
+    private final int columnNum;
+    /**
+     * the offset of the first line after the header
+     */
+    private final long dataStart;
+    private final String[] devices;
+    private final String[] measurements;
+    private final TSDataType[] types;
+    private final String[] storageGroups;
+
+    private CsvSchema(int columnNum, long dataStart) {
+      this.columnNum = columnNum;
+      this.dataStart = dataStart;
+      this.devices = new String[columnNum];
+      this.measurements = new String[columnNum];
+      this.types = new TSDataType[columnNum];
+      this.storageGroups = new String[columnNum];
+    }
+  }
+
+  /**
+   * a TsFile generated by a RangeWriter, which is renamed after all files are generated
+   */
+  private static class WrittenFile {
+
+    private final File file;
+    private final Map<String, long[]> deviceTimes;
+
+    private WrittenFile(File file, Map<String, long[]> deviceTimes) {
+      this.file = file;
+      this.deviceTimes = deviceTimes;
+    }
+
+    private long getMinStartTime() {
+      long result = Long.MAX_VALUE;
+      for (long[] times : deviceTimes.values()) {
+        result = Math.min(result, times[0]);
+      }
+      return result;
+    }
+
+    private long getMaxEndTime() {
+      long result = Long.MIN_VALUE;
+      for (long[] times : deviceTimes.values()) {
+        result = Math.max(result, times[1]);
+      }
+      return result;
+    }
+
+    /**
+     * @param deviceEndTimes the end time of each device in the previous files, which is updated
+     * with this file
+     */
+    private boolean overlaps(Map<String, Long> deviceEndTimes) {
+      boolean overlapped = false;
+      for (Entry<String, long[]> entry : deviceTimes.entrySet()) {
+        Long endTime = deviceEndTimes.get(entry.getKey());
+        if (endTime != null && endTime >= entry.getValue()[0]) {
+          overlapped = true;
+        }
+        deviceEndTimes.merge(entry.getKey(), entry.getValue()[1], Math::max);
+      }
+      return overlapped;
+    }
+  }
+
+  /**
+   * points of one series in the arrival order
+   */
+  private static class SeriesBuffer {
+
+    private final TSDataType dataType;
+    private long[] times = new long[16];
+    private Object values;
+    private int size;
+
+    private SeriesBuffer(TSDataType dataType) {
+      this.dataType = dataType;
+      this.values = createValues(dataType, times.length);
+    }
+
+    private void add(long time, String value) {
+      if (size == times.length) {
+        int newLength = times.length * 2;
+        times = Arrays.copyOf(times, newLength);
+        Object newValues = createValues(dataType, newLength);
+        System.arraycopy(values, 0, newValues, 0, size);
+        values = newValues;
+      }
+      times[size] = time;
+      switch (dataType) {
+        case BOOLEAN:
+          ((boolean[]) values)[size] = Boolean.parseBoolean(value);
+          break;
+        case INT32:
+          ((int[]) values)[size] = Integer.parseInt(value);
+          break;
+        case INT64:
+          ((long[]) values)[size] = Long.parseLong(value);
+          break;
+        case FLOAT:
+          ((float[]) values)[size] = Float.parseFloat(value);
+          break;
+        case DOUBLE:
+          ((double[]) values)[size] = Double.parseDouble(value);
+          break;
+        default:
+          if (value.length() >= 2 && (value.startsWith("'") && value.endsWith("'")
+              || value.startsWith("\"") && value.endsWith("\""))) {
+            value = value.substring(1, value.length() - 1);
+          }
+          ((Binary[]) values)[size] = Binary.valueOf(value);
+          break;
+      }
+      size++;
+    }
+
+    /**
+     * sort the points by time, of the points with the same time only the last one is kept
+     */
+    private void sort() {
+      boolean sorted = true;
+      for (int i = 1; i < size && sorted; i++) {
+        sorted = times[i - 1] < times[i];
+      }
+      if (sorted) {
+        return;
+      }
+      Integer[] indexes = new Integer[size];
+      for (int i = 0; i < size; i++) {
+        indexes[i] = i;
+      }
+      // the sort is stable so the later one of the points with the same time is after the former
+      Arrays.sort(indexes, Comparator.comparingLong(i -> times[i]));
+      long[] sortedTimes = new long[size];
+      Object sortedValues = createValues(dataType, size);
+      int newSize = 0;
+      for (int i = 0; i < size; i++) {
+        int index = indexes[i];
+        if (newSize > 0 && sortedTimes[newSize - 1] == times[index]) {
+          newSize--;
+        }
+        sortedTimes[newSize] = times[index];
+        System.arraycopy(values, index, sortedValues, newSize, 1);
+        newSize++;
+      }
+      times = sortedTimes;
+      values = sortedValues;
+      size = newSize;
+    }
+
+    private static Object createValues(TSDataType dataType, int length) {
+      switch (dataType) {
+        case BOOLEAN:
+          return new boolean[length];
+        case INT32:
+          return new int[length];
+        case INT64:
+          return new long[length];
+        case FLOAT:
+          return new float[length];
+        case DOUBLE:
+          return new double[length];
+        case TEXT:
+          return new Binary[length];
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", dataType.toString()));
+      }
+    }
+  }
+
+  /**
+   * parses one byte range of a CSV file and writes its points into TsFiles whenever the buffered
+   * points reach the limit
+   */
+  private class RangeWriter {
+
+    private final File csvFile;
+    private final CsvSchema schema;
+    private final long start;
+    private final long end;
+
+    /**
+     * "storageGroup/partition" -> device -> measurement -> points
+     */
+    private final Map<String, Map<String, Map<String, SeriesBuffer>>> buckets = new HashMap<>();
+    private long pointNum = 0;
+
+    private RangeWriter(File csvFile, CsvSchema schema, long start, long end) {
+      this.csvFile = csvFile;
+      this.schema = schema;
+      this.start = start;
+      this.end = end;
+    }
+
+    private void write() throws IOException, WriteProcessException {
+      try (InputStream in = new BufferedInputStream(new FileInputStream(csvFile))) {
+        long skipped = 0;
+        while (skipped < start) {
+          long n = in.skip(start - skipped);
+          if (n <= 0) {
+            throw new IOException("Cannot skip to " + start + " of " + csvFile);
+          }
+          skipped += n;
+        }
+        ByteArrayOutputStream lineBuffer = new ByteArrayOutputStream();
+        long position = start;
+        while (position < end) {
+          if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Writing " + csvFile + " is interrupted");
+          }
+          lineBuffer.reset();
+          int b;
+          while ((b = in.read()) != -1 && b != '\n') {
+            lineBuffer.write(b);
+          }
+          if (b == -1 && lineBuffer.size() == 0) {
+            break;
+          }
+          position += lineBuffer.size() + (b == -1 ? 0 : 1);
+          String line = new String(lineBuffer.toByteArray(), StandardCharsets.UTF_8).trim();
+          if (!line.isEmpty()) {
+            addLine(line);
+          }
+          if (pointNum >= maxPointNumInMemory) {
+            flush();
+          }
+        }
+      }
+      flush();
+    }
+
+    private void addLine(String line) throws IOException {
+      String[] data = line.split(",", schema.columnNum + 1);
+      if (data.length <= schema.columnNum) {
+        throw new IOException(String.format("Line \"%s\" of %s is incomplete", line, csvFile));
+      }
+      long time;
+      try {
+        time = parseTime(data[0].trim());
+      } catch (LogicalOperatorException e) {
+        throw new IOException(String.format("Cannot parse the time of line \"%s\" of %s", line,
+            csvFile), e);
+      }
+      long partition = config.isEnablePartition() ? time / timePartitionInterval : 0;
+      for (int i = 0; i < schema.columnNum; i++) {
+        String value = data[i + 1];
+        if (value.isEmpty()) {
+          continue;
+        }
+        int column = i;
+        buckets.computeIfAbsent(schema.storageGroups[i] + File.separator + partition,
+            k -> new HashMap<>())
+            .computeIfAbsent(schema.devices[i], k -> new HashMap<>())
+            .computeIfAbsent(schema.measurements[i], k -> new SeriesBuffer(schema.types[column]))
+            .add(time, value);
+        pointNum++;
+      }
+    }
+
+    private long parseTime(String str) throws LogicalOperatorException {
+      try {
+        return Long.parseLong(str);
+      } catch (NumberFormatException e) {
+        return DatetimeUtils.convertDatetimeStrToLong(str, zoneId);
+      }
+    }
+
+    private void flush() throws IOException, WriteProcessException {
+      for (Entry<String, Map<String, Map<String, SeriesBuffer>>> bucket : buckets.entrySet()) {
+        File dir = new File(outputDir, bucket.getKey());
+        if (!dir.exists() && !dir.mkdirs() && !dir.exists()) {
+          throw new IOException("Cannot create directory " + dir);
+        }
+        File file = new File(dir, tmpFileIndex.incrementAndGet() + TSFILE_SUFFIX + TMP_SUFFIX);
+        Map<String, long[]> deviceTimes = new HashMap<>();
+        boolean written = false;
+        try (TsFileWriter writer = new TsFileWriter(file)) {
+          for (Entry<String, Map<String, SeriesBuffer>> device : bucket.getValue().entrySet()) {
+            long[] times = new long[]{Long.MAX_VALUE, Long.MIN_VALUE};
+            for (Entry<String, SeriesBuffer> series : device.getValue().entrySet()) {
+              SeriesBuffer buffer = series.getValue();
+              buffer.sort();
+              MeasurementSchema measurementSchema = new MeasurementSchema(series.getKey(),
+                  buffer.dataType, getDefaultEncoding(buffer.dataType));
+              writer.registerTimeseries(new Path(device.getKey(), series.getKey()),
+                  measurementSchema);
+              // the buffer is already columnar, so the tablet uses its arrays without copying
+              Tablet tablet = new Tablet(device.getKey(),
+                  Collections.singletonList(measurementSchema), 0);
+              tablet.timestamps = buffer.times;
+              tablet.values = new Object[]{buffer.values};
+              tablet.rowSize = buffer.size;
+              writer.write(tablet);
+              times[0] = Math.min(times[0], buffer.times[0]);
+              times[1] = Math.max(times[1], buffer.times[buffer.size - 1]);
+            }
+            deviceTimes.put(device.getKey(), times);
+          }
+          written = true;
+        } finally {
+          if (!written) {
+            deleteTmpFile(file);
+          }
+        }
+        writtenFiles.add(new WrittenFile(file, deviceTimes));
+      }
+      buckets.clear();
+      pointNum = 0;
+    }
+  }
+
+  /**
+   * @param args input CSV file or directory, output directory, [storage group level], [thread
+   * number], [max number of points in memory of each thread]
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 2) {
+      logger.error("No enough args: require the input CSV file or directory and the output "
+          + "directory");
+      return;
+    }
+    IoTDBConfig conf = IoTDBDescriptor.getInstance().getConfig();
+    int sgLevel = args.length > 2 ? Integer.parseInt(args[2]) : conf.getDefaultStorageGroupLevel();
+    int threadNum = args.length > 3 ? Integer.parseInt(args[3])
+        : Runtime.getRuntime().availableProcessors();
+    long maxPointNum = args.length > 4 ? Long.parseLong(args[4]) : DEFAULT_MAX_POINT_NUM_IN_MEMORY;
+
+    File outputDir = new File(args[1]);
+    long startTime = System.currentTimeMillis();
+    List<File> files = new TsFileBulkWriter(new File(args[0]), outputDir, sgLevel, threadNum,
+        maxPointNum).write();
+    logger.info("{} TsFiles are generated in {} in {}ms, load them by: load \"{}\" true {}",
+        files.size(), outputDir.getAbsolutePath(), System.currentTimeMillis() - startTime,
+        outputDir.getAbsolutePath(), sgLevel);
+  }
+}
@@ -178,13 +178,18 @@ public class MergeUtils {
     return ret;
   }
 
+  @SuppressWarnings("java:S2445") // avoid reading the same reader concurrently
   private static void buildMetaHeap(List<PartialPath> paths, TsFileSequenceReader tsFileReader,
       MergeResource resource, TsFileResource tsFileResource,
       PriorityQueue<MetaListEntry> chunkMetaHeap)
       throws IOException {
     for (int i = 0; i < paths.size(); i++) {
       PartialPath path = paths.get(i);
-      List<ChunkMetadata> metaDataList = tsFileReader.getChunkMetadataList(path);
+      List<ChunkMetadata> metaDataList;
+      // series groups of one merge may be merged in parallel and share the reader
+      synchronized (tsFileReader) {
+        metaDataList = tsFileReader.getChunkMetadataList(path);
+      }
       if (metaDataList.isEmpty()) {
         continue;
       }
@@ -201,12 +206,16 @@ public class MergeUtils {
     }
   }
 
+  @SuppressWarnings("java:S2445") // avoid reading the same reader concurrently
   private static void collectUnseqChunks(PriorityQueue<MetaListEntry> chunkMetaHeap,
       TsFileSequenceReader tsFileReader, List<Chunk>[] ret) throws IOException {
     while (!chunkMetaHeap.isEmpty()) {
       MetaListEntry metaListEntry = chunkMetaHeap.poll();
       ChunkMetadata currMeta = metaListEntry.current();
-      Chunk chunk = tsFileReader.readMemChunk(currMeta);
+      Chunk chunk;
+      synchronized (tsFileReader) {
+        chunk = tsFileReader.readMemChunk(currMeta);
+      }
       ret[metaListEntry.pathId].add(chunk);
       if (metaListEntry.hasNext()) {
         metaListEntry.next();
@@ -19,14 +19,17 @@
 package org.apache.iotdb.db.utils;
 
 import org.apache.iotdb.db.tools.watermark.WatermarkEncoder;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataSet;
 import org.apache.iotdb.service.rpc.thrift.TSQueryDataSet;
 import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.read.TimeValuePair;
 import org.apache.iotdb.tsfile.read.common.Field;
 import org.apache.iotdb.tsfile.read.common.RowRecord;
 import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
 import org.apache.iotdb.tsfile.utils.Binary;
 import org.apache.iotdb.tsfile.utils.BytesUtils;
+import org.apache.iotdb.tsfile.utils.TsPrimitiveType;
 
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
@@ -176,11 +179,98 @@ public class QueryDataSetUtils {
     return tsQueryDataSet;
   }
 
+  /**
+   * convert the last pairs of series into the columns of a TSLastDataSet. Only the series having
+   * last values are included, and each row records the index of its series in lastPairs.
+   *
+   * @param lastPairs the last pair of each series, may be null
+   */
+  public static TSLastDataSet convertLastPairs(List<TimeValuePair> lastPairs) {
+    int rowCount = 0;
+    int valueBytes = 0;
+    for (TimeValuePair lastPair : lastPairs) {
+      if (lastPair != null && lastPair.getValue() != null) {
+        rowCount++;
+        valueBytes += getSerializedSize(lastPair.getValue());
+      }
+    }
+
+    ByteBuffer indexBuffer = ByteBuffer.allocate(rowCount * Integer.BYTES);
+    ByteBuffer timeBuffer = ByteBuffer.allocate(rowCount * Long.BYTES);
+    ByteBuffer typeBuffer = ByteBuffer.allocate(rowCount);
+    ByteBuffer valueBuffer = ByteBuffer.allocate(valueBytes);
+    for (int i = 0; i < lastPairs.size(); i++) {
+      TimeValuePair lastPair = lastPairs.get(i);
+      if (lastPair == null || lastPair.getValue() == null) {
+        continue;
+      }
+      TsPrimitiveType value = lastPair.getValue();
+      indexBuffer.putInt(i);
+      timeBuffer.putLong(lastPair.getTimestamp());
+      typeBuffer.put(value.getDataType().enumToByte());
+      switch (value.getDataType()) {
+        case BOOLEAN:
+          valueBuffer.put(BytesUtils.boolToByte(value.getBoolean()));
+          break;
+        case INT32:
+          valueBuffer.putInt(value.getInt());
+          break;
+        case INT64:
+          valueBuffer.putLong(value.getLong());
+          break;
+        case FLOAT:
+          valueBuffer.putFloat(value.getFloat());
+          break;
+        case DOUBLE:
+          valueBuffer.putDouble(value.getDouble());
+          break;
+        case TEXT:
+          valueBuffer.putInt(value.getBinary().getLength());
+          valueBuffer.put(value.getBinary().getValues());
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", value.getDataType()));
+      }
+    }
+    indexBuffer.flip();
+    timeBuffer.flip();
+    typeBuffer.flip();
+    valueBuffer.flip();
+
+    // assign the fields directly, the setters of thrift copy the buffers
+    TSLastDataSet lastDataSet = new TSLastDataSet();
+    lastDataSet.pathIndexes = indexBuffer;
+    lastDataSet.times = timeBuffer;
+    lastDataSet.types = typeBuffer;
+    lastDataSet.values = valueBuffer;
+    return lastDataSet;
+  }
+
+  private static int getSerializedSize(TsPrimitiveType value) {
+    switch (value.getDataType()) {
+      case BOOLEAN:
+        return 1;
+      case INT32:
+        return Integer.BYTES;
+      case INT64:
+        return Long.BYTES;
+      case FLOAT:
+        return Float.BYTES;
+      case DOUBLE:
+        return Double.BYTES;
+      case TEXT:
+        return Integer.BYTES + value.getBinary().getLength();
+      default:
+        throw new UnSupportedDataTypeException(
+            String.format("Data type %s is not supported.", value.getDataType()));
+    }
+  }
+
   public static long[] readTimesFromBuffer(ByteBuffer buffer, int size) {
     long[] times = new long[size];
-    for (int i = 0; i < size; i++) {
-      times[i] = buffer.getLong();
-    }
+    buffer.asLongBuffer().get(times);
+    buffer.position(buffer.position() + size * Long.BYTES);
     return times;
   }
 
@@ -214,30 +304,26 @@ public class QueryDataSetUtils {
           break;
         case INT32:
           int[] intValues = new int[size];
-          for (int index = 0; index < size; index++) {
-            intValues[index] = buffer.getInt();
-          }
+          buffer.asIntBuffer().get(intValues);
+          buffer.position(buffer.position() + size * Integer.BYTES);
           values[i] = intValues;
           break;
         case INT64:
           long[] longValues = new long[size];
-          for (int index = 0; index < size; index++) {
-            longValues[index] = buffer.getLong();
-          }
+          buffer.asLongBuffer().get(longValues);
+          buffer.position(buffer.position() + size * Long.BYTES);
           values[i] = longValues;
           break;
         case FLOAT:
           float[] floatValues = new float[size];
-          for (int index = 0; index < size; index++) {
-            floatValues[index] = buffer.getFloat();
-          }
+          buffer.asFloatBuffer().get(floatValues);
+          buffer.position(buffer.position() + size * Float.BYTES);
           values[i] = floatValues;
           break;
         case DOUBLE:
           double[] doubleValues = new double[size];
-          for (int index = 0; index < size; index++) {
-            doubleValues[index] = buffer.getDouble();
-          }
+          buffer.asDoubleBuffer().get(doubleValues);
+          buffer.position(buffer.position() + size * Double.BYTES);
           values[i] = doubleValues;
           break;
         case TEXT:
@@ -156,6 +156,8 @@ public class SchemaUtils {
       case SQLConstant.AVG:
       case SQLConstant.SUM:
         return TSDataType.DOUBLE;
+      case SQLConstant.M4:
+        return TSDataType.TEXT;
       default:
         throw new MetadataException(
             "aggregate does not support " + aggregation + " function.");
@@ -38,6 +38,21 @@ public abstract class TVList {
 
   protected static final int SMALL_ARRAY_LENGTH = 32;
 
+  /**
+   * From TimSort.java, enough for arrays of Integer.MAX_VALUE points
+   */
+  private static final int MAX_RUN_STACK_LENGTH = 49;
+
+  private static final int RADIX_BITS = 8;
+  private static final int RADIX = 1 << RADIX_BITS;
+  private static final int RADIX_MASK = RADIX - 1;
+  private static final int MAX_RADIX_SORT_PASS_NUM = 4;
+  private static final int MIN_RADIX_SORT_LENGTH = 4096;
+  /**
+   * radix sort is used if at least 1/RADIX_SORT_DISORDER_RATIO of the points are far out of order
+   */
+  private static final int RADIX_SORT_DISORDER_RATIO = 16;
+
   protected List<long[]> timestamps;
   protected int size;
 
@@ -65,6 +80,13 @@ public abstract class TVList {
     return size;
   }
 
+  /**
+   * @return the number of the time arrays, each of which has a value array of the same length
+   */
+  public int getArrayNum() {
+    return timestamps.size();
+  }
+
   public long getTime(int index) {
     if (index >= size) {
       throw new ArrayIndexOutOfBoundsException(index);
@@ -286,11 +308,16 @@ public abstract class TVList {
     return cloneArray;
   }
 
+  /**
+   * Sort [lo, hi) stably by time. Heavily shuffled points are sorted by radix sort on timestamps,
+   * otherwise the ascending runs of the points are detected and merged like TimSort, which is
+   * close to linear when the points arrive in order with small disorder windows.
+   */
   protected void sort(int lo, int hi) {
     if (sorted) {
       return;
     }
-    if (lo == hi) {
+    if (hi - lo < 2) {
       return;
     }
     if (hi - lo <= SMALL_ARRAY_LENGTH) {
@@ -298,10 +325,157 @@ public abstract class TVList {
       binarySort(lo, hi, lo + initRunLen);
       return;
     }
-    int mid = (lo + hi) >>> 1;
-    sort(lo, mid);
-    sort(mid, hi);
-    merge(lo, mid, hi);
+    if (hi - lo >= MIN_RADIX_SORT_LENGTH && radixSort(lo, hi)) {
+      return;
+    }
+    mergeRuns(lo, hi);
+  }
+
+  /**
+   * From TimSort.java, merge the natural runs of [lo, hi), short runs are extended to minRun by
+   * binary insertion.
+   */
+  private void mergeRuns(int lo, int hi) {
+    int[] runBase = new int[MAX_RUN_STACK_LENGTH];
+    int[] runLen = new int[MAX_RUN_STACK_LENGTH];
+    int stackSize = 0;
+
+    int minRun = minRunLength(hi - lo);
+    int remaining = hi - lo;
+    while (remaining > 0) {
+      int currentRunLen = countRunAndMakeAscending(lo, hi);
+      if (currentRunLen < minRun) {
+        int force = Math.min(remaining, minRun);
+        binarySort(lo, lo + force, lo + currentRunLen);
+        currentRunLen = force;
+      }
+      runBase[stackSize] = lo;
+      runLen[stackSize] = currentRunLen;
+      stackSize++;
+      stackSize = mergeCollapse(runBase, runLen, stackSize, false);
+      lo += currentRunLen;
+      remaining -= currentRunLen;
+    }
+    mergeCollapse(runBase, runLen, stackSize, true);
+  }
+
+  /**
+   * Merge the runs on the stack until the TimSort invariants hold, or until only one run is left
+   * if forced.
+   *
+   * @return the new size of the stack
+   */
+  private int mergeCollapse(int[] runBase, int[] runLen, int stackSize, boolean force) {
+    while (stackSize > 1) {
+      int n = stackSize - 2;
+      if (force) {
+        if (n > 0 && runLen[n - 1] < runLen[n + 1]) {
+          n--;
+        }
+      } else if ((n > 0 && runLen[n - 1] <= runLen[n] + runLen[n + 1])
+          || (n > 1 && runLen[n - 2] <= runLen[n] + runLen[n - 1])) {
+        if (runLen[n - 1] < runLen[n + 1]) {
+          n--;
+        }
+      } else if (runLen[n] > runLen[n + 1]) {
+        break;
+      }
+      // merge the runs at n and n + 1
+      merge(runBase[n], runBase[n + 1], runBase[n + 1] + runLen[n + 1]);
+      runLen[n] += runLen[n + 1];
+      if (n == stackSize - 3) {
+        runBase[n + 1] = runBase[n + 2];
+        runLen[n + 1] = runLen[n + 2];
+      }
+      stackSize--;
+    }
+    return stackSize;
+  }
+
+  private static int minRunLength(int n) {
+    int r = 0;
+    while (n >= SMALL_ARRAY_LENGTH) {
+      r |= (n & 1);
+      n >>= 1;
+    }
+    return n + r;
+  }
+
+  /**
+   * LSD radix sort on the timestamps of [lo, hi), the points are moved between the original arrays
+   * and the sorting buffer in each pass. The sort is skipped if the points are not shuffled enough
+   * to beat merging the runs, or their time range needs too many passes.
+   *
+   * @return true if the points are sorted
+   */
+  private boolean radixSort(int lo, int hi) {
+    int length = hi - lo;
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    // the points placed before a point more than SMALL_ARRAY_LENGTH positions ahead cannot be
+    // sorted by binary insertion, and make the merges of runs expensive
+    int farDisorderNum = 0;
+    for (int i = lo; i < hi; i++) {
+      long time = getTime(i);
+      min = Math.min(min, time);
+      max = Math.max(max, time);
+      if (i - lo >= SMALL_ARRAY_LENGTH && time < getTime(i - SMALL_ARRAY_LENGTH)) {
+        farDisorderNum++;
+      }
+    }
+    long range = max - min;
+    if ((long) farDisorderNum * RADIX_SORT_DISORDER_RATIO < length || range < 0) {
+      return false;
+    }
+    int passNum = (64 - Long.numberOfLeadingZeros(range) + RADIX_BITS - 1) / RADIX_BITS;
+    if (passNum > MAX_RADIX_SORT_PASS_NUM) {
+      return false;
+    }
+
+    int[][] counts = new int[passNum][RADIX];
+    for (int i = lo; i < hi; i++) {
+      long key = getTime(i) - min;
+      for (int pass = 0; pass < passNum; pass++) {
+        counts[pass][(int) (key >>> (pass * RADIX_BITS)) & RADIX_MASK]++;
+      }
+    }
+
+    boolean inSortingBuffer = false;
+    for (int pass = 0; pass < passNum; pass++) {
+      int[] count = counts[pass];
+      int shift = pass * RADIX_BITS;
+      // skip the digit shared by all points
+      long firstKey = (inSortingBuffer ? getSortedTime(lo) : getTime(lo)) - min;
+      if (count[(int) (firstKey >>> shift) & RADIX_MASK] == length) {
+        continue;
+      }
+      int offset = lo;
+      for (int digit = 0; digit < RADIX; digit++) {
+        int digitCount = count[digit];
+        count[digit] = offset;
+        offset += digitCount;
+      }
+      for (int i = lo; i < hi; i++) {
+        if (inSortingBuffer) {
+          int digit = (int) ((getSortedTime(i) - min) >>> shift) & RADIX_MASK;
+          setFromSorted(i, count[digit]++);
+        } else {
+          int digit = (int) ((getTime(i) - min) >>> shift) & RADIX_MASK;
+          setToSorted(i, count[digit]++);
+        }
+      }
+      inSortingBuffer = !inSortingBuffer;
+    }
+    if (inSortingBuffer) {
+      for (int i = lo; i < hi; i++) {
+        setFromSorted(i, i);
+      }
+    }
+    return true;
+  }
+
+  private long getSortedTime(int index) {
+    return sortedTimestamps[index / ARRAY_SIZE][index % ARRAY_SIZE];
   }
 
   protected int countRunAndMakeAscending(int lo, int hi) {
@@ -404,12 +578,18 @@ public abstract class TVList {
       }
       setPivotTo(left);
     }
-    for (int i = lo; i < hi; i++) {
-      setToSorted(i, i);
-    }
   }
 
   protected void merge(int lo, int mid, int hi) {
+    // the runs are already in order
+    if (getTime(mid - 1) <= getTime(mid)) {
+      return;
+    }
+    // the points of the left run not after the first point of the right run, and the points of
+    // the right run not before the last point of the left run are already in place
+    lo = upperBound(lo, mid, getTime(mid));
+    hi = lowerBound(mid, hi, getTime(mid - 1));
+
     // end of sorting buffer
     int tmpIdx = 0;
 
@@ -460,6 +640,36 @@ public abstract class TVList {
     }
   }
 
+  /**
+   * @return the first index in [lo, hi) whose time is larger than the given time
+   */
+  private int upperBound(int lo, int hi, long time) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (getTime(mid) <= time) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
+  /**
+   * @return the first index in [lo, hi) whose time is not smaller than the given time
+   */
+  private int lowerBound(int lo, int hi, long time) {
+    while (lo < hi) {
+      int mid = (lo + hi) >>> 1;
+      if (getTime(mid) < time) {
+        lo = mid + 1;
+      } else {
+        hi = mid;
+      }
+    }
+    return lo;
+  }
+
   void updateMinTimeAndSorted(long[] time) {
     updateMinTimeAndSorted(time, 0, time.length);
   }
@@ -93,6 +93,10 @@ public class TestConstant {
         return String.format("min_value(%s)", path);
     }
 
+    public static String m4(String path) {
+        return String.format("m4(%s)", path);
+    }
+
     public static String recordToInsert(TSRecord record) {
         StringBuilder measurements = new StringBuilder();
         StringBuilder values = new StringBuilder();
@@ -18,12 +18,17 @@
  */
 package org.apache.iotdb.db.engine.memtable;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Random;
+import org.apache.iotdb.db.constant.TestConstant;
 import org.apache.iotdb.db.engine.querycontext.ReadOnlyMemChunk;
+import org.apache.iotdb.db.exception.metadata.IllegalPathException;
 import org.apache.iotdb.db.exception.query.QueryProcessException;
+import org.apache.iotdb.db.metadata.PartialPath;
+import org.apache.iotdb.db.rescon.PrimitiveArrayPool;
 import org.apache.iotdb.db.utils.MathUtils;
 import org.apache.iotdb.db.utils.datastructure.TVList;
 import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
@@ -95,6 +100,43 @@ public class PrimitiveMemTableTest {
     }
   }
 
+  @Test
+  public void arrayMemoryTest() throws IllegalPathException {
+    IMemTable memTable = new PrimitiveMemTable();
+    MeasurementSchema schema = new MeasurementSchema("s0", TSDataType.INT32, TSEncoding.PLAIN);
+    long arrayMemory = PrimitiveArrayPool.getArrayMemorySize(TSDataType.INT64)
+        + PrimitiveArrayPool.getArrayMemorySize(TSDataType.INT32);
+    for (int i = 0; i <= PrimitiveArrayPool.ARRAY_SIZE; i++) {
+      memTable.write("root.sg.d1", "s0", schema, i, i);
+    }
+    // a time array and a value array for every ARRAY_SIZE points
+    Assert.assertEquals(2 * arrayMemory, memTable.getArrayMemory());
+
+    memTable.delete(new PartialPath("root.sg.d1.s0"), new PartialPath("root.sg.d1"),
+        Long.MIN_VALUE, Long.MAX_VALUE);
+    Assert.assertEquals(0, memTable.getArrayMemory());
+  }
+
+  @Test
+  public void testSpillLeastRecentlyWritten() throws IOException {
+    IMemTable memTable = new PrimitiveMemTable();
+    String deviceId = "root.sg.d1";
+    MeasurementSchema schema = new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.PLAIN);
+    File spillFile = new File(TestConstant.BASE_OUTPUT_PATH.concat("memtable.spill"));
+    for (long i = 0; i < 100; i++) {
+      memTable.write(deviceId, "s1", schema, i, i);
+      memTable.write(deviceId, "s2", schema, i, i);
+    }
+    // s1 is still being written
+    memTable.write(deviceId, "s1", schema, 100, 100L);
+
+    // spilling one of the chunks is enough
+    Assert.assertEquals(100 * 16, memTable.spill(spillFile, 10, memTable.memSize() - 1));
+    Assert.assertEquals(101, memTable.getMemTableMap().get(deviceId).get("s1").count());
+    Assert.assertEquals(0, memTable.getMemTableMap().get(deviceId).get("s2").count());
+    memTable.release();
+  }
+
   private void write(IMemTable memTable, String deviceId, String sensorId, TSDataType dataType,
       TSEncoding encoding, int size) throws IOException, QueryProcessException {
     TimeValuePair[] ret = genTimeValuePair(size, dataType);
@@ -141,6 +183,58 @@ public class PrimitiveMemTableTest {
     write(memTable, deviceId, "s1", TSDataType.FLOAT, TSEncoding.RLE, size);
   }
 
+  @Test
+  public void testSpill() throws IOException, QueryProcessException, IllegalPathException {
+    IMemTable memTable = new PrimitiveMemTable();
+    String deviceId = "root.sg.d1";
+    MeasurementSchema schema = new MeasurementSchema("s1", TSDataType.INT64, TSEncoding.PLAIN);
+    File spillFile = new File(TestConstant.BASE_OUTPUT_PATH.concat("memtable.spill"));
+    for (long i = 0; i < 100; i++) {
+      memTable.write(deviceId, "s1", schema, i, i);
+    }
+    // too few points to be spilled
+    memTable.write(deviceId, "s2", schema, 0, 0L);
+
+    Assert.assertEquals(100 * 16, memTable.spill(spillFile, 10, Long.MIN_VALUE));
+    Assert.assertTrue(spillFile.exists());
+    Assert.assertTrue(memTable.getSpilledSize() > 0);
+    Assert.assertEquals(0, memTable.getMemTableMap().get(deviceId).get("s1").count());
+    Assert.assertEquals(1, memTable.getMemTableMap().get(deviceId).get("s2").count());
+
+    // the deletion only removes the spilled points
+    memTable.delete(new PartialPath(deviceId + ".s1"), new PartialPath(deviceId), 0, 9);
+    // overwrite [50, 100) and append [100, 150)
+    for (long i = 50; i < 150; i++) {
+      memTable.write(deviceId, "s1", schema, i, i * 10);
+    }
+
+    ReadOnlyMemChunk memChunk = memTable.query(deviceId, "s1", TSDataType.INT64,
+        TSEncoding.PLAIN, Collections.emptyMap(), Long.MIN_VALUE);
+    IPointReader iterator = memChunk.getPointReader();
+    for (long i = 10; i < 150; i++) {
+      Assert.assertTrue(iterator.hasNextTimeValuePair());
+      TimeValuePair timeValuePair = iterator.nextTimeValuePair();
+      Assert.assertEquals(i, timeValuePair.getTimestamp());
+      Assert.assertEquals(i < 50 ? i : i * 10, timeValuePair.getValue().getLong());
+    }
+    Assert.assertFalse(iterator.hasNextTimeValuePair());
+
+    // the flushed list holds both the spilled points and the points in memory, the later one of
+    // the same timestamp is the last
+    TVList sortedList = memTable.getSortedTVList(deviceId, "s1");
+    Assert.assertEquals(190, sortedList.size());
+    for (int i = 1; i < sortedList.size(); i++) {
+      Assert.assertTrue(sortedList.getTime(i - 1) <= sortedList.getTime(i));
+      if (sortedList.getTime(i - 1) == sortedList.getTime(i)) {
+        Assert.assertEquals(sortedList.getTime(i) * 10, sortedList.getLong(i));
+      }
+    }
+
+    memTable.release();
+    Assert.assertFalse(spillFile.exists());
+    Assert.assertEquals(0, memTable.getSpilledSize());
+  }
+
   @Test
   public void testAllType() throws IOException, QueryProcessException {
     IMemTable memTable = new PrimitiveMemTable();
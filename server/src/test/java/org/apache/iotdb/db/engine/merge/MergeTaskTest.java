@@ -28,6 +28,7 @@ import java.util.List;
 import org.apache.commons.io.FileUtils;
 import org.apache.iotdb.db.conf.IoTDBDescriptor;
 import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.merge.manage.MergeManager;
 import org.apache.iotdb.db.engine.merge.manage.MergeResource;
 import org.apache.iotdb.db.engine.merge.task.MergeTask;
 import org.apache.iotdb.db.engine.modification.Deletion;
@@ -41,6 +42,7 @@ import org.apache.iotdb.tsfile.common.constant.TsFileConstant;
 import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
 import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.apache.iotdb.tsfile.read.reader.IBatchReader;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -109,6 +111,65 @@ public class MergeTaskTest extends MergeTest {
     tsFilesReader.close();
   }
 
+  @Test
+  public void testParallelSeriesGroupMerge() throws Exception {
+    mergeInParallelSeriesGroups(
+        IoTDBDescriptor.getInstance().getConfig().getMergeSeriesGroupBufferSize());
+  }
+
+  @Test
+  public void testParallelSeriesGroupMergeOverBuffer() throws Exception {
+    // every chunk group outgrows the buffer and is written under the chunk group lock
+    mergeInParallelSeriesGroups(0);
+  }
+
+  private void mergeInParallelSeriesGroups(long seriesGroupBufferSize) throws Exception {
+    int prevSeriesGroupThreadNum =
+        IoTDBDescriptor.getInstance().getConfig().getMergeSeriesGroupThreadNum();
+    long prevSeriesGroupBufferSize =
+        IoTDBDescriptor.getInstance().getConfig().getMergeSeriesGroupBufferSize();
+    IoTDBDescriptor.getInstance().getConfig().setMergeSeriesGroupThreadNum(4);
+    IoTDBDescriptor.getInstance().getConfig().setMergeSeriesGroupBufferSize(seriesGroupBufferSize);
+    MergeManager.getINSTANCE().stop();
+    MergeManager.getINSTANCE().start();
+    try {
+      MergeTask mergeTask =
+          new MergeTask(new MergeResource(seqResources, unseqResources), tempSGDir.getPath(),
+              (k, v, l) -> {
+              }, "test", false, 8, MERGE_TEST_SG);
+      mergeTask.call();
+
+      QueryContext context = new QueryContext();
+      for (String deviceId : deviceIds) {
+        for (MeasurementSchema measurementSchema : measurementSchemas) {
+          PartialPath path = new PartialPath(
+              deviceId + TsFileConstant.PATH_SEPARATOR + measurementSchema.getMeasurementId());
+          IBatchReader tsFilesReader = new SeriesRawDataBatchReader(path,
+              measurementSchema.getType(), context, seqResources, new ArrayList<>(), null, null,
+              true);
+          long count = 0;
+          while (tsFilesReader.hasNextBatch()) {
+            BatchData batchData = tsFilesReader.nextBatch();
+            for (int i = 0; i < batchData.length(); i++) {
+              assertEquals(batchData.getTimeByIndex(i) + 20000.0, batchData.getDoubleByIndex(i),
+                  0.001);
+            }
+            count += batchData.length();
+          }
+          tsFilesReader.close();
+          assertEquals(seqFileNum * ptNum, count);
+        }
+      }
+    } finally {
+      IoTDBDescriptor.getInstance().getConfig()
+          .setMergeSeriesGroupThreadNum(prevSeriesGroupThreadNum);
+      IoTDBDescriptor.getInstance().getConfig()
+          .setMergeSeriesGroupBufferSize(prevSeriesGroupBufferSize);
+      MergeManager.getINSTANCE().stop();
+      MergeManager.getINSTANCE().start();
+    }
+  }
+
   @Test
   public void testChunkNumThreshold() throws Exception {
     IoTDBDescriptor.getInstance().getConfig().setChunkMergePointThreshold(Integer.MAX_VALUE);
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.storagegroup;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.iotdb.tsfile.read.filter.TimeFilter;
+import org.apache.iotdb.tsfile.read.filter.factory.FilterFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeviceTsFileIndexTest {
+
+  private static final String DEVICE_0 = "root.sg.d0";
+  private static final String DEVICE_1 = "root.sg.d1";
+
+  private List<TsFileResource> tsFileResources = new ArrayList<>();
+
+  @Before
+  public void setUp() {
+    // file i contains d0 in [i * 100, i * 100 + 99] and d1 only in the even files
+    for (int i = 0; i < 10; i++) {
+      TsFileResource tsFileResource = new TsFileResource(new File(i + "-" + i + "-0.tsfile"));
+      tsFileResource.updateStartTime(DEVICE_0, i * 100L);
+      tsFileResource.updateEndTime(DEVICE_0, i * 100L + 99);
+      if (i % 2 == 0) {
+        tsFileResource.updateStartTime(DEVICE_1, i * 100L);
+        tsFileResource.updateEndTime(DEVICE_1, i * 100L + 99);
+      }
+      tsFileResource.setClosed(true);
+      tsFileResources.add(tsFileResource);
+    }
+  }
+
+  private List<TsFileResource> expected(int... positions) {
+    List<TsFileResource> result = new ArrayList<>();
+    for (int position : positions) {
+      result.add(tsFileResources.get(position));
+    }
+    return result;
+  }
+
+  @Test
+  public void testTimeFilter() {
+    DeviceTsFileIndex index = new DeviceTsFileIndex(tsFileResources, 0);
+    assertEquals(tsFileResources, index.getTsFileResources(DEVICE_0, null, Long.MIN_VALUE));
+    assertEquals(expected(3, 4), index.getTsFileResources(DEVICE_0,
+        FilterFactory.and(TimeFilter.gtEq(350), TimeFilter.lt(420)), Long.MIN_VALUE));
+    assertEquals(expected(0, 9), index.getTsFileResources(DEVICE_0,
+        FilterFactory.or(TimeFilter.lt(50), TimeFilter.gt(950)), Long.MIN_VALUE));
+    assertEquals(expected(4, 6), index.getTsFileResources(DEVICE_1,
+        FilterFactory.and(TimeFilter.gtEq(350), TimeFilter.lt(700)), 450));
+    assertTrue(index.getTsFileResources(DEVICE_1, TimeFilter.eq(150), Long.MIN_VALUE).isEmpty());
+    assertTrue(index.getTsFileResources("root.sg.d2", null, Long.MIN_VALUE).isEmpty());
+  }
+
+  @Test
+  public void testNotFilter() {
+    DeviceTsFileIndex index = new DeviceTsFileIndex(tsFileResources, 0);
+    // a not filter cannot prune the subtrees, so only the time lower bound takes effect
+    assertEquals(expected(8, 9), index.getTsFileResources(DEVICE_0,
+        TimeFilter.not(TimeFilter.lt(500)), 800));
+  }
+
+  @Test
+  public void testUnsealedFiles() {
+    TsFileResource unsealed = new TsFileResource(new File("10-10-0.tsfile"));
+    unsealed.updateStartTime(DEVICE_0, 0);
+    tsFileResources.add(5, unsealed);
+    DeviceTsFileIndex index = new DeviceTsFileIndex(tsFileResources, 1);
+    assertEquals(1, index.getVersion());
+    // the unsealed file is always a candidate and the order of the list is kept
+    assertEquals(Arrays.asList(tsFileResources.get(4), unsealed, tsFileResources.get(6)),
+        index.getTsFileResources(DEVICE_0,
+            FilterFactory.and(TimeFilter.gtEq(400), TimeFilter.lt(520)), Long.MIN_VALUE));
+    assertEquals(Arrays.asList(unsealed, tsFileResources.get(9)),
+        index.getTsFileResources(DEVICE_1, TimeFilter.gt(850), Long.MIN_VALUE));
+  }
+
+  @Test
+  public void testUpdate() {
+    TsFileResource unsealed = new TsFileResource(new File("10-10-0.tsfile"));
+    unsealed.updateStartTime(DEVICE_1, 1000);
+    unsealed.updateEndTime(DEVICE_1, 1099);
+    tsFileResources.add(unsealed);
+    DeviceTsFileIndex index = new DeviceTsFileIndex(tsFileResources, 0);
+
+    // a file of d1 is removed, the unsealed file is closed and a file of d0 is added
+    List<TsFileResource> newResources = new ArrayList<>(tsFileResources);
+    newResources.remove(4);
+    unsealed.setClosed(true);
+    TsFileResource added = new TsFileResource(new File("11-11-0.tsfile"));
+    added.updateStartTime(DEVICE_0, 1100);
+    added.updateEndTime(DEVICE_0, 1199);
+    added.setClosed(true);
+    newResources.add(added);
+    DeviceTsFileIndex updated = index.update(newResources, 1);
+    assertEquals(1, updated.getVersion());
+
+    DeviceTsFileIndex rebuilt = new DeviceTsFileIndex(newResources, 1);
+    for (String deviceId : Arrays.asList(DEVICE_0, DEVICE_1)) {
+      for (long time = 0; time < 1200; time += 50) {
+        assertEquals(rebuilt.getTsFileResources(deviceId, TimeFilter.gtEq(time), Long.MIN_VALUE),
+            updated.getTsFileResources(deviceId, TimeFilter.gtEq(time), Long.MIN_VALUE));
+      }
+    }
+    assertEquals(Arrays.asList(tsFileResources.get(6), tsFileResources.get(8), unsealed),
+        updated.getTsFileResources(DEVICE_1, TimeFilter.gtEq(400), Long.MIN_VALUE));
+    assertEquals(Arrays.asList(tsFileResources.get(9), added),
+        updated.getTsFileResources(DEVICE_0, TimeFilter.gtEq(950), Long.MIN_VALUE));
+    // the old snapshot is not changed
+    assertEquals(Arrays.asList(tsFileResources.get(4), tsFileResources.get(6),
+        tsFileResources.get(8), unsealed),
+        index.getTsFileResources(DEVICE_1, TimeFilter.gtEq(400), Long.MIN_VALUE));
+  }
+}
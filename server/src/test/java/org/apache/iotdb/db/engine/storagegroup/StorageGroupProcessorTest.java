@@ -23,6 +23,7 @@ import static org.junit.Assert.assertFalse;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
@@ -167,6 +168,48 @@ public class StorageGroupProcessorTest {
     }
   }
 
+  @Test
+  public void testQueryMeasurementsOfDevice()
+      throws WriteProcessException, QueryProcessException, IllegalPathException, IOException {
+    for (int j = 1; j <= 20; j++) {
+      TSRecord record = new TSRecord(j, deviceId);
+      record.addTuple(DataPoint.getDataPoint(TSDataType.INT32, "s0", String.valueOf(j)));
+      if (j % 2 == 0) {
+        record.addTuple(DataPoint.getDataPoint(TSDataType.INT64, "s1", String.valueOf(j)));
+      }
+      insertToStorageGroupProcessor(record);
+      if (j == 10) {
+        processor.syncCloseAllWorkingTsFileProcessors();
+      }
+    }
+
+    List<QueryDataSource> queryDataSources = processor.query(new PartialPath(deviceId),
+        Arrays.asList("s0", "s1"), context, null, null);
+    Assert.assertEquals(2, queryDataSources.size());
+    QueryDataSource s0DataSource = queryDataSources.get(0);
+    QueryDataSource s1DataSource = queryDataSources.get(1);
+    Assert.assertEquals(2, s0DataSource.getSeqResources().size());
+    Assert.assertEquals(2, s1DataSource.getSeqResources().size());
+    // the closed file is shared while each measurement has its own view of the unsealed file
+    Assert.assertSame(s0DataSource.getSeqResources().get(0),
+        s1DataSource.getSeqResources().get(0));
+    Assert.assertNotSame(s0DataSource.getSeqResources(), s1DataSource.getSeqResources());
+    Assert.assertEquals(10, countMemPoints(s0DataSource.getSeqResources().get(1)));
+    Assert.assertEquals(5, countMemPoints(s1DataSource.getSeqResources().get(1)));
+  }
+
+  private int countMemPoints(TsFileResource unsealedResource) throws IOException {
+    int count = 0;
+    for (ReadOnlyMemChunk memChunk : unsealedResource.getReadOnlyMemChunk()) {
+      IPointReader iterator = memChunk.getPointReader();
+      while (iterator.hasNextTimeValuePair()) {
+        iterator.nextTimeValuePair();
+        count++;
+      }
+    }
+    return count;
+  }
+
   @Test
   public void testIoTDBTabletWriteAndSyncClose()
       throws WriteProcessException, QueryProcessException, IllegalPathException {
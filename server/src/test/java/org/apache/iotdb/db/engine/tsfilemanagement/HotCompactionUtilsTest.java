@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.tsfilemanagement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.engine.tsfilemanagement.utils.HotCompactionUtils;
+import org.apache.iotdb.tsfile.common.conf.TSFileDescriptor;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.ChunkMetadata;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.BatchData;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.reader.chunk.ChunkReader;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.DataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class HotCompactionUtilsTest {
+
+  private static final String DEVICE = "root.compactionTest.d0";
+  private static final MeasurementSchema SCHEMA = new MeasurementSchema("s0",
+      TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY);
+
+  private int prevMaxNumberOfPointsInPage;
+  private List<TsFileResource> unseqResources = new ArrayList<>();
+  private TsFileResource targetResource;
+
+  @Before
+  public void setUp() throws IOException, WriteProcessException {
+    prevMaxNumberOfPointsInPage =
+        TSFileDescriptor.getInstance().getConfig().getMaxNumberOfPointsInPage();
+    TSFileDescriptor.getInstance().getConfig().setMaxNumberOfPointsInPage(10);
+    // [0, 100) and [200, 300) do not overlap with other pages, [50, 60) overwrites the first file
+    unseqResources.add(prepareFile(0, 0, 100, 0));
+    unseqResources.add(prepareFile(1, 50, 10, 10000));
+    unseqResources.add(prepareFile(2, 200, 100, 0));
+    targetResource = new TsFileResource(new File(TestConstant.BASE_OUTPUT_PATH
+        .concat(3 + IoTDBConstant.FILE_NAME_SEPARATOR + 3 + IoTDBConstant.FILE_NAME_SEPARATOR + 1
+            + ".tsfile")));
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    TSFileDescriptor.getInstance().getConfig()
+        .setMaxNumberOfPointsInPage(prevMaxNumberOfPointsInPage);
+    for (TsFileResource tsFileResource : unseqResources) {
+      tsFileResource.remove();
+    }
+    targetResource.remove();
+  }
+
+  private TsFileResource prepareFile(int index, long timeOffset, long ptNum, long valueOffset)
+      throws IOException, WriteProcessException {
+    File file = new File(TestConstant.BASE_OUTPUT_PATH
+        .concat(index + IoTDBConstant.FILE_NAME_SEPARATOR + index
+            + IoTDBConstant.FILE_NAME_SEPARATOR + 0 + ".tsfile"));
+    TsFileResource tsFileResource = new TsFileResource(file);
+    tsFileResource.setClosed(true);
+    tsFileResource.setHistoricalVersions(Collections.singleton((long) index));
+    TsFileWriter fileWriter = new TsFileWriter(file);
+    fileWriter.registerTimeseries(new Path(DEVICE, SCHEMA.getMeasurementId()), SCHEMA);
+    for (long i = timeOffset; i < timeOffset + ptNum; i++) {
+      TSRecord record = new TSRecord(i, DEVICE);
+      record.addTuple(DataPoint.getDataPoint(SCHEMA.getType(), SCHEMA.getMeasurementId(),
+          String.valueOf(i + valueOffset)));
+      fileWriter.write(record);
+      tsFileResource.updateStartTime(DEVICE, i);
+      tsFileResource.updateEndTime(DEVICE, i);
+    }
+    fileWriter.close();
+    return tsFileResource;
+  }
+
+  @Test
+  public void testUnseqMerge() throws Exception {
+    HotCompactionUtils.merge(targetResource, unseqResources, "root.compactionTest", null,
+        Collections.emptySet(), false);
+
+    long count = 0;
+    long lastTime = Long.MIN_VALUE;
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(
+        targetResource.getTsFilePath())) {
+      List<ChunkMetadata> chunkMetadataList = reader
+          .getChunkMetadataList(new Path(DEVICE, SCHEMA.getMeasurementId()));
+      for (ChunkMetadata chunkMetadata : chunkMetadataList) {
+        ChunkReader chunkReader = new ChunkReader(reader.readMemChunk(chunkMetadata), null);
+        while (chunkReader.hasNextSatisfiedPage()) {
+          BatchData batchData = chunkReader.nextPageData();
+          for (int i = 0; i < batchData.length(); i++) {
+            long time = batchData.getTimeByIndex(i);
+            long expectedValue = time >= 50 && time < 60 ? time + 10000 : time;
+            assertEquals(expectedValue, batchData.getLongByIndex(i));
+            assertTrue(time > lastTime);
+            lastTime = time;
+            count++;
+          }
+        }
+      }
+    }
+    assertEquals(200, count);
+    assertEquals(0, targetResource.getStartTime(DEVICE));
+    assertEquals(299, targetResource.getEndTime(DEVICE));
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.db.engine.tsfilemanagement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.db.engine.tsfilemanagement.tiered.TieredTsFileManagement;
+import org.apache.iotdb.db.engine.tsfilemanagement.tiered.TieredTsFileManagement.TieredMode;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.DataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TieredTsFileManagementTest {
+
+  private static final String STORAGE_GROUP = "root.tieredTest";
+  private static final String DEVICE = STORAGE_GROUP + ".d0";
+  private static final MeasurementSchema SCHEMA = new MeasurementSchema("s0",
+      TSDataType.INT64, TSEncoding.RLE, CompressionType.SNAPPY);
+  private static final String STORAGE_GROUP_DIR = TestConstant.BASE_OUTPUT_PATH
+      .concat("tiered");
+
+  private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private long prevTimeWindow;
+  private int prevMinFileNum;
+
+  @Before
+  public void setUp() {
+    prevTimeWindow = config.getCompactionTimeWindow();
+    prevMinFileNum = config.getTieredCompactionMinFileNum();
+    config.setCompactionTimeWindow(100);
+    config.setTieredCompactionMinFileNum(4);
+    new File(STORAGE_GROUP_DIR, "0").mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    config.setCompactionTimeWindow(prevTimeWindow);
+    config.setTieredCompactionMinFileNum(prevMinFileNum);
+    FileUtils.deleteDirectory(new File(STORAGE_GROUP_DIR));
+  }
+
+  private TsFileResource prepareFile(int index, long timeOffset, long ptNum)
+      throws IOException, WriteProcessException {
+    File file = new File(STORAGE_GROUP_DIR + File.separator + 0, index
+        + IoTDBConstant.FILE_NAME_SEPARATOR + index + IoTDBConstant.FILE_NAME_SEPARATOR + 0
+        + ".tsfile");
+    TsFileResource tsFileResource = new TsFileResource(file);
+    tsFileResource.setHistoricalVersions(Collections.singleton((long) index));
+    TsFileWriter fileWriter = new TsFileWriter(file);
+    fileWriter.registerTimeseries(new Path(DEVICE, SCHEMA.getMeasurementId()), SCHEMA);
+    for (long i = timeOffset; i < timeOffset + ptNum; i++) {
+      TSRecord record = new TSRecord(i, DEVICE);
+      record.addTuple(DataPoint.getDataPoint(SCHEMA.getType(), SCHEMA.getMeasurementId(),
+          String.valueOf(i)));
+      fileWriter.write(record);
+      tsFileResource.updateStartTime(DEVICE, i);
+      tsFileResource.updateEndTime(DEVICE, i);
+    }
+    fileWriter.close();
+    tsFileResource.setClosed(true);
+    return tsFileResource;
+  }
+
+  @Test
+  public void testTimeWindowCompaction() throws Exception {
+    TieredTsFileManagement tsFileManagement = new TieredTsFileManagement(STORAGE_GROUP,
+        STORAGE_GROUP_DIR, TieredMode.TIME_WINDOW);
+    // window 0 is older than the newest window 1, so its two files are compacted at once, while
+    // window 1 has not reached tiered_compaction_min_file_num
+    tsFileManagement.add(prepareFile(0, 0, 50), true);
+    tsFileManagement.add(prepareFile(1, 50, 50), true);
+    tsFileManagement.add(prepareFile(2, 100, 50), true);
+    tsFileManagement.add(prepareFile(3, 150, 50), true);
+
+    tsFileManagement.forkCurrentFileList(0);
+    assertEquals(2, tsFileManagement.getStableTsFileList(true).size());
+    tsFileManagement.merge(0);
+
+    List<TsFileResource> tsFileResources = tsFileManagement.getTsFileList(true);
+    assertEquals(3, tsFileResources.size());
+    TsFileResource compacted = tsFileResources.get(0);
+    assertEquals("0-0-1.tsfile", compacted.getTsFile().getName());
+    assertEquals(0, compacted.getStartTime(DEVICE));
+    assertEquals(99, compacted.getEndTime(DEVICE));
+    assertEquals(3, tsFileManagement.getStableTsFileList(true).size());
+    assertEquals(1, tsFileManagement.getCompactionNum());
+    assertTrue(tsFileManagement.getWriteAmplification() > 1);
+
+    // the compacted window holds a single file and is never touched again
+    tsFileManagement.forkCurrentFileList(0);
+    tsFileManagement.merge(0);
+    assertEquals(1, tsFileManagement.getCompactionNum());
+  }
+
+  @Test
+  public void testSizeTieredCompaction() throws Exception {
+    TieredTsFileManagement tsFileManagement = new TieredTsFileManagement(STORAGE_GROUP,
+        STORAGE_GROUP_DIR, TieredMode.SIZE_TIERED);
+    // a much larger file breaks the tier of the small files
+    tsFileManagement.add(prepareFile(0, 0, 100000), false);
+    for (int i = 1; i <= 4; i++) {
+      tsFileManagement.add(prepareFile(i, i * 10L, 10), false);
+    }
+
+    tsFileManagement.forkCurrentFileList(0);
+    tsFileManagement.merge(0);
+
+    List<TsFileResource> tsFileResources = tsFileManagement.getTsFileList(false);
+    assertEquals(2, tsFileResources.size());
+    assertEquals("0-0-0.tsfile", tsFileResources.get(0).getTsFile().getName());
+    TsFileResource compacted = tsFileResources.get(1);
+    assertEquals("1-1-1.tsfile", compacted.getTsFile().getName());
+    assertEquals(10, compacted.getStartTime(DEVICE));
+    assertEquals(49, compacted.getEndTime(DEVICE));
+    assertEquals(1, tsFileManagement.getCompactionNum());
+  }
+}
@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.integration;
+
+import static org.apache.iotdb.db.constant.TestConstant.m4;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.jdbc.Config;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * The points of root.sg.d1.s1 are in three sealed files and the working memtable. The extremes of
+ * the second file cannot change the bottom and top points of the first one, so its statistics are
+ * used, while the third file and the memtable hold new extremes and are read.
+ */
+public class IoTDBM4IT {
+
+  private static final String TIMESTAMP_STR = "Time";
+  private static final String S1 = "root.sg.d1.s1";
+
+  private static final int[][] FILES = new int[][]{
+      {5, 1, 9, 3, 4},
+      {4, 6, 2, 7, 5},
+      {6, -3, 8, 20, 7},
+      // unsealed
+      {7, 25, 1, 3, 2}
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    EnvironmentUtils.closeStatMonitor();
+    EnvironmentUtils.envSetUp();
+    Class.forName(Config.JDBC_DRIVER_NAME);
+    prepareData();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void m4GroupByTest() {
+    String[] retArray = new String[]{
+        "1,1:5,2:1,3:9,5:4",
+        "6,6:4,8:2,9:7,10:5",
+        "11,11:6,12:-3,14:20,15:7",
+        "16,16:7,18:1,17:25,20:2"
+    };
+    checkResult("select m4(s1) from root.sg.d1 group by ([1, 21), 5ms)", retArray);
+  }
+
+  @Test
+  public void m4GroupByOneIntervalTest() {
+    // the first file is read, the second one is calculated from its statistics
+    String[] retArray = new String[]{
+        "1,1:5,12:-3,17:25,20:2"
+    };
+    checkResult("select M4(s1) from root.sg.d1 group by ([1, 21), 20ms)", retArray);
+  }
+
+  @Test
+  public void m4GroupByWithTimeFilterTest() {
+    String[] retArray = new String[]{
+        "1,3:9,4:3,3:9,5:4",
+        "6,6:4,8:2,9:7,10:5",
+        "11,11:6,12:-3,14:20,15:7",
+        "16,16:7,16:7,17:25,17:25"
+    };
+    checkResult("select m4(s1) from root.sg.d1 where time >= 3 and time <= 17 "
+        + "group by ([1, 21), 5ms)", retArray);
+  }
+
+  @Test
+  public void m4AggregationTest() {
+    try (Connection connection = DriverManager
+        .getConnection("jdbc:iotdb://127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      boolean hasResultSet = statement.execute("select m4(s1) from root.sg.d1");
+      assertTrue(hasResultSet);
+      try (ResultSet resultSet = statement.getResultSet()) {
+        assertTrue(resultSet.next());
+        assertEquals("1:5,12:-3,17:25,20:2", resultSet.getString(m4(S1)));
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  private void checkResult(String sql, String[] retArray) {
+    try (Connection connection = DriverManager
+        .getConnection("jdbc:iotdb://127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      boolean hasResultSet = statement.execute(sql);
+      assertTrue(hasResultSet);
+      int cnt = 0;
+      try (ResultSet resultSet = statement.getResultSet()) {
+        while (resultSet.next()) {
+          // the header of the column keeps the case of the function name
+          String ans = resultSet.getString(TIMESTAMP_STR) + "," + resultSet.getString(2);
+          assertEquals(retArray[cnt], ans);
+          cnt++;
+        }
+      }
+      assertEquals(retArray.length, cnt);
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+
+  private void prepareData() {
+    try (Connection connection = DriverManager
+        .getConnection(Config.IOTDB_URL_PREFIX + "127.0.0.1:6667/", "root", "root");
+        Statement statement = connection.createStatement()) {
+      statement.execute("SET STORAGE GROUP TO root.sg");
+      statement.execute("CREATE TIMESERIES root.sg.d1.s1 WITH DATATYPE=INT32, ENCODING=PLAIN");
+      long time = 1;
+      for (int i = 0; i < FILES.length; i++) {
+        for (int value : FILES[i]) {
+          statement.execute(String.format("INSERT INTO root.sg.d1(timestamp, s1) values(%d, %d)",
+              time++, value));
+        }
+        if (i < FILES.length - 1) {
+          statement.execute("flush");
+        }
+      }
+    } catch (Exception e) {
+      e.printStackTrace();
+      fail(e.getMessage());
+    }
+  }
+}
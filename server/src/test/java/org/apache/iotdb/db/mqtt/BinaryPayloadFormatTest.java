@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.mqtt;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class BinaryPayloadFormatTest {
+
+    private void writeString(ByteBuf buf, String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        buf.writeShort(bytes.length);
+        buf.writeBytes(bytes);
+    }
+
+    private ByteBuf register(int schemaId) {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.REGISTER);
+        buf.writeInt(schemaId);
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(2);
+        writeString(buf, "s1");
+        buf.writeByte(TSDataType.DOUBLE.serialize());
+        writeString(buf, "s2");
+        buf.writeByte(TSDataType.TEXT.serialize());
+        return buf;
+    }
+
+    @Test
+    public void formatBinary() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        assertTrue(formatter.format(register(7)).isEmpty());
+
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.DATA);
+        buf.writeInt(7);
+        buf.writeInt(2);
+        // the rows are not in the time order
+        buf.writeLong(1586076065526L);
+        buf.writeLong(1586076045524L);
+        buf.writeDouble(0.530695);
+        buf.writeDouble(0.530635);
+        buf.writeInt(1);
+        buf.writeBytes("b".getBytes(StandardCharsets.UTF_8));
+        buf.writeInt(1);
+        buf.writeBytes("a".getBytes(StandardCharsets.UTF_8));
+
+        List<Message> messages = formatter.format(buf);
+        assertEquals(1, messages.size());
+        TabletMessage message = (TabletMessage) messages.get(0);
+        assertEquals("root.sg.d1", message.getDevice());
+        assertEquals(Arrays.asList("s1", "s2"), message.getMeasurements());
+        assertArrayEquals(new TSDataType[]{TSDataType.DOUBLE, TSDataType.TEXT},
+            message.getDataTypes());
+        assertArrayEquals(new long[]{1586076045524L, 1586076065526L}, message.getTimes());
+        assertArrayEquals(new double[]{0.530635, 0.530695}, (double[]) message.getColumns()[0], 0);
+        assertArrayEquals(new Binary[]{new Binary("a"), new Binary("b")},
+            (Binary[]) message.getColumns()[1]);
+    }
+
+    @Test
+    public void formatUnregistered() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.DATA);
+        buf.writeInt(8);
+        buf.writeInt(1);
+        buf.writeLong(1L);
+        buf.writeDouble(1.0);
+        assertTrue(formatter.format(buf).isEmpty());
+    }
+
+    @Test
+    public void formatMalformed() {
+        BinaryPayloadFormatter formatter = new BinaryPayloadFormatter();
+        assertTrue(formatter.format(register(7)).isEmpty());
+
+        // more rows than the payload can contain
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.DATA);
+        buf.writeInt(7);
+        buf.writeInt(Integer.MAX_VALUE);
+        buf.writeLong(1L);
+        assertTrue(formatter.format(buf).isEmpty());
+
+        // a text longer than the payload
+        buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.DATA);
+        buf.writeInt(7);
+        buf.writeInt(1);
+        buf.writeLong(1L);
+        buf.writeDouble(1.0);
+        buf.writeInt(Integer.MAX_VALUE);
+        buf.writeBytes("a".getBytes(StandardCharsets.UTF_8));
+        assertTrue(formatter.format(buf).isEmpty());
+
+        // an unknown type of payload
+        buf = Unpooled.buffer();
+        buf.writeByte(2);
+        assertTrue(formatter.format(buf).isEmpty());
+
+        // an unknown data type of a measurement
+        buf = Unpooled.buffer();
+        buf.writeByte(BinaryPayloadFormatter.REGISTER);
+        buf.writeInt(8);
+        writeString(buf, "root.sg.d1");
+        buf.writeShort(1);
+        writeString(buf, "s1");
+        buf.writeByte(9);
+        assertTrue(formatter.format(buf).isEmpty());
+    }
+
+    @Test
+    public void getBinaryPayloadFormat() {
+        assertNotNull(PayloadFormatManager.getPayloadFormat("binary"));
+    }
+}
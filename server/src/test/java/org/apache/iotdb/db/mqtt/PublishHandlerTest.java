@@ -21,14 +21,25 @@ import io.moquette.interception.messages.InterceptPublishMessage;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.handler.codec.mqtt.*;
+import org.apache.iotdb.db.exception.query.QueryProcessException;
 import org.apache.iotdb.db.qp.executor.IPlanExecutor;
+import org.apache.iotdb.db.qp.physical.PhysicalPlan;
 import org.apache.iotdb.db.qp.physical.crud.InsertRowPlan;
+import org.apache.iotdb.db.qp.physical.crud.InsertTabletPlan;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import java.nio.charset.StandardCharsets;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class PublishHandlerTest {
@@ -56,4 +67,229 @@ public class PublishHandlerTest {
         handler.onPublish(message);
         verify(executor).processNonQuery(any(InsertRowPlan.class));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void onPublishInBatches() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        // the executor resolves the types of the inferred row like the schema does
+        doAnswer(invocation -> {
+            InsertRowPlan plan = invocation.getArgument(0);
+            plan.getDataTypes()[0] = TSDataType.DOUBLE;
+            return true;
+        }).when(executor).processNonQuery(any(InsertRowPlan.class));
+        PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+        MessageBatcher batcher = new MessageBatcher(executor, 3600_000L, 1000);
+        PublishHandler handler = new PublishHandler(executor, payloadFormat, batcher);
+
+        for (int i = 0; i < 3; i++) {
+            String payload = "{\n" +
+                    "\"device\":\"root.sg.d1\",\n" +
+                    "\"timestamp\":" + (3 - i) + ",\n" +
+                    "\"measurements\":[\"s1\"],\n" +
+                    "\"values\":[" + i + ".5]\n" +
+                    "}";
+            ByteBuf buf = Unpooled.copiedBuffer(payload, StandardCharsets.UTF_8);
+            MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader("root.sg.d1", 1);
+            MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, 1);
+            MqttPublishMessage publishMessage = new MqttPublishMessage(fixedHeader, variableHeader, buf);
+            handler.onPublish(new InterceptPublishMessage(publishMessage, null, null));
+        }
+        handler.close();
+
+        // the first message infers the type, and the others are inserted as one tablet
+        verify(executor, times(1)).processNonQuery(any(InsertRowPlan.class));
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(2)).processNonQuery(captor.capture());
+        InsertTabletPlan plan = (InsertTabletPlan) captor.getAllValues().get(1);
+        assertEquals(2, plan.getRowCount());
+        assertArrayEquals(new long[]{1, 2}, plan.getTimes());
+        assertArrayEquals(new double[]{2.5, 1.5}, (double[]) plan.getColumns()[0], 0.0001);
+    }
+
+    @Test
+    public void onPublishInOrder() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        doAnswer(invocation -> {
+            InsertRowPlan plan = invocation.getArgument(0);
+            plan.getDataTypes()[0] = TSDataType.DOUBLE;
+            return true;
+        }).when(executor).processNonQuery(any(InsertRowPlan.class));
+        PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+        MessageBatcher batcher = new MessageBatcher(executor, 3600_000L, 1000);
+        PublishHandler handler = new PublishHandler(executor, payloadFormat, batcher);
+
+        handler.onPublish(jsonMessage(1, "0.5"));
+        handler.onPublish(jsonMessage(2, "1.5"));
+        // the value does not match the cached type, so the message is inserted directly
+        handler.onPublish(jsonMessage(2, "\"text\""));
+
+        // the buffered row is inserted before the later message of the same timestamp
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(3)).processNonQuery(captor.capture());
+        assertTrue(captor.getAllValues().get(0) instanceof InsertRowPlan);
+        InsertTabletPlan plan = (InsertTabletPlan) captor.getAllValues().get(1);
+        assertArrayEquals(new long[]{2}, plan.getTimes());
+        assertEquals(2, ((InsertRowPlan) captor.getAllValues().get(2)).getTime());
+        handler.close();
+    }
+
+    @Test
+    public void onPublishFailedTablet() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        doAnswer(invocation -> {
+            InsertRowPlan plan = invocation.getArgument(0);
+            plan.getDataTypes()[0] = TSDataType.DOUBLE;
+            return true;
+        }).when(executor).processNonQuery(any(InsertRowPlan.class));
+        doThrow(new QueryProcessException("the types changed")).when(executor)
+            .processNonQuery(any(InsertTabletPlan.class));
+        PayloadFormatter payloadFormat = PayloadFormatManager.getPayloadFormat("json");
+        MessageBatcher batcher = new MessageBatcher(executor, 3600_000L, 1000);
+        PublishHandler handler = new PublishHandler(executor, payloadFormat, batcher);
+
+        for (int i = 1; i <= 3; i++) {
+            handler.onPublish(jsonMessage(i, i + ".5"));
+        }
+        handler.close();
+
+        // the rows of the failed tablet are inserted one by one
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(4)).processNonQuery(captor.capture());
+        assertTrue(captor.getAllValues().get(1) instanceof InsertTabletPlan);
+        assertEquals(2, ((InsertRowPlan) captor.getAllValues().get(2)).getTime());
+        assertEquals(3, ((InsertRowPlan) captor.getAllValues().get(3)).getTime());
+    }
+
+    @Test
+    public void onPublishBinaryAfterBufferedRows() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        doAnswer(invocation -> {
+            InsertRowPlan plan = invocation.getArgument(0);
+            plan.getDataTypes()[0] = TSDataType.DOUBLE;
+            return true;
+        }).when(executor).processNonQuery(any(InsertRowPlan.class));
+        PayloadFormatter jsonFormat = PayloadFormatManager.getPayloadFormat("json");
+        MessageBatcher batcher = new MessageBatcher(executor, 3600_000L, 1000);
+        PublishHandler jsonHandler = new PublishHandler(executor, jsonFormat, batcher);
+        PublishHandler binaryHandler = new PublishHandler(executor, new BinaryPayloadFormatter(),
+            batcher);
+
+        jsonHandler.onPublish(jsonMessage(1, "0.5"));
+        jsonHandler.onPublish(jsonMessage(2, "1.5"));
+        for (ByteBuf buf : new ByteBuf[]{binaryRegister(), binaryData()}) {
+            binaryHandler.onPublish(publishMessage(buf));
+        }
+
+        // the buffered row is inserted before the later tablet of the same device
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(3)).processNonQuery(captor.capture());
+        InsertTabletPlan bufferedPlan = (InsertTabletPlan) captor.getAllValues().get(1);
+        assertArrayEquals(new long[]{2}, bufferedPlan.getTimes());
+        InsertTabletPlan binaryPlan = (InsertTabletPlan) captor.getAllValues().get(2);
+        assertArrayEquals(new long[]{1, 2}, binaryPlan.getTimes());
+        batcher.close();
+    }
+
+    @Test
+    public void onPublishFailedBinary() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        doThrow(new QueryProcessException("the types changed")).when(executor)
+            .processNonQuery(any(InsertTabletPlan.class));
+        PublishHandler handler = new PublishHandler(executor, new BinaryPayloadFormatter());
+
+        for (ByteBuf buf : new ByteBuf[]{binaryRegister(), binaryData()}) {
+            handler.onPublish(publishMessage(buf));
+        }
+
+        // the rows of the failed tablet are inserted one by one with their types
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(3)).processNonQuery(captor.capture());
+        for (int i = 1; i <= 2; i++) {
+            InsertRowPlan plan = (InsertRowPlan) captor.getAllValues().get(i);
+            assertEquals(i, plan.getTime());
+            assertArrayEquals(new TSDataType[]{TSDataType.DOUBLE}, plan.getDataTypes());
+            assertEquals(i - 0.5, (double) plan.getValues()[0], 0.0001);
+        }
+    }
+
+    private ByteBuf binaryRegister() {
+        ByteBuf register = Unpooled.buffer();
+        register.writeByte(BinaryPayloadFormatter.REGISTER);
+        register.writeInt(1);
+        register.writeShort(10);
+        register.writeBytes("root.sg.d1".getBytes(StandardCharsets.UTF_8));
+        register.writeShort(1);
+        register.writeShort(2);
+        register.writeBytes("s1".getBytes(StandardCharsets.UTF_8));
+        register.writeByte(TSDataType.DOUBLE.serialize());
+        return register;
+    }
+
+    private ByteBuf binaryData() {
+        ByteBuf data = Unpooled.buffer();
+        data.writeByte(BinaryPayloadFormatter.DATA);
+        data.writeInt(1);
+        data.writeInt(2);
+        data.writeLong(1L);
+        data.writeLong(2L);
+        data.writeDouble(0.5);
+        data.writeDouble(1.5);
+        return data;
+    }
+
+    private InterceptPublishMessage publishMessage(ByteBuf buf) {
+        MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader("root.sg.d1", 1);
+        MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, 1);
+        MqttPublishMessage publishMessage = new MqttPublishMessage(fixedHeader, variableHeader, buf);
+        return new InterceptPublishMessage(publishMessage, null, null);
+    }
+
+    private InterceptPublishMessage jsonMessage(long timestamp, String value) {
+        String payload = "{\n" +
+                "\"device\":\"root.sg.d1\",\n" +
+                "\"timestamp\":" + timestamp + ",\n" +
+                "\"measurements\":[\"s1\"],\n" +
+                "\"values\":[" + value + "]\n" +
+                "}";
+        return publishMessage(Unpooled.copiedBuffer(payload, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void onPublishBinary() throws Exception {
+        IPlanExecutor executor = mock(IPlanExecutor.class);
+        PayloadFormatter payloadFormat = new BinaryPayloadFormatter();
+        PublishHandler handler = new PublishHandler(executor, payloadFormat);
+
+        ByteBuf register = Unpooled.buffer();
+        register.writeByte(BinaryPayloadFormatter.REGISTER);
+        register.writeInt(1);
+        register.writeShort(10);
+        register.writeBytes("root.sg.d1".getBytes(StandardCharsets.UTF_8));
+        register.writeShort(1);
+        register.writeShort(2);
+        register.writeBytes("s1".getBytes(StandardCharsets.UTF_8));
+        register.writeByte(TSDataType.DOUBLE.serialize());
+        ByteBuf data = Unpooled.buffer();
+        data.writeByte(BinaryPayloadFormatter.DATA);
+        data.writeInt(1);
+        data.writeInt(2);
+        data.writeLong(1L);
+        data.writeLong(2L);
+        data.writeDouble(0.5);
+        data.writeDouble(1.5);
+
+        for (ByteBuf buf : new ByteBuf[]{register, data}) {
+            MqttPublishVariableHeader variableHeader = new MqttPublishVariableHeader("root.sg.d1", 1);
+            MqttFixedHeader fixedHeader = new MqttFixedHeader(MqttMessageType.PUBLISH, false, MqttQoS.AT_LEAST_ONCE, false, 1);
+            MqttPublishMessage publishMessage = new MqttPublishMessage(fixedHeader, variableHeader, buf);
+            handler.onPublish(new InterceptPublishMessage(publishMessage, null, null));
+        }
+
+        // the typed values are inserted as a tablet without type inference
+        ArgumentCaptor<PhysicalPlan> captor = ArgumentCaptor.forClass(PhysicalPlan.class);
+        verify(executor, times(1)).processNonQuery(captor.capture());
+        InsertTabletPlan plan = (InsertTabletPlan) captor.getValue();
+        assertEquals(2, plan.getRowCount());
+        assertArrayEquals(new double[]{0.5, 1.5}, (double[]) plan.getColumns()[0], 0.0001);
+    }
+}
@@ -28,6 +28,7 @@ import org.apache.iotdb.db.query.aggregation.impl.AvgAggrResult;
 import org.apache.iotdb.db.query.factory.AggregateResultFactory;
 import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
 import org.apache.iotdb.tsfile.file.metadata.statistics.Statistics;
+import org.apache.iotdb.tsfile.read.common.BatchData;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -262,4 +263,50 @@ public class AggregateResultTest {
     Assert.assertEquals(2d, (double)result.getResult(), 0.01);
   }
 
-}
\ No newline at end of file
+  @Test
+  public void m4AggrResultTest() throws QueryProcessException, IOException {
+    AggregateResult m4AggrResult1 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.M4, TSDataType.DOUBLE);
+    AggregateResult m4AggrResult2 = AggregateResultFactory
+        .getAggrResultByName(SQLConstant.M4, TSDataType.DOUBLE);
+
+    BatchData batchData = new BatchData(TSDataType.DOUBLE);
+    batchData.putDouble(1L, 3d);
+    batchData.putDouble(2L, 1d);
+    batchData.putDouble(3L, 5d);
+    batchData.putDouble(4L, 1d);
+    batchData.flip();
+    m4AggrResult1.updateResultFromPageData(batchData);
+    Assert.assertEquals("1:3.0,2:1.0,3:5.0,4:1.0", m4AggrResult1.getResult().toString());
+
+    // the extremes are not changed by the statistics, so the times are known
+    Statistics statistics1 = Statistics.getStatsByType(TSDataType.DOUBLE);
+    statistics1.update(5L, 2d);
+    statistics1.update(6L, 4d);
+    Assert.assertTrue(m4AggrResult1.canUpdateFromStatistics(statistics1));
+    m4AggrResult1.updateResultFromStatistics(statistics1);
+    Assert.assertEquals("1:3.0,2:1.0,3:5.0,6:4.0", m4AggrResult1.getResult().toString());
+
+    // the time of the new max value is unknown
+    Statistics statistics2 = Statistics.getStatsByType(TSDataType.DOUBLE);
+    statistics2.update(7L, 2d);
+    statistics2.update(8L, 9d);
+    statistics2.update(9L, 2d);
+    Assert.assertFalse(m4AggrResult1.canUpdateFromStatistics(statistics2));
+
+    batchData = new BatchData(TSDataType.DOUBLE);
+    batchData.putDouble(7L, 2d);
+    batchData.putDouble(8L, 9d);
+    batchData.putDouble(9L, 2d);
+    batchData.flip();
+    m4AggrResult2.updateResultFromPageData(batchData);
+    m4AggrResult1.merge(m4AggrResult2);
+    Assert.assertEquals("1:3.0,2:1.0,8:9.0,9:2.0", m4AggrResult1.getResult().toString());
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    m4AggrResult1.serializeTo(outputStream);
+    ByteBuffer byteBuffer = ByteBuffer.wrap(outputStream.toByteArray());
+    AggregateResult result = AggregateResult.deserializeFrom(byteBuffer);
+    Assert.assertEquals("1:3.0,2:1.0,8:9.0,9:2.0", result.getResult().toString());
+  }
+}
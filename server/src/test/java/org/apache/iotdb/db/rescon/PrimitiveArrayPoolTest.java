@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.junit.Test;
+
+public class PrimitiveArrayPoolTest {
+
+  private PrimitiveArrayPool pool = PrimitiveArrayPool.getInstance();
+
+  @Test
+  public void testLocalReuse() {
+    Object array = pool.getPrimitiveDataListByType(TSDataType.DOUBLE);
+    pool.release(array);
+    long localReused = pool.getLocalReusedArrayNum();
+    assertSame(array, pool.getPrimitiveDataListByType(TSDataType.DOUBLE));
+    assertEquals(localReused + 1, pool.getLocalReusedArrayNum());
+    // arrays of different types never mix
+    assertNotSame(array, pool.getPrimitiveDataListByType(TSDataType.FLOAT));
+  }
+
+  @Test
+  public void testDepotReuse() throws InterruptedException {
+    Thread producer = new Thread(() -> {
+      List<Object> arrays = new ArrayList<>();
+      for (int i = 0; i < 200; i++) {
+        arrays.add(pool.getPrimitiveDataListByType(TSDataType.INT64));
+      }
+      for (Object array : arrays) {
+        pool.release(array);
+      }
+    });
+    producer.start();
+    producer.join();
+
+    long created = pool.getCreatedArrayNum();
+    long depotReusedMagazines = pool.getDepotReusedMagazineNum();
+    List<Object> arrays = new ArrayList<>();
+    Thread consumer = new Thread(() -> {
+      for (int i = 0; i < 100; i++) {
+        arrays.add(pool.getPrimitiveDataListByType(TSDataType.INT64));
+      }
+    });
+    consumer.start();
+    consumer.join();
+
+    // the full magazines released by the producer are taken from the depot
+    assertEquals(created, pool.getCreatedArrayNum());
+    assertTrue(pool.getDepotReusedMagazineNum() > depotReusedMagazines);
+    Map<Object, Boolean> taken = new IdentityHashMap<>();
+    for (Object array : arrays) {
+      // an array is never handed out twice
+      assertTrue(taken.put(array, true) == null);
+    }
+    for (Object array : arrays) {
+      pool.release(array);
+    }
+  }
+
+  @Test
+  public void testDiscardIdleMagazineOfLivingThread() throws InterruptedException {
+    CountDownLatch released = new CountDownLatch(1);
+    CountDownLatch discarded = new CountDownLatch(1);
+    Thread idleThread = new Thread(() -> {
+      List<Object> arrays = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        arrays.add(pool.getPrimitiveDataListByType(TSDataType.BOOLEAN));
+      }
+      for (Object array : arrays) {
+        pool.release(array);
+      }
+      released.countDown();
+      try {
+        discarded.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    });
+    idleThread.start();
+    released.await();
+
+    long discardedNum = pool.getDiscardedArrayNum();
+    // the first call only clears the use stamp of the magazines
+    pool.discardIdleArrays();
+    pool.discardIdleArrays();
+    assertTrue(pool.getDiscardedArrayNum() - discardedNum >= 10);
+    discarded.countDown();
+    idleThread.join();
+  }
+}
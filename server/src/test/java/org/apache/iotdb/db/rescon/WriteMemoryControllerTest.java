@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.rescon;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.iotdb.db.conf.IoTDBConfig;
+import org.apache.iotdb.db.conf.IoTDBDescriptor;
+import org.apache.iotdb.db.exception.WriteProcessRejectException;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.TSStatusCode;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteMemoryControllerTest {
+
+  private IoTDBConfig config = IoTDBDescriptor.getInstance().getConfig();
+  private boolean prevEnableWriteMemoryControl;
+  private long prevAllocateMemoryForWrite;
+  private long prevMaxWriteMemoryWaitTime;
+
+  @Before
+  public void setUp() {
+    EnvironmentUtils.envSetUp();
+    prevEnableWriteMemoryControl = config.isEnableWriteMemoryControl();
+    prevAllocateMemoryForWrite = config.getAllocateMemoryForWrite();
+    prevMaxWriteMemoryWaitTime = config.getMaxWriteMemoryWaitTimeInMs();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    config.setEnableWriteMemoryControl(prevEnableWriteMemoryControl);
+    config.setAllocateMemoryForWrite(prevAllocateMemoryForWrite);
+    config.setMaxWriteMemoryWaitTimeInMs(prevMaxWriteMemoryWaitTime);
+    EnvironmentUtils.cleanEnv();
+  }
+
+  @Test
+  public void testDiscardArray() {
+    Object array = PrimitiveArrayPool.getInstance().getPrimitiveDataListByType(TSDataType.INT64);
+    long memory = WriteMemoryController.getInstance().getArrayMemory();
+    assertTrue(memory > 0);
+
+    // the released array is discarded when the memory exceeds the flush threshold
+    config.setEnableWriteMemoryControl(true);
+    config.setAllocateMemoryForWrite(0);
+    PrimitiveArrayPool.getInstance().release(array);
+    assertTrue(WriteMemoryController.getInstance().getArrayMemory() < memory);
+  }
+
+  @Test
+  public void testReject() throws WriteProcessRejectException {
+    // no back-pressure without the memory control
+    config.setAllocateMemoryForWrite(0);
+    WriteMemoryController.getInstance().checkBeforeWrite();
+
+    config.setEnableWriteMemoryControl(true);
+    config.setMaxWriteMemoryWaitTimeInMs(100);
+    long startTime = System.currentTimeMillis();
+    try {
+      WriteMemoryController.getInstance().checkBeforeWrite();
+      fail();
+    } catch (WriteProcessRejectException e) {
+      assertEquals(TSStatusCode.WRITE_PROCESS_REJECT.getStatusCode(), e.getErrorCode());
+      assertTrue(System.currentTimeMillis() - startTime >= 100);
+    }
+  }
+}
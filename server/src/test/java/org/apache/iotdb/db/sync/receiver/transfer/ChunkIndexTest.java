@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.receiver.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ChunkIndexTest {
+
+  private static final String SENDER = "127.0.0.1_chunk_index_test";
+  private static final String SG = "root.sg";
+
+  private File folder;
+
+  @Before
+  public void setUp() throws IOException {
+    folder = Files.createTempDirectory("chunk_index").toFile();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(folder);
+    ChunkIndex.getInstance().removeMissingFiles(SENDER);
+  }
+
+  @Test
+  public void testCopyChunk() throws IOException, NoSuchAlgorithmException {
+    byte[] head = "head".getBytes(StandardCharsets.UTF_8);
+    byte[] chunk = "chunk data".getBytes(StandardCharsets.UTF_8);
+    File source = new File(folder, "1-1-0.tsfile");
+    try (FileOutputStream out = new FileOutputStream(source)) {
+      out.write(head);
+      out.write(chunk);
+    }
+    String digest = md5(chunk);
+    ChunkIndex.getInstance().addFile(SENDER, SG, source, Arrays.asList(
+        new FileSegment(head.length, ""), new FileSegment(chunk.length, digest)));
+
+    // the chunk is written at the position of the target
+    File target = new File(folder, "target");
+    try (FileChannel channel = new FileOutputStream(target).getChannel()) {
+      assertTrue(ChunkIndex.getInstance().copyChunk(SENDER, digest, chunk.length, channel, 2));
+      assertFalse(ChunkIndex.getInstance().copyChunk(SENDER, md5(head), head.length, channel, 0));
+    }
+    byte[] expected = new byte[2 + chunk.length];
+    System.arraycopy(chunk, 0, expected, 2, chunk.length);
+    assertArrayEquals(expected, Files.readAllBytes(target.toPath()));
+
+    // the chunks of a deleted file are kept by a link
+    File deletedFolder = new File(folder, SyncConstant.RECEIVER_DELETED_FOLDER_NAME);
+    ChunkIndex.getInstance().linkDeletedFile(SENDER, SG, source.getName(), deletedFolder);
+    assertTrue(source.delete());
+    try (FileChannel channel = new FileOutputStream(target).getChannel()) {
+      assertTrue(ChunkIndex.getInstance().copyChunk(SENDER, digest, chunk.length, channel, 0));
+    }
+    assertArrayEquals(chunk, Files.readAllBytes(target.toPath()));
+
+    // the chunk can not be reused after the link is removed
+    FileUtils.deleteDirectory(deletedFolder);
+    ChunkIndex.getInstance().removeMissingFiles(SENDER);
+    try (FileChannel channel = new FileOutputStream(target).getChannel()) {
+      assertFalse(ChunkIndex.getInstance().copyChunk(SENDER, digest, chunk.length, channel, 0));
+    }
+  }
+
+  private String md5(byte[] bytes) throws NoSuchAlgorithmException {
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    return new BigInteger(1, md.digest(bytes)).toString(16);
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.apache.iotdb.db.exception.SyncDeviceOwnerConflictException;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.sync.thrift.SyncService;
+import org.apache.iotdb.service.sync.thrift.SyncStatus;
+import org.apache.iotdb.tsfile.compress.IUnCompressor;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.thrift.TException;
+import org.junit.Test;
+
+public class DataPipelineTest {
+
+  @Test
+  public void testWindow() throws TException, IOException, SyncDeviceOwnerConflictException {
+    ReceiverStub receiver = new ReceiverStub();
+    DataPipeline pipeline = new DataPipeline(receiver, 3, false);
+    byte[] data = new byte[10];
+    Arrays.fill(data, (byte) 1);
+    for (int i = 0; i < 7; i++) {
+      assertTrue(pipeline.send(ByteBuffer.wrap(data)));
+    }
+    // acknowledged after the 3rd and the 6th piece
+    assertEquals(2, receiver.ackNum);
+    assertTrue(pipeline.flush());
+    assertEquals(3, receiver.ackNum);
+    assertTrue(pipeline.flush());
+    assertEquals(3, receiver.ackNum);
+    assertEquals(70, receiver.received.size());
+
+    receiver.error = true;
+    assertTrue(pipeline.send(ByteBuffer.wrap(data)));
+    assertTrue(pipeline.send(ByteBuffer.wrap(data)));
+    assertFalse(pipeline.send(ByteBuffer.wrap(data)));
+    assertEquals("error", pipeline.getErrorMsg());
+  }
+
+  @Test
+  public void testCompression() throws TException, IOException, SyncDeviceOwnerConflictException {
+    ReceiverStub receiver = new ReceiverStub();
+    DataPipeline pipeline = new DataPipeline(receiver, 1, true);
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte) (i % 7);
+    }
+    ByteBuffer piece = ByteBuffer.wrap(new byte[data.length + 2], 1, data.length).slice();
+    piece.put(data);
+    piece.flip();
+    assertTrue(pipeline.send(piece));
+    assertEquals(1, receiver.compressedNum);
+    assertEquals(1, receiver.ackNum);
+    assertArrayEquals(data, receiver.received.toByteArray());
+  }
+
+  private static class ReceiverStub extends SyncService.Client {
+
+    private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+    private final IUnCompressor unCompressor = IUnCompressor
+        .getUnCompressor(CompressionType.LZ4);
+    private int ackNum = 0;
+    private int compressedNum = 0;
+    private boolean error = false;
+
+    private ReceiverStub() {
+      super(null);
+    }
+
+    @Override
+    public SyncStatus syncData(ByteBuffer buff) {
+      if (!buff.hasRemaining()) {
+        ackNum++;
+      }
+      write(buff);
+      return new SyncStatus(error ? SyncConstant.ERROR_CODE : SyncConstant.SUCCESS_CODE,
+          error ? "error" : "");
+    }
+
+    @Override
+    public void syncDataInPipeline(ByteBuffer buff, int uncompressedLength) {
+      if (uncompressedLength > 0) {
+        compressedNum++;
+        ByteBuffer data = ByteBuffer.allocate(uncompressedLength);
+        try {
+          unCompressor.uncompress(buff, data);
+        } catch (IOException e) {
+          throw new IllegalStateException(e);
+        }
+        data.flip();
+        write(data);
+      } else {
+        write(buff);
+      }
+    }
+
+    private void write(ByteBuffer buff) {
+      while (buff.hasRemaining()) {
+        received.write(buff.get());
+      }
+    }
+  }
+}
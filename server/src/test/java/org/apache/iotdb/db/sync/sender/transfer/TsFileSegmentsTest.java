@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.sync.sender.transfer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.iotdb.db.sync.conf.SyncConstant;
+import org.apache.iotdb.service.sync.thrift.FileSegment;
+import org.apache.iotdb.tsfile.exception.write.WriteProcessException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.write.TsFileWriter;
+import org.apache.iotdb.tsfile.write.record.TSRecord;
+import org.apache.iotdb.tsfile.write.record.datapoint.LongDataPoint;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TsFileSegmentsTest {
+
+  private File file1;
+  private File file2;
+
+  @Before
+  public void setUp() throws IOException {
+    file1 = Files.createTempFile("segments", ".tsfile").toFile();
+    file2 = Files.createTempFile("segments", ".tsfile").toFile();
+  }
+
+  @After
+  public void tearDown() {
+    file1.delete();
+    file2.delete();
+  }
+
+  @Test
+  public void testSplit() throws IOException, WriteProcessException, NoSuchAlgorithmException {
+    // the first chunk groups of the two files are the same
+    writeFile(file1, 100, 200);
+    writeFile(file2, 100, 150);
+
+    TsFileSegments segments1 = TsFileSegments.split(file1);
+    TsFileSegments segments2 = TsFileSegments.split(file2);
+
+    long length = 0;
+    for (FileSegment segment : segments1.getSegments()) {
+      length += segment.length;
+    }
+    assertEquals(file1.length(), length);
+    MessageDigest md = MessageDigest.getInstance(SyncConstant.MESSAGE_DIGIT_NAME);
+    assertEquals(TsFileSegments.toHex(md.digest(Files.readAllBytes(file1.toPath()))),
+        segments1.getMd5());
+
+    List<String> chunks1 = getChunkDigests(segments1);
+    List<String> chunks2 = getChunkDigests(segments2);
+    // two measurements in two chunk groups
+    assertEquals(4, chunks1.size());
+    assertEquals(4, chunks2.size());
+    assertEquals(chunks1.subList(0, 2), chunks2.subList(0, 2));
+    assertNotEquals(chunks1.get(2), chunks2.get(2));
+    assertNotEquals(chunks1.get(3), chunks2.get(3));
+  }
+
+  private List<String> getChunkDigests(TsFileSegments segments) {
+    List<String> digests = new ArrayList<>();
+    for (FileSegment segment : segments.getSegments()) {
+      if (!segment.digest.isEmpty()) {
+        digests.add(segment.digest);
+      }
+    }
+    assertTrue(segments.getSegments().size() > digests.size());
+    return digests;
+  }
+
+  private void writeFile(File file, long flushTime, long endTime)
+      throws IOException, WriteProcessException {
+    file.delete();
+    TsFileWriter writer = new TsFileWriter(file);
+    for (String measurement : new String[]{"s0", "s1"}) {
+      writer.registerTimeseries(new Path("root.sg.d0", measurement),
+          new MeasurementSchema(measurement, TSDataType.INT64, TSEncoding.RLE));
+    }
+    for (long time = 0; time < endTime; time++) {
+      TSRecord record = new TSRecord(time, "root.sg.d0");
+      record.addTuple(new LongDataPoint("s0", time));
+      record.addTuple(new LongDataPoint("s1", time * 2));
+      writer.write(record);
+      if (time + 1 == flushTime) {
+        writer.flushAllChunkGroups();
+      }
+    }
+    writer.close();
+  }
+}
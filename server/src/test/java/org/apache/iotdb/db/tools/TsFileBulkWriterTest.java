@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.db.tools;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.io.FileUtils;
+import org.apache.iotdb.db.constant.TestConstant;
+import org.apache.iotdb.db.engine.storagegroup.TsFileResource;
+import org.apache.iotdb.tsfile.read.ReadOnlyTsFile;
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader;
+import org.apache.iotdb.tsfile.read.common.Path;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.read.expression.QueryExpression;
+import org.apache.iotdb.tsfile.read.query.dataset.QueryDataSet;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TsFileBulkWriterTest {
+
+  private File inputDir = new File(TestConstant.BASE_OUTPUT_PATH.concat("bulkInput"));
+  private File outputDir = new File(TestConstant.BASE_OUTPUT_PATH.concat("bulkOutput"));
+
+  @Before
+  public void setUp() {
+    inputDir.mkdirs();
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(inputDir);
+    FileUtils.deleteDirectory(outputDir);
+  }
+
+  private void writeCsv(String name, String... lines) throws IOException {
+    try (BufferedWriter writer = new BufferedWriter(new FileWriter(new File(inputDir, name)))) {
+      for (String line : lines) {
+        writer.write(line);
+        writer.newLine();
+      }
+    }
+  }
+
+  private List<String> query(File tsFile, String device, String measurement) throws IOException {
+    List<String> result = new ArrayList<>();
+    try (TsFileSequenceReader reader = new TsFileSequenceReader(tsFile.getPath())) {
+      ReadOnlyTsFile readOnlyTsFile = new ReadOnlyTsFile(reader);
+      QueryDataSet dataSet = readOnlyTsFile.query(
+          QueryExpression.create(Collections.singletonList(new Path(device, measurement)), null));
+      while (dataSet.hasNext()) {
+        RowRecord record = dataSet.next();
+        result.add(record.getTimestamp() + "," + record.getFields().get(0));
+      }
+    }
+    return result;
+  }
+
+  @Test
+  public void testWrite() throws IOException {
+    writeCsv("data.csv",
+        "Time,root.sg1.d1.s1(INT32),root.sg1.d1.s2,root.sg2.d1.s1",
+        "3,3,3.5,true",
+        "1,1,,false",
+        "2,2,2.5,",
+        "1,10,1.5,true");
+    List<File> files = new TsFileBulkWriter(inputDir, outputDir, 1, 2, 1000).write();
+
+    // one file for each storage group
+    assertEquals(2, files.size());
+    File sg1File = files.get(0);
+    assertEquals("root.sg1", sg1File.getParentFile().getParentFile().getName());
+    // the later point of the same time overwrites the former one
+    assertEquals(Arrays.asList("1,10", "2,2", "3,3"),
+        query(sg1File, "root.sg1.d1", "s1"));
+    assertEquals(Arrays.asList("1,1.5", "2,2.5", "3,3.5"),
+        query(sg1File, "root.sg1.d1", "s2"));
+    assertEquals(Arrays.asList("1,true", "3,true"),
+        query(files.get(1), "root.sg2.d1", "s1"));
+
+    TsFileResource resource = new TsFileResource(sg1File);
+    assertTrue(resource.resourceFileExists());
+    resource.deserialize();
+    assertEquals(1, resource.getStartTime("root.sg1.d1"));
+    assertEquals(3, resource.getEndTime("root.sg1.d1"));
+  }
+
+  @Test
+  public void testSequentialFiles() throws IOException {
+    String[] lines = new String[11];
+    lines[0] = "Time,root.sg1.d1.s1";
+    for (int i = 1; i <= 10; i++) {
+      lines[i] = i + "," + i;
+    }
+    writeCsv("data.csv", lines);
+    // at most 3 points are buffered so the points are written into 4 files
+    List<File> files = new TsFileBulkWriter(inputDir, outputDir, 1, 1, 3).write();
+    assertEquals(4, files.size());
+
+    long previousEndTime = Long.MIN_VALUE;
+    String previousName = "";
+    for (File file : files) {
+      // the name order is the load order, which is also the time order
+      assertTrue(previousName.compareTo(file.getName()) < 0);
+      TsFileResource resource = new TsFileResource(file);
+      resource.deserialize();
+      assertTrue(resource.getStartTime("root.sg1.d1") > previousEndTime);
+      previousEndTime = resource.getEndTime("root.sg1.d1");
+      previousName = file.getName();
+    }
+    assertEquals(10, previousEndTime);
+    assertFalse(new File(files.get(0).getParentFile(), "1.tsfile.tmp").exists());
+  }
+
+  @Test
+  public void testRemoveTmpFilesOnFailure() throws IOException {
+    writeCsv("data.csv",
+        "Time,root.sg1.d1.s1",
+        "1,1",
+        "2,2",
+        "3");
+    try {
+      // the first 2 points are written into a .tmp file before the incomplete line fails
+      new TsFileBulkWriter(inputDir, outputDir, 1, 1, 1).write();
+      fail("The incomplete line should fail the write");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().contains("incomplete"));
+    }
+    assertTrue(FileUtils.listFiles(outputDir, new String[]{"tmp"}, true).isEmpty());
+  }
+}
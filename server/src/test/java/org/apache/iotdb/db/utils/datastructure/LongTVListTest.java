@@ -74,6 +74,41 @@ public class LongTVListTest {
     }
   }
 
+  @Test
+  public void testSortWithDisorderWindow() {
+    Random random = new Random(1);
+    LongTVList tvList = new LongTVList();
+    for (long i = 0; i < 10000; i++) {
+      tvList.putLong(i + random.nextInt(16), i);
+    }
+    // a late point
+    tvList.putLong(0, 10000);
+    checkSortedAndStable(tvList);
+  }
+
+  @Test
+  public void testSortShuffled() {
+    Random random = new Random(1);
+    LongTVList tvList = new LongTVList();
+    // both the negative timestamps and the duplicated timestamps are sorted by radix sort
+    for (long i = 0; i < 20000; i++) {
+      tvList.putLong(random.nextInt(5000) - 2500, i);
+    }
+    checkSortedAndStable(tvList);
+  }
+
+  private void checkSortedAndStable(LongTVList tvList) {
+    int size = tvList.size;
+    tvList.sort();
+    Assert.assertEquals(size, tvList.size);
+    for (int i = 1; i < tvList.size; i++) {
+      Assert.assertTrue(tvList.getTime(i - 1) <= tvList.getTime(i));
+      // the values are the inserting order, so the order of the same timestamp is kept
+      if (tvList.getTime(i - 1) == tvList.getTime(i)) {
+        Assert.assertTrue(tvList.getLong(i - 1) < tvList.getLong(i));
+      }
+    }
+  }
 
   @Test
   public void compareLongTVListSortTime() {
@@ -0,0 +1,346 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.RpcUtils;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertRecords_args;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertRecords_result;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertStringRecords_args;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertStringRecords_result;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertTablet_args;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertTablet_result;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertTablets_args;
+import org.apache.iotdb.service.rpc.thrift.TSIService.insertTablets_result;
+import org.apache.iotdb.service.rpc.thrift.TSStatus;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.thrift.TApplicationException;
+import org.apache.thrift.TBase;
+import org.apache.thrift.TException;
+import org.apache.thrift.protocol.TBinaryProtocol;
+import org.apache.thrift.protocol.TCompactProtocol;
+import org.apache.thrift.protocol.TMessage;
+import org.apache.thrift.protocol.TMessageType;
+import org.apache.thrift.protocol.TProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * AsyncSession pipelines insert requests over one connection: up to maxInFlightRequests requests
+ * are written to the connection before their responses are read, so the transfer of the next
+ * requests overlaps the execution of the previous ones on the server.
+ * <p>
+ * The server executes the requests of a connection one by one, so the responses come back in the
+ * order of the requests. Each insert method returns a future completed by a receiver thread in
+ * that order, and flush() waits for all in-flight requests and throws the first error since the
+ * last flush. Once the connection breaks, all in-flight and later requests fail with an
+ * IoTDBConnectionException.
+ * <p>
+ * The Tablet and the lists passed to an insert method are serialized before it returns, so they
+ * can be reused at once. Insert methods block while maxInFlightRequests requests are in flight.
+ */
+public class AsyncSession {
+
+  private static final Logger logger = LoggerFactory.getLogger(AsyncSession.class);
+
+  private final Session session;
+  private final int maxInFlightRequests;
+  private final Semaphore inFlightPermits;
+  private final BlockingQueue<PendingRequest> pendingRequests = new LinkedBlockingQueue<>();
+  // marks the end of the pending requests for the receiver thread
+  private final PendingRequest endOfRequests = new PendingRequest(-1, null, null);
+
+  // sendLock orders the requests on the connection, errorLock guards the failures, the receiver
+  // never waits for sendLock so a sender blocked on a full connection cannot block it
+  private final Object sendLock = new Object();
+  private final Object errorLock = new Object();
+
+  private TProtocol outputProtocol;
+  private TProtocol inputProtocol;
+  private volatile Thread receiver;
+  private int seqId;
+  private volatile IoTDBConnectionException brokenCause;
+  // the first failure since the last flush, in the order of the requests
+  private Exception firstError;
+
+  public AsyncSession(String host, int rpcPort, String username, String password) {
+    this(host, rpcPort, username, password, Config.DEFAULT_MAX_IN_FLIGHT_REQUESTS);
+  }
+
+  public AsyncSession(String host, int rpcPort, String username, String password,
+      int maxInFlightRequests) {
+    if (maxInFlightRequests <= 0) {
+      throw new IllegalArgumentException("maxInFlightRequests should be positive");
+    }
+    this.session = new Session(host, rpcPort, username, password);
+    this.maxInFlightRequests = maxInFlightRequests;
+    this.inFlightPermits = new Semaphore(maxInFlightRequests);
+  }
+
+  public void open() throws IoTDBConnectionException {
+    open(false);
+  }
+
+  public synchronized void open(boolean enableRPCCompression) throws IoTDBConnectionException {
+    if (receiver != null) {
+      return;
+    }
+    session.open(enableRPCCompression);
+    if (enableRPCCompression) {
+      outputProtocol = new TCompactProtocol(session.getTransport());
+      inputProtocol = new TCompactProtocol(session.getTransport());
+    } else {
+      outputProtocol = new TBinaryProtocol(session.getTransport());
+      inputProtocol = new TBinaryProtocol(session.getTransport());
+    }
+    brokenCause = null;
+    firstError = null;
+    receiver = new Thread(this::receive, "AsyncSession-receiver-" + session.getSessionId());
+    receiver.setDaemon(true);
+    receiver.start();
+  }
+
+  /**
+   * wait for all in-flight requests and close the session
+   */
+  public synchronized void close() throws IoTDBConnectionException {
+    if (receiver == null) {
+      return;
+    }
+    try {
+      waitInFlightRequests();
+    } finally {
+      pendingRequests.add(endOfRequests);
+      try {
+        receiver.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      receiver = null;
+      session.close();
+    }
+  }
+
+  /**
+   * wait for all in-flight requests to finish
+   *
+   * @throws StatementExecutionException the first request failed by the server since the last
+   *                                     flush
+   * @throws IoTDBConnectionException    if the connection broke
+   */
+  public void flush() throws IoTDBConnectionException, StatementExecutionException {
+    waitInFlightRequests();
+    Exception error;
+    synchronized (errorLock) {
+      error = firstError;
+      firstError = null;
+    }
+    if (error instanceof StatementExecutionException) {
+      throw (StatementExecutionException) error;
+    } else if (error != null) {
+      throw (IoTDBConnectionException) error;
+    }
+  }
+
+  public int getInFlightRequestNum() {
+    return maxInFlightRequests - inFlightPermits.availablePermits();
+  }
+
+  /**
+   * @see Session#insertTablet(Tablet, boolean)
+   */
+  public CompletableFuture<Void> insertTablet(Tablet tablet, boolean sorted)
+      throws IoTDBConnectionException, StatementExecutionException {
+    insertTablet_args args = new insertTablet_args(
+        session.genTSInsertTabletReq(tablet, sorted, false));
+    insertTablet_result result = new insertTablet_result();
+    return send("insertTablet", args, result, () -> result.success);
+  }
+
+  public CompletableFuture<Void> insertTablet(Tablet tablet)
+      throws IoTDBConnectionException, StatementExecutionException {
+    return insertTablet(tablet, false);
+  }
+
+  /**
+   * @see Session#insertTablets(Map, boolean)
+   */
+  public CompletableFuture<Void> insertTablets(Map<String, Tablet> tablets, boolean sorted)
+      throws IoTDBConnectionException, StatementExecutionException {
+    insertTablets_args args = new insertTablets_args(
+        session.genTSInsertTabletsReq(tablets, sorted));
+    insertTablets_result result = new insertTablets_result();
+    return send("insertTablets", args, result, () -> result.success);
+  }
+
+  /**
+   * @see Session#insertRecords(List, List, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecords(List<String> deviceIds, List<Long> times,
+      List<List<String>> measurementsList, List<List<TSDataType>> typesList,
+      List<List<Object>> valuesList) throws IoTDBConnectionException {
+    insertRecords_args args = new insertRecords_args(session.genTSInsertRecordsReq(deviceIds,
+        times, measurementsList, typesList, valuesList));
+    insertRecords_result result = new insertRecords_result();
+    return send("insertRecords", args, result, () -> result.success);
+  }
+
+  /**
+   * @see Session#insertRecords(List, List, List, List)
+   */
+  public CompletableFuture<Void> insertRecords(List<String> deviceIds, List<Long> times,
+      List<List<String>> measurementsList, List<List<String>> valuesList)
+      throws IoTDBConnectionException {
+    insertStringRecords_args args = new insertStringRecords_args(
+        session.genTSInsertStringRecordsReq(deviceIds, times, measurementsList, valuesList));
+    insertStringRecords_result result = new insertStringRecords_result();
+    return send("insertStringRecords", args, result, () -> result.success);
+  }
+
+  private CompletableFuture<Void> send(String methodName, TBase<?, ?> args, TBase<?, ?> result,
+      Supplier<TSStatus> statusSupplier) throws IoTDBConnectionException {
+    try {
+      inFlightPermits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException(e);
+    }
+    synchronized (sendLock) {
+      if (receiver == null) {
+        inFlightPermits.release();
+        throw new IoTDBConnectionException("AsyncSession is not opened");
+      }
+      if (brokenCause != null) {
+        inFlightPermits.release();
+        throw brokenCause;
+      }
+      PendingRequest request = new PendingRequest(++seqId, result, statusSupplier);
+      // enqueue before writing, the receiver blocks on the connection until the response comes
+      pendingRequests.add(request);
+      try {
+        outputProtocol.writeMessageBegin(new TMessage(methodName, TMessageType.CALL, request.seqId));
+        args.write(outputProtocol);
+        outputProtocol.writeMessageEnd();
+        outputProtocol.getTransport().flush();
+      } catch (TException e) {
+        // the receiver fails this request and the following ones once the connection is closed
+        brokenCause = new IoTDBConnectionException(e);
+        session.getTransport().close();
+      }
+      return request.future;
+    }
+  }
+
+  private void receive() {
+    while (true) {
+      PendingRequest request;
+      try {
+        request = pendingRequests.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (request == endOfRequests) {
+        return;
+      }
+      try {
+        if (brokenCause != null) {
+          fail(request, brokenCause);
+          continue;
+        }
+        try {
+          readResponse(request);
+          RpcUtils.verifySuccess(request.statusSupplier.get());
+          request.future.complete(null);
+        } catch (StatementExecutionException e) {
+          fail(request, e);
+        } catch (TException | RuntimeException e) {
+          // an unexpected response leaves the connection in an unknown state as well
+          synchronized (errorLock) {
+            if (brokenCause == null) {
+              brokenCause = new IoTDBConnectionException(e);
+            }
+          }
+          logger.error("AsyncSession connection broken", e);
+          fail(request, brokenCause);
+        }
+      } finally {
+        inFlightPermits.release();
+      }
+    }
+  }
+
+  private void readResponse(PendingRequest request) throws TException {
+    TMessage message = inputProtocol.readMessageBegin();
+    if (message.type == TMessageType.EXCEPTION) {
+      TApplicationException exception = TApplicationException.readFrom(inputProtocol);
+      inputProtocol.readMessageEnd();
+      throw exception;
+    }
+    if (message.seqid != request.seqId) {
+      throw new TApplicationException(TApplicationException.BAD_SEQUENCE_ID, String
+          .format("%s failed: out of sequence response: expected %d but got %d", message.name,
+              request.seqId, message.seqid));
+    }
+    request.result.read(inputProtocol);
+    inputProtocol.readMessageEnd();
+  }
+
+  private void fail(PendingRequest request, Exception e) {
+    synchronized (errorLock) {
+      if (firstError == null) {
+        firstError = e;
+      }
+    }
+    request.future.completeExceptionally(e);
+  }
+
+  private void waitInFlightRequests() throws IoTDBConnectionException {
+    try {
+      inFlightPermits.acquire(maxInFlightRequests);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IoTDBConnectionException(e);
+    }
+    inFlightPermits.release(maxInFlightRequests);
+  }
+
+  private static class PendingRequest {
+
+    private final int seqId;
+    private final TBase<?, ?> result;
+    private final Supplier<TSStatus> statusSupplier;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+    private PendingRequest(int seqId, TBase<?, ?> result, Supplier<TSStatus> statusSupplier) {
+      this.seqId = seqId;
+      this.result = result;
+      this.statusSupplier = statusSupplier;
+    }
+  }
+}
@@ -24,5 +24,6 @@ public class Config {
   public static final String DEFAULT_PASSWORD = "password";
   public static final int DEFAULT_FETCH_SIZE = 10000;
   public static final int DEFAULT_TIMEOUT_MS = 0;
+  public static final int DEFAULT_MAX_IN_FLIGHT_REQUESTS = 8;
 
 }
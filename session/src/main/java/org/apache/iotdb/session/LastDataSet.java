@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataSet;
+import org.apache.iotdb.tsfile.exception.write.UnSupportedDataTypeException;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.utils.Binary;
+import org.apache.iotdb.tsfile.utils.BytesUtils;
+
+/**
+ * LastDataSet holds the last values returned by Session.executeLastDataQuery. Each row is the last
+ * value of one queried series, the series without any data are absent. The values are kept in
+ * the typed columns of the response and are read without any string conversion. The columns are
+ * copied, as the buffers of the response may be reused by the next RPC of the session.
+ */
+public class LastDataSet {
+
+  private final List<String> paths;
+  private final int size;
+  private final int[] pathIndexes;
+  private final long[] times;
+  private final TSDataType[] dataTypes;
+  private final ByteBuffer values;
+  // the position of each value in values
+  private final int[] valueOffsets;
+
+  LastDataSet(List<String> paths, TSLastDataSet lastDataSet) {
+    this.paths = paths;
+    this.size = lastDataSet.pathIndexes.remaining() / Integer.BYTES;
+    this.pathIndexes = new int[size];
+    lastDataSet.pathIndexes.asIntBuffer().get(pathIndexes);
+    this.times = new long[size];
+    lastDataSet.times.asLongBuffer().get(times);
+    this.dataTypes = new TSDataType[size];
+    this.values = ByteBuffer.allocate(lastDataSet.values.remaining());
+    values.put(lastDataSet.values.duplicate());
+    values.flip();
+    this.valueOffsets = new int[size];
+
+    ByteBuffer types = lastDataSet.types;
+    int offset = 0;
+    for (int i = 0; i < size; i++) {
+      dataTypes[i] = TSDataType.byteToEnum(types.get(types.position() + i));
+      valueOffsets[i] = offset;
+      switch (dataTypes[i]) {
+        case BOOLEAN:
+          offset += 1;
+          break;
+        case INT32:
+        case FLOAT:
+          offset += 4;
+          break;
+        case INT64:
+        case DOUBLE:
+          offset += 8;
+          break;
+        case TEXT:
+          offset += 4 + values.getInt(offset);
+          break;
+        default:
+          throw new UnSupportedDataTypeException(
+              String.format("Data type %s is not supported.", dataTypes[i]));
+      }
+    }
+  }
+
+  /**
+   * @return the number of series having last values
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return the path of the series of the i-th row
+   */
+  public String getPath(int i) {
+    return paths.get(pathIndexes[i]);
+  }
+
+  /**
+   * @return the index in the queried paths of the series of the i-th row
+   */
+  public int getPathIndex(int i) {
+    return pathIndexes[i];
+  }
+
+  public long getTime(int i) {
+    return times[i];
+  }
+
+  public TSDataType getDataType(int i) {
+    return dataTypes[i];
+  }
+
+  public boolean getBoolean(int i) {
+    checkType(i, TSDataType.BOOLEAN);
+    return BytesUtils.byteToBool(values.get(valueOffsets[i]));
+  }
+
+  public int getInt(int i) {
+    checkType(i, TSDataType.INT32);
+    return values.getInt(valueOffsets[i]);
+  }
+
+  public long getLong(int i) {
+    checkType(i, TSDataType.INT64);
+    return values.getLong(valueOffsets[i]);
+  }
+
+  public float getFloat(int i) {
+    checkType(i, TSDataType.FLOAT);
+    return values.getFloat(valueOffsets[i]);
+  }
+
+  public double getDouble(int i) {
+    checkType(i, TSDataType.DOUBLE);
+    return values.getDouble(valueOffsets[i]);
+  }
+
+  public Binary getBinary(int i) {
+    checkType(i, TSDataType.TEXT);
+    int length = values.getInt(valueOffsets[i]);
+    byte[] bytes = new byte[length];
+    ByteBuffer duplicate = values.duplicate();
+    duplicate.position(valueOffsets[i] + 4);
+    duplicate.get(bytes);
+    return new Binary(bytes);
+  }
+
+  /**
+   * @return the value of the i-th row boxed according to its data type
+   */
+  public Object getObject(int i) {
+    switch (dataTypes[i]) {
+      case BOOLEAN:
+        return getBoolean(i);
+      case INT32:
+        return getInt(i);
+      case INT64:
+        return getLong(i);
+      case FLOAT:
+        return getFloat(i);
+      case DOUBLE:
+        return getDouble(i);
+      default:
+        return getBinary(i);
+    }
+  }
+
+  private void checkType(int i, TSDataType expected) {
+    if (dataTypes[i] != expected) {
+      throw new UnSupportedDataTypeException(
+          String.format("The data type of %s is %s, not %s", getPath(i), dataTypes[i],
+              expected));
+    }
+  }
+}
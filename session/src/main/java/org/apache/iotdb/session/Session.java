@@ -43,6 +43,8 @@ import org.apache.iotdb.service.rpc.thrift.TSIService;
 import org.apache.iotdb.service.rpc.thrift.TSInsertRecordsReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertRecordReq;
 import org.apache.iotdb.service.rpc.thrift.TSInsertTabletsReq;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataQueryReq;
+import org.apache.iotdb.service.rpc.thrift.TSLastDataResp;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionReq;
 import org.apache.iotdb.service.rpc.thrift.TSOpenSessionResp;
 import org.apache.iotdb.service.rpc.thrift.TSProtocolVersion;
@@ -83,6 +85,11 @@ public class Session {
   private ZoneId zoneId;
   private long statementId;
   private int fetchSize;
+  /**
+   * serialized timestamps and values of the tablet being inserted, reused by insertTablet as the
+   * request is sent synchronously and the buffer is free again once the call returns
+   */
+  private ByteBuffer tabletBuffer;
 
   public Session(String host, int rpcPort) {
     this(host, rpcPort, Config.DEFAULT_USER, Config.DEFAULT_PASSWORD);
@@ -233,7 +240,7 @@ public class Session {
    * @param tablet data batch
    * @param sorted whether times in Tablet are in ascending order
    */
-  public void insertTablet(Tablet tablet, boolean sorted)
+  public synchronized void insertTablet(Tablet tablet, boolean sorted)
       throws IoTDBConnectionException, StatementExecutionException {
     TSInsertTabletReq request = genTSInsertTabletReq(tablet, sorted);
     try {
@@ -245,6 +252,15 @@ public class Session {
 
   private TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted)
       throws BatchExecutionException {
+    return genTSInsertTabletReq(tablet, sorted, true);
+  }
+
+  /**
+   * @param reuseBuffer whether the request is serialized into the buffer of this session, which is
+   *                    only allowed if the request is sent before the next one is generated
+   */
+  TSInsertTabletReq genTSInsertTabletReq(Tablet tablet, boolean sorted, boolean reuseBuffer)
+      throws BatchExecutionException {
     if (sorted) {
       if (!checkSorted(tablet)) {
         throw new BatchExecutionException("Times in Tablet are not in ascending order");
@@ -260,12 +276,28 @@ public class Session {
       request.addToMeasurements(measurementSchema.getMeasurementId());
       request.addToTypes(measurementSchema.getType().ordinal());
     }
-    request.setTimestamps(SessionUtils.getTimeBuffer(tablet));
-    request.setValues(SessionUtils.getValueBuffer(tablet));
+    // write both columns into one buffer and hand its views to the request directly, the
+    // generated setters would copy them once more
+    int timeBytesSize = tablet.getTimeBytesSize();
+    int bufferSize = timeBytesSize + tablet.getValueBytesSize();
+    ByteBuffer buffer = reuseBuffer ? getTabletBuffer(bufferSize) : ByteBuffer.allocate(bufferSize);
+    SessionUtils.putTimes(tablet, buffer);
+    SessionUtils.putValues(tablet, buffer);
+    request.timestamps = (ByteBuffer) buffer.duplicate().position(0).limit(timeBytesSize);
+    request.values = (ByteBuffer) buffer.duplicate().limit(buffer.position())
+        .position(timeBytesSize);
     request.setSize(tablet.rowSize);
     return request;
   }
 
+  private ByteBuffer getTabletBuffer(int capacity) {
+    if (tabletBuffer == null || tabletBuffer.capacity() < capacity) {
+      tabletBuffer = ByteBuffer.allocate(capacity);
+    }
+    tabletBuffer.clear();
+    return tabletBuffer;
+  }
+
   /**
    * insert the data of several deivces. Given a deivce, for each timestamp, the number of
    * measurements is the same.
@@ -297,7 +329,7 @@ public class Session {
     }
   }
 
-  private TSInsertTabletsReq genTSInsertTabletsReq(Map<String, Tablet> tablets, boolean sorted)
+  TSInsertTabletsReq genTSInsertTabletsReq(Map<String, Tablet> tablets, boolean sorted)
       throws BatchExecutionException {
     TSInsertTabletsReq request = new TSInsertTabletsReq();
     request.setSessionId(sessionId);
@@ -349,7 +381,7 @@ public class Session {
     }
   }
 
-  private TSInsertRecordsReq genTSInsertRecordsReq(List<String> deviceIds, List<Long> times,
+  TSInsertRecordsReq genTSInsertRecordsReq(List<String> deviceIds, List<Long> times,
       List<List<String>> measurementsList, List<List<TSDataType>> typesList,
       List<List<Object>> valuesList) throws IoTDBConnectionException {
     // check params size
@@ -397,7 +429,7 @@ public class Session {
     }
   }
 
-  private TSInsertStringRecordsReq genTSInsertStringRecordsReq(List<String> deviceIds,
+  TSInsertStringRecordsReq genTSInsertStringRecordsReq(List<String> deviceIds,
       List<Long> times,
       List<List<String>> measurementsList, List<List<String>> valuesList) {
     // check params size
@@ -570,7 +602,7 @@ public class Session {
    * This method NOT insert data into database and the server just return after accept the request,
    * this method should be used to test other time cost in client
    */
-  public void testInsertTablet(Tablet tablet)
+  public synchronized void testInsertTablet(Tablet tablet)
       throws IoTDBConnectionException, StatementExecutionException {
     TSInsertTabletReq request = genTSInsertTabletReq(tablet, false);
 
@@ -585,7 +617,7 @@ public class Session {
    * This method NOT insert data into database and the server just return after accept the request,
    * this method should be used to test other time cost in client
    */
-  public void testInsertTablet(Tablet tablet, boolean sorted)
+  public synchronized void testInsertTablet(Tablet tablet, boolean sorted)
       throws IoTDBConnectionException, StatementExecutionException {
     TSInsertTabletReq request = genTSInsertTabletReq(tablet, sorted);
 
@@ -863,6 +895,18 @@ public class Session {
     return result;
   }
 
+  /**
+   * @return the transport of this session, used by AsyncSession to pipeline requests over the same
+   * connection
+   */
+  TTransport getTransport() {
+    return transport;
+  }
+
+  long getSessionId() {
+    return sessionId;
+  }
+
   private synchronized String getTimeZone()
       throws StatementExecutionException, IoTDBConnectionException {
     if (zoneId != null) {
@@ -967,6 +1011,28 @@ public class Session {
         execResp.isIgnoreTimeStamp());
   }
 
+  /**
+   * query the last values of the series in one request. Unlike "select last", the values keep
+   * their data types and the server does not keep a result set to be fetched.
+   *
+   * @param paths full paths of the series, wildcards are not supported
+   * @return the last value of each series having data
+   */
+  public LastDataSet executeLastDataQuery(List<String> paths)
+      throws StatementExecutionException, IoTDBConnectionException {
+    TSLastDataQueryReq req = new TSLastDataQueryReq(sessionId, paths, statementId);
+
+    TSLastDataResp resp;
+    try {
+      resp = client.executeLastDataQuery(req);
+    } catch (TException e) {
+      throw new IoTDBConnectionException(e);
+    }
+
+    RpcUtils.verifySuccess(resp.getStatus());
+    return new LastDataSet(paths, resp.getLastDataSet());
+  }
+
   /**
    * check whether the batch has been sorted
    *
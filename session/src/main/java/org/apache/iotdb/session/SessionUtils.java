@@ -28,56 +28,69 @@ import java.nio.ByteBuffer;
 
 public class SessionUtils {
 
+  private SessionUtils() {
+  }
+
   public static ByteBuffer getTimeBuffer(Tablet tablet) {
     ByteBuffer timeBuffer = ByteBuffer.allocate(tablet.getTimeBytesSize());
-    for (int i = 0; i < tablet.rowSize; i++) {
-      timeBuffer.putLong(tablet.timestamps[i]);
-    }
+    putTimes(tablet, timeBuffer);
     timeBuffer.flip();
     return timeBuffer;
   }
 
-  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
   public static ByteBuffer getValueBuffer(Tablet tablet) {
     ByteBuffer valueBuffer = ByteBuffer.allocate(tablet.getValueBytesSize());
+    putValues(tablet, valueBuffer);
+    valueBuffer.flip();
+    return valueBuffer;
+  }
+
+  /**
+   * write the timestamps of the tablet into the buffer from its position, the position is moved to
+   * the end of the written bytes
+   */
+  public static void putTimes(Tablet tablet, ByteBuffer buffer) {
+    buffer.asLongBuffer().put(tablet.timestamps, 0, tablet.rowSize);
+    buffer.position(buffer.position() + tablet.getTimeBytesSize());
+  }
+
+  /**
+   * write the values of the tablet column by column into the buffer from its position, the
+   * position is moved to the end of the written bytes
+   */
+  @SuppressWarnings("squid:S3776") // Suppress high Cognitive Complexity warning
+  public static void putValues(Tablet tablet, ByteBuffer buffer) {
+    int rowSize = tablet.rowSize;
     for (int i = 0; i < tablet.getSchemas().size(); i++) {
       TSDataType dataType = tablet.getSchemas().get(i).getType();
       switch (dataType) {
         case INT32:
-          int[] intValues = (int[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.putInt(intValues[index]);
-          }
+          buffer.asIntBuffer().put((int[]) tablet.values[i], 0, rowSize);
+          buffer.position(buffer.position() + rowSize * Integer.BYTES);
           break;
         case INT64:
-          long[] longValues = (long[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.putLong(longValues[index]);
-          }
+          buffer.asLongBuffer().put((long[]) tablet.values[i], 0, rowSize);
+          buffer.position(buffer.position() + rowSize * Long.BYTES);
           break;
         case FLOAT:
-          float[] floatValues = (float[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.putFloat(floatValues[index]);
-          }
+          buffer.asFloatBuffer().put((float[]) tablet.values[i], 0, rowSize);
+          buffer.position(buffer.position() + rowSize * Float.BYTES);
           break;
         case DOUBLE:
-          double[] doubleValues = (double[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.putDouble(doubleValues[index]);
-          }
+          buffer.asDoubleBuffer().put((double[]) tablet.values[i], 0, rowSize);
+          buffer.position(buffer.position() + rowSize * Double.BYTES);
           break;
         case BOOLEAN:
           boolean[] boolValues = (boolean[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.put(BytesUtils.boolToByte(boolValues[index]));
+          for (int index = 0; index < rowSize; index++) {
+            buffer.put(BytesUtils.boolToByte(boolValues[index]));
           }
           break;
         case TEXT:
           Binary[] binaryValues = (Binary[]) tablet.values[i];
-          for (int index = 0; index < tablet.rowSize; index++) {
-            valueBuffer.putInt(binaryValues[index].getLength());
-            valueBuffer.put(binaryValues[index].getValues());
+          for (int index = 0; index < rowSize; index++) {
+            buffer.putInt(binaryValues[index].getLength());
+            buffer.put(binaryValues[index].getValues());
           }
           break;
         default:
@@ -85,7 +98,5 @@ public class SessionUtils {
               String.format("Data type %s is not supported.", dataType));
       }
     }
-    valueBuffer.flip();
-    return valueBuffer;
   }
 }
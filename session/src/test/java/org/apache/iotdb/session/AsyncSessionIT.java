@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.iotdb.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.iotdb.db.conf.IoTDBConstant;
+import org.apache.iotdb.db.utils.EnvironmentUtils;
+import org.apache.iotdb.rpc.IoTDBConnectionException;
+import org.apache.iotdb.rpc.StatementExecutionException;
+import org.apache.iotdb.tsfile.file.metadata.enums.CompressionType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType;
+import org.apache.iotdb.tsfile.file.metadata.enums.TSEncoding;
+import org.apache.iotdb.tsfile.read.common.RowRecord;
+import org.apache.iotdb.tsfile.write.record.Tablet;
+import org.apache.iotdb.tsfile.write.schema.MeasurementSchema;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AsyncSessionIT {
+
+  private AsyncSession asyncSession;
+  private Session session;
+
+  @Before
+  public void setUp() {
+    System.setProperty(IoTDBConstant.IOTDB_CONF, "src/test/resources/");
+    EnvironmentUtils.closeStatMonitor();
+    EnvironmentUtils.envSetUp();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (asyncSession != null) {
+      asyncSession.close();
+    }
+    if (session != null) {
+      session.close();
+    }
+    EnvironmentUtils.cleanEnv();
+  }
+
+  private Tablet genTablet(String deviceId, TSDataType dataType, long startTime, int rowNum) {
+    List<MeasurementSchema> schemaList = new ArrayList<>();
+    schemaList.add(new MeasurementSchema("s1", dataType, TSEncoding.PLAIN));
+    Tablet tablet = new Tablet(deviceId, schemaList, rowNum);
+    for (int row = 0; row < rowNum; row++) {
+      tablet.timestamps[row] = startTime + row;
+      if (dataType == TSDataType.INT64) {
+        ((long[]) tablet.values[0])[row] = startTime + row;
+      } else {
+        ((double[]) tablet.values[0])[row] = startTime + row;
+      }
+      tablet.rowSize++;
+    }
+    return tablet;
+  }
+
+  @Test
+  public void testPipelinedInsert() throws IoTDBConnectionException, StatementExecutionException {
+    asyncSession = new AsyncSession("127.0.0.1", 6667, "root", "root", 4);
+    asyncSession.open();
+
+    List<CompletableFuture<Void>> futures = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      futures.add(asyncSession.insertTablet(genTablet("root.sg1.d1", TSDataType.INT64, i * 100L,
+          100), true));
+      assertTrue(asyncSession.getInFlightRequestNum() <= 4);
+    }
+    futures.add(asyncSession.insertRecords(Collections.singletonList("root.sg1.d1"),
+        Collections.singletonList(2000L), Collections.singletonList(Collections.singletonList("s1")),
+        Collections.singletonList(Collections.singletonList("2000"))));
+    asyncSession.flush();
+    for (CompletableFuture<Void> future : futures) {
+      assertTrue(future.isDone());
+      assertFalse(future.isCompletedExceptionally());
+    }
+
+    session = new Session("127.0.0.1", 6667, "root", "root");
+    session.open();
+    SessionDataSet dataSet = session.executeQueryStatement("select s1 from root.sg1.d1");
+    long expectedTime = 0;
+    while (dataSet.hasNext()) {
+      RowRecord record = dataSet.next();
+      assertEquals(expectedTime, record.getTimestamp());
+      assertEquals(expectedTime, record.getFields().get(0).getLongV());
+      expectedTime++;
+    }
+    assertEquals(2001, expectedTime);
+  }
+
+  @Test
+  public void testOrderedErrorReporting()
+      throws IoTDBConnectionException, StatementExecutionException {
+    session = new Session("127.0.0.1", 6667, "root", "root");
+    session.open();
+    session.createTimeseries("root.sg1.d1.s1", TSDataType.INT64, TSEncoding.PLAIN,
+        CompressionType.UNCOMPRESSED);
+    session.createTimeseries("root.sg1.d2.s1", TSDataType.INT64, TSEncoding.PLAIN,
+        CompressionType.UNCOMPRESSED);
+
+    asyncSession = new AsyncSession("127.0.0.1", 6667, "root", "root", 4);
+    asyncSession.open();
+    CompletableFuture<Void> first = asyncSession
+        .insertTablet(genTablet("root.sg1.d1", TSDataType.INT64, 0, 10));
+    // the data type does not match the series, so the following two requests fail
+    CompletableFuture<Void> second = asyncSession
+        .insertTablet(genTablet("root.sg1.d1", TSDataType.DOUBLE, 10, 10));
+    CompletableFuture<Void> third = asyncSession
+        .insertTablet(genTablet("root.sg1.d2", TSDataType.DOUBLE, 0, 10));
+    CompletableFuture<Void> fourth = asyncSession
+        .insertTablet(genTablet("root.sg1.d2", TSDataType.INT64, 10, 10));
+    try {
+      asyncSession.flush();
+      fail();
+    } catch (StatementExecutionException e) {
+      // the error of the earliest failed request is reported
+      try {
+        second.join();
+        fail();
+      } catch (CompletionException completionException) {
+        assertSame(e, completionException.getCause());
+      }
+    }
+    assertFalse(first.isCompletedExceptionally());
+    assertTrue(second.isCompletedExceptionally());
+    assertTrue(third.isCompletedExceptionally());
+    assertFalse(fourth.isCompletedExceptionally());
+
+    // the connection is still usable after a failed request
+    asyncSession.insertTablet(genTablet("root.sg1.d2", TSDataType.INT64, 20, 10));
+    asyncSession.flush();
+    SessionDataSet dataSet = session.executeQueryStatement("select count(s1) from root.sg1.d2");
+    assertEquals(20, dataSet.next().getFields().get(0).getLongV());
+  }
+}
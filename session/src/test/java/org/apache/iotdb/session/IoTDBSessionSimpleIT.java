@@ -24,6 +24,7 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -96,6 +97,56 @@ public class IoTDBSessionSimpleIT {
     session.close();
   }
 
+  @Test
+  public void testLastDataQuery()
+      throws IoTDBConnectionException, StatementExecutionException {
+    session = new Session("127.0.0.1", 6667, "root", "root");
+    session.open();
+
+    List<String> measurements = new ArrayList<>();
+    measurements.add("s1");
+    measurements.add("s2");
+    measurements.add("s3");
+    List<TSDataType> types = new ArrayList<>();
+    types.add(TSDataType.INT64);
+    types.add(TSDataType.DOUBLE);
+    types.add(TSDataType.TEXT);
+    for (long time = 1; time <= 10; time++) {
+      List<Object> values = new ArrayList<>();
+      values.add(time);
+      values.add(time * 0.5);
+      values.add("v" + time);
+      session.insertRecord("root.sg1.d1", time, measurements, types, values);
+    }
+    session.insertRecord("root.sg1.d2", 5, Collections.singletonList("s1"),
+        Collections.singletonList(TSDataType.INT32),
+        Collections.singletonList(7));
+    session.executeNonQueryStatement("flush");
+    session.createTimeseries("root.sg1.d2.s2", TSDataType.INT64, TSEncoding.RLE,
+        CompressionType.SNAPPY);
+
+    List<String> paths = new ArrayList<>();
+    paths.add("root.sg1.d1.s1");
+    paths.add("root.sg1.d2.s2");
+    paths.add("root.sg1.d1.s2");
+    paths.add("root.sg1.d2.s1");
+    paths.add("root.sg1.d1.s3");
+    LastDataSet lastDataSet = session.executeLastDataQuery(paths);
+    // root.sg1.d2.s2 has no data
+    assertEquals(4, lastDataSet.size());
+    assertEquals("root.sg1.d1.s1", lastDataSet.getPath(0));
+    assertEquals(10, lastDataSet.getTime(0));
+    assertEquals(10L, lastDataSet.getLong(0));
+    assertEquals(2, lastDataSet.getPathIndex(1));
+    assertEquals(5.0, lastDataSet.getDouble(1), 0);
+    assertEquals("root.sg1.d2.s1", lastDataSet.getPath(2));
+    assertEquals(5, lastDataSet.getTime(2));
+    assertEquals(TSDataType.INT32, lastDataSet.getDataType(2));
+    assertEquals(7, lastDataSet.getInt(2));
+    assertEquals("v10", lastDataSet.getBinary(3).getStringValue());
+    assertEquals("v10", lastDataSet.getObject(3).toString());
+  }
+
   @Test
   public void testInsertByStrAndInferType()
       throws IoTDBConnectionException, StatementExecutionException {
@@ -174,4 +174,44 @@ public class SessionUT {
             i++;
         }
     }
+
+    @Test
+    public void testInsertTabletsReusingBuffer() throws IoTDBConnectionException, StatementExecutionException {
+        session = new Session("127.0.0.1", 6667, "root", "root");
+        session.open();
+
+        List<MeasurementSchema> schemaList = new ArrayList<>();
+        schemaList.add(new MeasurementSchema("s1", TSDataType.INT32, TSEncoding.RLE));
+        schemaList.add(new MeasurementSchema("s2", TSDataType.DOUBLE, TSEncoding.RLE));
+        schemaList.add(new MeasurementSchema("s3", TSDataType.TEXT, TSEncoding.PLAIN));
+        schemaList.add(new MeasurementSchema("s4", TSDataType.BOOLEAN, TSEncoding.PLAIN));
+
+        // the second tablet is smaller than the first one, so it is written into the same buffer
+        long time = 0;
+        for (int rowNum : new int[]{100, 30}) {
+            Tablet tablet = new Tablet("root.sg1.d1", schemaList, rowNum);
+            for (int row = 0; row < rowNum; row++, time++) {
+                tablet.timestamps[row] = time;
+                ((int[]) tablet.values[0])[row] = (int) time;
+                ((double[]) tablet.values[1])[row] = 0.5 + time;
+                ((Binary[]) tablet.values[2])[row] = Binary.valueOf("v" + time);
+                ((boolean[]) tablet.values[3])[row] = time % 2 == 0;
+                tablet.rowSize++;
+            }
+            session.insertTablet(tablet, true);
+        }
+
+        SessionDataSet dataSet = session.executeQueryStatement("select * from root.sg1.d1");
+        long expectedTime = 0;
+        while (dataSet.hasNext()) {
+            RowRecord record = dataSet.next();
+            assertEquals(expectedTime, record.getTimestamp());
+            assertEquals(expectedTime, record.getFields().get(0).getIntV());
+            assertEquals(0.5 + expectedTime, record.getFields().get(1).getDoubleV(), 0.0);
+            assertEquals("v" + expectedTime, record.getFields().get(2).getStringValue());
+            assertEquals(expectedTime % 2 == 0, record.getFields().get(3).getBoolV());
+            expectedTime++;
+        }
+        assertEquals(130, expectedTime);
+    }
 }
@@ -37,7 +37,41 @@ class IoTDBOptions(
 
   val upperBound = parameters.getOrElse("upperBound", "0")
 
+  /**
+    * true if the time range of the partitions is given by the user, otherwise the partitions of a
+    * raw data query are generated from the time range of the queried series
+    */
+  val hasBounds: Boolean = parameters.contains("lowerBound") || parameters.contains("upperBound")
+
+  /**
+    * the length of the time range of an automatically generated partition, which are aligned to
+    * its multiples like the time partitions of IoTDB. 0 to split the time range of the queried
+    * series evenly.
+    */
+  val partitionInterval = parameters.getOrElse("partitionInterval", "0")
+
+  /**
+    * "narrow" to read a raw data query in narrow form, with one row for each device and time
+    */
+  val form = parameters.getOrElse("form", "wide")
+
+  val isNarrowForm: Boolean = "narrow".equalsIgnoreCase(form)
+
+  val fetchSize = parameters.getOrElse("fetchSize", "10000")
+
+  /**
+    * @return the host and the port of the url, which are used to open sessions
+    */
+  def hostAndPort: (String, Int) = url match {
+    case IoTDBOptions.URL_PATTERN(host, port) => (host, port.toInt)
+    case _ => sys.error(s"Option 'url' $url should be like jdbc:iotdb://host:port/")
+  }
+
   def get(name: String): Unit = {
 
   }
 }
+
+object IoTDBOptions {
+  private val URL_PATTERN = "jdbc:iotdb://([^:/]+):([0-9]{1,5})/?".r
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.spark.db
+
+import org.apache.iotdb.session.Session
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType
+import org.apache.spark.rdd.RDD
+import org.apache.spark.sql.Row
+import org.apache.spark.sql.types._
+import org.apache.spark.{Partition, SparkContext, TaskContext}
+
+import scala.collection.JavaConversions._
+
+/**
+  * A partition of a raw data query, which reads the series in [start, end).
+  *
+  * @param device the device of the series in narrow form, or null in wide form
+  * @param paths  full paths of the series
+  */
+case class IoTDBRawDataPartition(id: Int, device: String, paths: Array[String], start: Long,
+                                 end: Long) extends Partition {
+  override def index: Int = id
+}
+
+/**
+  * Reads each partition through the raw data query of a session instead of a JDBC statement, and
+  * the rows are built from the typed values of the query result, so no value is converted to and
+  * parsed from a string.
+  */
+class IoTDBRawDataRDD private[iotdb](
+                                      sc: SparkContext,
+                                      options: IoTDBOptions,
+                                      prunedSchema: StructType,
+                                      partitions: Array[Partition])
+  extends RDD[Row](sc, Nil) {
+
+  override def compute(split: Partition, context: TaskContext): Iterator[Row] = {
+    val part = split.asInstanceOf[IoTDBRawDataPartition]
+    val (host, port) = options.hostAndPort
+    val session = new Session(host, port, options.user, options.password,
+      options.fetchSize.toInt)
+    session.open()
+    context.addTaskCompletionListener { _ => session.close() }
+
+    val dataSet = session.executeRawDataQuery(part.paths.toList, part.start, part.end)
+    val columnNames = dataSet.getColumnNames
+    val columnTypes = dataSet.getColumnTypes
+    // the column of each field in the result of the query, 1 for time and 0 if there is no data
+    val columns = prunedSchema.fields.map(field => field.name match {
+      case SQLConstant.TIMESTAMP_STR => 1
+      case IoTDBRelation.DEVICE_NAME => 0
+      case name =>
+        val path = if (part.device == null) name else part.device + "." + name
+        columnNames.indexOf(path) + 1
+    })
+    val dataTypes = columns.map(column => if (column > 1) columnTypes(column - 1) else null)
+    val iterator = dataSet.iterator()
+
+    new Iterator[Row] {
+      private var gotNext = false
+      private var finished = false
+      private val rowBuffer = Array.fill[Any](prunedSchema.length)(null)
+
+      override def hasNext: Boolean = {
+        if (!gotNext && !finished) {
+          finished = !iterator.next()
+          gotNext = true
+          if (finished) {
+            dataSet.closeOperationHandle()
+          }
+        }
+        !finished
+      }
+
+      override def next(): Row = {
+        if (!hasNext) {
+          throw new NoSuchElementException("End of stream")
+        }
+        gotNext = false
+        var i = 0
+        while (i < columns.length) {
+          val column = columns(i)
+          rowBuffer(i) = if (column == 1) {
+            iterator.getLong(1)
+          } else if (column == 0) {
+            if (prunedSchema.fields(i).name == IoTDBRelation.DEVICE_NAME) part.device else null
+          } else if (iterator.isNull(column)) {
+            null
+          } else {
+            dataTypes(i) match {
+              case TSDataType.BOOLEAN => iterator.getBoolean(column)
+              case TSDataType.INT32 => iterator.getInt(column)
+              case TSDataType.INT64 => iterator.getLong(column)
+              case TSDataType.FLOAT => iterator.getFloat(column)
+              case TSDataType.DOUBLE => iterator.getDouble(column)
+              case _ => iterator.getString(column)
+            }
+          }
+          i += 1
+        }
+        Row.fromSeq(rowBuffer)
+      }
+    }
+  }
+
+  override def getPartitions: Array[Partition] = partitions
+}
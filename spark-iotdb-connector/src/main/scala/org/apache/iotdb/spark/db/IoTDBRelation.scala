@@ -19,13 +19,16 @@
 
 package org.apache.iotdb.spark.db
 
+import org.apache.iotdb.session.Session
 import org.apache.spark.Partition
 import org.apache.spark.rdd.RDD
-import org.apache.spark.sql.sources.{BaseRelation, Filter, PrunedFilteredScan}
-import org.apache.spark.sql.types.StructType
+import org.apache.spark.sql.sources._
+import org.apache.spark.sql.types.{StringType, StructField, StructType}
 import org.apache.spark.sql.{Row, SQLContext, SparkSession}
 import org.slf4j.LoggerFactory
 
+import scala.collection.JavaConversions._
+import scala.collection.mutable
 import scala.collection.mutable.ArrayBuffer
 
 private case class IoTDBPartitioningInfo(
@@ -37,6 +40,165 @@ private object IoTDBRelation {
 
   private final val logger = LoggerFactory.getLogger(classOf[IoTDBRelation])
 
+  val DEVICE_NAME = "device_name"
+
+  /**
+    * the clauses that make a query not a plain selection of raw data
+    */
+  private val NOT_RAW_DATA_CLAUSES = Seq("where", "group by", "limit", "offset", "fill",
+    "align by", "disable align", "order by")
+
+  /**
+    * @return true if the query selects the raw data of series without other clauses, so it can be
+    *         read by the raw data queries of sessions in any time range
+    */
+  def isRawDataQuery(sql: String, schema: StructType): Boolean = {
+    val lowerSql = sql.toLowerCase.replaceAll("\\s+", " ")
+    schema.nonEmpty && schema.head.name == SQLConstant.TIMESTAMP_STR &&
+      schema.tail.forall(field => field.name.startsWith("root.") && !field.name.contains("(")) &&
+      !NOT_RAW_DATA_CLAUSES.exists(clause => lowerSql.contains(" " + clause + " ") ||
+        lowerSql.endsWith(" " + clause))
+  }
+
+  /**
+    * @return the device name and the measurement name of a full path
+    */
+  def splitPath(path: String): (String, String) = {
+    val pos = path.lastIndexOf('.')
+    (path.substring(0, pos), path.substring(pos + 1))
+  }
+
+  /**
+    * Convert the Spark filters on time to a time range [start, end). The other filters are left
+    * to Spark.
+    */
+  def toTimeRange(filters: Array[Filter]): (Long, Long) = {
+    var start = Long.MinValue
+    var end = Long.MaxValue
+
+    def intersect(filter: Filter): Unit = filter match {
+      case And(left, right) =>
+        intersect(left)
+        intersect(right)
+      case EqualTo(SQLConstant.TIMESTAMP_STR, value: Number) =>
+        start = math.max(start, value.longValue)
+        end = math.min(end, value.longValue + 1)
+      case GreaterThan(SQLConstant.TIMESTAMP_STR, value: Number) =>
+        start = math.max(start, value.longValue + 1)
+      case GreaterThanOrEqual(SQLConstant.TIMESTAMP_STR, value: Number) =>
+        start = math.max(start, value.longValue)
+      case LessThan(SQLConstant.TIMESTAMP_STR, value: Number) =>
+        end = math.min(end, value.longValue)
+      case LessThanOrEqual(SQLConstant.TIMESTAMP_STR, value: Number) =>
+        end = math.min(end, value.longValue + 1)
+      case _ =>
+    }
+
+    filters.foreach(intersect)
+    (start, end)
+  }
+
+  /**
+    * Split [start, end) into time ranges. If the interval is positive, the ranges are aligned to
+    * its multiples, otherwise [start, end) is split evenly into `numRanges` ranges.
+    */
+  def splitTimeRange(start: Long, end: Long, interval: Long, numRanges: Int): Seq[(Long, Long)] = {
+    val ranges = new ArrayBuffer[(Long, Long)]()
+    if (start >= end) {
+      return ranges
+    }
+    val length = if (interval > 0) {
+      interval
+    } else {
+      ((BigInt(end) - start + numRanges - 1) / numRanges).max(1).toLong
+    }
+    var rangeStart = start
+    while (rangeStart < end) {
+      val rangeEnd = if (interval > 0) {
+        (Math.floorDiv(rangeStart, length) + 1) * length
+      } else {
+        rangeStart + length
+      }
+      // rangeEnd overflows when the range reaches Long.MaxValue
+      ranges += ((rangeStart, if (rangeEnd > end || rangeEnd <= rangeStart) end else rangeEnd))
+      rangeStart = if (rangeEnd > end || rangeEnd <= rangeStart) end else rangeEnd
+    }
+    ranges
+  }
+
+  /**
+    * Generate the partitions of a raw data query. The time range of the partitions is the time
+    * range of the queried series, narrowed by the filters on time. In wide form, a partition reads
+    * all the series in one time range, as a row joins the series of all devices by time. In narrow
+    * form, a partition reads the series of one device in one time range.
+    *
+    * @param deviceToMeasurements the measurements of the queried series of each device
+    */
+  def getRawDataPartitions(options: IoTDBOptions,
+                           deviceToMeasurements: mutable.LinkedHashMap[String, Seq[String]],
+                           filters: Array[Filter],
+                           defaultParallelism: Int): Array[Partition] = {
+    val (filterStart, filterEnd) = toTimeRange(filters)
+    val (host, port) = options.hostAndPort
+    val session = new Session(host, port, options.user, options.password)
+    val deviceToTimeRange = new mutable.LinkedHashMap[String, (Long, Long)]()
+    session.open()
+    try {
+      deviceToMeasurements.foreach { case (device, measurements) =>
+        val aggregations = measurements.map(m => s"min_time($m), max_time($m)").mkString(", ")
+        val dataSet = session.executeQueryStatement(s"select $aggregations from $device")
+        try {
+          if (dataSet.hasNext) {
+            val times = dataSet.next().getFields.filter(f => f != null && f.getDataType != null)
+              .map(_.getLongV)
+            if (times.nonEmpty) {
+              // max_time is inclusive
+              val start = math.max(filterStart, times.min)
+              val end = math.min(filterEnd, times.max + 1)
+              if (start < end) {
+                deviceToTimeRange.put(device, (start, end))
+              }
+            }
+          }
+        } finally {
+          dataSet.closeOperationHandle()
+        }
+      }
+    } finally {
+      session.close()
+    }
+
+    val numRanges = if (options.numPartition.toInt > 1) {
+      options.numPartition.toInt
+    } else {
+      defaultParallelism
+    }
+    val interval = options.partitionInterval.toLong
+    val partitions = new ArrayBuffer[Partition]()
+    if (options.isNarrowForm) {
+      // a device needs less ranges as there are more devices
+      val numRangesOfDevice = math.max(1, numRanges / math.max(1, deviceToTimeRange.size))
+      deviceToTimeRange.foreach { case (device, (start, end)) =>
+        val paths = deviceToMeasurements(device).map(device + "." + _).toArray
+        splitTimeRange(start, end, interval, numRangesOfDevice).foreach { case (s, e) =>
+          partitions += IoTDBRawDataPartition(partitions.length, device, paths, s, e)
+        }
+      }
+    } else if (deviceToTimeRange.nonEmpty) {
+      val start = deviceToTimeRange.values.map(_._1).min
+      val end = deviceToTimeRange.values.map(_._2).max
+      val paths = deviceToMeasurements.toSeq.flatMap { case (device, measurements) =>
+        measurements.map(device + "." + _)
+      }.toArray
+      splitTimeRange(start, end, interval, numRanges).foreach { case (s, e) =>
+        partitions += IoTDBRawDataPartition(partitions.length, null, paths, s, e)
+      }
+    }
+    logger.info(s"Generate ${partitions.length} partitions of ${deviceToTimeRange.size} devices " +
+      s"in time range [$filterStart, $filterEnd)")
+    partitions.toArray
+  }
+
   def getPartitions(partitionInfo: IoTDBPartitioningInfo): Array[Partition] = {
     if (partitionInfo == null || partitionInfo.numPartitions <= 1 ||
       partitionInfo.start == partitionInfo.end) {
@@ -94,11 +256,39 @@ class IoTDBRelation protected[iotdb](val options: IoTDBOptions)(@transient val s
 
   private final val logger = LoggerFactory.getLogger(classOf[IoTDBRelation])
 
+  /**
+    * the schema of the query in wide form, each column other than time is a series
+    */
+  private lazy val wideSchema: StructType = Converter.toSparkSchema(options)
+
+  /**
+    * raw data queries without bounds given by the user are partitioned automatically
+    */
+  private lazy val isAutoPartitioned: Boolean =
+    !options.hasBounds && IoTDBRelation.isRawDataQuery(options.sql, wideSchema)
+
   override def schema: StructType = {
-    Converter.toSparkSchema(options)
+    if (!options.isNarrowForm) {
+      return wideSchema
+    }
+    require(isAutoPartitioned, "Operation not allowed: only the raw data queries without " +
+      "lowerBound and upperBound can be read in narrow form")
+    val measurements = new mutable.LinkedHashMap[String, StructField]()
+    wideSchema.tail.foreach(field => {
+      val measurement = IoTDBRelation.splitPath(field.name)._2
+      val existing = measurements.getOrElseUpdate(measurement, field.copy(name = measurement))
+      require(existing.dataType == field.dataType, s"Operation not allowed: measurement " +
+        s"$measurement has different data types ${existing.dataType} and ${field.dataType}")
+    })
+    StructType(wideSchema.head +: StructField(IoTDBRelation.DEVICE_NAME, StringType,
+      nullable = false) +: measurements.values.toSeq)
   }
 
   override def buildScan(requiredColumns: Array[String], filters: Array[Filter]): RDD[Row] = {
+    if (isAutoPartitioned) {
+      return buildRawDataScan(requiredColumns, filters)
+    }
+
     val start: Long = options.lowerBound.toLong
     val end: Long = options.upperBound.toLong
     val numPartition = options.numPartition.toInt
@@ -114,4 +304,34 @@ class IoTDBRelation protected[iotdb](val options: IoTDBOptions)(@transient val s
       filters,
       parts).asInstanceOf[RDD[Row]]
   }
+
+  /**
+    * Read the required series through the raw data queries of sessions, in partitions generated
+    * from the time range of the series. If no series is required, e.g. for count(*), all series
+    * are read to find the timestamps of the rows.
+    */
+  private def buildRawDataScan(requiredColumns: Array[String], filters: Array[Filter]): RDD[Row] = {
+    val fullSchema = schema
+    val requiredSeries: Seq[String] = if (options.isNarrowForm) {
+      val measurements = requiredColumns.toSet - SQLConstant.TIMESTAMP_STR -
+        IoTDBRelation.DEVICE_NAME
+      wideSchema.tail.map(_.name).filter(path => measurements.isEmpty ||
+        measurements.contains(IoTDBRelation.splitPath(path)._2))
+    } else {
+      val series = requiredColumns.filter(_ != SQLConstant.TIMESTAMP_STR).toSeq
+      if (series.isEmpty) wideSchema.tail.map(_.name) else series
+    }
+    val deviceToMeasurements = new mutable.LinkedHashMap[String, Seq[String]]()
+    requiredSeries.foreach(path => {
+      val (device, measurement) = IoTDBRelation.splitPath(path)
+      deviceToMeasurements.put(device, deviceToMeasurements.getOrElse(device, Seq()) :+ measurement)
+    })
+
+    val parts = IoTDBRelation.getRawDataPartitions(options, deviceToMeasurements, filters,
+      sparkSession.sparkContext.defaultParallelism)
+    val fieldMap = fullSchema.fields.map(field => field.name -> field).toMap
+    val prunedSchema = StructType(requiredColumns.map(fieldMap))
+    new IoTDBRawDataRDD(sparkSession.sparkContext, options, prunedSchema, parts)
+      .asInstanceOf[RDD[Row]]
+  }
 }
@@ -84,6 +84,33 @@ class IoTDBTest extends FunSuite with BeforeAndAfterAll {
     Assert.assertEquals(7505, df.count())
   }
 
+  test("test show data with automatic partition") {
+    val df = spark.read.format("org.apache.iotdb.sparkdb")
+      .option("url", "jdbc:iotdb://127.0.0.1:6667/")
+      .option("sql", "select * from root")
+      .option("partitionInterval", 1000).load
+    Assert.assertTrue(df.rdd.getNumPartitions > 1)
+    Assert.assertEquals(7505, df.count())
+    // the filters on time narrow the time range of the partitions
+    Assert.assertEquals(499, df.filter("Time < 2000 and Time > 1000").count())
+
+    val row = df.select("Time", "root.vehicle.d0.s0", "root.vehicle.d0.s3")
+      .filter("Time = 1001").head()
+    Assert.assertEquals(1001L, row.getLong(0))
+    Assert.assertEquals(1001, row.getInt(1))
+    Assert.assertEquals("1001", row.getString(2))
+  }
+
+  test("test show data in narrow form") {
+    val df = spark.read.format("org.apache.iotdb.sparkdb")
+      .option("url", "jdbc:iotdb://127.0.0.1:6667/")
+      .option("sql", "select * from root")
+      .option("form", "narrow").load
+    val deviceDf = df.filter("Time < 1100 and Time > 1000 and device_name = 'root.vehicle.d0'")
+    Assert.assertEquals(99, deviceDf.count())
+    Assert.assertEquals(0, deviceDf.filter("s0 != Time").count())
+  }
+
   test("test filter data") {
     val df = spark.read.format("org.apache.iotdb.sparkdb")
       .option("url", "jdbc:iotdb://127.0.0.1:6667/")
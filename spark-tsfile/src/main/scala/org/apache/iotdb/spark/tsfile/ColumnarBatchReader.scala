@@ -0,0 +1,292 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.apache.iotdb.spark.tsfile
+
+import java.util.NoSuchElementException
+
+import org.apache.iotdb.tsfile.common.constant.QueryConstant
+import org.apache.iotdb.tsfile.exception.filter.QueryFilterOptimizationException
+import org.apache.iotdb.tsfile.file.metadata.enums.TSDataType
+import org.apache.iotdb.tsfile.read.TsFileSequenceReader
+import org.apache.iotdb.tsfile.read.common.{BatchData, Path}
+import org.apache.iotdb.tsfile.read.controller.{CachedChunkLoaderImpl, MetadataQuerierByFileImpl}
+import org.apache.iotdb.tsfile.read.expression.IExpression
+import org.apache.iotdb.tsfile.read.expression.impl.{BinaryExpression, GlobalTimeExpression}
+import org.apache.iotdb.tsfile.read.expression.util.ExpressionOptimizer
+import org.apache.iotdb.tsfile.read.filter.basic.{Filter => TsFileFilter}
+import org.apache.iotdb.tsfile.read.reader.series.FileSeriesReader
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.execution.vectorized.WritableColumnVector
+import org.apache.spark.sql.sources.Filter
+import org.apache.spark.sql.types._
+import org.apache.spark.sql.vectorized.{ColumnVector, ColumnarBatch}
+
+import scala.collection.JavaConversions._
+
+/**
+  * Reads the data columns of a ColumnarBatch, which are the first columns of `vectors`. The
+  * partition columns following them are constant, so they are populated once by the caller and
+  * kept by `reset()`. The same batch is returned by every `next()`, so it must be consumed before
+  * `hasNext` is called again.
+  *
+  * @param vectors    the vectors of the data columns and the partition columns
+  * @param dataSchema the schema of the data columns
+  * @param capacity   the max number of rows in a batch
+  */
+private[tsfile] abstract class ColumnarBatchReader(vectors: Array[WritableColumnVector],
+                                                   dataSchema: StructType,
+                                                   capacity: Int)
+  extends Iterator[ColumnarBatch] {
+
+  private val batch = new ColumnarBatch(vectors.toArray[ColumnVector])
+
+  private var batchReady = false
+
+  override def hasNext: Boolean = {
+    if (!batchReady) {
+      dataSchema.indices.foreach(vectors(_).reset())
+      val rows = readBatch()
+      batch.setNumRows(rows)
+      batchReady = rows > 0
+    }
+    batchReady
+  }
+
+  override def next(): ColumnarBatch = {
+    if (!hasNext) {
+      throw new NoSuchElementException("No more batches")
+    }
+    batchReady = false
+    batch
+  }
+
+  /**
+    * Fill at most `capacity` rows into the vectors of the data columns.
+    *
+    * @return the number of rows filled, 0 if there is no more data
+    */
+  protected def readBatch(): Int
+}
+
+/**
+  * Copies the rows of the row-based readers into ColumnarBatches. It is used for the narrow form
+  * and for the queries whose filters are not only on time, which need the rows to be joined by
+  * the filtered series before the columns can be filled.
+  */
+private[tsfile] class RowColumnarBatchReader(rows: Iterator[InternalRow],
+                                             vectors: Array[WritableColumnVector],
+                                             dataSchema: StructType,
+                                             capacity: Int)
+  extends ColumnarBatchReader(vectors, dataSchema, capacity) {
+
+  private val dataTypes = dataSchema.fields.map(_.dataType)
+
+  override protected def readBatch(): Int = {
+    var rowId = 0
+    while (rowId < capacity && rows.hasNext) {
+      val row = rows.next()
+      var i = 0
+      while (i < dataTypes.length) {
+        val vector = vectors(i)
+        if (row.isNullAt(i)) {
+          vector.putNull(rowId)
+        } else {
+          dataTypes(i) match {
+            case BooleanType => vector.putBoolean(rowId, row.getBoolean(i))
+            case IntegerType => vector.putInt(rowId, row.getInt(i))
+            case LongType => vector.putLong(rowId, row.getLong(i))
+            case FloatType => vector.putFloat(rowId, row.getFloat(i))
+            case DoubleType => vector.putDouble(rowId, row.getDouble(i))
+            case StringType => vector.putByteArray(rowId, row.getUTF8String(i).getBytes)
+            case other => throw new UnsupportedOperationException(s"Unsupported type $other")
+          }
+        }
+        i += 1
+      }
+      rowId += 1
+    }
+    rowId
+  }
+}
+
+/**
+  * Fills the columns of the wide form directly from the decoded pages of the series, so no
+  * RowRecord, Field or Row is created for a point. The series are merged by time like
+  * DataSetWithoutTimeGenerator, and a series without a point at the time gets a null.
+  *
+  * @param seriesReaders the readers of the queried series, null if a series has no chunk
+  * @param dataTypes     the data types of the queried series
+  * @param seriesColumns the column of each series in `dataSchema`, -1 if it is not selected
+  * @param timeColumn    the column of time in `dataSchema`, -1 if it is not selected
+  * @param nullColumns   the columns in `dataSchema` that have no data in this file
+  */
+private[tsfile] class WideColumnarBatchReader(seriesReaders: Array[FileSeriesReader],
+                                              dataTypes: Array[TSDataType],
+                                              seriesColumns: Array[Int],
+                                              timeColumn: Int,
+                                              nullColumns: Array[Int],
+                                              vectors: Array[WritableColumnVector],
+                                              dataSchema: StructType,
+                                              capacity: Int)
+  extends ColumnarBatchReader(vectors, dataSchema, capacity) {
+
+  private val pages = new Array[BatchData](seriesReaders.length)
+
+  /**
+    * @return true if the series has a point not read yet, and `pages(i)` is positioned at it
+    */
+  private def hasCurrent(i: Int): Boolean = {
+    while (pages(i) == null || !pages(i).hasCurrent) {
+      if (seriesReaders(i) == null || !seriesReaders(i).hasNextBatch) {
+        seriesReaders(i) = null
+        return false
+      }
+      pages(i) = seriesReaders(i).nextBatch()
+    }
+    true
+  }
+
+  override protected def readBatch(): Int = {
+    var rowId = 0
+    var exhausted = false
+    while (rowId < capacity && !exhausted) {
+      var minTime = Long.MaxValue
+      exhausted = true
+      var i = 0
+      while (i < pages.length) {
+        if (hasCurrent(i) && pages(i).currentTime() <= minTime) {
+          minTime = pages(i).currentTime()
+          exhausted = false
+        }
+        i += 1
+      }
+
+      if (!exhausted) {
+        if (timeColumn >= 0) {
+          vectors(timeColumn).putLong(rowId, minTime)
+        }
+        i = 0
+        while (i < pages.length) {
+          val column = seriesColumns(i)
+          if (hasCurrent(i) && pages(i).currentTime() == minTime) {
+            if (column >= 0) {
+              putValue(vectors(column), rowId, pages(i), dataTypes(i))
+            }
+            pages(i).next()
+          } else if (column >= 0) {
+            vectors(column).putNull(rowId)
+          }
+          i += 1
+        }
+        rowId += 1
+      }
+    }
+    nullColumns.foreach(vectors(_).putNulls(0, rowId))
+    rowId
+  }
+
+  private def putValue(vector: WritableColumnVector, rowId: Int, page: BatchData,
+                       dataType: TSDataType): Unit = {
+    dataType match {
+      case TSDataType.BOOLEAN => vector.putBoolean(rowId, page.getBoolean)
+      case TSDataType.INT32 => vector.putInt(rowId, page.getInt)
+      case TSDataType.INT64 => vector.putLong(rowId, page.getLong)
+      case TSDataType.FLOAT => vector.putFloat(rowId, page.getFloat)
+      case TSDataType.DOUBLE => vector.putDouble(rowId, page.getDouble)
+      case TSDataType.TEXT => vector.putByteArray(rowId, page.getBinary.getValues)
+      case other => throw new UnsupportedOperationException(s"Unsupported type $other")
+    }
+  }
+}
+
+private[tsfile] object WideColumnarBatchReader {
+
+  /**
+    * Create a reader of the pages of the queried series in the space partition
+    * [start, end). The filters are converted to a query expression like the row-based reader,
+    * and the space partition is converted to time ranges like ReadOnlyTsFile does.
+    *
+    * @param requiredSchema the columns to read
+    * @param queriedSchema  the series to read, see WideConverter.prepSchema
+    * @return None if the filters are not only on time, so the series cannot be read
+    *         independently and the row-based reader should be used
+    */
+  def create(reader: TsFileSequenceReader,
+             requiredSchema: StructType,
+             queriedSchema: StructType,
+             filters: Seq[Filter],
+             start: Long,
+             end: Long,
+             vectors: Array[WritableColumnVector],
+             capacity: Int): Option[WideColumnarBatchReader] = {
+    val queryExpression = WideConverter.toQueryExpression(queriedSchema, filters)
+    val metadataQuerier = new MetadataQuerierByFileImpl(reader)
+    val bloomFilter = metadataQuerier.getWholeFileMetadata.getBloomFilter
+    val paths = new java.util.ArrayList[Path]()
+    queryExpression.getSelectedSeries.foreach(path =>
+      if (bloomFilter == null || bloomFilter.contains(path.getFullPath)) {
+        paths.add(path)
+      })
+    metadataQuerier.loadChunkMetaDatas(paths)
+
+    val timeRanges = metadataQuerier.convertSpace2TimePartition(paths, start, end)
+    var timeFilter: TsFileFilter = null
+    if (timeRanges.isEmpty) {
+      // nothing in this partition, read no series
+      paths.clear()
+    } else {
+      var expression: IExpression = timeRanges.map(_.getExpression).reduce[IExpression](
+        (left, right) => BinaryExpression.or(left, right))
+      if (queryExpression.hasQueryFilter) {
+        expression = BinaryExpression.and(queryExpression.getExpression, expression)
+      }
+      try {
+        ExpressionOptimizer.getInstance().optimize(expression, paths) match {
+          case globalTimeExpression: GlobalTimeExpression =>
+            timeFilter = globalTimeExpression.getFilter
+          case _ => return None
+        }
+      } catch {
+        // let the row-based reader report it
+        case _: QueryFilterOptimizationException => return None
+      }
+    }
+
+    val chunkLoader = new CachedChunkLoaderImpl(reader)
+    val seriesReaders = new Array[FileSeriesReader](paths.size())
+    val dataTypes = new Array[TSDataType](paths.size())
+    val seriesColumns = new Array[Int](paths.size())
+    for (i <- 0 until paths.size()) {
+      val chunkMetadataList = metadataQuerier.getChunkMetaDataList(paths(i))
+      if (!chunkMetadataList.isEmpty) {
+        seriesReaders(i) = new FileSeriesReader(chunkLoader, chunkMetadataList, timeFilter)
+        dataTypes(i) = chunkMetadataList.get(0).getDataType
+      }
+      seriesColumns(i) = requiredSchema.fieldNames.indexOf(paths(i).getFullPath)
+    }
+    val timeColumn = requiredSchema.fieldNames.indexOf(QueryConstant.RESERVED_TIME)
+    val nullColumns = requiredSchema.indices.filter(column => column != timeColumn
+      && !seriesColumns.zipWithIndex.exists { case (c, i) => c == column && seriesReaders(i) != null })
+      .toArray
+
+    Some(new WideColumnarBatchReader(seriesReaders, dataTypes, seriesColumns, timeColumn,
+      nullColumns, vectors, requiredSchema, capacity))
+  }
+}
@@ -38,6 +38,9 @@ import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.encoders.RowEncoder
 import org.apache.spark.sql.catalyst.expressions.GenericRow
 import org.apache.spark.sql.execution.datasources.{FileFormat, OutputWriterFactory, PartitionedFile}
+import org.apache.spark.sql.execution.vectorized.{ColumnVectorUtils, OnHeapColumnVector,
+WritableColumnVector}
+import org.apache.spark.sql.internal.SQLConf
 import org.apache.spark.sql.sources.{DataSourceRegister, Filter}
 import org.apache.spark.sql.types._
 import org.slf4j.LoggerFactory
@@ -83,6 +86,81 @@ private[tsfile] class DefaultSource extends FileFormat with DataSourceRegister {
     true
   }
 
+  /**
+    * Return ColumnarBatches instead of rows if the vectorized reader is enabled and the
+    * ColumnarBatches can be consumed by the whole-stage codegen.
+    */
+  override def supportBatch(sparkSession: SparkSession, schema: StructType): Boolean = {
+    val conf = sparkSession.conf
+    conf.get(DefaultSource.enableVectorizedReader, "true").toBoolean &&
+      conf.get(DefaultSource.wholeStageCodegen, "true").toBoolean &&
+      schema.length <= conf.get(DefaultSource.wholeStageMaxFields, "100").toInt &&
+      schema.forall(field => DefaultSource.isVectorizable(field.dataType))
+  }
+
+  override def vectorTypes(
+                            requiredSchema: StructType,
+                            partitionSchema: StructType,
+                            sqlConf: SQLConf): Option[Seq[String]] = {
+    Option(Seq.fill(requiredSchema.length + partitionSchema.length)(
+      classOf[OnHeapColumnVector].getName))
+  }
+
+  override def buildReaderWithPartitionValues(
+                            sparkSession: SparkSession,
+                            dataSchema: StructType,
+                            partitionSchema: StructType,
+                            requiredSchema: StructType,
+                            filters: Seq[Filter],
+                            options: Map[String, String],
+                            hadoopConf: Configuration): (PartitionedFile) => Iterator[InternalRow]
+  = {
+    val resultSchema = StructType(requiredSchema.fields ++ partitionSchema.fields)
+    if (!supportBatch(sparkSession, resultSchema)) {
+      return super.buildReaderWithPartitionValues(sparkSession, dataSchema, partitionSchema,
+        requiredSchema, filters, options, hadoopConf)
+    }
+
+    val batchSize = sparkSession.conf.get(DefaultSource.columnarBatchSize,
+      DefaultSource.defaultBatchSize.toString).toInt
+    val isNarrowForm = options.getOrElse(DefaultSource.isNarrowForm, "").equals("narrow_form")
+    val broadcastedConf =
+      sparkSession.sparkContext.broadcast(new SerializableConfiguration(hadoopConf))
+    // the narrow form and the value filters are read by rows and then copied into batches
+    val rowReader = buildReader(sparkSession, dataSchema, partitionSchema, requiredSchema,
+      filters, options, hadoopConf)
+
+    (file: PartitionedFile) => {
+      val vectors: Array[WritableColumnVector] =
+        OnHeapColumnVector.allocateColumns(batchSize, resultSchema).toArray[WritableColumnVector]
+      for (i <- partitionSchema.indices) {
+        ColumnVectorUtils.populate(vectors(requiredSchema.length + i), file.partitionValues, i)
+      }
+
+      var batchReader: Option[ColumnarBatchReader] = None
+      if (!isNarrowForm) {
+        val conf = broadcastedConf.value.value
+        val in = new HDFSInput(new Path(new URI(file.filePath)), conf)
+        val reader = new TsFileSequenceReader(in)
+
+        val queriedSchema = WideConverter.prepSchema(requiredSchema, reader.readFileMetadata,
+          reader)
+        batchReader = WideColumnarBatchReader.create(reader, requiredSchema, queriedSchema,
+          filters, file.start, file.start + file.length, vectors, batchSize)
+        if (batchReader.isDefined) {
+          Option(TaskContext.get()).foreach(_.addTaskCompletionListener { _ => reader.close() })
+        } else {
+          reader.close()
+        }
+      }
+      val batches = batchReader.getOrElse(
+        new RowColumnarBatchReader(rowReader(file), vectors, requiredSchema, batchSize))
+
+      // the scan casts the rows back to ColumnarBatches if supportBatch is true
+      batches.asInstanceOf[Iterator[InternalRow]]
+    }
+  }
+
   override def buildReader(
                             sparkSession: SparkSession,
                             dataSchema: StructType,
@@ -278,6 +356,16 @@ private[tsfile] class DefaultSource extends FileFormat with DataSourceRegister {
 private[tsfile] object DefaultSource {
   val path = "path"
   val isNarrowForm = "form"
+  val enableVectorizedReader = "spark.sql.tsfile.enableVectorizedReader"
+  val columnarBatchSize = "spark.sql.tsfile.columnarReaderBatchSize"
+  val defaultBatchSize = 4096
+  val wholeStageCodegen = "spark.sql.codegen.wholeStage"
+  val wholeStageMaxFields = "spark.sql.codegen.maxFields"
+
+  def isVectorizable(dataType: DataType): Boolean = dataType match {
+    case BooleanType | IntegerType | LongType | FloatType | DoubleType | StringType => true
+    case _ => false
+  }
 
   class SerializableConfiguration(@transient var value: Configuration) extends Serializable {
     private def writeObject(out: ObjectOutputStream): Unit = {
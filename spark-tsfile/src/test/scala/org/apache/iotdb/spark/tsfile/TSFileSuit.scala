@@ -638,4 +638,43 @@ device_2: 400000 rows, time range [0,799998], interval 2
     spark.conf.set("spark.sql.files.maxPartitionBytes", tmp)
   }
 
-}
\ No newline at end of file
+  private def collectWithVectorizedReader(enabled: Boolean, path: String, isNarrowForm: Boolean,
+                                          sql: String): util.List[String] = {
+    spark.conf.set(DefaultSource.enableVectorizedReader, enabled)
+    try {
+      val df = spark.read.tsfile(path, isNarrowForm)
+      df.createOrReplaceTempView("tsfile_table")
+      val result = new util.ArrayList[String]()
+      spark.sql(sql).collect().foreach(row => result.add(row.toString()))
+      util.Collections.sort(result)
+      result
+    } finally {
+      spark.conf.unset(DefaultSource.enableVectorizedReader)
+    }
+  }
+
+  test("vectorized reader returns the same rows as the row-based reader") {
+    val tmp = spark.conf.get("spark.sql.files.maxPartitionBytes")
+    spark.conf.set("spark.sql.files.maxPartitionBytes", 1024 * 128)
+    spark.conf.set(DefaultSource.columnarBatchSize, 1000)
+
+    val queries = Seq(
+      (tsfile1, false, "select * from tsfile_table"),
+      (tsfile1, false, "select time, `device_1.sensor_1` from tsfile_table where time > 2"),
+      (tsfile1, false, "select * from tsfile_table where `device_1.sensor_1` > 2"),
+      (tsfile3, true, "select * from tsfile_table"),
+      (tsfile4, false, "select count(*) from tsfile_table"),
+      (tsfile4, false, "select * from tsfile_table where time > 131040 and time < 400010"),
+      (tsfile4, true, "select time, device_name, sensor_1 from tsfile_table where time < 1000"))
+    try {
+      queries.foreach { case (path, isNarrowForm, sql) =>
+        Assert.assertEquals(sql, collectWithVectorizedReader(false, path, isNarrowForm, sql),
+          collectWithVectorizedReader(true, path, isNarrowForm, sql))
+      }
+    } finally {
+      spark.conf.unset(DefaultSource.columnarBatchSize)
+      spark.conf.set("spark.sql.files.maxPartitionBytes", tmp)
+    }
+  }
+
+}
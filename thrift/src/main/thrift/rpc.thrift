@@ -259,6 +259,29 @@ struct TSRawDataQueryReq {
     6: required i64 statementId
 }
 
+struct TSLastDataQueryReq {
+    1: required i64 sessionId
+    // full paths of the series, wildcards are not supported
+    2: required list<string> paths
+    3: required i64 statementId
+}
+
+struct TSLastDataSet {
+    // int32 index in the request paths of each series having a last value
+    1: required binary pathIndexes
+    // int64 timestamp of each last value
+    2: required binary times
+    // byte data type of each last value
+    3: required binary types
+    // values serialized one by one according to their data types
+    4: required binary values
+}
+
+struct TSLastDataResp {
+    1: required TSStatus status
+    2: optional TSLastDataSet lastDataSet
+}
+
 struct TSCreateMultiTimeseriesReq {
   1: required i64 sessionId
   2: required list<string> paths
@@ -342,5 +365,7 @@ service TSIService {
 
 	TSExecuteStatementResp executeRawDataQuery(1:TSRawDataQueryReq req);
 
+	TSLastDataResp executeLastDataQuery(1:TSLastDataQueryReq req);
+
 	i64 requestStatementId(1:i64 sessionId);
 }
@@ -36,6 +36,25 @@ struct ConfirmInfo{
 
   // The version of sender and receiver need to be the same.
   4:string version
+
+  // The sender may transfer data through several streams, each of which has its own id.
+  5:optional i32 streamId
+}
+
+// A segment of a tsfile, which is either a chunk or the bytes between two chunks
+struct FileSegment{
+  1:required i64 length
+
+  // MD5 of a chunk, or empty for the bytes between chunks, which are always transferred.
+  2:required string digest
+}
+
+struct SyncSegmentsStatus{
+  1:required i32 code
+  2:required string msg
+
+  // Indexes of the segments that the receiver does not have, in ascending order.
+  3:optional list<i32> missingSegments
 }
 
 service SyncService{
@@ -44,7 +63,13 @@ service SyncService{
 	SyncStatus init(1:string storageGroupName)
 	SyncStatus syncDeletedFileName(1:string fileName)
 	SyncStatus initSyncData(1:string filename)
+	SyncSegmentsStatus initSyncDataInSegments(1:string filename, 2:list<FileSegment> segments)
 	SyncStatus syncData(1:binary buff)
+
+	// Receive a piece of data without a reply, so the sender does not wait for each piece. The
+	// piece is compressed by LZ4 if uncompressedLength is positive. The first error of the pieces
+	// is returned by the following syncData, and an empty syncData acknowledges the pieces.
+	oneway void syncDataInPipeline(1:binary buff, 2:i32 uncompressedLength)
 	SyncStatus checkDataMD5(1:string md5)
 	SyncStatus endSync()
 }
\ No newline at end of file